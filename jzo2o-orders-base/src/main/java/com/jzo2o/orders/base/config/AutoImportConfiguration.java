@@ -1,17 +1,33 @@
 package com.jzo2o.orders.base.config;
 
+import com.jzo2o.orders.base.properties.BatchQueryProperties;
 import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.properties.DiversionProperties;
 import com.jzo2o.orders.base.properties.ExecutorProperties;
+import com.jzo2o.orders.base.properties.OrdersCacheProperties;
+import com.jzo2o.orders.base.properties.SeizeSyncProperties;
+import com.jzo2o.orders.base.properties.ServeProviderStateProperties;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @ComponentScan({"com.jzo2o.orders.base.service","com.jzo2o.orders.base.handler"})
 @MapperScan("com.jzo2o.orders.base.mapper")
-//@Import({OrderStateMachine.class})
-@EnableConfigurationProperties({DispatchProperties.class, ExecutorProperties.class})
+@Import({OrderStateMachine.class})
+@EnableConfigurationProperties({DispatchProperties.class, ExecutorProperties.class, OrdersCacheProperties.class, BatchQueryProperties.class,
+        DiversionProperties.class, SeizeSyncProperties.class, ServeProviderStateProperties.class})
 public class AutoImportConfiguration {
+
+    /**
+     * 批量查询并行执行线程池
+     */
+    @Bean("batchQueryExecutor")
+    public ThreadPoolTaskExecutor batchQueryExecutor(ExecutorProperties executorProperties) {
+        return executorProperties.newExecutor("batchQuery");
+    }
 }
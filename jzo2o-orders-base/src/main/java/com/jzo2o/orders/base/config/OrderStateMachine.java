@@ -0,0 +1,235 @@
+package com.jzo2o.orders.base.config;
+
+import com.jzo2o.common.expcetions.CommonException;
+import com.jzo2o.common.expcetions.ForbiddenOperationException;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.enums.OrderStatusChangeEventEnum;
+import com.jzo2o.orders.base.enums.OrderStatusEnum;
+import com.jzo2o.orders.base.model.converter.OrderSnapshotConverter;
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+import com.jzo2o.orders.base.model.dto.OrderUpdateStatusDTO;
+import com.jzo2o.orders.base.service.IOrderSnapshotService;
+import com.jzo2o.orders.base.service.IOrdersCommonService;
+import com.jzo2o.orders.base.statemachine.OrderStatusChangeHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单状态机
+ * <p>
+ * 根据OrderStatusChangeEventEnum构建状态×事件的转换表，非法的状态变更在内存中直接拒绝；
+ * 合法的变更以事件源状态为条件更新订单状态（CAS），并在更新前后执行对应的处理器，事务提交后保存快照增量；
+ * 抢单结果同步、接单等批量场景使用changeStatusBatch，一条sql更新一批订单
+ * </p>
+ *
+ * @author itcast
+ */
+@Slf4j
+public class OrderStateMachine {
+
+    /**
+     * 状态机名称，处理器bean名称前缀
+     */
+    private static final String NAME = "order";
+
+    private static final OrderStatusEnum[] STATUSES = OrderStatusEnum.values();
+
+    private static final OrderStatusChangeEventEnum[] EVENTS = OrderStatusChangeEventEnum.values();
+
+    /**
+     * 状态值/100到状态序号的映射，状态值均为100的整数倍
+     */
+    private static final int[] STATUS_INDEX;
+
+    /**
+     * 转换表，[源状态序号][事件序号]为目标状态，null表示不允许
+     */
+    private static final OrderStatusEnum[][] TRANSITIONS = new OrderStatusEnum[STATUSES.length][EVENTS.length];
+
+    static {
+        int max = 0;
+        for (OrderStatusEnum status : STATUSES) {
+            max = Math.max(max, status.getStatus() / 100);
+        }
+        STATUS_INDEX = new int[max + 1];
+        Arrays.fill(STATUS_INDEX, -1);
+        for (OrderStatusEnum status : STATUSES) {
+            STATUS_INDEX[status.getStatus() / 100] = status.ordinal();
+        }
+        for (OrderStatusChangeEventEnum event : EVENTS) {
+            TRANSITIONS[event.getSourceStatus().ordinal()][event.ordinal()] = event.getTargetStatus();
+        }
+    }
+
+    @Resource
+    private ApplicationContext applicationContext;
+
+    @Resource
+    private IOrdersCommonService ordersCommonService;
+
+    @Resource
+    private IOrderSnapshotService orderSnapshotService;
+
+    /**
+     * 处理器，按事件序号存放
+     */
+    private final OrderStatusChangeHandler[] handlers = new OrderStatusChangeHandler[EVENTS.length];
+
+    @PostConstruct
+    public void init() {
+        Map<String, OrderStatusChangeHandler> beans = applicationContext.getBeansOfType(OrderStatusChangeHandler.class);
+        for (OrderStatusChangeEventEnum event : EVENTS) {
+            handlers[event.ordinal()] = beans.get(NAME + "_" + event.getCode());
+        }
+    }
+
+    /**
+     * 状态变更是否合法
+     *
+     * @param status 当前订单状态
+     * @param event  状态变更事件
+     * @return 目标状态，不合法返回null
+     */
+    public static OrderStatusEnum transition(Integer status, OrderStatusChangeEventEnum event) {
+        if (ObjectUtils.isNull(status) || ObjectUtils.isNull(event)) {
+            return null;
+        }
+        int value = status;
+        if (value < 0 || value % 100 != 0 || value / 100 >= STATUS_INDEX.length) {
+            return null;
+        }
+        int index = STATUS_INDEX[value / 100];
+        return index < 0 ? null : TRANSITIONS[index][event.ordinal()];
+    }
+
+    /**
+     * 变更订单状态
+     *
+     * @param id            订单id
+     * @param currentStatus 当前订单状态
+     * @param event         状态变更事件
+     * @param bizSnapshot   订单快照，其中的支付、退款、评价等信息随状态一起更新，可为空
+     */
+    @Transactional
+    public void changeStatus(Long id, Integer currentStatus, OrderStatusChangeEventEnum event, OrderSnapshotDTO bizSnapshot) {
+        //1.内存中校验状态变更
+        OrderStatusEnum targetStatus = transition(currentStatus, event);
+        if (ObjectUtils.isNull(targetStatus)) {
+            throw new ForbiddenOperationException("订单状态为" + currentStatus + "，不能执行" + event.getDesc());
+        }
+
+        //2.更新前处理
+        OrderStatusChangeHandler handler = handlers[event.ordinal()];
+        if (ObjectUtils.isNotNull(handler)) {
+            handler.before(id, event, bizSnapshot);
+        }
+
+        //3.以事件源状态为条件更新订单状态
+        OrderUpdateStatusDTO orderUpdateStatusDTO = OrderUpdateStatusDTO.builder()
+                .id(id)
+                .originStatus(event.getSourceStatus().getStatus())
+                .targetStatus(targetStatus.getStatus())
+                .build();
+        if (ObjectUtils.isNotNull(bizSnapshot)) {
+            orderUpdateStatusDTO.setPayStatus(bizSnapshot.getPayStatus());
+            orderUpdateStatusDTO.setRefundStatus(bizSnapshot.getRefundStatus());
+            orderUpdateStatusDTO.setPayTime(bizSnapshot.getPayTime());
+            orderUpdateStatusDTO.setEvaluationTime(bizSnapshot.getEvaluationTime());
+            orderUpdateStatusDTO.setTradingOrderNo(bizSnapshot.getTradingOrderNo());
+            orderUpdateStatusDTO.setTransactionId(bizSnapshot.getThirdOrderId());
+            orderUpdateStatusDTO.setTradingChannel(bizSnapshot.getTradingChannel());
+        }
+        Integer result = ordersCommonService.updateStatus(orderUpdateStatusDTO);
+        if (result <= 0) {
+            throw new CommonException("订单状态已变更，" + event.getDesc() + "失败");
+        }
+
+        //4.更新后处理
+        if (ObjectUtils.isNotNull(handler)) {
+            handler.after(id, event, bizSnapshot);
+        }
+
+        //5.事务提交后保存快照增量，复制一份避免修改调用方的快照
+        OrderSnapshotDTO changes = new OrderSnapshotDTO();
+        if (ObjectUtils.isNotNull(bizSnapshot)) {
+            OrderSnapshotConverter.INSTANCE.merge(bizSnapshot, changes);
+        }
+        changes.setOrdersStatus(targetStatus.getStatus());
+        afterCommit(() -> saveSnapshot(id, changes));
+    }
+
+    /**
+     * 批量变更订单状态，用于抢单结果同步等批量场景，只更新状态不带业务快照
+     *
+     * @param ids   订单id列表
+     * @param event 状态变更事件
+     * @return 状态变更成功的订单id，当前状态不是事件源状态的（已取消、已处理）不在其中
+     */
+    @Transactional
+    public List<Long> changeStatusBatch(List<Long> ids, OrderStatusChangeEventEnum event) {
+        if (CollUtils.isEmpty(ids)) {
+            return new ArrayList<>();
+        }
+        Integer targetStatus = event.getTargetStatus().getStatus();
+        OrderStatusChangeHandler handler = handlers[event.ordinal()];
+        if (ObjectUtils.isNotNull(handler)) {
+            ids.forEach(id -> handler.before(id, event, null));
+        }
+
+        List<OrderUpdateStatusDTO> updateStatusList = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            updateStatusList.add(OrderUpdateStatusDTO.builder()
+                    .id(id)
+                    .originStatus(event.getSourceStatus().getStatus())
+                    .targetStatus(targetStatus)
+                    .build());
+        }
+        List<Long> updatedIds = ordersCommonService.updateStatusBatch(updateStatusList);
+
+        if (ObjectUtils.isNotNull(handler)) {
+            updatedIds.forEach(id -> handler.after(id, event, null));
+        }
+        afterCommit(() -> updatedIds.forEach(id -> {
+            OrderSnapshotDTO changes = new OrderSnapshotDTO();
+            changes.setOrdersStatus(targetStatus);
+            saveSnapshot(id, changes);
+        }));
+        return updatedIds;
+    }
+
+    /**
+     * 事务提交后执行，无事务时立即执行
+     */
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    private void saveSnapshot(Long id, OrderSnapshotDTO changes) {
+        try {
+            orderSnapshotService.append(id, changes);
+        } catch (Exception e) {
+            // 快照不影响状态变更结果
+            log.error("订单快照保存失败，id:{}", id, e);
+        }
+    }
+}
@@ -48,6 +48,28 @@ public class RedisConstants {
          */
         public static final String ORERS_SEIZE_SYNC_QUEUE_NAME = "ORDERS:SEIZE:SYNC";
 
+        /**
+         * 抢单结果同步队列 hash 格式：ORDERS:SEIZE:SYNC_{城市编码尾号}
+         * 与库存、抢单池、服务状态表使用同一hash tag，key为抢单id，value为抢单结果json
+         */
+        public static final String ORDERS_SEIZE_SYNC = "ORDERS:SEIZE:SYNC_{%s}";
+
+        /**
+         * 抢单池变更流 stream 格式：ORDERS:SEIZE:FEED:{城市编码}
+         * 每条记录为一次抢单新增或删除，记录id即版本号
+         */
+        public static final String ORDERS_SEIZE_FEED = "ORDERS:SEIZE:FEED:%s";
+
+        /**
+         * 抢单所在城市 hash，key为抢单id，value为城市编码；变更流写入新增时记录，删除时读取并移除（删除事件只有id）
+         */
+        public static final String ORDERS_SEIZE_FEED_CITY = "ORDERS:SEIZE:FEED_CITY";
+
+        /**
+         * 抢单池变更流写入通知频道，消息为城市编码，各节点收到后唤醒等待该城市变更的请求
+         */
+        public static final String ORDERS_SEIZE_FEED_CHANNEL = "ORDERS:SEIZE:FEED_CHANNEL";
+
         /**
          * 当前用户/机构当前接单数量，接单+派单总数量
          * 接单+派单操作+1
@@ -76,7 +98,7 @@ public class RedisConstants {
         public static final String ORDERS_RESOURCE_STOCK = "ORDERS:RESOURCE:STOCK:{%s}";
 
         /**
-         * 派单连续失败次数 string
+         * 派单连续失败次数 string 格式：ORDERS:DISPATCH:FAILD_TIMES_{派单id}_{城市编码尾号}
          */
         public static final String ORDERS_DISPATCH_FAILD_TIMES = "ORDERS:DISPATCH:FAILD_TIMES_%s_{%s}";
 
@@ -97,14 +119,82 @@ public class RedisConstants {
         public static final String SERVE_PROVIDER_STATE = "PROVIDER:SERVE_STATE:{%s}";
 
         /**
-         * 派单列表 - zSet结构
+         * 已归还接单数量的服务单 zset 格式：PROVIDER:SERVE_RELEASED:{序号}
+         * member为服务单id，score为归还时间戳（毫秒）；与服务状态表使用同一hash tag，保证同一服务单只归还一次
+         */
+        public static final String SERVE_PROVIDER_RELEASED = "PROVIDER:SERVE_RELEASED:{%s}";
+
+        /**
+         * 服务时间日历 string（bitfield） 格式：PROVIDER:SERVE_CALENDAR:{serveProviderId}_{城市编码尾号}
+         * 布局见ServeCalendar，与库存、抢单池使用同一hash tag
+         */
+        public static final String SERVE_PROVIDER_CALENDAR = "PROVIDER:SERVE_CALENDAR:%s_{%s}";
+
+        /**
+         * 派单列表 zset 格式：ORDERS:DISPATCH:LIST_{城市编码尾号}
+         * member为订单id，score为下次派单时间戳（毫秒）；按城市编码尾号分为10个，每个由一个节点的一个线程处理
+         */
+        public static final String DISPATCH_LIST = "ORDERS:DISPATCH:LIST_{%s}";
+
+        /**
+         * 派单待接单记录 hash 格式：ORDERS:DISPATCH:OFFER_{城市编码尾号}
+         * key为订单id，value为派单记录json；接单、拒单、超时时删除，删除成功的一方处理
+         */
+        public static final String DISPATCH_OFFER = "ORDERS:DISPATCH:OFFER_{%s}";
+
+        /**
+         * 接单截止时间 zset 格式：ORDERS:DISPATCH:RECEIVE_TIMEOUT_{城市编码尾号}
+         * member为订单id，score为接单截止时间戳（毫秒），与待接单记录同时写入、删除；持有派单列表的节点启动时间轮时从中恢复
+         */
+        public static final String DISPATCH_RECEIVE_TIMEOUT = "ORDERS:DISPATCH:RECEIVE_TIMEOUT_{%s}";
+
+        /**
+         * 派单节点 zset，member为节点标识，score为最近一次心跳时间戳（毫秒），用于计算每个节点处理的派单列表数量
+         */
+        public static final String DISPATCH_NODES = "ORDERS:DISPATCH:NODES";
+
+        /**
+         * 用户端滚动分页查询订单 zset 格式：ORDERS:PAGE_QUERY:PAGE_{用户id}
          */
-        public static final String DISPATCH_LIST = "ORDERS:DISPATCH:LIST";
+        public static final String ORDERS = "ORDERS:PAGE_QUERY:PAGE_{%s}";
 
         /**
-         * 用户端滚动分页查询订单
+         * 用户端滚动分页索引构建中的临时索引 zset 格式：ORDERS:PAGE_QUERY:FILL_{用户id}_{随机串}
          */
-        public static final String ORDERS = "ORDERS:PAGE_QUERY:PAGE_%s";
+        public static final String ORDERS_FILL = "ORDERS:PAGE_QUERY:FILL_{%s}_%s";
+
+        /**
+         * 用户端滚动分页索引缺失期间的变更版本 string 格式：ORDERS:PAGE_QUERY:VERSION_{用户id}
+         */
+        public static final String ORDERS_PAGE_VERSION = "ORDERS:PAGE_QUERY:VERSION_{%s}";
+
+        /**
+         * 订单详情缓存 string 格式：ORDERS:DETAIL:{订单id}
+         */
+        public static final String ORDERS_DETAIL = "ORDERS:DETAIL:%s";
+
+        /**
+         * 机构服务人员服务单数量 hash 格式：ORDERS:SERVE:STAFF_COUNT:{staff_分片}，按服务单id分片
+         * key为机构服务人员id，value为该分片中的服务单数量，服务人员的服务单数量为各分片之和
+         */
+        public static final String STAFF_SERVE_COUNT = "ORDERS:SERVE:STAFF_COUNT:{staff_%s}";
+
+        /**
+         * 服务单所属机构服务人员 hash 格式：ORDERS:SERVE:STAFF_OWNER:{staff_分片}，按服务单id分片，与数量使用同一hash tag
+         * key为服务单id，value为机构服务人员id，用于服务单变更时找到原服务人员
+         */
+        public static final String STAFF_SERVE_OWNER = "ORDERS:SERVE:STAFF_OWNER:{staff_%s}";
+
+        /**
+         * 机构服务人员服务单数量已完成全量构建标记 string
+         */
+        public static final String STAFF_SERVE_READY = "ORDERS:SERVE:STAFF_READY";
+
+        /**
+         * 订单快照 list 格式：ORDERS:SNAPSHOT:{订单id}
+         * 第一条为基础快照，之后为每次状态变更的增量，均为二进制编码（见OrderSnapshotCodec）
+         */
+        public static final String ORDERS_SNAPSHOT = "ORDERS:SNAPSHOT:%s";
     }
 
     public static class Lock {
@@ -121,9 +211,9 @@ public class RedisConstants {
         public static final String DISPATCH_SYNC_LOCK = "ORDERS:DISPATCH:SYNC_%s";
 
         /**
-         * 接单超时
+         * 派单列表租约，格式：ORDERS:DISPATCH:BUCKET_{城市编码尾号}，持有租约的节点处理该派单列表
          */
-        public static final String DISPATCH_RECEIVE_TIMEOUT_LOCK = "ORDERS:DISPATCH:TIMEOUT";
+        public static final String DISPATCH_BUCKET_LOCK = "ORDERS:DISPATCH:BUCKET_%s";
 
         /**
          * 抢单单同步锁定同步队列redis分布式锁
@@ -155,6 +245,21 @@ public class RedisConstants {
          */
         public static final long ORDERS_PAGE_TTL = 600;
 
+        /**
+         * 订单详情缓存有效期
+         */
+        public static final long ORDERS_DETAIL_TTL = 600;
+
+        /**
+         * 订单快照有效期，最后一次状态变更后保留30天
+         */
+        public static final long ORDERS_SNAPSHOT_TTL = 30 * 24 * 3600;
+
+        /**
+         * 已归还接单数量的服务单保留时间，覆盖binlog重复投递的时间范围，单位s
+         */
+        public static final long SERVE_PROVIDER_RELEASED_TTL = 7 * 24 * 3600;
+
 
         /**
          * 抢单派单处理超时时间单位s
@@ -165,5 +270,10 @@ public class RedisConstants {
          * 派单锁定，10分钟内不能再次派单
          */
         public static final long PROVIDER_DISPATCH_LOCK_TTL = 600;
+
+        /**
+         * 派单连续失败次数有效期，单位s
+         */
+        public static final long DISPATCH_FAILD_TIMES_TTL = 24 * 3600;
     }
 }
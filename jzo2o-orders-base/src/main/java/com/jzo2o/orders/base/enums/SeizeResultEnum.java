@@ -0,0 +1,30 @@
+package com.jzo2o.orders.base.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 抢单结果，与lua/orders_seize.lua返回值对应
+ */
+@Getter
+@AllArgsConstructor
+public enum SeizeResultEnum {
+
+    SUCCESS(1, "抢单成功"),
+    NO_STOCK(-1, "订单已被抢或已转派单"),
+    SERVE_NUM_LIMIT(-2, "接单数量已达上限"),
+    SERVE_TIME_CONFLICT(-3, "服务时间冲突"),
+    CALENDAR_MISSING(-4, "服务时间日历不存在");
+
+    private int code;
+    private String desc;
+
+    public static SeizeResultEnum codeOf(Long code) {
+        for (SeizeResultEnum value : values()) {
+            if (code != null && value.code == code) {
+                return value;
+            }
+        }
+        return NO_STOCK;
+    }
+}
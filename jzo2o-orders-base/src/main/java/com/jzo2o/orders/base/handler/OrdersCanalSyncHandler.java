@@ -0,0 +1,58 @@
+package com.jzo2o.orders.base.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.service.IOrdersCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单表binlog监听，失效订单详情缓存
+ * <p>
+ * 使用匿名队列（排他、自动删除），每个节点都会收到全部变更，用于失效各自的本地缓存
+ * </p>
+ */
+@Slf4j
+@Component
+public class OrdersCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<Orders> {
+
+    @Resource
+    private IOrdersCacheService ordersCacheService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<Orders> data) {
+        if (CollUtils.isEmpty(data)) {
+            return;
+        }
+        List<Long> ids = data.stream().map(Orders::getId).collect(Collectors.toList());
+        log.debug("订单变更，失效订单缓存，ids:{}", ids);
+        ordersCacheService.evict(ids);
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        log.debug("订单删除，失效订单缓存，ids:{}", ids);
+        ordersCacheService.evict(ids);
+    }
+}
@@ -4,6 +4,8 @@ import com.jzo2o.orders.base.model.domain.OrdersDispatch;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -17,11 +19,38 @@ import java.util.List;
  */
 public interface OrdersDispatchMapper extends BaseMapper<OrdersDispatch> {
 
-//    @Insert("<script>INSERT INTO orders_dispatch(id, city_code, serve_type_id," +
-//            "serve_item_name, serve_type_name, serve_item_id, serve_address, serve_item_img," +
-//            "total_amount, serve_start_time, lon, lat," +
-//            "pur_num, is_transfer_manual) VALUE <foreach collection='records' item='record' separator=','>#{record.id},#{record.cityCode},#{record.serveTypeId}," +
-//            "#{record.serveItemName},#{record.serveStartTime},#{record.lon},#{record.lat},#{record.purNum},#{record.isTransferManual})</foreach></script>")
-//    Integer batchAdd(@Param("records")List<OrdersDispatch> ordersDispatches);
+    /**
+     * 批量插入派单池，已存在的订单忽略
+     *
+     * @param records 派单列表
+     * @return 插入数量
+     */
+    @Insert("<script>INSERT IGNORE INTO orders_dispatch(id, city_code, serve_type_id, serve_item_name, serve_type_name, serve_item_id, " +
+            "serve_address, serve_item_img, orders_amount, serve_start_time, lon, lat, pur_num, is_transfer_manual) VALUES " +
+            "<foreach collection='records' item='record' separator=','>(#{record.id}, #{record.cityCode}, #{record.serveTypeId}, " +
+            "#{record.serveItemName}, #{record.serveTypeName}, #{record.serveItemId}, #{record.serveAddress}, #{record.serveItemImg}, " +
+            "#{record.ordersAmount}, #{record.serveStartTime}, #{record.lon}, #{record.lat}, #{record.purNum}, #{record.isTransferManual})</foreach></script>")
+    Integer batchAdd(@Param("records") List<OrdersDispatch> records);
 
+    /**
+     * 派单转人工处理
+     *
+     * @param ids 派单id列表
+     * @return 更新数量
+     */
+    @Update("<script>update orders_dispatch set is_transfer_manual = 1 where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    Integer updateTransferManual(@Param("ids") List<Long> ids);
+
+    /**
+     * 按id顺序分批查询城市编码尾号为bucket、未转人工的派单
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @param lastId 上一批最后一个派单id
+     * @param limit  查询数量
+     * @return 派单id列表
+     */
+    @Select("select id from orders_dispatch where id > #{lastId} and is_transfer_manual = 0 " +
+            "and cast(city_code as unsigned) % 10 = #{bucket} order by id limit #{limit}")
+    List<Long> selectPendingIdsByBucket(@Param("bucket") Integer bucket, @Param("lastId") Long lastId, @Param("limit") Integer limit);
 }
@@ -4,9 +4,11 @@ import com.jzo2o.orders.base.model.domain.Orders;
 import com.jzo2o.orders.base.model.dto.OrderUpdateStatusDTO;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * <p>
@@ -18,5 +20,60 @@ import java.time.LocalDateTime;
  */
 public interface OrdersMapper extends BaseMapper<Orders> {
 
+    /**
+     * 用户端订单列表字段
+     */
+    String SIMPLE_COLUMNS = "id, user_id, serve_type_id, serve_type_name, serve_item_id, serve_item_name, serve_item_img, unit, serve_id, " +
+            "orders_status, pay_status, refund_status, price, pur_num, total_amount, real_pay_amount, discount_amount, " +
+            "serve_address, serve_start_time, sort_by, create_time";
 
+    /**
+     * 用户端滚动分页查询，只查询列表所需字段
+     * 条件与排序可由索引(user_id, display, orders_status, sort_by)满足
+     *
+     * @param userId       用户id
+     * @param ordersStatus 订单状态，为空时不过滤
+     * @param sortBy       排序字段游标，为空时查询第一页
+     * @param limit        查询数量
+     * @return 订单列表，仅填充SIMPLE_COLUMNS中的字段
+     */
+    @Select("<script>select " + SIMPLE_COLUMNS + " from orders where user_id = #{userId} and display = 1" +
+            "<if test='ordersStatus != null'> and orders_status = #{ordersStatus}</if>" +
+            "<if test='sortBy != null'> and sort_by &lt; #{sortBy}</if>" +
+            " order by sort_by desc limit #{limit}</script>")
+    List<Orders> selectSimpleListByUserId(@Param("userId") Long userId, @Param("ordersStatus") Integer ordersStatus,
+                                          @Param("sortBy") Long sortBy, @Param("limit") Integer limit);
+
+    /**
+     * 锁定满足原状态的订单
+     *
+     * @param ids          订单id列表
+     * @param originStatus 原订单状态，为空时不校验
+     * @return 锁定的订单id
+     */
+    @Select("<script>select id from orders where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and user_id &gt; 0<if test='originStatus != null'> and orders_status = #{originStatus}</if> for update</script>")
+    List<Long> selectIdsForUpdate(@Param("ids") List<Long> ids, @Param("originStatus") Integer originStatus);
+
+    /**
+     * 批量更新订单状态，同一批订单原状态和目标状态相同，其他字段按订单分别更新，为空时不更新
+     *
+     * @param list         订单状态变更列表
+     * @param originStatus 原订单状态，为空时不校验
+     * @param targetStatus 目标订单状态
+     * @return 更新数量
+     */
+    @Update("<script>update orders set orders_status = #{targetStatus}" +
+            ", pay_status = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.payStatus}, pay_status)</foreach> ELSE pay_status END" +
+            ", refund_status = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.refundStatus}, refund_status)</foreach> ELSE refund_status END" +
+            ", pay_time = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.payTime}, pay_time)</foreach> ELSE pay_time END" +
+            ", evaluation_time = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.evaluationTime}, evaluation_time)</foreach> ELSE evaluation_time END" +
+            ", trading_order_no = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.tradingOrderNo}, trading_order_no)</foreach> ELSE trading_order_no END" +
+            ", transaction_id = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.transactionId}, transaction_id)</foreach> ELSE transaction_id END" +
+            ", trading_channel = CASE id<foreach collection='list' item='item'> WHEN #{item.id} THEN COALESCE(#{item.tradingChannel}, trading_channel)</foreach> ELSE trading_channel END" +
+            " where id in <foreach collection='list' item='item' open='(' separator=',' close=')'>#{item.id}</foreach>" +
+            " and user_id &gt; 0<if test='originStatus != null'> and orders_status = #{originStatus}</if></script>")
+    Integer updateStatusBatch(@Param("list") List<OrderUpdateStatusDTO> list, @Param("originStatus") Integer originStatus,
+                              @Param("targetStatus") Integer targetStatus);
 }
@@ -2,6 +2,12 @@ package com.jzo2o.orders.base.mapper;
 
 import com.jzo2o.orders.base.model.domain.OrdersSeize;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +19,60 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface OrdersSeizeMapper extends BaseMapper<OrdersSeize> {
 
+    /**
+     * 批量插入抢单池，已存在的订单忽略
+     *
+     * @param records 抢单列表
+     * @return 插入数量
+     */
+    @Insert("<script>INSERT IGNORE INTO orders_seize(id, city_code, serve_type_id, serve_item_name, serve_type_name, serve_item_id, " +
+            "serve_address, serve_item_img, orders_amount, serve_start_time, pay_success_time, lon, lat, pur_num, is_time_out, sort_by) VALUES " +
+            "<foreach collection='records' item='record' separator=','>(#{record.id}, #{record.cityCode}, #{record.serveTypeId}, " +
+            "#{record.serveItemName}, #{record.serveTypeName}, #{record.serveItemId}, #{record.serveAddress}, #{record.serveItemImg}, " +
+            "#{record.ordersAmount}, #{record.serveStartTime}, #{record.paySuccessTime}, #{record.lon}, #{record.lat}, #{record.purNum}, " +
+            "#{record.isTimeOut}, #{record.sortBy})</foreach></script>")
+    Integer batchAdd(@Param("records") List<OrdersSeize> records);
+
+    /**
+     * 按id顺序分批查询城市编码尾号为bucket、未超时（未进入派单池）的抢单
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @param lastId 上一批最后一个抢单id
+     * @param limit  查询数量
+     * @return 抢单列表，仅填充id、city_code和serve_start_time
+     */
+    @Select("select id, city_code, serve_start_time from orders_seize where id > #{lastId} and is_time_out = 0 " +
+            "and cast(city_code as unsigned) % 10 = #{bucket} order by id limit #{limit}")
+    List<OrdersSeize> selectNotTimeOutListByBucket(@Param("bucket") Integer bucket, @Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 锁定未超时的抢单
+     *
+     * @param ids 抢单id列表
+     * @return 锁定的抢单
+     */
+    @Select("<script>select * from orders_seize where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and is_time_out = 0 for update</script>")
+    List<OrdersSeize> selectNotTimeOutListForUpdate(@Param("ids") List<Long> ids);
+
+    /**
+     * 标记抢单已超时
+     *
+     * @param ids 抢单id列表
+     * @return 更新数量
+     */
+    @Update("<script>update orders_seize set is_time_out = 1 where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    Integer updateTimeOut(@Param("ids") List<Long> ids);
+
+    /**
+     * 按id顺序分批查询未超时的抢单
+     *
+     * @param lastId 上一批最后一个抢单id
+     * @param limit  查询数量
+     * @return 抢单列表
+     */
+    @Select("select * from orders_seize where id > #{lastId} and is_time_out = 0 order by id limit #{limit}")
+    List<OrdersSeize> selectListAfterId(@Param("lastId") Long lastId, @Param("limit") Integer limit);
 }
@@ -3,7 +3,11 @@ package com.jzo2o.orders.base.mapper;
 import com.jzo2o.orders.base.model.domain.OrdersServe;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * <p>
@@ -23,4 +27,49 @@ public interface OrdersServeMapper extends BaseMapper<OrdersServe> {
      */
 //    @Delete("delete from orders_serve where id=#{id} and serve_provider_id=#{serveProviderId}")
 //    Integer deleteByIdAndServeProviderId(@Param("id") Long id, @Param("serveProviderId") Long serveProviderId);
+
+    /**
+     * 按id顺序分批查询有机构服务人员的服务单，条件与按机构服务人员统计服务单数量一致
+     *
+     * @param lastId 上一批最后一个服务单id
+     * @param limit  查询数量
+     * @return 服务单列表，仅填充id和institution_staff_id
+     */
+    @Select("select id, institution_staff_id from orders_serve where id > #{lastId} and institution_staff_id is not null and serve_provider_id > 0 order by id limit #{limit}")
+    List<OrdersServe> selectStaffListAfterId(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 根据id批量查询服务单所属机构服务人员，条件与按机构服务人员统计服务单数量一致
+     *
+     * @param ids 服务单id列表
+     * @return 服务单列表，仅填充id和institution_staff_id
+     */
+    @Select("<script>select id, institution_staff_id from orders_serve where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> and serve_provider_id &gt; 0</script>")
+    List<OrdersServe> selectStaffListByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 查询服务单的服务人员或机构id
+     *
+     * @param id 服务单id
+     * @return 服务人员或机构id
+     */
+    @Select("select serve_provider_id from orders_serve where id = #{id} and serve_provider_id >= 0 limit 1")
+    Long selectServeProviderIdById(@Param("id") Long id);
+
+    /**
+     * 批量新增服务单，已存在的服务单忽略
+     *
+     * @param records 服务单列表
+     * @return 新增数量
+     */
+    @Insert("<script>INSERT IGNORE INTO orders_serve (id, user_id, serve_provider_id, serve_provider_type, orders_id, orders_origin_type, " +
+            "city_code, serve_type_id, serve_start_time, serve_item_id, serve_item_img, serve_status, settlement_status, orders_amount, " +
+            "pur_num, sort_by, display) VALUES " +
+            "<foreach collection='records' item='record' separator=','>" +
+            "(#{record.id}, #{record.userId}, #{record.serveProviderId}, #{record.serveProviderType}, #{record.ordersId}, " +
+            "#{record.ordersOriginType}, #{record.cityCode}, #{record.serveTypeId}, #{record.serveStartTime}, #{record.serveItemId}, " +
+            "#{record.serveItemImg}, #{record.serveStatus}, #{record.settlementStatus}, #{record.ordersAmount}, #{record.purNum}, " +
+            "#{record.sortBy}, #{record.display})</foreach></script>")
+    Integer batchAdd(@Param("records") List<OrdersServe> records);
 }
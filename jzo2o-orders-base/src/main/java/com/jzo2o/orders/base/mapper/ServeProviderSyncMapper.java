@@ -2,9 +2,12 @@ package com.jzo2o.orders.base.mapper;
 
 import com.jzo2o.orders.base.model.domain.ServeProviderSync;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
 /**
  * <p>
  * 机构服务端更新服务时间 Mapper 接口
@@ -18,4 +21,26 @@ public interface ServeProviderSyncMapper extends BaseMapper<ServeProviderSync> {
 //    @Update("update serve_provider_sync set serve_times=JSON_ARRAY_APPEND(serve_times,'$',#{serveTime})," +
 //            "acceptance_num=acceptance_num+1 where id=#{id}")
 //    int addServeTimes(@Param("id")Long id, @Param("serveTime") Integer serveTime);
+
+    /**
+     * 更新服务时间日历，不存在时新增
+     *
+     * @param id            服务人员/机构id
+     * @param serveCalendar 服务时间日历
+     * @return 影响行数
+     */
+    @Insert("insert into serve_provider_sync (id, serve_calendar) values (#{id}, #{serveCalendar}) " +
+            "on duplicate key update serve_calendar = values(serve_calendar)")
+    int upsertServeCalendar(@Param("id") Long id, @Param("serveCalendar") byte[] serveCalendar);
+
+    /**
+     * 批量更新接单数，只更新已存在的记录
+     *
+     * @param records 服务人员/机构id及接单数
+     * @return 影响行数
+     */
+    @Update("<script>update serve_provider_sync set acceptance_num = case id " +
+            "<foreach collection='records' item='record'>when #{record.id} then #{record.acceptanceNum} </foreach>end " +
+            "where id in <foreach collection='records' item='record' open='(' separator=',' close=')'>#{record.id}</foreach></script>")
+    int batchUpdateAcceptanceNum(@Param("records") List<ServeProviderSync> records);
 }
@@ -0,0 +1,45 @@
+package com.jzo2o.orders.base.model.converter;
+
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.NullValuePropertyMappingStrategy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * 订单快照转换，编译期生成实现
+ */
+@Mapper
+public interface OrderSnapshotConverter {
+
+    OrderSnapshotConverter INSTANCE = Mappers.getMapper(OrderSnapshotConverter.class);
+
+    /**
+     * 订单转订单快照，取消信息、实际服务结束时间和评价状态来自其他表，由状态变更时的快照增量补充
+     *
+     * @param orders 订单
+     * @return 订单快照
+     */
+    @Mapping(target = "thirdOrderId", source = "transactionId")
+    @Mapping(target = "thirdRefundOrderId", source = "refundId")
+    @Mapping(target = "cancellerId", ignore = true)
+    @Mapping(target = "cancelerName", ignore = true)
+    @Mapping(target = "cancellerType", ignore = true)
+    @Mapping(target = "cancelTime", ignore = true)
+    @Mapping(target = "cancelReason", ignore = true)
+    @Mapping(target = "realServeEndTime", ignore = true)
+    @Mapping(target = "evaluationStatus", ignore = true)
+    OrderSnapshotDTO toSnapshot(Orders orders);
+
+    /**
+     * 将变更内容中的非空字段合并到快照
+     *
+     * @param source   变更内容
+     * @param snapshot 订单快照
+     */
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    void merge(OrderSnapshotDTO source, @MappingTarget OrderSnapshotDTO snapshot);
+}
@@ -0,0 +1,44 @@
+package com.jzo2o.orders.base.model.converter;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.utils.DateUtils;
+import com.jzo2o.orders.base.enums.ServeStatusEnum;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+
+/**
+ * 服务单转换，抢单和派单生成服务单共用
+ */
+public class OrdersServeConverter {
+
+    /**
+     * 订单转服务单，机构抢单/接单后需分配服务人员，服务状态为待分配，服务人员为待服务
+     *
+     * @param orders            订单
+     * @param serveProviderId   服务人员/机构id
+     * @param serveProviderType 服务人员/机构类型
+     * @param ordersOriginType  订单来源，见{@link com.jzo2o.orders.base.constants.OrdersOriginType}
+     * @return 服务单
+     */
+    public static OrdersServe toOrdersServe(Orders orders, Long serveProviderId, Integer serveProviderType, int ordersOriginType) {
+        boolean institution = Integer.valueOf(UserType.INSTITUTION).equals(serveProviderType);
+        return new OrdersServe()
+                .setId(orders.getId())
+                .setUserId(orders.getUserId())
+                .setServeProviderId(serveProviderId)
+                .setServeProviderType(serveProviderType)
+                .setOrdersId(orders.getId())
+                .setOrdersOriginType(ordersOriginType)
+                .setCityCode(orders.getCityCode())
+                .setServeTypeId(orders.getServeTypeId())
+                .setServeStartTime(orders.getServeStartTime())
+                .setServeItemId(orders.getServeItemId())
+                .setServeItemImg(orders.getServeItemImg())
+                .setServeStatus(institution ? ServeStatusEnum.NO_ALLOCATION.getStatus() : ServeStatusEnum.NO_SERVED.getStatus())
+                .setSettlementStatus(0)
+                .setOrdersAmount(orders.getRealPayAmount())
+                .setPurNum(orders.getPurNum())
+                .setSortBy(DateUtils.toEpochMilli(orders.getServeStartTime()) / 1000 + orders.getId() % 1000000)
+                .setDisplay(1);
+    }
+}
@@ -44,5 +44,10 @@ public class ServeProviderSync implements Serializable {
      */
     private Integer acceptanceNum;
 
+    /**
+     * 服务时间日历，布局见ServeCalendar，与redis中的日历一致
+     */
+    private byte[] serveCalendar;
+
 
 }
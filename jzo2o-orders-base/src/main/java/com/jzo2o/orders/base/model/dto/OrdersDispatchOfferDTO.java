@@ -0,0 +1,45 @@
+package com.jzo2o.orders.base.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 派单待接单记录，派单给服务人员/机构时写入，接单、拒单、超时时删除
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrdersDispatchOfferDTO {
+    /**
+     * 派单id（订单id）
+     */
+    private Long id;
+
+    /**
+     * 城市编码
+     */
+    private String cityCode;
+
+    /**
+     * 服务人员或机构id
+     */
+    private Long serveProviderId;
+
+    /**
+     * 服务者类型，2：服务人员，3：机构
+     */
+    private Integer serveProviderType;
+
+    /**
+     * 服务时间小时序号，服务人员拒单、超时时归还服务时间
+     */
+    private Long serveEpochHour;
+
+    /**
+     * 接单截止时间戳，单位毫秒
+     */
+    private Long deadline;
+}
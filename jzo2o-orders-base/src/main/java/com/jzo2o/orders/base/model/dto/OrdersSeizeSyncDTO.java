@@ -0,0 +1,35 @@
+package com.jzo2o.orders.base.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 抢单结果同步记录，抢单成功时写入抢单结果同步队列
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrdersSeizeSyncDTO {
+    /**
+     * 抢单id（订单id）
+     */
+    private Long id;
+
+    /**
+     * 服务人员或机构id
+     */
+    private Long serveProviderId;
+
+    /**
+     * 服务者类型，2：服务人员，3：机构
+     */
+    private Integer serveProviderType;
+
+    /**
+     * 抢单时间戳，单位毫秒
+     */
+    private Long seizeTime;
+}
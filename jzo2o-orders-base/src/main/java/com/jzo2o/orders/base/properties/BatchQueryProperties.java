@@ -0,0 +1,23 @@
+package com.jzo2o.orders.base.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 按id批量查询配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "orders.batch-query")
+@Data
+public class BatchQueryProperties {
+    /**
+     * 单条sql最大id数量
+     */
+    private Integer chunkSize = 500;
+
+    /**
+     * 分片数量，按id取模分组，同一分片的id在同一条sql中查询
+     */
+    private Integer shardCount = 1;
+}
@@ -29,4 +29,79 @@ public class DispatchProperties {
      * 服务人员最大拥有服务数量
      */
     public Integer serveTaskNumOfServe = 10;
+
+    /**
+     * 派单打分距离权重
+     */
+    public Double distanceWeight = 0.5;
+
+    /**
+     * 派单打分评分权重
+     */
+    public Double evaluationWeight = 0.3;
+
+    /**
+     * 派单打分接单数权重，接单数越少得分越高
+     */
+    public Double acceptanceWeight = 0.2;
+
+    /**
+     * 派单最大距离，单位千米
+     */
+    public Double dispatchDistance = 10.0;
+
+    /**
+     * 每个派单保留的候选服务人员/机构数量
+     */
+    public Integer dispatchTopK = 5;
+
+    /**
+     * 每次从派单列表读取的最大订单数
+     */
+    public Integer batchSize = 100;
+
+    /**
+     * 派单列表没有到期订单时的等待时间，单位毫秒
+     */
+    public Long idleMillis = 200L;
+
+    /**
+     * 派单列表租约有效期，单位秒；节点心跳超过该时间视为下线
+     */
+    public Long leaseSeconds = 30L;
+
+    /**
+     * 派单失败后再次派单的初始间隔，单位秒；每次连续失败后翻倍
+     */
+    public Long retrySeconds = 30L;
+
+    /**
+     * 派单失败后再次派单的最大间隔，单位秒；同时不超过距服务开始时间的一半
+     */
+    public Long maxRetrySeconds = 600L;
+
+    /**
+     * 连续失败次数达到该值时转人工处理
+     */
+    public Integer maxFailTimes = 10;
+
+    /**
+     * 派单后等待服务人员/机构接单的时间，单位秒
+     */
+    public Long receiveTimeoutSeconds = 60L;
+
+    /**
+     * 接单超时时间轮刻度，单位毫秒
+     */
+    public Long receiveTimeoutTickMillis = 200L;
+
+    /**
+     * 接单超时时间轮槽数
+     */
+    public Integer receiveTimeoutWheelSize = 512;
+
+    /**
+     * 接单超时补偿扫描间隔，单位秒；扫描持有的派单列表在redis中已到期的接单截止时间
+     */
+    public Long receiveTimeoutSweepSeconds = 30L;
 }
@@ -0,0 +1,53 @@
+package com.jzo2o.orders.base.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 订单分流配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "orders.diversion")
+@Data
+public class DiversionProperties {
+    /**
+     * 每批最大订单数量
+     */
+    private Integer batchSize = 200;
+
+    /**
+     * 攒批等待时间，单位毫秒
+     */
+    private Long windowMillis = 20L;
+
+    /**
+     * 等待队列容量
+     */
+    private Integer queueCapacity = 10000;
+
+    /**
+     * 调用方等待分流完成的超时时间，单位毫秒
+     */
+    private Long timeoutMillis = 10000L;
+
+    /**
+     * 抢单转派单时间轮每个tick的时长，单位毫秒
+     */
+    private Long promoteTickMillis = 1000L;
+
+    /**
+     * 抢单转派单时间轮槽位数量
+     */
+    private Integer promoteWheelSize = 512;
+
+    /**
+     * 从抢单池恢复时间轮的每批数量
+     */
+    private Integer promoteRecoverBatchSize = 1000;
+
+    /**
+     * 抢单超时补偿扫描间隔，单位秒；重新读取持有的派单列表对应的抢单注册到时间轮，恢复失败时同样在下次扫描重试
+     */
+    private Long promoteSweepSeconds = 300L;
+}
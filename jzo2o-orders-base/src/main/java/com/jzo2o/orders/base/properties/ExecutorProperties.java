@@ -5,9 +5,11 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @ConfigurationProperties(prefix = "executor")
@@ -57,5 +59,24 @@ public class ExecutorProperties {
         return ObjectUtils.isNull(threadPool) ? new ThreadPool() : threadPool;
     }
 
+    /**
+     * 根据线程池配置创建线程池，调用方负责在销毁时shutdown
+     *
+     * @param name 线程池名称
+     * @return 已初始化的线程池
+     */
+    public final ThreadPoolTaskExecutor newExecutor(String name) {
+        ThreadPool threadPool = get(name);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threadPool.getCorePoolSize());
+        executor.setMaxPoolSize(threadPool.getMaxPoolSize());
+        executor.setQueueCapacity(threadPool.getQueueCapacity());
+        executor.setThreadNamePrefix(threadPool.getThreadNamePrefix());
+        // 队列满时由调用线程执行，不丢弃任务
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
 
 }
@@ -0,0 +1,51 @@
+package com.jzo2o.orders.base.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单详情缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "orders.cache")
+@Data
+public class OrdersCacheProperties {
+    /**
+     * 本地缓存最大订单数量
+     */
+    private Long localMaximumSize = 10000L;
+
+    /**
+     * 本地缓存有效期，单位秒；binlog失效消息丢失时兜底
+     */
+    private Long localExpireSeconds = 60L;
+
+    /**
+     * 服务单服务人员/机构id本地缓存容量，每条16字节
+     */
+    private Integer serveProviderCapacity = 1 << 20;
+
+    /**
+     * 区域配置、服务信息本地缓存刷新间隔，单位秒；到期后首次访问触发异步刷新，刷新期间及刷新失败时返回旧值
+     */
+    private Long foundationRefreshSeconds = 300L;
+
+    /**
+     * 区域配置、服务信息本地缓存有效期，单位秒；超过后不再返回旧值
+     */
+    private Long foundationExpireSeconds = 86400L;
+
+    /**
+     * 区域配置、服务信息本地缓存最大数量
+     */
+    private Long foundationMaximumSize = 10000L;
+
+    /**
+     * 启动时预加载区域配置的城市编码
+     */
+    private List<String> preloadCityCodes = new ArrayList<>();
+}
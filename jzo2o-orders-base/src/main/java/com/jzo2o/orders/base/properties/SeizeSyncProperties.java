@@ -0,0 +1,33 @@
+package com.jzo2o.orders.base.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 抢单结果同步配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "orders.seize-sync")
+@Data
+public class SeizeSyncProperties {
+    /**
+     * 同步队列数量，与城市编码尾号对应
+     */
+    private Integer shardCount = 10;
+
+    /**
+     * 每次从同步队列读取的最大记录数
+     */
+    private Integer batchSize = 200;
+
+    /**
+     * 队列为空时的等待时间，单位毫秒
+     */
+    private Long idleMillis = 200L;
+
+    /**
+     * 同步队列租约有效期，单位秒；持有租约的节点消费该队列
+     */
+    private Long leaseSeconds = 30L;
+}
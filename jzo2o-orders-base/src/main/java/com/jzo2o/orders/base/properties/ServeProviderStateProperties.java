@@ -0,0 +1,23 @@
+package com.jzo2o.orders.base.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 服务人员/机构接单数量配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "orders.provider-state")
+@Data
+public class ServeProviderStateProperties {
+    /**
+     * 接单数量写回数据库的间隔，单位秒
+     */
+    private Long flushSeconds = 5L;
+
+    /**
+     * 每次写回数据库的最大服务人员/机构数量
+     */
+    private Integer flushBatchSize = 500;
+}
@@ -0,0 +1,26 @@
+package com.jzo2o.orders.base.service;
+
+import java.util.Set;
+
+/**
+ * 派单列表分配
+ * <p>
+ * 派单列表按城市编码尾号分为10个，通过redis租约分配给各节点，每个节点持有 10 / 节点数（向上取整）个，
+ * 节点上下线时重新分配；每个持有的派单列表由派单线程池中的一个线程处理
+ * </p>
+ */
+public interface IDispatchBucketService {
+
+    /**
+     * 当前节点是否持有派单列表
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @return 是否持有
+     */
+    boolean isOwner(int bucket);
+
+    /**
+     * @return 当前节点持有的派单列表序号
+     */
+    Set<Integer> ownedBuckets();
+}
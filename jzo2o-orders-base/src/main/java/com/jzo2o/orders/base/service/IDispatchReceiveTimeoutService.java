@@ -0,0 +1,34 @@
+package com.jzo2o.orders.base.service;
+
+/**
+ * 派单接单超时
+ * <p>
+ * 接单截止时间按城市编码尾号写入redis zset，持有派单列表的节点同时注册到本地时间轮，
+ * 到期后批量收回并重新派单；获取派单列表时从zset恢复，释放时清除
+ * </p>
+ */
+public interface IDispatchReceiveTimeoutService {
+
+    /**
+     * 注册接单截止时间
+     *
+     * @param bucket   派单列表序号（城市编码尾号）
+     * @param id       派单id
+     * @param deadline 接单截止时间戳，单位毫秒
+     */
+    void schedule(int bucket, Long id, long deadline);
+
+    /**
+     * 从redis恢复派单列表的接单截止时间，获取派单列表后调用
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     */
+    void recover(int bucket);
+
+    /**
+     * 清除派单列表的接单截止时间，释放派单列表后调用
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     */
+    void clear(int bucket);
+}
@@ -0,0 +1,46 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+
+import java.util.List;
+
+/**
+ * 派单失败重试
+ * <p>
+ * 派单失败后按连续失败次数指数退避，间隔不超过距服务开始时间的一半，越接近服务开始时间重试越频繁；
+ * 连续失败次数达到上限或已超过服务开始时间时转人工处理；没有候选服务人员/机构不算失败，按初始间隔重新派单
+ * </p>
+ */
+public interface IDispatchRetryService {
+
+    /**
+     * 派单失败，失败次数+1后重新加入派单列表或转人工处理
+     *
+     * @param bucket           派单列表序号（城市编码尾号）
+     * @param ordersDispatches 派单失败的派单
+     */
+    void retry(int bucket, List<OrdersDispatch> ordersDispatches);
+
+    /**
+     * 没有候选服务人员/机构，失败次数不变，按初始间隔重新加入派单列表
+     *
+     * @param bucket           派单列表序号（城市编码尾号）
+     * @param ordersDispatches 没有候选服务人员/机构的派单
+     */
+    void delay(int bucket, List<OrdersDispatch> ordersDispatches);
+
+    /**
+     * 派单成功或已移出派单列表，清除失败次数
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @param ids    派单id
+     */
+    void reset(int bucket, List<Long> ids);
+
+    /**
+     * 当前节点不再持有派单列表，清除本地统计
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     */
+    void clear(int bucket);
+}
@@ -0,0 +1,26 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 派单打分
+ * <p>
+ * 按技能、服务时间、接单数量上限、距离过滤候选服务人员/机构后，
+ * 按距离、评分、接单数加权打分，每个派单保留得分最高的若干个
+ * </p>
+ */
+public interface IDispatchScoringService {
+
+    /**
+     * 为一批派单计算候选服务人员/机构
+     *
+     * @param ordersDispatches   派单
+     * @param serveProviderInfos 候选服务人员/机构，一批内只构建一次
+     * @return 派单id -> 服务人员/机构id，按得分由高到低排序
+     */
+    Map<Long, long[]> rank(List<OrdersDispatch> ordersDispatches, List<ServeProviderInfo> serveProviderInfos);
+}
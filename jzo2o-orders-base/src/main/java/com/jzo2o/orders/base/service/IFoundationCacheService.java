@@ -0,0 +1,26 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.api.foundations.dto.response.ConfigRegionInnerResDTO;
+import com.jzo2o.api.foundations.dto.response.ServeAggregationResDTO;
+
+/**
+ * 区域配置、服务信息本地缓存
+ */
+public interface IFoundationCacheService {
+
+    /**
+     * 查询区域配置
+     *
+     * @param cityCode 城市编码
+     * @return 区域配置，不存在返回null
+     */
+    ConfigRegionInnerResDTO getConfigRegion(String cityCode);
+
+    /**
+     * 查询服务信息
+     *
+     * @param serveId 服务id
+     * @return 服务信息，不存在返回null
+     */
+    ServeAggregationResDTO getServe(Long serveId);
+}
@@ -0,0 +1,28 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+
+/**
+ * 订单快照存储
+ * <p>
+ * 每个订单保存一份基础快照和每次状态变更的增量，增量过多时合并为新的基础快照
+ * </p>
+ */
+public interface IOrderSnapshotService {
+
+    /**
+     * 追加状态变更增量，订单尚无快照时先从数据库生成基础快照
+     *
+     * @param id      订单id
+     * @param changes 本次变更的字段，为空的字段不变更
+     */
+    void append(Long id, OrderSnapshotDTO changes);
+
+    /**
+     * 查询订单最新快照
+     *
+     * @param id 订单id
+     * @return 订单快照，不存在返回null
+     */
+    OrderSnapshotDTO get(Long id);
+}
@@ -0,0 +1,35 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.domain.Orders;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * 订单详情两级缓存（本地缓存 + redis）
+ */
+public interface IOrdersCacheService {
+
+    /**
+     * 读取订单，依次查询本地缓存、redis，均未命中时通过loader加载并回填
+     *
+     * @param id     订单id
+     * @param loader 缓存未命中时的加载方法
+     * @return 订单，不存在返回null
+     */
+    Orders get(Long id, Function<Long, Orders> loader);
+
+    /**
+     * 失效订单缓存
+     *
+     * @param id 订单id
+     */
+    void evict(Long id);
+
+    /**
+     * 批量失效订单缓存
+     *
+     * @param ids 订单id列表
+     */
+    void evict(Collection<Long> ids);
+}
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.jzo2o.orders.base.model.domain.Orders;
 import com.jzo2o.orders.base.model.dto.OrderUpdateStatusDTO;
 
+import java.util.List;
+
 /**
  * <p>
  * 订单表 服务类
@@ -15,4 +17,15 @@ import com.jzo2o.orders.base.model.dto.OrderUpdateStatusDTO;
 public interface IOrdersCommonService extends IService<Orders> {
 
     Integer updateStatus(OrderUpdateStatusDTO orderUpdateStatusReqDTO);
+
+    /**
+     * 批量更新订单状态
+     * <p>
+     * 按原状态和目标状态分组，每组先锁定满足原状态的订单，再用一条语句更新
+     * </p>
+     *
+     * @param orderUpdateStatusDTOList 订单状态变更列表
+     * @return 状态变更成功的订单id，不满足原状态的订单不变更
+     */
+    List<Long> updateStatusBatch(List<OrderUpdateStatusDTO> orderUpdateStatusDTOList);
 }
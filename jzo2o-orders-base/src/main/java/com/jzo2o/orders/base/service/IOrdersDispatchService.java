@@ -0,0 +1,64 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+
+import java.util.List;
+
+/**
+ * 派单
+ * <p>
+ * 派单列表按城市编码尾号分为10个，每个由持有租约的节点单线程处理（见IDispatchBucketService），
+ * 同一订单不会被并发派单；派单给得分最高且可接单的服务人员/机构后等待接单，
+ * 接单后生成服务单，拒单、超时后重新进入派单列表
+ * </p>
+ */
+public interface IOrdersDispatchService {
+
+    /**
+     * 加入派单列表，立即参与派单
+     *
+     * @param ordersDispatches 派单
+     */
+    void addDispatchList(List<OrdersDispatch> ordersDispatches);
+
+    /**
+     * 处理派单列表中一批到期的派单
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @return 处理数量
+     */
+    int dispatch(int bucket);
+
+    /**
+     * 从派单池恢复派单列表，获取派单列表后调用；已在派单列表中或有待接单记录的派单不变
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @return 恢复数量
+     */
+    int recover(int bucket);
+
+    /**
+     * 批量收回超过接单截止时间的派单，重新进入派单列表；已接单、已拒单的跳过
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @param ids    到期的派单id
+     * @return 收回数量
+     */
+    int reclaim(int bucket, List<Long> ids);
+
+    /**
+     * 接单，先落库再删除待接单记录，删除前已被超时收回时重新占用接单数量和服务时间
+     *
+     * @param id              派单id
+     * @param serveProviderId 服务人员/机构id
+     */
+    void receive(Long id, Long serveProviderId);
+
+    /**
+     * 拒单
+     *
+     * @param id              派单id
+     * @param serveProviderId 服务人员/机构id
+     */
+    void reject(Long id, Long serveProviderId);
+}
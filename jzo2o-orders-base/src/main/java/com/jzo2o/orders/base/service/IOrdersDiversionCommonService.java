@@ -2,6 +2,8 @@ package com.jzo2o.orders.base.service;
 
 import com.jzo2o.orders.base.model.domain.Orders;
 
+import java.util.List;
+
 /**
  * 订单分流
  */
@@ -9,9 +11,19 @@ public interface IOrdersDiversionCommonService {
 
     /**
      * 订单分流,所有订单均可抢单
+     * <p>
+     * 与并发的其他分流请求合并为一批处理，分流数据提交后返回，失败时抛出异常
+     * </p>
      *
      * @param orders
      */
     void diversion(Orders orders);
 
+    /**
+     * 批量订单分流，远程查询按城市、服务去重，一批订单一个事务
+     *
+     * @param ordersList 已支付订单
+     */
+    void diversionBatch(List<Orders> ordersList);
+
 }
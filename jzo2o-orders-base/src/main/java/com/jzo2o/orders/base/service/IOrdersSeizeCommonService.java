@@ -0,0 +1,53 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.enums.SeizeResultEnum;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+
+import java.util.List;
+
+/**
+ * 抢单
+ * <p>
+ * 库存、抢单池、服务状态表、抢单结果同步队列按城市编码尾号分片，使用同一hash tag，
+ * 抢单校验与扣减在一个lua脚本中完成，无需分布式锁
+ * </p>
+ */
+public interface IOrdersSeizeCommonService {
+
+    /**
+     * 订单加入抢单池，已超时（已进入派单池）的抢单忽略
+     *
+     * @param ordersSeizes 抢单池订单
+     */
+    void addSeizePool(List<OrdersSeize> ordersSeizes);
+
+    /**
+     * 补写抢单池，用于分流落库后写入抢单池前失败的订单；已被抢（有抢单结果同步记录）的跳过，已存在的不覆盖。
+     * 调用方需持有抢单行锁，避免与转派单并发
+     *
+     * @param ordersSeizes 未超时的抢单
+     * @return 补写库存的订单数量
+     */
+    int restoreSeizePool(List<OrdersSeize> ordersSeizes);
+
+    /**
+     * 抢单，成功时写入抢单结果同步队列，由同步任务落库
+     *
+     * @param id                抢单id
+     * @param cityCode          城市编码
+     * @param serveProviderId   服务人员或机构id
+     * @param serveProviderType 服务者类型，2：服务人员，3：机构
+     * @return 抢单结果
+     */
+    SeizeResultEnum seize(Long id, String cityCode, Long serveProviderId, Integer serveProviderType);
+
+    /**
+     * 抢单池订单转派单，库存仍在的订单移出抢单池；库存不存在且没有抢单结果同步记录的订单
+     * （分流后未能写入抢单池）同样转派单，调用方需持有抢单行锁
+     *
+     * @param cityCode 城市编码
+     * @param ids      抢单id列表
+     * @return 移出抢单池的抢单id，已被抢的不在其中
+     */
+    List<Long> claim(String cityCode, List<Long> ids);
+}
@@ -0,0 +1,25 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.dto.OrdersSeizeSyncDTO;
+
+import java.util.List;
+
+/**
+ * 抢单结果同步
+ * <p>
+ * 每个同步队列一个消费线程，持有队列租约的节点批量读取抢单结果，一批一个事务落库，提交后再从队列删除
+ * </p>
+ */
+public interface IOrdersSeizeSyncService {
+
+    /**
+     * 抢单结果批量落库：订单状态由派单中变为待服务，新增服务单，删除抢单池记录
+     * <p>
+     * 订单状态不满足时不新增服务单，重复同步的记录不会重复处理
+     * </p>
+     *
+     * @param records 抢单结果
+     * @return 同步成功的订单id
+     */
+    List<Long> syncBatch(List<OrdersSeizeSyncDTO> records);
+}
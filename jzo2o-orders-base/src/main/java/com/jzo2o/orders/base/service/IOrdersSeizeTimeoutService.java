@@ -0,0 +1,38 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+
+import java.util.List;
+
+/**
+ * 抢单超时转派单
+ * <p>
+ * 抢单池中未超时的订单按 服务预约时间 - 分流间隔 注册到时间轮，到期时转入派单池；
+ * 每个节点只从抢单池恢复持有的派单列表（城市编码尾号）对应的抢单
+ * </p>
+ */
+public interface IOrdersSeizeTimeoutService {
+
+    /**
+     * 注册抢单超时时间，已超时（is_time_out = 1）的抢单忽略
+     *
+     * @param ordersSeizes 抢单池订单
+     */
+    void schedule(List<OrdersSeize> ordersSeizes);
+
+    /**
+     * 取消抢单超时，抢单结果落库后调用
+     *
+     * @param id 订单id
+     */
+    void cancel(Long id);
+
+    /**
+     * 抢单转派单，一批一个事务，已被抢或已转派单的订单跳过
+     *
+     * @param ids 订单id列表
+     * @return 转入派单池的派单
+     */
+    List<OrdersDispatch> promote(List<Long> ids);
+}
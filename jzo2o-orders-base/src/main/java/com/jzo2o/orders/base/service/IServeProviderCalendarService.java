@@ -0,0 +1,72 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.utils.ServeCalendar;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 服务人员/机构服务时间日历
+ * <p>
+ * 日历在redis中（bitfield），每次变更后同步到serve_provider_sync.serve_calendar；
+ * 抢单时的冲突校验和接单在抢单脚本中完成，派单、取消服务时使用本服务。
+ * 接单脚本遇到日历不存在时不写入，由调用方恢复日历后重试
+ * </p>
+ */
+public interface IServeProviderCalendarService {
+
+    /**
+     * 接单，占用服务时间所在小时
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     * @param serveStartTime  服务开始时间
+     * @return 是否成功，该小时已接单时返回false
+     */
+    boolean book(Long serveProviderId, String cityCode, LocalDateTime serveStartTime);
+
+    /**
+     * 取消接单（取消服务、服务完成），释放服务时间所在小时
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     * @param serveStartTime  服务开始时间
+     */
+    void release(Long serveProviderId, String cityCode, LocalDateTime serveStartTime);
+
+    /**
+     * 日历同步到数据库，抢单脚本中接单后调用
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     */
+    void sync(Long serveProviderId, String cityCode);
+
+    /**
+     * 查询日历，redis中不存在时从数据库恢复
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     * @return 日历
+     */
+    ServeCalendar get(Long serveProviderId, String cityCode);
+
+    /**
+     * 批量查询同一城市服务人员/机构的日历，一次mget读取（同一城市编码尾号的日历使用同一hash tag），
+     * redis中不存在的一次从数据库恢复
+     *
+     * @param serveProviderIds 服务人员/机构id
+     * @param cityCode         城市编码
+     * @return 服务人员/机构id -> 日历
+     */
+    Map<Long, ServeCalendar> getBatch(Collection<Long> serveProviderIds, String cityCode);
+
+    /**
+     * redis中不存在时从数据库恢复日历，数据库中也不存在时写入空日历
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     */
+    void restore(Long serveProviderId, String cityCode);
+}
@@ -0,0 +1,54 @@
+package com.jzo2o.orders.base.service;
+
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+
+import java.util.List;
+
+/**
+ * 服务人员/机构技能索引
+ * <p>
+ * 按服务项、城市维护服务人员/机构位图，派单、抢单按订单服务项筛选服务人员/机构时使用
+ * </p>
+ */
+public interface IServeProviderSkillIndexService {
+
+    /**
+     * 服务人员/机构新增或变更（技能、城市、接单开关、状态），增量更新索引
+     *
+     * @param serveProviderInfos 服务人员/机构
+     */
+    void refresh(List<ServeProviderInfo> serveProviderInfos);
+
+    /**
+     * 删除服务人员/机构
+     *
+     * @param ids 服务人员/机构id
+     */
+    void remove(List<Long> ids);
+
+    /**
+     * 查询城市中可接单且拥有服务项技能的服务人员/机构
+     *
+     * @param cityCode    城市编码
+     * @param serveItemId 服务项id
+     * @return 服务人员/机构id
+     */
+    long[] match(String cityCode, Long serveItemId);
+
+    /**
+     * 判断服务人员/机构是否拥有服务项技能
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param serveItemId     服务项id
+     * @return 是否拥有
+     */
+    boolean hasSkill(Long serveProviderId, Long serveItemId);
+
+    /**
+     * 查询城市中可接单的服务人员/机构，派单时作为候选
+     *
+     * @param cityCode 城市编码
+     * @return 服务人员/机构
+     */
+    List<ServeProviderInfo> listByCity(String cityCode);
+}
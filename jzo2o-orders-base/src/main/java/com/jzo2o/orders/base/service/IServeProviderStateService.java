@@ -0,0 +1,47 @@
+package com.jzo2o.orders.base.service;
+
+import java.util.Map;
+
+/**
+ * 服务人员/机构接单数量
+ * <p>
+ * 接单数量在服务状态表（SERVE_PROVIDER_STATE，field为{服务人员/机构id}_num）中，按城市编码尾号分为10个hash；
+ * 批量读写时同一尾号合并为一条命令，多个尾号合并为一次pipeline。变更后的接单数量定期写回serve_provider_sync
+ * </p>
+ */
+public interface IServeProviderStateService {
+
+    /**
+     * 批量查询接单数量
+     *
+     * @param serveProviderCities 服务人员/机构id -> 城市编码
+     * @return 服务人员/机构id -> 接单数量，不存在时为0
+     */
+    Map<Long, Integer> getServeNums(Map<Long, String> serveProviderCities);
+
+    /**
+     * 批量增减接单数量（完成服务、取消服务时减少）
+     *
+     * @param cityCode 城市编码
+     * @param deltas   服务人员/机构id -> 增减数量
+     */
+    void incrementServeNums(String cityCode, Map<Long, Integer> deltas);
+
+    /**
+     * 服务完成或取消后归还接单数量，同一服务单重复调用只归还一次
+     *
+     * @param ordersServeId   服务单id
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     * @return 是否本次归还，已归还过时返回false
+     */
+    boolean releaseServeNum(Long ordersServeId, Long serveProviderId, String cityCode);
+
+    /**
+     * 接单数量已在脚本中变更，记录待写回数据库
+     *
+     * @param serveProviderId 服务人员/机构id
+     * @param cityCode        城市编码
+     */
+    void markDirty(Long serveProviderId, String cityCode);
+}
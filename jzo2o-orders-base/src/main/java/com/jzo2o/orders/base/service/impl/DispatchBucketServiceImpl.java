@@ -0,0 +1,239 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.properties.ExecutorProperties;
+import com.jzo2o.orders.base.service.IDispatchBucketService;
+import com.jzo2o.orders.base.service.IDispatchReceiveTimeoutService;
+import com.jzo2o.orders.base.service.IDispatchRetryService;
+import com.jzo2o.orders.base.service.IOrdersDispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.Lock.DISPATCH_BUCKET_LOCK;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.DISPATCH_NODES;
+
+/**
+ * 派单列表分配
+ * <p>
+ * 分配线程每 租约有效期/3 执行一次：上报心跳并清理超时节点，续期持有的租约，
+ * 超出份额时释放多余的，不足份额时获取空闲的；获取后提交派单线程并恢复接单截止时间和派单列表，租约丢失或释放后派单线程退出
+ * </p>
+ */
+@Slf4j
+@Service
+public class DispatchBucketServiceImpl implements IDispatchBucketService {
+
+    /**
+     * 派单列表数量，与城市编码尾号对应
+     */
+    private static final int BUCKET_COUNT = 10;
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private IOrdersDispatchService ordersDispatchService;
+
+    @Resource
+    private IDispatchRetryService dispatchRetryService;
+
+    @Resource
+    private IDispatchReceiveTimeoutService dispatchReceiveTimeoutService;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    @Resource
+    private ExecutorProperties executorProperties;
+
+    private final String token = UUID.randomUUID().toString();
+
+    private final DefaultRedisScript<Long> renewScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>();
+
+    {
+        renewScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/lease_renew.lua")));
+        renewScript.setResultType(Long.class);
+        releaseScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/lease_release.lua")));
+        releaseScript.setResultType(Long.class);
+    }
+
+    /**
+     * 持有租约的派单列表
+     */
+    private final Set<Integer> owned = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 派单线程正在处理的派单列表
+     */
+    private final Set<Integer> working = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private Thread balancer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        executor = executorProperties.newExecutor("dispatch");
+        running = true;
+        balancer = new Thread(this::balance, "orders-dispatch-balancer");
+        balancer.setDaemon(true);
+        balancer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        balancer.interrupt();
+        for (Integer bucket : new HashSet<>(owned)) {
+            release(bucket);
+        }
+        redisTemplate.opsForZSet().remove(DISPATCH_NODES, token);
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean isOwner(int bucket) {
+        return owned.contains(bucket);
+    }
+
+    @Override
+    public Set<Integer> ownedBuckets() {
+        return Collections.unmodifiableSet(owned);
+    }
+
+    private void balance() {
+        long intervalSeconds = Math.max(dispatchProperties.getLeaseSeconds() / 3, 1);
+        while (running) {
+            try {
+                rebalance();
+            } catch (Exception e) {
+                log.error("派单列表分配失败", e);
+            }
+            try {
+                TimeUnit.SECONDS.sleep(intervalSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void rebalance() {
+        long leaseSeconds = dispatchProperties.getLeaseSeconds();
+        long now = System.currentTimeMillis();
+        // 1.心跳，清理超时节点
+        redisTemplate.opsForZSet().add(DISPATCH_NODES, token, now);
+        redisTemplate.opsForZSet().removeRangeByScore(DISPATCH_NODES, 0, now - TimeUnit.SECONDS.toMillis(leaseSeconds));
+        Long nodes = redisTemplate.opsForZSet().zCard(DISPATCH_NODES);
+        int share = (int) Math.ceil((double) BUCKET_COUNT / Math.max(nodes == null ? 1 : nodes, 1));
+
+        // 2.续期（比较并续期），租约已过期或被其他节点持有的放弃
+        for (Integer bucket : new HashSet<>(owned)) {
+            Long renewed = redisTemplate.execute(renewScript, Collections.singletonList(String.format(DISPATCH_BUCKET_LOCK, bucket)),
+                    token, String.valueOf(leaseSeconds));
+            if (!Long.valueOf(1).equals(renewed)) {
+                log.warn("派单列表租约丢失，bucket:{}", bucket);
+                owned.remove(bucket);
+                dispatchRetryService.clear(bucket);
+                dispatchReceiveTimeoutService.clear(bucket);
+            }
+        }
+
+        // 3.超出份额时释放，不足时获取
+        for (Integer bucket : new HashSet<>(owned)) {
+            if (owned.size() <= share) {
+                break;
+            }
+            release(bucket);
+        }
+        for (int bucket = 0; bucket < BUCKET_COUNT && owned.size() < share; bucket++) {
+            if (owned.contains(bucket)) {
+                continue;
+            }
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(String.format(DISPATCH_BUCKET_LOCK, bucket), token,
+                    leaseSeconds, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                log.info("获取派单列表，bucket:{}", bucket);
+                owned.add(bucket);
+                start(bucket);
+            }
+        }
+    }
+
+    private void release(int bucket) {
+        owned.remove(bucket);
+        dispatchRetryService.clear(bucket);
+        dispatchReceiveTimeoutService.clear(bucket);
+        // 比较并删除，不会删除其他节点的租约
+        redisTemplate.execute(releaseScript, Collections.singletonList(String.format(DISPATCH_BUCKET_LOCK, bucket)), token);
+        log.info("释放派单列表，bucket:{}", bucket);
+    }
+
+    private void start(int bucket) {
+        if (working.add(bucket)) {
+            executor.execute(() -> work(bucket));
+        }
+    }
+
+    /**
+     * 处理一个派单列表，租约丢失或释放后退出
+     *
+     * @param bucket 派单列表序号
+     */
+    private void work(int bucket) {
+        long idleMillis = dispatchProperties.getIdleMillis();
+        try {
+            // 恢复上一个持有者未处理的接单截止时间，以及派单池中不在派单列表的派单（写入派单列表前宕机）
+            try {
+                dispatchReceiveTimeoutService.recover(bucket);
+            } catch (Exception e) {
+                log.error("恢复接单截止时间失败，bucket:{}", bucket, e);
+            }
+            try {
+                ordersDispatchService.recover(bucket);
+            } catch (Exception e) {
+                log.error("恢复派单列表失败，bucket:{}", bucket, e);
+            }
+            while (running && owned.contains(bucket)) {
+                try {
+                    if (ordersDispatchService.dispatch(bucket) == 0) {
+                        TimeUnit.MILLISECONDS.sleep(idleMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("派单失败，bucket:{}", bucket, e);
+                    TimeUnit.MILLISECONDS.sleep(idleMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            working.remove(bucket);
+            // 退出期间重新获取了租约
+            if (running && owned.contains(bucket)) {
+                start(bucket);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.IDispatchBucketService;
+import com.jzo2o.orders.base.service.IDispatchReceiveTimeoutService;
+import com.jzo2o.orders.base.service.IOrdersDispatchService;
+import com.jzo2o.orders.base.utils.HashedTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.DISPATCH_RECEIVE_TIMEOUT;
+
+/**
+ * 派单接单超时
+ * <p>
+ * 每个节点只处理自己持有的派单列表，时间轮同一tick到期的派单按派单列表合并为一批收回，收回失败时下一个tick重试。
+ * zset与待接单记录在同一脚本中写入、删除，节点宕机后由新的持有者从zset恢复。
+ * 恢复按分数（接单截止时间）翻页，不受并发删除影响；另有线程定期扫描持有的派单列表中已到期的，补偿未注册到时间轮的
+ * </p>
+ */
+@Slf4j
+@Service
+public class DispatchReceiveTimeoutServiceImpl implements IDispatchReceiveTimeoutService {
+
+    /**
+     * 恢复时每次读取的数量
+     */
+    private static final int RECOVER_BATCH_SIZE = 1000;
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private IOrdersDispatchService ordersDispatchService;
+
+    @Resource
+    private IDispatchBucketService dispatchBucketService;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    /**
+     * 时间轮中的派单id -> 派单列表序号
+     */
+    private final Map<Long, Integer> idBuckets = new ConcurrentHashMap<>();
+
+    private HashedTimingWheel timingWheel;
+
+    private Thread sweeper;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        timingWheel = new HashedTimingWheel("orders-dispatch-receive-timeout", dispatchProperties.getReceiveTimeoutTickMillis(),
+                dispatchProperties.getReceiveTimeoutWheelSize(), this::onExpired);
+        timingWheel.start();
+        running = true;
+        sweeper = new Thread(this::sweep, "orders-dispatch-receive-timeout-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        sweeper.interrupt();
+        timingWheel.stop();
+    }
+
+    @Override
+    public void schedule(int bucket, Long id, long deadline) {
+        idBuckets.put(id, bucket);
+        timingWheel.add(id, deadline);
+    }
+
+    @Override
+    public void recover(int bucket) {
+        int total = scan(bucket, Double.POSITIVE_INFINITY);
+        log.info("恢复接单截止时间，bucket:{}，数量:{}", bucket, total);
+    }
+
+    /**
+     * 定期扫描持有的派单列表中已到期的接单截止时间，重新注册到时间轮（下一个tick到期收回）
+     */
+    private void sweep() {
+        long sweepMillis = TimeUnit.SECONDS.toMillis(dispatchProperties.getReceiveTimeoutSweepSeconds());
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(sweepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (Integer bucket : dispatchBucketService.ownedBuckets()) {
+                try {
+                    int total = scan(bucket, System.currentTimeMillis());
+                    if (total > 0) {
+                        log.info("补偿已到期的接单截止时间，bucket:{}，数量:{}", bucket, total);
+                    }
+                } catch (Exception e) {
+                    log.error("扫描接单截止时间失败，bucket:{}", bucket, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按分数翻页读取截止时间不晚于maxScore的派单并注册到时间轮，注册可重复执行。
+     * 截止时间为整数毫秒，下一页从上一页最大分数+1开始；整页读满时重新读取最大分数的全部成员，避免同分数的跨页遗漏
+     *
+     * @param bucket   派单列表序号
+     * @param maxScore 最大截止时间
+     * @return 注册数量
+     */
+    private int scan(int bucket, double maxScore) {
+        String key = String.format(DISPATCH_RECEIVE_TIMEOUT, bucket);
+        double minScore = 0;
+        int total = 0;
+        while (dispatchBucketService.isOwner(bucket)) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(key, minScore, maxScore, 0, RECOVER_BATCH_SIZE);
+            if (CollUtils.isEmpty(tuples)) {
+                break;
+            }
+            double lastScore = minScore;
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                schedule(bucket, Long.valueOf(tuple.getValue()), tuple.getScore().longValue());
+                lastScore = tuple.getScore();
+            }
+            total += tuples.size();
+            if (tuples.size() < RECOVER_BATCH_SIZE) {
+                break;
+            }
+            Set<ZSetOperations.TypedTuple<String>> sameScore = redisTemplate.opsForZSet().rangeByScoreWithScores(key, lastScore, lastScore);
+            if (CollUtils.isNotEmpty(sameScore)) {
+                for (ZSetOperations.TypedTuple<String> tuple : sameScore) {
+                    schedule(bucket, Long.valueOf(tuple.getValue()), tuple.getScore().longValue());
+                }
+            }
+            minScore = lastScore + 1;
+        }
+        return total;
+    }
+
+    @Override
+    public void clear(int bucket) {
+        idBuckets.forEach((id, idBucket) -> {
+            if (idBucket == bucket && idBuckets.remove(id, idBucket)) {
+                timingWheel.remove(id);
+            }
+        });
+    }
+
+    /**
+     * 时间轮到期处理，按派单列表分批收回，已不再持有的派单列表跳过
+     *
+     * @param ids 到期的派单id
+     */
+    private void onExpired(List<Long> ids) {
+        Map<Integer, List<Long>> bucketIds = new HashMap<>();
+        for (Long id : ids) {
+            Integer bucket = idBuckets.remove(id);
+            if (bucket != null && dispatchBucketService.isOwner(bucket)) {
+                bucketIds.computeIfAbsent(bucket, key -> new ArrayList<>()).add(id);
+            }
+        }
+        bucketIds.forEach((bucket, list) -> {
+            try {
+                ordersDispatchService.reclaim(bucket, list);
+            } catch (Exception e) {
+                log.error("接单超时收回失败，下一个tick重试，bucket:{}，数量:{}", bucket, list.size(), e);
+                long retryAt = System.currentTimeMillis() + dispatchProperties.getReceiveTimeoutTickMillis();
+                list.forEach(id -> schedule(bucket, id, retryAt));
+            }
+        });
+    }
+}
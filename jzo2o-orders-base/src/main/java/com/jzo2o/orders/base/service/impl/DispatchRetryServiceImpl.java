@@ -0,0 +1,176 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.DateUtils;
+import com.jzo2o.orders.base.mapper.OrdersDispatchMapper;
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.IDispatchRetryService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.DISPATCH_LIST;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_DISPATCH_FAILD_TIMES;
+import static com.jzo2o.orders.base.constants.RedisConstants.Ttl.DISPATCH_FAILD_TIMES_TTL;
+
+/**
+ * 派单失败重试
+ * <p>
+ * 失败次数一批一次pipeline递增，重试时间写入派单列表score；派单列表按score读取到期派单，
+ * 同一批内再按服务开始时间排序，接近服务开始时间的优先派单。
+ * 每个派单列表只由一个节点处理，节点在本地按失败次数统计重试中的派单数量
+ * </p>
+ */
+@Slf4j
+@Service
+public class DispatchRetryServiceImpl implements IDispatchRetryService {
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrdersDispatchMapper ordersDispatchMapper;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    /**
+     * 派单列表序号 -> 派单id -> 连续失败次数
+     */
+    private final Map<Integer, Map<Long, Integer>> failTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 按连续失败次数统计的重试中派单数量，下标为失败次数
+     */
+    private AtomicLongArray depths;
+
+    @PostConstruct
+    public void init() {
+        int maxFailTimes = dispatchProperties.getMaxFailTimes();
+        depths = new AtomicLongArray(maxFailTimes);
+        for (int times = 1; times < maxFailTimes; times++) {
+            int index = times;
+            Gauge.builder("orders.dispatch.retry.depth", depths, array -> array.get(index))
+                    .description("重试中的派单数量")
+                    .tag("failTimes", String.valueOf(times))
+                    .register(Metrics.globalRegistry);
+        }
+    }
+
+    @Override
+    public void retry(int bucket, List<OrdersDispatch> ordersDispatches) {
+        if (CollUtils.isEmpty(ordersDispatches)) {
+            return;
+        }
+        // 1.失败次数+1
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (OrdersDispatch ordersDispatch : ordersDispatches) {
+                byte[] key = failTimesKey(ordersDispatch.getId(), bucket).getBytes(StandardCharsets.UTF_8);
+                connection.incr(key);
+                connection.expire(key, DISPATCH_FAILD_TIMES_TTL);
+            }
+            return null;
+        });
+
+        // 2.计算重试时间，达到上限或已超过服务开始时间的转人工
+        long now = System.currentTimeMillis();
+        long baseMillis = TimeUnit.SECONDS.toMillis(dispatchProperties.getRetrySeconds());
+        long maxMillis = TimeUnit.SECONDS.toMillis(dispatchProperties.getMaxRetrySeconds());
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        List<Long> manualIds = new ArrayList<>();
+        for (int i = 0; i < ordersDispatches.size(); i++) {
+            OrdersDispatch ordersDispatch = ordersDispatches.get(i);
+            int times = ((Number) results.get(i * 2)).intValue();
+            long remainingMillis = DateUtils.toEpochMilli(ordersDispatch.getServeStartTime()) - now;
+            if (times >= dispatchProperties.getMaxFailTimes() || remainingMillis <= 0) {
+                manualIds.add(ordersDispatch.getId());
+                continue;
+            }
+            long delayMillis = Math.min(baseMillis << Math.min(times - 1, 20), maxMillis);
+            delayMillis = Math.max(Math.min(delayMillis, remainingMillis / 2), 1000);
+            tuples.add(new DefaultTypedTuple<>(ordersDispatch.getId().toString(), (double) (now + delayMillis)));
+            track(bucket, ordersDispatch.getId(), times);
+        }
+        if (CollUtils.isNotEmpty(tuples)) {
+            redisTemplate.opsForZSet().add(String.format(DISPATCH_LIST, bucket), tuples);
+        }
+
+        // 3.转人工
+        if (CollUtils.isNotEmpty(manualIds)) {
+            log.warn("派单连续失败，转人工处理，ids:{}", manualIds);
+            ordersDispatchMapper.updateTransferManual(manualIds);
+            redisTemplate.opsForZSet().remove(String.format(DISPATCH_LIST, bucket), manualIds.stream().map(String::valueOf).toArray());
+            reset(bucket, manualIds);
+        }
+    }
+
+    @Override
+    public void delay(int bucket, List<OrdersDispatch> ordersDispatches) {
+        if (CollUtils.isEmpty(ordersDispatches)) {
+            return;
+        }
+        // 候选为空通常是城市内暂无可接单的服务人员/机构，与服务人员/机构拒单无关，不计入失败次数
+        double score = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(dispatchProperties.getRetrySeconds());
+        Set<ZSetOperations.TypedTuple<String>> tuples = ordersDispatches.stream()
+                .<ZSetOperations.TypedTuple<String>>map(ordersDispatch -> new DefaultTypedTuple<>(ordersDispatch.getId().toString(), score))
+                .collect(Collectors.toSet());
+        redisTemplate.opsForZSet().add(String.format(DISPATCH_LIST, bucket), tuples);
+    }
+
+    @Override
+    public void reset(int bucket, List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        // 同一派单列表的失败次数使用同一hash tag，一次删除
+        redisTemplate.delete(ids.stream().map(id -> failTimesKey(id, bucket)).collect(Collectors.toList()));
+        ids.forEach(id -> track(bucket, id, 0));
+    }
+
+    @Override
+    public void clear(int bucket) {
+        Map<Long, Integer> bucketFailTimes = failTimes.remove(bucket);
+        if (bucketFailTimes != null) {
+            bucketFailTimes.values().forEach(times -> depths.decrementAndGet(Math.min(times, depths.length() - 1)));
+        }
+    }
+
+    /**
+     * 更新本地失败次数统计
+     *
+     * @param times 失败次数，0表示已移出
+     */
+    private void track(int bucket, Long id, int times) {
+        Map<Long, Integer> bucketFailTimes = failTimes.computeIfAbsent(bucket, key -> new ConcurrentHashMap<>());
+        Integer oldTimes = times > 0 ? bucketFailTimes.put(id, times) : bucketFailTimes.remove(id);
+        if (oldTimes != null) {
+            depths.decrementAndGet(Math.min(oldTimes, depths.length() - 1));
+        }
+        if (times > 0) {
+            depths.incrementAndGet(Math.min(times, depths.length() - 1));
+        }
+    }
+
+    private static String failTimesKey(Long id, int bucket) {
+        return String.format(ORDERS_DISPATCH_FAILD_TIMES, id, bucket);
+    }
+}
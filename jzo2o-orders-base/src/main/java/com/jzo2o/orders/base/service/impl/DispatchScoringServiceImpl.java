@@ -0,0 +1,142 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.IDispatchScoringService;
+import com.jzo2o.orders.base.service.IServeProviderCalendarService;
+import com.jzo2o.orders.base.service.IServeProviderSkillIndexService;
+import com.jzo2o.orders.base.service.IServeProviderStateService;
+import com.jzo2o.orders.base.utils.DispatchCandidates;
+import com.jzo2o.orders.base.utils.ServeCalendar;
+import com.jzo2o.orders.base.utils.ServeTimeUtils;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 派单打分
+ * <p>
+ * 候选在一批内转为按列存储的{@link DispatchCandidates}；每个派单先用技能索引得到可接单的候选，
+ * 服务人员再按日历去掉服务时间已占用的（机构不校验），接单数量上限和距离在打分循环中过滤。
+ * 实时接单数量一批一次pipeline读取，日历一批内每个城市一次mget读取，每次打分的redis往返次数与候选数量无关
+ * </p>
+ */
+@Slf4j
+@Service
+public class DispatchScoringServiceImpl implements IDispatchScoringService {
+
+    private static final Timer RANK_TIMER = Timer.builder("orders.dispatch.rank")
+            .description("派单批量打分耗时")
+            .register(Metrics.globalRegistry);
+
+    @Resource
+    private IServeProviderSkillIndexService serveProviderSkillIndexService;
+
+    @Resource
+    private IServeProviderCalendarService serveProviderCalendarService;
+
+    @Resource
+    private IServeProviderStateService serveProviderStateService;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    @Override
+    public Map<Long, long[]> rank(List<OrdersDispatch> ordersDispatches, List<ServeProviderInfo> serveProviderInfos) {
+        Map<Long, long[]> result = new HashMap<>();
+        if (CollUtils.isEmpty(ordersDispatches) || CollUtils.isEmpty(serveProviderInfos)) {
+            return result;
+        }
+        long start = System.nanoTime();
+        // 实时接单数量一次读取
+        Map<Long, String> serveProviderCities = new HashMap<>(serveProviderInfos.size());
+        for (ServeProviderInfo serveProviderInfo : serveProviderInfos) {
+            if (ObjectUtils.isNotNull(serveProviderInfo.getCityCode())) {
+                serveProviderCities.put(serveProviderInfo.getId(), serveProviderInfo.getCityCode());
+            }
+        }
+        DispatchCandidates candidates = DispatchCandidates.of(serveProviderInfos, serveProviderStateService.getServeNums(serveProviderCities));
+        DispatchCandidates.Weights weights = new DispatchCandidates.Weights(
+                dispatchProperties.getDistanceWeight(),
+                dispatchProperties.getEvaluationWeight(),
+                dispatchProperties.getAcceptanceWeight(),
+                dispatchProperties.getDispatchDistance(),
+                dispatchProperties.getServeTaskNumOfServe(),
+                dispatchProperties.getServeTaskNumOrInstitution());
+        Set<Long> institutionIds = new HashSet<>();
+        for (ServeProviderInfo serveProviderInfo : serveProviderInfos) {
+            if (Integer.valueOf(UserType.INSTITUTION).equals(serveProviderInfo.getServeProviderType())) {
+                institutionIds.add(serveProviderInfo.getId());
+            }
+        }
+
+        // 1.技能索引匹配，收集需要校验服务时间的服务人员
+        Map<Long, long[]> matchedMap = new HashMap<>(ordersDispatches.size());
+        Map<String, Set<Long>> cityWorkerIds = new HashMap<>();
+        for (OrdersDispatch ordersDispatch : ordersDispatches) {
+            if (ObjectUtils.isNull(ordersDispatch.getLon()) || ObjectUtils.isNull(ordersDispatch.getLat())) {
+                result.put(ordersDispatch.getId(), new long[0]);
+                continue;
+            }
+            long[] matched = serveProviderSkillIndexService.match(ordersDispatch.getCityCode(), ordersDispatch.getServeItemId());
+            matchedMap.put(ordersDispatch.getId(), matched);
+            Set<Long> workerIds = cityWorkerIds.computeIfAbsent(ordersDispatch.getCityCode(), key -> new HashSet<>());
+            for (long serveProviderId : matched) {
+                if (candidates.contains(serveProviderId) && !institutionIds.contains(serveProviderId)) {
+                    workerIds.add(serveProviderId);
+                }
+            }
+        }
+
+        // 2.日历每个城市一次批量读取
+        Map<String, Map<Long, ServeCalendar>> cityCalendars = new HashMap<>(cityWorkerIds.size());
+        cityWorkerIds.forEach((cityCode, workerIds) -> cityCalendars.put(cityCode, serveProviderCalendarService.getBatch(workerIds, cityCode)));
+
+        // 3.过滤服务时间已占用的服务人员后打分
+        for (OrdersDispatch ordersDispatch : ordersDispatches) {
+            long[] matched = matchedMap.get(ordersDispatch.getId());
+            if (matched == null) {
+                continue;
+            }
+            long[] eligibleIds = eligible(ordersDispatch, matched, candidates, institutionIds, cityCalendars.get(ordersDispatch.getCityCode()));
+            result.put(ordersDispatch.getId(), candidates.topK(ordersDispatch.getLon(), ordersDispatch.getLat(),
+                    candidates.mask(eligibleIds), weights, dispatchProperties.getDispatchTopK()));
+        }
+        RANK_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * 拥有技能且服务时间空闲的服务人员/机构
+     */
+    private long[] eligible(OrdersDispatch ordersDispatch, long[] matched, DispatchCandidates candidates, Set<Long> institutionIds,
+                            Map<Long, ServeCalendar> calendars) {
+        long epochHour = ServeTimeUtils.getServeEpochHour(ordersDispatch.getServeStartTime());
+        long[] eligibleIds = new long[matched.length];
+        int size = 0;
+        for (long serveProviderId : matched) {
+            if (!candidates.contains(serveProviderId)) {
+                continue;
+            }
+            if (!institutionIds.contains(serveProviderId) && calendars.get(serveProviderId).isBooked(epochHour)) {
+                continue;
+            }
+            eligibleIds[size++] = serveProviderId;
+        }
+        return size == eligibleIds.length ? eligibleIds : Arrays.copyOf(eligibleIds, size);
+    }
+}
@@ -0,0 +1,96 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.jzo2o.api.foundations.RegionApi;
+import com.jzo2o.api.foundations.ServeApi;
+import com.jzo2o.api.foundations.dto.response.ConfigRegionInnerResDTO;
+import com.jzo2o.api.foundations.dto.response.ServeAggregationResDTO;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.properties.OrdersCacheProperties;
+import com.jzo2o.orders.base.service.IFoundationCacheService;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 区域配置、服务信息本地缓存
+ * <p>
+ * 基础数据很少变化，写入refreshSeconds后首次访问触发异步刷新，刷新完成前以及刷新失败时继续返回旧值；
+ * 超过expireSeconds未刷新成功才会同步加载
+ * </p>
+ */
+@Slf4j
+@Service
+public class FoundationCacheServiceImpl implements IFoundationCacheService {
+
+    @Resource
+    private RegionApi regionApi;
+
+    @Resource
+    private ServeApi serveApi;
+
+    @Resource
+    private OrdersCacheProperties ordersCacheProperties;
+
+    private LoadingCache<String, ConfigRegionInnerResDTO> configRegionCache;
+
+    private LoadingCache<Long, ServeAggregationResDTO> serveCache;
+
+    @PostConstruct
+    public void init() {
+        configRegionCache = Caffeine.newBuilder()
+                .maximumSize(ordersCacheProperties.getFoundationMaximumSize())
+                .refreshAfterWrite(ordersCacheProperties.getFoundationRefreshSeconds(), TimeUnit.SECONDS)
+                .expireAfterWrite(ordersCacheProperties.getFoundationExpireSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build(regionApi::findConfigRegionByCityCode);
+        serveCache = Caffeine.newBuilder()
+                .maximumSize(ordersCacheProperties.getFoundationMaximumSize())
+                .refreshAfterWrite(ordersCacheProperties.getFoundationRefreshSeconds(), TimeUnit.SECONDS)
+                .expireAfterWrite(ordersCacheProperties.getFoundationExpireSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build(serveApi::findById);
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, configRegionCache, "configRegion", "tier", "local");
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, serveCache, "serveAggregation", "tier", "local");
+
+        // 异步预加载，不阻塞启动
+        if (CollUtils.isNotEmpty(ordersCacheProperties.getPreloadCityCodes())) {
+            CompletableFuture.runAsync(this::preload);
+        }
+    }
+
+    @Override
+    public ConfigRegionInnerResDTO getConfigRegion(String cityCode) {
+        if (ObjectUtils.isNull(cityCode)) {
+            return null;
+        }
+        return configRegionCache.get(cityCode);
+    }
+
+    @Override
+    public ServeAggregationResDTO getServe(Long serveId) {
+        if (ObjectUtils.isNull(serveId)) {
+            return null;
+        }
+        return serveCache.get(serveId);
+    }
+
+    private void preload() {
+        for (String cityCode : ordersCacheProperties.getPreloadCityCodes()) {
+            try {
+                configRegionCache.get(cityCode);
+            } catch (Exception e) {
+                log.warn("区域配置预加载失败，cityCode:{}", cityCode, e);
+            }
+        }
+        log.info("区域配置预加载完成，数量:{}", configRegionCache.estimatedSize());
+    }
+}
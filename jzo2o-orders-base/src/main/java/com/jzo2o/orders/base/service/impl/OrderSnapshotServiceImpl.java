@@ -0,0 +1,130 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersMapper;
+import com.jzo2o.orders.base.model.converter.OrderSnapshotConverter;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+import com.jzo2o.orders.base.service.IOrderSnapshotService;
+import com.jzo2o.orders.base.utils.OrderSnapshotCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SNAPSHOT;
+import static com.jzo2o.orders.base.constants.RedisConstants.Ttl.ORDERS_SNAPSHOT_TTL;
+
+/**
+ * 订单快照存储
+ * <p>
+ * 快照为redis list，第一条为基础快照，之后为增量，均为OrderSnapshotCodec二进制编码；
+ * 还原时依次解码到同一个对象即可；list长度超过COMPACT_THRESHOLD时合并。
+ * 追加（不存在时初始化）和合并各在一个脚本中完成，并发时不会重复初始化或重复截断
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrderSnapshotServiceImpl implements IOrderSnapshotService {
+
+    /**
+     * 基础快照 + 增量条数超过该值时合并
+     */
+    private static final int COMPACT_THRESHOLD = 8;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final byte[] TTL = String.valueOf(ORDERS_SNAPSHOT_TTL).getBytes(StandardCharsets.UTF_8);
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrdersMapper ordersMapper;
+
+    private final DefaultRedisScript<Long> appendScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> compactScript = new DefaultRedisScript<>();
+
+    {
+        appendScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_snapshot_append.lua")));
+        appendScript.setResultType(Long.class);
+        compactScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_snapshot_compact.lua")));
+        compactScript.setResultType(Long.class);
+    }
+
+    @Override
+    public void append(Long id, OrderSnapshotDTO changes) {
+        byte[] delta = OrderSnapshotCodec.encode(changes);
+        Long size = execute(appendScript, id, delta, EMPTY, TTL);
+        if (ObjectUtils.isNull(size) || size == 0) {
+            // 尚无快照，以数据库中的订单为基础快照
+            OrderSnapshotDTO base = changes;
+            Orders orders = ordersMapper.selectById(id);
+            if (ObjectUtils.isNotNull(orders)) {
+                base = OrderSnapshotConverter.INSTANCE.toSnapshot(orders);
+                OrderSnapshotConverter.INSTANCE.merge(changes, base);
+            }
+            size = execute(appendScript, id, delta, OrderSnapshotCodec.encode(base), TTL);
+        }
+        if (ObjectUtils.isNotNull(size) && size > COMPACT_THRESHOLD) {
+            compact(id);
+        }
+    }
+
+    @Override
+    public OrderSnapshotDTO get(Long id) {
+        List<byte[]> entries = range(id);
+        if (CollUtils.isEmpty(entries)) {
+            return null;
+        }
+        return reconstruct(entries);
+    }
+
+    /**
+     * 将基础快照和当前全部增量合并为新的基础快照
+     *
+     * @param id 订单id
+     */
+    private void compact(Long id) {
+        List<byte[]> entries = range(id);
+        if (CollUtils.isEmpty(entries)) {
+            return;
+        }
+        byte[] base = OrderSnapshotCodec.encode(reconstruct(entries));
+        execute(compactScript, id, base, String.valueOf(entries.size()).getBytes(StandardCharsets.UTF_8), entries.get(0));
+    }
+
+    private Long execute(DefaultRedisScript<Long> script, Long id, byte[]... args) {
+        return redisTemplate.execute(script, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+                Collections.singletonList(String.format(ORDERS_SNAPSHOT, id)), (Object[]) args);
+    }
+
+    private List<byte[]> range(Long id) {
+        byte[] key = key(id);
+        return redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.listCommands().lRange(key, 0, -1));
+    }
+
+    private OrderSnapshotDTO reconstruct(List<byte[]> entries) {
+        OrderSnapshotDTO snapshot = new OrderSnapshotDTO();
+        for (byte[] entry : entries) {
+            OrderSnapshotCodec.decodeInto(entry, snapshot);
+        }
+        return snapshot;
+    }
+
+    private byte[] key(Long id) {
+        return String.format(ORDERS_SNAPSHOT, id).getBytes(StandardCharsets.UTF_8);
+    }
+}
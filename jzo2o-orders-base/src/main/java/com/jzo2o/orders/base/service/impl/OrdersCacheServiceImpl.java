@@ -0,0 +1,138 @@
+package com.jzo2o.orders.base.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.properties.OrdersCacheProperties;
+import com.jzo2o.orders.base.service.IOrdersCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_DETAIL;
+import static com.jzo2o.orders.base.constants.RedisConstants.Ttl.ORDERS_DETAIL_TTL;
+
+/**
+ * 订单详情两级缓存
+ * <p>
+ * 一级为本地caffeine缓存（W-TinyLFU淘汰），二级为redis；
+ * 订单数据变更通过canal binlog消息失效（见OrdersCanalSyncHandler），本节点内的状态变更在事务提交后立即失效
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersCacheServiceImpl implements IOrdersCacheService {
+
+    private static final String CACHE_NAME = "ordersDetail";
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrdersCacheProperties ordersCacheProperties;
+
+    private Cache<Long, Orders> localCache;
+
+    private Counter redisHitCounter;
+    private Counter redisMissCounter;
+    private Counter redisEvictionCounter;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(ordersCacheProperties.getLocalMaximumSize())
+                .expireAfterWrite(ordersCacheProperties.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        // 本地缓存命中、未命中、淘汰指标
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, localCache, CACHE_NAME, "tier", "local");
+        // redis缓存命中、未命中、淘汰指标
+        redisHitCounter = Metrics.counter("cache.gets", "cache", CACHE_NAME, "tier", "redis", "result", "hit");
+        redisMissCounter = Metrics.counter("cache.gets", "cache", CACHE_NAME, "tier", "redis", "result", "miss");
+        redisEvictionCounter = Metrics.counter("cache.evictions", "cache", CACHE_NAME, "tier", "redis");
+    }
+
+    @Override
+    public Orders get(Long id, Function<Long, Orders> loader) {
+        if (ObjectUtils.isNull(id)) {
+            return null;
+        }
+        // 1.本地缓存
+        Orders orders = localCache.getIfPresent(id);
+        if (ObjectUtils.isNotNull(orders)) {
+            return orders;
+        }
+        // 2.redis缓存
+        String key = String.format(ORDERS_DETAIL, id);
+        String json = redisTemplate.opsForValue().get(key);
+        if (StrUtil.isNotEmpty(json)) {
+            redisHitCounter.increment();
+            orders = JSONUtil.toBean(json, Orders.class);
+            localCache.put(id, orders);
+            return orders;
+        }
+        redisMissCounter.increment();
+        // 3.数据库
+        orders = loader.apply(id);
+        if (ObjectUtils.isNull(orders)) {
+            return null;
+        }
+        redisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(orders), ORDERS_DETAIL_TTL, TimeUnit.SECONDS);
+        localCache.put(id, orders);
+        return orders;
+    }
+
+    @Override
+    public void evict(Long id) {
+        if (ObjectUtils.isNull(id)) {
+            return;
+        }
+        evict(Collections.singletonList(id));
+    }
+
+    @Override
+    public void evict(Collection<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        doEvict(ids);
+        // 事务中变更时提交后再删除一次，避免提交前被其他请求以旧数据回填
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> evictIds = new ArrayList<>(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(evictIds);
+                }
+            });
+        }
+    }
+
+    private void doEvict(Collection<Long> ids) {
+        localCache.invalidateAll(ids);
+        List<String> keys = ids.stream().map(id -> String.format(ORDERS_DETAIL, id)).collect(Collectors.toList());
+        Long deleted = redisTemplate.delete(keys);
+        if (ObjectUtils.isNotNull(deleted) && deleted > 0) {
+            redisEvictionCounter.increment(deleted);
+        }
+    }
+}
@@ -4,11 +4,24 @@ import cn.hutool.core.util.ObjectUtil;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.jzo2o.common.utils.CollUtils;
 import com.jzo2o.orders.base.mapper.OrdersMapper;
 import com.jzo2o.orders.base.model.domain.Orders;
 import com.jzo2o.orders.base.model.dto.OrderUpdateStatusDTO;
+import com.jzo2o.orders.base.service.IOrdersCacheService;
 import com.jzo2o.orders.base.service.IOrdersCommonService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -20,6 +33,15 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class OrdersCommonServiceImpl extends ServiceImpl<OrdersMapper, Orders> implements IOrdersCommonService {
+
+    /**
+     * 批量更新订单状态时单条语句最大订单数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Resource
+    private IOrdersCacheService ordersCacheService;
+
     @Override
     public Integer updateStatus(OrderUpdateStatusDTO orderUpdateStatusReqDTO) {
         LambdaUpdateWrapper<Orders> updateWrapper = Wrappers.<Orders>lambdaUpdate()
@@ -35,6 +57,50 @@ public class OrdersCommonServiceImpl extends ServiceImpl<OrdersMapper, Orders> i
                 .set(ObjectUtil.isNotNull(orderUpdateStatusReqDTO.getTradingChannel()),Orders::getTradingChannel,orderUpdateStatusReqDTO.getTradingChannel())
                 .set(ObjectUtil.isNotNull(orderUpdateStatusReqDTO.getRefundStatus()),Orders::getRefundStatus,orderUpdateStatusReqDTO.getRefundStatus());
         boolean update = super.update(updateWrapper);
+        if (update) {
+            //状态变更后立即失效订单缓存，不必等待binlog
+            ordersCacheService.evict(orderUpdateStatusReqDTO.getId());
+        }
         return update?1:0;
     }
+
+    @Override
+    @Transactional
+    public List<Long> updateStatusBatch(List<OrderUpdateStatusDTO> orderUpdateStatusDTOList) {
+        if (CollUtils.isEmpty(orderUpdateStatusDTOList)) {
+            return Collections.emptyList();
+        }
+        //1.按原状态、目标状态分组，同一订单只保留第一条
+        Map<String, List<OrderUpdateStatusDTO>> groups = new LinkedHashMap<>();
+        Set<Long> ids = new HashSet<>();
+        for (OrderUpdateStatusDTO dto : orderUpdateStatusDTOList) {
+            if (ids.add(dto.getId())) {
+                groups.computeIfAbsent(dto.getOriginStatus() + "_" + dto.getTargetStatus(), key -> new ArrayList<>()).add(dto);
+            }
+        }
+
+        List<Long> updatedIds = new ArrayList<>();
+        for (List<OrderUpdateStatusDTO> group : groups.values()) {
+            Integer originStatus = group.get(0).getOriginStatus();
+            Integer targetStatus = group.get(0).getTargetStatus();
+            for (int from = 0; from < group.size(); from += BATCH_SIZE) {
+                List<OrderUpdateStatusDTO> chunk = group.subList(from, Math.min(from + BATCH_SIZE, group.size()));
+                //2.锁定满足原状态的订单，这些订单即为本次变更成功的订单
+                List<Long> chunkIds = chunk.stream().map(OrderUpdateStatusDTO::getId).collect(Collectors.toList());
+                Set<Long> lockedIds = new HashSet<>(baseMapper.selectIdsForUpdate(chunkIds, originStatus));
+                if (lockedIds.isEmpty()) {
+                    continue;
+                }
+                //3.一条语句更新本组订单
+                List<OrderUpdateStatusDTO> lockedList = chunk.stream()
+                        .filter(dto -> lockedIds.contains(dto.getId()))
+                        .collect(Collectors.toList());
+                baseMapper.updateStatusBatch(lockedList, originStatus, targetStatus);
+                lockedList.forEach(dto -> updatedIds.add(dto.getId()));
+            }
+        }
+        //状态变更后立即失效订单缓存，不必等待binlog
+        ordersCacheService.evict(updatedIds);
+        return updatedIds;
+    }
 }
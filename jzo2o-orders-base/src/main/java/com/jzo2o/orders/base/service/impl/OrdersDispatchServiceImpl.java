@@ -0,0 +1,473 @@
+package com.jzo2o.orders.base.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.expcetions.CommonException;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.config.OrderStateMachine;
+import com.jzo2o.orders.base.constants.OrdersOriginType;
+import com.jzo2o.orders.base.enums.OrderStatusChangeEventEnum;
+import com.jzo2o.orders.base.mapper.OrdersDispatchMapper;
+import com.jzo2o.orders.base.mapper.OrdersMapper;
+import com.jzo2o.orders.base.mapper.OrdersServeMapper;
+import com.jzo2o.orders.base.model.converter.OrdersServeConverter;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.model.dto.OrdersDispatchOfferDTO;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.IDispatchReceiveTimeoutService;
+import com.jzo2o.orders.base.service.IDispatchRetryService;
+import com.jzo2o.orders.base.service.IDispatchScoringService;
+import com.jzo2o.orders.base.service.IOrdersDispatchService;
+import com.jzo2o.orders.base.service.IServeProviderCalendarService;
+import com.jzo2o.orders.base.service.IServeProviderSkillIndexService;
+import com.jzo2o.orders.base.service.IServeProviderStateService;
+import com.jzo2o.orders.base.utils.LuaScriptUtils;
+import com.jzo2o.orders.base.utils.RedisUtils;
+import com.jzo2o.orders.base.utils.ServeTimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.Lock.PROVIDER_DISPATCH_LOCK;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.DISPATCH_LIST;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.DISPATCH_OFFER;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.DISPATCH_RECEIVE_TIMEOUT;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_CALENDAR;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_STATE;
+import static com.jzo2o.orders.base.constants.RedisConstants.Ttl.PROVIDER_DISPATCH_LOCK_TTL;
+
+/**
+ * 派单
+ * <p>
+ * 每批读取派单列表中到期的派单，按城市打分后逐个派给候选中第一个可接单的服务人员/机构：
+ * 服务人员/机构派单锁保证同一时间只有一个待接单，接单数量和服务时间在脚本中校验并占用，
+ * 成功后写入待接单记录并移出派单列表，全部候选都不可接单时按失败次数退避重试（见IDispatchRetryService）。
+ * 接单截止时间由持有派单列表的节点的时间轮触发收回（见IDispatchReceiveTimeoutService）。
+ * 拒单、超时通过比较并删除待接单记录决定由谁处理，接单先落库（以订单状态为准）再删除待接单记录；
+ * 拒单、超时后派单锁保留至过期，期间不再派给该服务人员/机构。获取派单列表时从派单池恢复未在列表中的派单
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersDispatchServiceImpl implements IOrdersDispatchService {
+
+    /**
+     * 恢复派单列表时每次读取的数量
+     */
+    private static final int RECOVER_BATCH_SIZE = 1000;
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrdersDispatchServiceImpl owner;
+
+    @Resource
+    private OrderStateMachine orderStateMachine;
+
+    @Resource
+    private IDispatchScoringService dispatchScoringService;
+
+    @Resource
+    private IDispatchRetryService dispatchRetryService;
+
+    @Resource
+    private IDispatchReceiveTimeoutService receiveTimeoutService;
+
+    @Resource
+    private IServeProviderSkillIndexService serveProviderSkillIndexService;
+
+    @Resource
+    private IServeProviderCalendarService serveProviderCalendarService;
+
+    @Resource
+    private IServeProviderStateService serveProviderStateService;
+
+    @Resource
+    private OrdersMapper ordersMapper;
+
+    @Resource
+    private OrdersDispatchMapper ordersDispatchMapper;
+
+    @Resource
+    private OrdersServeMapper ordersServeMapper;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    private final DefaultRedisScript<Long> offerScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<List> reclaimScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> recoverScript = new DefaultRedisScript<>();
+
+    {
+        offerScript.setScriptSource(LuaScriptUtils.source("lua/serve_calendar_lib.lua", "lua/orders_dispatch_offer.lua"));
+        offerScript.setResultType(Long.class);
+        releaseScript.setScriptSource(LuaScriptUtils.source("lua/serve_calendar_lib.lua", "lua/orders_dispatch_release.lua"));
+        releaseScript.setResultType(Long.class);
+        reclaimScript.setScriptSource(LuaScriptUtils.source("lua/serve_calendar_lib.lua", "lua/orders_dispatch_reclaim.lua"));
+        reclaimScript.setResultType(List.class);
+        recoverScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_dispatch_recover.lua")));
+        recoverScript.setResultType(Long.class);
+    }
+
+    @Override
+    public void addDispatchList(List<OrdersDispatch> ordersDispatches) {
+        if (CollUtils.isEmpty(ordersDispatches)) {
+            return;
+        }
+        double score = System.currentTimeMillis();
+        ordersDispatches.stream()
+                .filter(ordersDispatch -> !Integer.valueOf(1).equals(ordersDispatch.getIsTransferManual()))
+                .collect(Collectors.groupingBy(ordersDispatch -> RedisUtils.getCityIndex(ordersDispatch.getCityCode())))
+                .forEach((bucket, list) -> addDispatchList(bucket,
+                        list.stream().map(OrdersDispatch::getId).collect(Collectors.toList()), score));
+    }
+
+    @Override
+    public int dispatch(int bucket) {
+        String listKey = String.format(DISPATCH_LIST, bucket);
+        long now = System.currentTimeMillis();
+        Set<String> members = redisTemplate.opsForZSet().rangeByScore(listKey, 0, now, 0, dispatchProperties.getBatchSize());
+        if (CollUtils.isEmpty(members)) {
+            return 0;
+        }
+        List<Long> ids = members.stream().map(Long::valueOf).collect(Collectors.toList());
+
+        // 1.已接单、已取消（派单已删除）或已转人工的移出派单列表
+        List<OrdersDispatch> ordersDispatches = ordersDispatchMapper.selectBatchIds(ids).stream()
+                .filter(ordersDispatch -> !Integer.valueOf(1).equals(ordersDispatch.getIsTransferManual()))
+                .collect(Collectors.toList());
+        Set<Long> pendingIds = ordersDispatches.stream().map(OrdersDispatch::getId).collect(Collectors.toSet());
+        List<Long> removedIds = ids.stream().filter(id -> !pendingIds.contains(id)).collect(Collectors.toList());
+        if (CollUtils.isNotEmpty(removedIds)) {
+            redisTemplate.opsForZSet().remove(listKey, removedIds.stream().map(String::valueOf).toArray());
+        }
+
+        // 2.按城市打分，越接近服务开始时间越先派单
+        List<Long> offeredIds = new ArrayList<>();
+        List<OrdersDispatch> failedDispatches = new ArrayList<>();
+        List<OrdersDispatch> noCandidateDispatches = new ArrayList<>();
+        ordersDispatches.stream().collect(Collectors.groupingBy(OrdersDispatch::getCityCode)).forEach((cityCode, list) -> {
+            List<ServeProviderInfo> serveProviderInfos = serveProviderSkillIndexService.listByCity(cityCode);
+            Map<Long, Integer> serveProviderTypes = new HashMap<>(serveProviderInfos.size());
+            serveProviderInfos.forEach(info -> serveProviderTypes.put(info.getId(), info.getServeProviderType()));
+            Map<Long, long[]> ranks = dispatchScoringService.rank(list, serveProviderInfos);
+            list.sort(Comparator.comparing(OrdersDispatch::getServeStartTime));
+            for (OrdersDispatch ordersDispatch : list) {
+                long[] serveProviderIds = ranks.get(ordersDispatch.getId());
+                if (serveProviderIds == null || serveProviderIds.length == 0) {
+                    noCandidateDispatches.add(ordersDispatch);
+                } else if (offer(bucket, ordersDispatch, serveProviderIds, serveProviderTypes)) {
+                    offeredIds.add(ordersDispatch.getId());
+                } else {
+                    failedDispatches.add(ordersDispatch);
+                }
+            }
+        });
+
+        // 3.派单成功的移出派单列表并清除失败次数，失败的退避重试，没有候选的按初始间隔重新派单
+        if (CollUtils.isNotEmpty(offeredIds)) {
+            redisTemplate.opsForZSet().remove(listKey, offeredIds.stream().map(String::valueOf).toArray());
+        }
+        removedIds.addAll(offeredIds);
+        dispatchRetryService.reset(bucket, removedIds);
+        dispatchRetryService.retry(bucket, failedDispatches);
+        dispatchRetryService.delay(bucket, noCandidateDispatches);
+        log.debug("派单，bucket:{}，成功:{}，失败:{}，无候选:{}", bucket, offeredIds.size(), failedDispatches.size(), noCandidateDispatches.size());
+        return members.size();
+    }
+
+    @Override
+    public int recover(int bucket) {
+        List<String> keys = Arrays.asList(String.format(DISPATCH_LIST, bucket), String.format(DISPATCH_OFFER, bucket));
+        long lastId = 0L;
+        int total = 0;
+        while (true) {
+            List<Long> ids = ordersDispatchMapper.selectPendingIdsByBucket(bucket, lastId, RECOVER_BATCH_SIZE);
+            if (CollUtils.isEmpty(ids)) {
+                break;
+            }
+            List<String> args = new ArrayList<>(ids.size() + 1);
+            args.add(String.valueOf(System.currentTimeMillis()));
+            ids.forEach(id -> args.add(id.toString()));
+            Long added = redisTemplate.execute(recoverScript, keys, args.toArray());
+            total += added == null ? 0 : added.intValue();
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < RECOVER_BATCH_SIZE) {
+                break;
+            }
+        }
+        log.info("恢复派单列表，bucket:{}，数量:{}", bucket, total);
+        return total;
+    }
+
+    @Override
+    public int reclaim(int bucket, List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return 0;
+        }
+        String offerKey = String.format(DISPATCH_OFFER, bucket);
+        String timeoutKey = String.format(DISPATCH_RECEIVE_TIMEOUT, bucket);
+        List<Object> values = redisTemplate.opsForHash().multiGet(offerKey, ids.stream().map(String::valueOf).collect(Collectors.toList()));
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>(Arrays.asList(offerKey, String.format(SERVE_PROVIDER_STATE, bucket), timeoutKey));
+        List<String> args = new ArrayList<>(ids.size() * 4);
+        Map<String, OrdersDispatchOfferDTO> offers = new HashMap<>(ids.size());
+        List<String> staleIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i).toString();
+            Object value = values.get(i);
+            // 已接单或已拒单
+            if (ObjectUtils.isNull(value)) {
+                staleIds.add(id);
+                continue;
+            }
+            OrdersDispatchOfferDTO offer = JSONUtil.toBean(value.toString(), OrdersDispatchOfferDTO.class);
+            // 已重新派单，按新的截止时间注册
+            if (offer.getDeadline() > now) {
+                receiveTimeoutService.schedule(bucket, offer.getId(), offer.getDeadline());
+                continue;
+            }
+            boolean institution = Integer.valueOf(UserType.INSTITUTION).equals(offer.getServeProviderType());
+            keys.add(String.format(SERVE_PROVIDER_CALENDAR, offer.getServeProviderId(), bucket));
+            args.add(id);
+            args.add(value.toString());
+            args.add(offer.getServeProviderId().toString());
+            args.add(institution ? "" : String.valueOf(offer.getServeEpochHour()));
+            offers.put(id, offer);
+        }
+        if (CollUtils.isNotEmpty(staleIds)) {
+            redisTemplate.opsForZSet().remove(timeoutKey, staleIds.toArray());
+        }
+        if (CollUtils.isEmpty(offers)) {
+            return 0;
+        }
+
+        // 日历不存在时脚本不归还服务时间，先从数据库恢复
+        offers.values().stream()
+                .filter(offer -> !Integer.valueOf(UserType.INSTITUTION).equals(offer.getServeProviderType()))
+                .collect(Collectors.toMap(OrdersDispatchOfferDTO::getServeProviderId, OrdersDispatchOfferDTO::getCityCode, (c1, c2) -> c1))
+                .forEach(serveProviderCalendarService::restore);
+        List<String> reclaimed = redisTemplate.execute(reclaimScript, keys, args.toArray());
+        if (CollUtils.isEmpty(reclaimed)) {
+            return 0;
+        }
+        List<Long> reclaimedIds = new ArrayList<>(reclaimed.size());
+        for (String id : reclaimed) {
+            OrdersDispatchOfferDTO offer = offers.get(id);
+            serveProviderStateService.markDirty(offer.getServeProviderId(), offer.getCityCode());
+            reclaimedIds.add(offer.getId());
+        }
+        log.info("接单超时，重新派单，bucket:{}，ids:{}", bucket, reclaimedIds);
+        addDispatchList(bucket, reclaimedIds, now);
+        return reclaimedIds.size();
+    }
+
+    @Override
+    public void receive(Long id, Long serveProviderId) {
+        OrdersDispatch ordersDispatch = ordersDispatchMapper.selectById(id);
+        if (ObjectUtils.isNull(ordersDispatch)) {
+            throw new CommonException("派单不存在或已被处理");
+        }
+        int bucket = RedisUtils.getCityIndex(ordersDispatch.getCityCode());
+        String value = getOffer(bucket, id, serveProviderId);
+        OrdersDispatchOfferDTO offer = JSONUtil.toBean(value, OrdersDispatchOfferDTO.class);
+        if (offer.getDeadline() <= System.currentTimeMillis()) {
+            throw new CommonException("接单超时或已被处理");
+        }
+
+        // 1.先落库，失败或宕机时待接单记录仍在，到期后由超时收回重新派单
+        boolean received;
+        try {
+            received = owner.receiveCommit(ordersDispatch, offer);
+        } catch (Exception e) {
+            log.error("接单失败，id:{}", id, e);
+            throw new CommonException("接单失败");
+        }
+        if (!received) {
+            // 订单已取消或已被其他服务人员/机构接单，归还本次派单占用的接单数量和服务时间
+            release(bucket, offer, value, true);
+            redisTemplate.delete(String.format(PROVIDER_DISPATCH_LOCK, serveProviderId));
+            throw new CommonException("订单已取消或已被处理");
+        }
+
+        // 2.删除待接单记录，接单数量和服务时间继续占用；落库后已被超时收回（已归还）的重新占用
+        boolean institution = Integer.valueOf(UserType.INSTITUTION).equals(offer.getServeProviderType());
+        if (!release(bucket, offer, value, false)) {
+            log.warn("接单落库前待接单记录已被收回，重新占用接单数量和服务时间，id:{}，serveProviderId:{}", id, serveProviderId);
+            serveProviderStateService.incrementServeNums(ordersDispatch.getCityCode(), Collections.singletonMap(serveProviderId, 1));
+            if (!institution && !serveProviderCalendarService.book(serveProviderId, ordersDispatch.getCityCode(), ordersDispatch.getServeStartTime())) {
+                log.warn("接单服务时间已被占用，id:{}，serveProviderId:{}", id, serveProviderId);
+            }
+        }
+        redisTemplate.delete(String.format(PROVIDER_DISPATCH_LOCK, serveProviderId));
+        if (!institution) {
+            serveProviderCalendarService.sync(serveProviderId, ordersDispatch.getCityCode());
+        }
+    }
+
+    @Override
+    public void reject(Long id, Long serveProviderId) {
+        OrdersDispatch ordersDispatch = ordersDispatchMapper.selectById(id);
+        if (ObjectUtils.isNull(ordersDispatch)) {
+            throw new CommonException("派单不存在或已被处理");
+        }
+        int bucket = RedisUtils.getCityIndex(ordersDispatch.getCityCode());
+        String value = getOffer(bucket, id, serveProviderId);
+        if (!release(bucket, JSONUtil.toBean(value, OrdersDispatchOfferDTO.class), value, true)) {
+            throw new CommonException("接单超时或已被处理");
+        }
+        // 派单锁保留至过期，期间不再派给该服务人员/机构
+        addDispatchList(bucket, Collections.singletonList(id), System.currentTimeMillis());
+    }
+
+    /**
+     * 接单落库：订单由派单中变为待服务，新增服务单，删除派单
+     *
+     * @return 是否成功，订单已取消或已被接单时返回false
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean receiveCommit(OrdersDispatch ordersDispatch, OrdersDispatchOfferDTO offer) {
+        List<Long> updatedIds = orderStateMachine.changeStatusBatch(Collections.singletonList(ordersDispatch.getId()),
+                OrderStatusChangeEventEnum.DISPATCH);
+        if (CollUtils.isEmpty(updatedIds)) {
+            ordersDispatchMapper.deleteById(ordersDispatch.getId());
+            return false;
+        }
+        Orders orders = ordersMapper.selectById(ordersDispatch.getId());
+        ordersServeMapper.batchAdd(Collections.singletonList(
+                OrdersServeConverter.toOrdersServe(orders, offer.getServeProviderId(), offer.getServeProviderType(), OrdersOriginType.DISPATCH)));
+        ordersDispatchMapper.deleteById(ordersDispatch.getId());
+        return true;
+    }
+
+    /**
+     * 依次尝试候选服务人员/机构
+     *
+     * @return 是否派单成功
+     */
+    private boolean offer(int bucket, OrdersDispatch ordersDispatch, long[] serveProviderIds, Map<Long, Integer> serveProviderTypes) {
+        if (serveProviderIds == null || serveProviderIds.length == 0) {
+            return false;
+        }
+        long serveEpochHour = ServeTimeUtils.getServeEpochHour(ordersDispatch.getServeStartTime());
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(dispatchProperties.getReceiveTimeoutSeconds());
+        for (long serveProviderId : serveProviderIds) {
+            String lockKey = String.format(PROVIDER_DISPATCH_LOCK, serveProviderId);
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, ordersDispatch.getId().toString(),
+                    PROVIDER_DISPATCH_LOCK_TTL, TimeUnit.SECONDS))) {
+                continue;
+            }
+            Integer serveProviderType = serveProviderTypes.get(serveProviderId);
+            boolean institution = Integer.valueOf(UserType.INSTITUTION).equals(serveProviderType);
+            OrdersDispatchOfferDTO offer = OrdersDispatchOfferDTO.builder()
+                    .id(ordersDispatch.getId())
+                    .cityCode(ordersDispatch.getCityCode())
+                    .serveProviderId(serveProviderId)
+                    .serveProviderType(serveProviderType)
+                    .serveEpochHour(serveEpochHour)
+                    .deadline(deadline)
+                    .build();
+            List<String> keys = Arrays.asList(
+                    String.format(SERVE_PROVIDER_STATE, bucket),
+                    String.format(SERVE_PROVIDER_CALENDAR, serveProviderId, bucket),
+                    String.format(DISPATCH_OFFER, bucket),
+                    String.format(DISPATCH_RECEIVE_TIMEOUT, bucket));
+            int maxServeNum = institution ? dispatchProperties.getServeTaskNumOrInstitution() : dispatchProperties.getServeTaskNumOfServe();
+            // 机构可由多名服务人员服务，不校验服务时间冲突
+            Object[] args = {ordersDispatch.getId().toString(), String.valueOf(serveProviderId), String.valueOf(maxServeNum),
+                    institution ? "" : String.valueOf(serveEpochHour), JSONUtil.toJsonStr(offer), String.valueOf(deadline)};
+            Long code = redisTemplate.execute(offerScript, keys, args);
+            if (Long.valueOf(-4).equals(code)) {
+                // 服务时间日历不存在，从数据库恢复后重试
+                serveProviderCalendarService.restore(serveProviderId, ordersDispatch.getCityCode());
+                code = redisTemplate.execute(offerScript, keys, args);
+            }
+            if (Long.valueOf(1).equals(code)) {
+                log.debug("派单，id:{}，serveProviderId:{}", ordersDispatch.getId(), serveProviderId);
+                serveProviderStateService.markDirty(serveProviderId, ordersDispatch.getCityCode());
+                receiveTimeoutService.schedule(bucket, ordersDispatch.getId(), deadline);
+                return true;
+            }
+            redisTemplate.delete(lockKey);
+            if (Long.valueOf(-1).equals(code)) {
+                // 已有待接单记录
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查询服务人员/机构的待接单记录
+     */
+    private String getOffer(int bucket, Long id, Long serveProviderId) {
+        Object value = redisTemplate.opsForHash().get(String.format(DISPATCH_OFFER, bucket), id.toString());
+        if (ObjectUtils.isNull(value)) {
+            throw new CommonException("接单超时或已被处理");
+        }
+        OrdersDispatchOfferDTO offer = JSONUtil.toBean(value.toString(), OrdersDispatchOfferDTO.class);
+        if (!serveProviderId.equals(offer.getServeProviderId())) {
+            throw new CommonException("派单不属于当前服务人员/机构");
+        }
+        return value.toString();
+    }
+
+    /**
+     * 删除待接单记录
+     *
+     * @param restore 是否归还接单数量和服务时间
+     * @return 是否删除成功，记录已被其他操作处理时返回false
+     */
+    private boolean release(int bucket, OrdersDispatchOfferDTO offer, String value, boolean restore) {
+        boolean institution = Integer.valueOf(UserType.INSTITUTION).equals(offer.getServeProviderType());
+        if (restore && !institution) {
+            // 日历不存在时脚本不归还服务时间，先从数据库恢复
+            serveProviderCalendarService.restore(offer.getServeProviderId(), offer.getCityCode());
+        }
+        List<String> keys = Arrays.asList(
+                String.format(DISPATCH_OFFER, bucket),
+                String.format(SERVE_PROVIDER_STATE, bucket),
+                String.format(SERVE_PROVIDER_CALENDAR, offer.getServeProviderId(), bucket),
+                String.format(DISPATCH_RECEIVE_TIMEOUT, bucket));
+        Long code = redisTemplate.execute(releaseScript, keys, offer.getId().toString(), value, offer.getServeProviderId().toString(),
+                institution ? "" : String.valueOf(offer.getServeEpochHour()), restore ? "1" : "0");
+        boolean released = Long.valueOf(1).equals(code);
+        if (released && restore) {
+            serveProviderStateService.markDirty(offer.getServeProviderId(), offer.getCityCode());
+        }
+        return released;
+    }
+
+    private void addDispatchList(int bucket, List<Long> ids, double score) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(ids.size());
+        ids.forEach(id -> tuples.add(new DefaultTypedTuple<>(id.toString(), score)));
+        redisTemplate.opsForZSet().add(String.format(DISPATCH_LIST, bucket), tuples);
+    }
+}
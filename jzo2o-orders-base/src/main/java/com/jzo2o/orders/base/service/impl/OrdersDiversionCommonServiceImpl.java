@@ -1,119 +1,351 @@
-//package com.jzo2o.orders.base.service.impl;
-//
-//import com.jzo2o.api.foundations.RegionApi;
-//import com.jzo2o.api.foundations.ServeApi;
-//import com.jzo2o.api.foundations.dto.response.ConfigRegionInnerResDTO;
-//import com.jzo2o.api.foundations.dto.response.ServeAggregationResDTO;
-//import com.jzo2o.common.utils.BooleanUtils;
-//import com.jzo2o.common.utils.DateUtils;
-//import com.jzo2o.common.utils.ObjectUtils;
-//import com.jzo2o.orders.base.mapper.OrdersDispatchMapper;
-//import com.jzo2o.orders.base.mapper.OrdersSeizeMapper;
-//import com.jzo2o.orders.base.model.domain.Orders;
-//import com.jzo2o.orders.base.model.domain.OrdersDispatch;
-//import com.jzo2o.orders.base.model.domain.OrdersSeize;
-//import com.jzo2o.orders.base.service.IOrdersDiversionCommonService;
-//import lombok.extern.slf4j.Slf4j;
-//import org.springframework.data.redis.core.RedisTemplate;
-//import org.springframework.stereotype.Service;
-//import org.springframework.transaction.annotation.Transactional;
-//
-//import javax.annotation.Resource;
-//import java.time.Duration;
-//
-//@Service
-//@Slf4j
-//public class OrdersDiversionCommonServiceImpl implements IOrdersDiversionCommonService {
-//
-//
-//    @Resource
-//    private RedisTemplate<String, Long> redisTemplate;
-//
-//    @Resource
-//    private RegionApi regionApi;
-//
-//    @Resource
-//    private ServeApi serveApi;
-//
-//    @Resource
-//    private OrdersDiversionCommonServiceImpl owner;
-//
-//    @Resource
-//    private OrdersSeizeMapper ordersSeizeMapper;
-//    @Resource
-//    private OrdersDispatchMapper ordersDispatchMapper;
-//
-//    @Override
-//    public void diversion(Orders orders) {
-//        log.debug("订单分流，id:{}",orders.getId());
-//        // 1.当前时间已超过服务预约时间则不再分流
-//        if (orders.getServeStartTime().compareTo(DateUtils.now()) < 0) {
-//            log.debug("订单{}当前时间已超过服务预约时间则不再分流",orders.getId());
-//            return;
-//        }
-//        ConfigRegionInnerResDTO configRegion = regionApi.findConfigRegionByCityCode(orders.getCityCode());
-//        ServeAggregationResDTO serveAggregationResDTO = serveApi.findById(orders.getServeId());
-//        //订单分流数据存储
-//        owner.diversionCommit(orders,configRegion,serveAggregationResDTO);
-//    }
-//
-//    @Transactional(rollbackFor = Exception.class)
-//    public void diversionCommit(Orders orders, ConfigRegionInnerResDTO configRegion, ServeAggregationResDTO serveAggregationResDTO) {
-//        //流间隔（单位分钟），即当前时间与服务预计开始时间的间隔
-//        Integer diversionInterval = configRegion.getDiversionInterval();
-//
-//        //当前时间与服务预约时间的间隔
-//        Duration between = DateUtils.between(DateUtils.now(), orders.getServeStartTime());
-//        //服务类型名称
-//        String serveTypeName = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeTypeName);
-//        //服务类型id
-//        Long serveTypeId = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeTypeId);
-//        //服务项名称
-//        String serveItemName = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeItemName);
-//        //服务项图片
-//        String serveItemImg = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeItemImg);
-//        //用于排序,服务预约时间戳加订单号后5位
-//        long sortBy = DateUtils.toEpochMilli(orders.getServeStartTime()) + orders.getId() % 100000;
-//        OrdersSeize ordersSeize = OrdersSeize.builder()
-//                .id(orders.getId())
-//                .ordersAmount(orders.getRealPayAmount())
-//                .cityCode(orders.getCityCode())
-//                .serveTypeId(serveTypeId)
-//                .serveTypeName(serveTypeName)
-//                .serveItemId(orders.getServeItemId())
-//                .serveItemName(serveItemName)
-//                .serveItemImg(serveItemImg)
-//                .ordersAmount(orders.getRealPayAmount())
-//                .serveStartTime(orders.getServeStartTime())
-//                .serveAddress(orders.getServeAddress())
-//                .lon(orders.getLon())
-//                .lat(orders.getLat())
-//                .paySuccessTime(DateUtils.now())
-//                .paySuccessTime(orders.getPayTime())
-//                .sortBy(sortBy)
-//                .isTimeOut(BooleanUtils.toInt(between.toMinutes() < diversionInterval))
-//                .purNum(orders.getPurNum()).build();
-//        ordersSeizeMapper.insert(ordersSeize);
-//        //当前时间与服务预约时间的间隔 小于指定间隔则插入派单表
-//        if (between.toMinutes() < diversionInterval) {
-//            OrdersDispatch ordersDispatch = OrdersDispatch.builder()
-//                    .id(orders.getId())
-//                    .ordersAmount(orders.getRealPayAmount())
-//                    .cityCode(orders.getCityCode())
-//                    .serveTypeId(serveTypeId)
-//                    .serveTypeName(serveTypeName)
-//                    .serveItemId(orders.getServeItemId())
-//                    .serveItemName(serveItemName)
-//                    .serveItemImg(serveItemImg)
-//                    .ordersAmount(orders.getRealPayAmount())
-//                    .serveStartTime(orders.getServeStartTime())
-//                    .serveAddress(orders.getServeAddress())
-//                    .lon(orders.getLon())
-//                    .lat(orders.getLat())
-//                    .purNum(orders.getPurNum()).build();
-//            ordersDispatchMapper.insert(ordersDispatch);
-//        }
-//    }
-//
-//
-//}
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.api.foundations.dto.response.ConfigRegionInnerResDTO;
+import com.jzo2o.api.foundations.dto.response.ServeAggregationResDTO;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.jzo2o.common.expcetions.CommonException;
+import com.jzo2o.common.utils.BooleanUtils;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.DateUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersDispatchMapper;
+import com.jzo2o.orders.base.mapper.OrdersSeizeMapper;
+import com.jzo2o.orders.base.mapper.OrdersServeMapper;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.base.properties.DiversionProperties;
+import com.jzo2o.orders.base.service.IFoundationCacheService;
+import com.jzo2o.orders.base.service.IOrdersDispatchService;
+import com.jzo2o.orders.base.service.IOrdersDiversionCommonService;
+import com.jzo2o.orders.base.service.IOrdersSeizeCommonService;
+import com.jzo2o.orders.base.service.IOrdersSeizeTimeoutService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 订单分流
+ * <p>
+ * 支付成功的订单放入队列，分流线程攒批后统一处理：区域配置和服务信息按城市、服务去重从本地缓存查询，
+ * 抢单池和派单池多行插入，一批一个事务；调用方等待所在批次提交后返回，保证消息确认时分流数据已落库
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrdersDiversionCommonServiceImpl implements IOrdersDiversionCommonService {
+
+    @Resource
+    private IFoundationCacheService foundationCacheService;
+
+    @Resource
+    private OrdersDiversionCommonServiceImpl owner;
+
+    @Resource
+    private IOrdersSeizeCommonService ordersSeizeCommonService;
+
+    @Resource
+    private IOrdersSeizeTimeoutService ordersSeizeTimeoutService;
+
+    @Resource
+    private IOrdersDispatchService ordersDispatchService;
+
+    @Resource
+    private OrdersSeizeMapper ordersSeizeMapper;
+    @Resource
+    private OrdersDispatchMapper ordersDispatchMapper;
+    @Resource
+    private OrdersServeMapper ordersServeMapper;
+
+    @Resource
+    private DiversionProperties diversionProperties;
+
+    private BlockingQueue<DiversionRequest> queue;
+
+    private Thread worker;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(diversionProperties.getQueueCapacity());
+        running = true;
+        worker = new Thread(this::work, "orders-diversion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        worker.interrupt();
+    }
+
+    @Override
+    public void diversion(Orders orders) {
+        log.debug("订单分流，id:{}", orders.getId());
+        DiversionRequest request = new DiversionRequest(orders);
+        if (!queue.offer(request)) {
+            // 队列已满，在当前线程处理
+            diversionBatch(Collections.singletonList(orders));
+            return;
+        }
+        try {
+            request.future.get(diversionProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonException("订单分流被中断，id:" + orders.getId());
+        } catch (ExecutionException e) {
+            throw new CommonException("订单分流失败，id:" + orders.getId());
+        } catch (TimeoutException e) {
+            throw new CommonException("订单分流超时，id:" + orders.getId());
+        }
+    }
+
+    @Override
+    public void diversionBatch(List<Orders> ordersList) {
+        if (CollUtils.isEmpty(ordersList)) {
+            return;
+        }
+        // 1.当前时间已超过服务预约时间则不再分流
+        LocalDateTime now = DateUtils.now();
+        List<Orders> validList = new ArrayList<>(ordersList.size());
+        for (Orders orders : ordersList) {
+            if (orders.getServeStartTime().compareTo(now) < 0) {
+                log.debug("订单{}当前时间已超过服务预约时间则不再分流", orders.getId());
+                continue;
+            }
+            validList.add(orders);
+        }
+        if (CollUtils.isEmpty(validList)) {
+            return;
+        }
+
+        // 2.按城市、服务去重查询区域配置和服务信息，优先本地缓存
+        Map<String, ConfigRegionInnerResDTO> configRegions = new HashMap<>();
+        Map<Long, ServeAggregationResDTO> serves = new HashMap<>();
+        for (Orders orders : validList) {
+            if (!configRegions.containsKey(orders.getCityCode())) {
+                configRegions.put(orders.getCityCode(), foundationCacheService.getConfigRegion(orders.getCityCode()));
+            }
+            if (!serves.containsKey(orders.getServeId())) {
+                serves.put(orders.getServeId(), foundationCacheService.getServe(orders.getServeId()));
+            }
+        }
+
+        // 3.构建抢单池、派单池数据
+        List<OrdersSeize> ordersSeizes = new ArrayList<>(validList.size());
+        List<OrdersDispatch> ordersDispatches = new ArrayList<>();
+        for (Orders orders : validList) {
+            ConfigRegionInnerResDTO configRegion = configRegions.get(orders.getCityCode());
+            if (ObjectUtils.isNull(configRegion)) {
+                throw new CommonException("区域配置不存在，cityCode:" + orders.getCityCode());
+            }
+            buildDiversion(orders, configRegion, serves.get(orders.getServeId()), now, ordersSeizes, ordersDispatches);
+        }
+
+        // 4.订单分流数据存储，已分流过的订单从列表中剔除
+        List<Long> pendingIds = owner.diversionCommit(ordersSeizes, ordersDispatches);
+
+        // 5.仅对本次新插入的订单：未进入派单池的抢单加入抢单池并注册超时时间，到期转派单；进入派单池的加入派单列表
+        ordersSeizeCommonService.addSeizePool(ordersSeizes);
+        ordersSeizeTimeoutService.schedule(ordersSeizes);
+        ordersDispatchService.addDispatchList(ordersDispatches);
+
+        // 6.已分流但尚未生成服务单的订单，上次落库后写入redis可能失败，重新写入
+        if (CollUtils.isNotEmpty(pendingIds)) {
+            List<OrdersSeize> pendingSeizes = owner.restoreSeizePool(pendingIds);
+            ordersSeizeTimeoutService.schedule(pendingSeizes);
+            ordersDispatchService.addDispatchList(ordersDispatchMapper.selectBatchIds(pendingIds));
+        }
+    }
+
+    /**
+     * 分流数据落库
+     * <p>
+     * 调用方等待超时后消息会重投，而原请求仍在处理，重投的订单可能已在抢单池、派单池或已被抢单生成服务单；
+     * 这些订单从两个列表中剔除，避免重新写入抢单库存导致重复抢单。
+     * 已在抢单池、派单池但尚未生成服务单的订单返回给调用方，重新写入redis
+     * </p>
+     *
+     * @param ordersSeizes     抢单列表，执行后只保留本次新插入的记录
+     * @param ordersDispatches 派单列表，执行后只保留本次新插入的记录
+     * @return 已分流、尚未生成服务单的订单id
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> diversionCommit(List<OrdersSeize> ordersSeizes, List<OrdersDispatch> ordersDispatches) {
+        List<Long> ids = new ArrayList<>(ordersSeizes.size() + ordersDispatches.size());
+        ordersSeizes.forEach(ordersSeize -> ids.add(ordersSeize.getId()));
+        ordersDispatches.forEach(ordersDispatch -> ids.add(ordersDispatch.getId()));
+        if (CollUtils.isEmpty(ids)) {
+            return new ArrayList<>();
+        }
+        Set<Long> divertedIds = new HashSet<>();
+        ordersSeizeMapper.selectList(Wrappers.<OrdersSeize>lambdaQuery().select(OrdersSeize::getId).in(OrdersSeize::getId, ids))
+                .forEach(ordersSeize -> divertedIds.add(ordersSeize.getId()));
+        ordersDispatchMapper.selectList(Wrappers.<OrdersDispatch>lambdaQuery().select(OrdersDispatch::getId).in(OrdersDispatch::getId, ids))
+                .forEach(ordersDispatch -> divertedIds.add(ordersDispatch.getId()));
+        Set<Long> servedIds = new HashSet<>();
+        ordersServeMapper.selectList(Wrappers.<OrdersServe>lambdaQuery().select(OrdersServe::getId).in(OrdersServe::getId, ids))
+                .forEach(ordersServe -> servedIds.add(ordersServe.getId()));
+        List<Long> pendingIds = divertedIds.stream().filter(id -> !servedIds.contains(id)).collect(Collectors.toList());
+        divertedIds.addAll(servedIds);
+        if (CollUtils.isNotEmpty(divertedIds)) {
+            log.info("订单分流，{}条订单已分流，跳过", divertedIds.size());
+            ordersSeizes.removeIf(ordersSeize -> divertedIds.contains(ordersSeize.getId()));
+            ordersDispatches.removeIf(ordersDispatch -> divertedIds.contains(ordersDispatch.getId()));
+        }
+
+        if (CollUtils.isNotEmpty(ordersSeizes)) {
+            ordersSeizeMapper.batchAdd(ordersSeizes);
+        }
+        if (CollUtils.isNotEmpty(ordersDispatches)) {
+            ordersDispatchMapper.batchAdd(ordersDispatches);
+        }
+        return pendingIds;
+    }
+
+    /**
+     * 锁定未超时的抢单并补写抢单池，持有行锁期间不会被转派单
+     *
+     * @param ids 已分流、尚未生成服务单的订单id
+     * @return 未超时的抢单
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<OrdersSeize> restoreSeizePool(List<Long> ids) {
+        List<OrdersSeize> ordersSeizes = ordersSeizeMapper.selectNotTimeOutListForUpdate(ids);
+        int restored = ordersSeizeCommonService.restoreSeizePool(ordersSeizes);
+        if (restored > 0) {
+            log.info("订单分流，补写抢单池{}条", restored);
+        }
+        return ordersSeizes;
+    }
+
+    private void buildDiversion(Orders orders, ConfigRegionInnerResDTO configRegion, ServeAggregationResDTO serveAggregationResDTO,
+                                LocalDateTime now, List<OrdersSeize> ordersSeizes, List<OrdersDispatch> ordersDispatches) {
+        //流间隔（单位分钟），即当前时间与服务预计开始时间的间隔
+        Integer diversionInterval = configRegion.getDiversionInterval();
+
+        //当前时间与服务预约时间的间隔
+        Duration between = DateUtils.between(now, orders.getServeStartTime());
+        //服务类型名称
+        String serveTypeName = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeTypeName);
+        //服务类型id
+        Long serveTypeId = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeTypeId);
+        //服务项名称
+        String serveItemName = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeItemName);
+        //服务项图片
+        String serveItemImg = ObjectUtils.get(serveAggregationResDTO, ServeAggregationResDTO::getServeItemImg);
+        //用于排序,服务预约时间戳加订单号后5位
+        long sortBy = DateUtils.toEpochMilli(orders.getServeStartTime()) + orders.getId() % 100000;
+        ordersSeizes.add(OrdersSeize.builder()
+                .id(orders.getId())
+                .cityCode(orders.getCityCode())
+                .serveTypeId(serveTypeId)
+                .serveTypeName(serveTypeName)
+                .serveItemId(orders.getServeItemId())
+                .serveItemName(serveItemName)
+                .serveItemImg(serveItemImg)
+                .ordersAmount(orders.getRealPayAmount())
+                .serveStartTime(orders.getServeStartTime())
+                .serveAddress(orders.getServeAddress())
+                .lon(orders.getLon())
+                .lat(orders.getLat())
+                .paySuccessTime(orders.getPayTime())
+                .sortBy(sortBy)
+                .isTimeOut(BooleanUtils.toInt(between.toMinutes() < diversionInterval))
+                .purNum(orders.getPurNum()).build());
+        //当前时间与服务预约时间的间隔 小于指定间隔则插入派单表
+        if (between.toMinutes() < diversionInterval) {
+            ordersDispatches.add(OrdersDispatch.builder()
+                    .id(orders.getId())
+                    .cityCode(orders.getCityCode())
+                    .serveTypeId(serveTypeId)
+                    .serveTypeName(serveTypeName)
+                    .serveItemId(orders.getServeItemId())
+                    .serveItemName(serveItemName)
+                    .serveItemImg(serveItemImg)
+                    .ordersAmount(orders.getRealPayAmount())
+                    .serveStartTime(orders.getServeStartTime())
+                    .serveAddress(orders.getServeAddress())
+                    .lon(orders.getLon())
+                    .lat(orders.getLat())
+                    .purNum(orders.getPurNum())
+                    .isTransferManual(0).build());
+        }
+    }
+
+    /**
+     * 攒批并处理，整批失败时逐个重试，避免个别订单导致整批失败
+     */
+    private void work() {
+        int batchSize = diversionProperties.getBatchSize();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(diversionProperties.getWindowMillis());
+        while (running) {
+            List<DiversionRequest> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < batchSize) {
+                    DiversionRequest request = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (ObjectUtils.isNull(request)) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(request -> request.future.completeExceptionally(e));
+                break;
+            }
+
+            List<Orders> ordersList = new ArrayList<>(batch.size());
+            batch.forEach(request -> ordersList.add(request.orders));
+            try {
+                diversionBatch(ordersList);
+                batch.forEach(request -> request.future.complete(null));
+            } catch (Exception e) {
+                log.error("订单批量分流失败，逐个重试，数量:{}", batch.size(), e);
+                for (DiversionRequest request : batch) {
+                    try {
+                        diversionBatch(Collections.singletonList(request.orders));
+                        request.future.complete(null);
+                    } catch (Exception ex) {
+                        log.error("订单分流失败，id:{}", request.orders.getId(), ex);
+                        request.future.completeExceptionally(ex);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class DiversionRequest {
+        private final Orders orders;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private DiversionRequest(Orders orders) {
+            this.orders = orders;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.jzo2o.orders.base.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.orders.base.enums.SeizeResultEnum;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.base.model.dto.OrdersSeizeSyncDTO;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.IOrdersSeizeCommonService;
+import com.jzo2o.orders.base.service.IServeProviderCalendarService;
+import com.jzo2o.orders.base.utils.LuaScriptUtils;
+import com.jzo2o.orders.base.utils.RedisUtils;
+import com.jzo2o.orders.base.utils.ServeTimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_RESOURCE_STOCK;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE_SYNC;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_CALENDAR;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_STATE;
+
+/**
+ * 抢单
+ * <p>
+ * 库存 hash：key为抢单id，value为剩余库存；抢单池 hash：key为抢单id，value为服务时间小时序号，
+ * 用于服务人员服务时间冲突校验；服务状态表 hash：{服务者id}_num为接单数量；服务时间日历见ServeCalendar。
+ * 脚本通过sha执行（DefaultRedisScript预先计算sha1，未加载时自动回退eval）
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersSeizeCommonServiceImpl implements IOrdersSeizeCommonService {
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    @Resource
+    private IServeProviderCalendarService serveProviderCalendarService;
+
+    private final DefaultRedisScript<Long> seizeScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<List> claimScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> restoreScript = new DefaultRedisScript<>();
+
+    {
+        seizeScript.setScriptSource(LuaScriptUtils.source("lua/serve_calendar_lib.lua", "lua/orders_seize.lua"));
+        seizeScript.setResultType(Long.class);
+        claimScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_seize_claim.lua")));
+        claimScript.setResultType(List.class);
+        restoreScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_seize_restore.lua")));
+        restoreScript.setResultType(Long.class);
+    }
+
+    @Override
+    public void addSeizePool(List<OrdersSeize> ordersSeizes) {
+        if (CollUtils.isEmpty(ordersSeizes)) {
+            return;
+        }
+        // 按城市分组，每个城市两次写入
+        Map<String, List<OrdersSeize>> cityMap = ordersSeizes.stream()
+                .filter(ordersSeize -> !Integer.valueOf(1).equals(ordersSeize.getIsTimeOut()))
+                .collect(Collectors.groupingBy(OrdersSeize::getCityCode));
+        cityMap.forEach((cityCode, list) -> {
+            int index = RedisUtils.getCityIndex(cityCode);
+            Map<String, String> stocks = new HashMap<>(list.size());
+            Map<String, String> serveTimes = new HashMap<>(list.size());
+            for (OrdersSeize ordersSeize : list) {
+                stocks.put(ordersSeize.getId().toString(), "1");
+                serveTimes.put(ordersSeize.getId().toString(), String.valueOf(ServeTimeUtils.getServeEpochHour(ordersSeize.getServeStartTime())));
+            }
+            redisTemplate.opsForHash().putAll(String.format(ORDERS_SEIZE, cityCode, index), serveTimes);
+            redisTemplate.opsForHash().putAll(String.format(ORDERS_RESOURCE_STOCK, index), stocks);
+        });
+    }
+
+    @Override
+    public int restoreSeizePool(List<OrdersSeize> ordersSeizes) {
+        if (CollUtils.isEmpty(ordersSeizes)) {
+            return 0;
+        }
+        int restored = 0;
+        Map<String, List<OrdersSeize>> cityMap = ordersSeizes.stream()
+                .filter(ordersSeize -> !Integer.valueOf(1).equals(ordersSeize.getIsTimeOut()))
+                .collect(Collectors.groupingBy(OrdersSeize::getCityCode));
+        for (Map.Entry<String, List<OrdersSeize>> entry : cityMap.entrySet()) {
+            int index = RedisUtils.getCityIndex(entry.getKey());
+            List<String> keys = Arrays.asList(String.format(ORDERS_RESOURCE_STOCK, index), String.format(ORDERS_SEIZE, entry.getKey(), index),
+                    String.format(ORDERS_SEIZE_SYNC, index));
+            List<String> args = new ArrayList<>(entry.getValue().size() * 2);
+            for (OrdersSeize ordersSeize : entry.getValue()) {
+                args.add(ordersSeize.getId().toString());
+                args.add(String.valueOf(ServeTimeUtils.getServeEpochHour(ordersSeize.getServeStartTime())));
+            }
+            Long count = redisTemplate.execute(restoreScript, keys, args.toArray());
+            restored += count == null ? 0 : count.intValue();
+        }
+        return restored;
+    }
+
+    @Override
+    public SeizeResultEnum seize(Long id, String cityCode, Long serveProviderId, Integer serveProviderType) {
+        int index = RedisUtils.getCityIndex(cityCode);
+        List<String> keys = Arrays.asList(
+                String.format(ORDERS_RESOURCE_STOCK, index),
+                String.format(ORDERS_SEIZE, cityCode, index),
+                String.format(SERVE_PROVIDER_STATE, index),
+                String.format(ORDERS_SEIZE_SYNC, index),
+                String.format(SERVE_PROVIDER_CALENDAR, serveProviderId, index));
+        boolean institution = Integer.valueOf(UserType.INSTITUTION).equals(serveProviderType);
+        // 机构可由多名服务人员服务，不校验服务时间冲突
+        int maxServeNum = institution ? dispatchProperties.getServeTaskNumOrInstitution() : dispatchProperties.getServeTaskNumOfServe();
+        OrdersSeizeSyncDTO record = OrdersSeizeSyncDTO.builder()
+                .id(id)
+                .serveProviderId(serveProviderId)
+                .serveProviderType(serveProviderType)
+                .seizeTime(System.currentTimeMillis())
+                .build();
+
+        Object[] args = {id.toString(), serveProviderId.toString(), String.valueOf(maxServeNum), institution ? "0" : "1", JSONUtil.toJsonStr(record)};
+        Long code = redisTemplate.execute(seizeScript, keys, args);
+        if (Long.valueOf(SeizeResultEnum.CALENDAR_MISSING.getCode()).equals(code)) {
+            // 服务时间日历不存在，从数据库恢复后重试
+            serveProviderCalendarService.restore(serveProviderId, cityCode);
+            code = redisTemplate.execute(seizeScript, keys, args);
+        }
+        SeizeResultEnum result = SeizeResultEnum.codeOf(code);
+        log.debug("抢单，id:{}，serveProviderId:{}，result:{}", id, serveProviderId, result);
+        return result;
+    }
+
+    @Override
+    public List<Long> claim(String cityCode, List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return new ArrayList<>();
+        }
+        int index = RedisUtils.getCityIndex(cityCode);
+        List<String> keys = Arrays.asList(String.format(ORDERS_RESOURCE_STOCK, index), String.format(ORDERS_SEIZE, cityCode, index),
+                String.format(ORDERS_SEIZE_SYNC, index));
+        List<String> claimed = redisTemplate.execute(claimScript, keys, ids.stream().map(String::valueOf).toArray());
+        if (CollUtils.isEmpty(claimed)) {
+            return new ArrayList<>();
+        }
+        return claimed.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,307 @@
+package com.jzo2o.orders.base.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.orders.base.config.OrderStateMachine;
+import com.jzo2o.orders.base.constants.OrdersOriginType;
+import com.jzo2o.orders.base.enums.OrderStatusChangeEventEnum;
+import com.jzo2o.orders.base.mapper.OrdersMapper;
+import com.jzo2o.orders.base.mapper.OrdersSeizeMapper;
+import com.jzo2o.orders.base.mapper.OrdersServeMapper;
+import com.jzo2o.orders.base.model.converter.OrdersServeConverter;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.base.model.dto.OrdersSeizeSyncDTO;
+import com.jzo2o.orders.base.properties.SeizeSyncProperties;
+import com.jzo2o.orders.base.service.IOrdersSeizeSyncService;
+import com.jzo2o.orders.base.service.IOrdersSeizeTimeoutService;
+import com.jzo2o.orders.base.service.IServeProviderCalendarService;
+import com.jzo2o.orders.base.service.IServeProviderStateService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.Lock.SEIZE_SYNC_LOCK;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE_SYNC;
+
+/**
+ * 抢单结果同步
+ * <p>
+ * 同步队列为hash，key为抢单id；每批通过hscan读取，落库提交后hdel，
+ * 提交前宕机时记录仍在队列中，由下一个持有租约的节点重新处理，订单状态按原状态更新保证幂等。
+ * 服务单id与订单id相同，重复新增时忽略
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersSeizeSyncServiceImpl implements IOrdersSeizeSyncService {
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrderStateMachine orderStateMachine;
+
+    @Resource
+    private IOrdersSeizeSyncService owner;
+
+    @Resource
+    private IServeProviderCalendarService serveProviderCalendarService;
+
+    @Resource
+    private IServeProviderStateService serveProviderStateService;
+
+    @Resource
+    private IOrdersSeizeTimeoutService ordersSeizeTimeoutService;
+
+    @Resource
+    private OrdersMapper ordersMapper;
+
+    @Resource
+    private OrdersServeMapper ordersServeMapper;
+
+    @Resource
+    private OrdersSeizeMapper ordersSeizeMapper;
+
+    @Resource
+    private SeizeSyncProperties seizeSyncProperties;
+
+    private final String token = UUID.randomUUID().toString();
+
+    private final DefaultRedisScript<Long> renewScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>();
+
+    {
+        renewScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/lease_renew.lua")));
+        renewScript.setResultType(Long.class);
+        releaseScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/lease_release.lua")));
+        releaseScript.setResultType(Long.class);
+    }
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private DistributionSummary batchSizeSummary;
+
+    private Timer commitTimer;
+
+    private Timer lagTimer;
+
+    @PostConstruct
+    public void init() {
+        batchSizeSummary = DistributionSummary.builder("orders.seize.sync.batch.size")
+                .description("抢单结果同步每批记录数")
+                .register(Metrics.globalRegistry);
+        commitTimer = Timer.builder("orders.seize.sync.commit")
+                .description("抢单结果同步每批落库耗时")
+                .register(Metrics.globalRegistry);
+        lagTimer = Timer.builder("orders.seize.sync.lag")
+                .description("抢单成功到落库的延迟")
+                .register(Metrics.globalRegistry);
+
+        running = true;
+        for (int shard = 0; shard < seizeSyncProperties.getShardCount(); shard++) {
+            int index = shard;
+            Thread worker = new Thread(() -> work(index), "orders-seize-sync-" + shard);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (int shard = 0; shard < seizeSyncProperties.getShardCount(); shard++) {
+            redisTemplate.execute(releaseScript, Collections.singletonList(String.format(SEIZE_SYNC_LOCK, shard)), token);
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> syncBatch(List<OrdersSeizeSyncDTO> records) {
+        if (CollUtils.isEmpty(records)) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = records.stream().map(OrdersSeizeSyncDTO::getId).collect(Collectors.toList());
+
+        // 1.订单状态由派单中变为待服务，状态不满足的（已同步、已取消）跳过
+        List<Long> syncedIds = orderStateMachine.changeStatusBatch(ids, OrderStatusChangeEventEnum.DISPATCH);
+
+        // 2.新增服务单
+        if (CollUtils.isNotEmpty(syncedIds)) {
+            Map<Long, OrdersSeizeSyncDTO> recordMap = records.stream()
+                    .collect(Collectors.toMap(OrdersSeizeSyncDTO::getId, record -> record, (r1, r2) -> r1));
+            List<OrdersServe> ordersServes = ordersMapper.selectBatchIds(syncedIds).stream()
+                    .map(orders -> {
+                        OrdersSeizeSyncDTO record = recordMap.get(orders.getId());
+                        return OrdersServeConverter.toOrdersServe(orders, record.getServeProviderId(), record.getServeProviderType(), OrdersOriginType.SEIZE);
+                    })
+                    .collect(Collectors.toList());
+            ordersServeMapper.batchAdd(ordersServes);
+
+            // 抢单脚本中已增加接单数量，记录待写回
+            ordersServes.forEach(ordersServe -> serveProviderStateService.markDirty(ordersServe.getServeProviderId(), ordersServe.getCityCode()));
+
+            // 服务人员抢单时已在redis日历中占用服务时间，同步到数据库
+            ordersServes.stream()
+                    .filter(ordersServe -> !Integer.valueOf(UserType.INSTITUTION).equals(ordersServe.getServeProviderType()))
+                    .collect(Collectors.toMap(OrdersServe::getServeProviderId, OrdersServe::getCityCode, (c1, c2) -> c1))
+                    .forEach(serveProviderCalendarService::sync);
+        }
+        if (syncedIds.size() < ids.size()) {
+            log.info("抢单结果同步，{}条订单状态不满足，跳过", ids.size() - syncedIds.size());
+            compensate(records, syncedIds);
+        }
+
+        // 3.删除抢单池记录，提交后取消超时转派单
+        ordersSeizeMapper.deleteBatchIds(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(ordersSeizeTimeoutService::cancel);
+            }
+        });
+        return syncedIds;
+    }
+
+    /**
+     * 状态不满足的订单归还抢单脚本中占用的接单数量和服务时间
+     * <p>
+     * 已由本服务者同步过的（同步记录重复消费）不归还；事务提交后执行，回滚时同步记录保留，下次重试
+     * </p>
+     *
+     * @param records   同步记录
+     * @param syncedIds 本批同步成功的订单id
+     */
+    private void compensate(List<OrdersSeizeSyncDTO> records, List<Long> syncedIds) {
+        Set<Long> synced = new HashSet<>(syncedIds);
+        Map<Long, OrdersSeizeSyncDTO> skipped = records.stream()
+                .filter(record -> !synced.contains(record.getId()))
+                .collect(Collectors.toMap(OrdersSeizeSyncDTO::getId, record -> record, (r1, r2) -> r1));
+        ordersServeMapper.selectBatchIds(skipped.keySet()).stream()
+                .filter(ordersServe -> ordersServe.getServeProviderId().equals(skipped.get(ordersServe.getId()).getServeProviderId()))
+                .forEach(ordersServe -> skipped.remove(ordersServe.getId()));
+        if (CollUtils.isEmpty(skipped)) {
+            return;
+        }
+        List<Orders> ordersList = ordersMapper.selectBatchIds(skipped.keySet());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Orders orders : ordersList) {
+                    OrdersSeizeSyncDTO record = skipped.get(orders.getId());
+                    serveProviderStateService.incrementServeNums(orders.getCityCode(), Collections.singletonMap(record.getServeProviderId(), -1));
+                    if (!Integer.valueOf(UserType.INSTITUTION).equals(record.getServeProviderType())) {
+                        serveProviderCalendarService.release(record.getServeProviderId(), orders.getCityCode(), orders.getServeStartTime());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 消费一个同步队列：持有租约时循环读取一批、落库、删除
+     *
+     * @param shard 同步队列序号
+     */
+    private void work(int shard) {
+        String queueKey = String.format(ORDERS_SEIZE_SYNC, shard);
+        String lockKey = String.format(SEIZE_SYNC_LOCK, shard);
+        long idleMillis = seizeSyncProperties.getIdleMillis();
+        while (running) {
+            try {
+                if (!acquireLease(lockKey)) {
+                    TimeUnit.SECONDS.sleep(Math.max(seizeSyncProperties.getLeaseSeconds() / 3, 1));
+                    continue;
+                }
+                Map<String, String> entries = scan(queueKey, seizeSyncProperties.getBatchSize());
+                if (CollUtils.isEmpty(entries)) {
+                    TimeUnit.MILLISECONDS.sleep(idleMillis);
+                    continue;
+                }
+                List<OrdersSeizeSyncDTO> records = entries.values().stream()
+                        .map(value -> JSONUtil.toBean(value, OrdersSeizeSyncDTO.class))
+                        .collect(Collectors.toList());
+                batchSizeSummary.record(records.size());
+
+                long start = System.nanoTime();
+                owner.syncBatch(records);
+                commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                // 提交后删除
+                redisTemplate.opsForHash().delete(queueKey, entries.keySet().toArray());
+                long now = System.currentTimeMillis();
+                records.forEach(record -> lagTimer.record(now - record.getSeizeTime(), TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("抢单结果同步失败，队列:{}", queueKey, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(idleMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取或续期同步队列租约，续期为比较并续期，不会续期其他节点的租约
+     */
+    private boolean acquireLease(String lockKey) {
+        long leaseSeconds = seizeSyncProperties.getLeaseSeconds();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, token, leaseSeconds, TimeUnit.SECONDS);
+        if (Boolean.TRUE.equals(acquired)) {
+            return true;
+        }
+        Long renewed = redisTemplate.execute(renewScript, Collections.singletonList(lockKey), token, String.valueOf(leaseSeconds));
+        return Long.valueOf(1).equals(renewed);
+    }
+
+    /**
+     * 从同步队列读取最多limit条记录
+     */
+    private Map<String, String> scan(String queueKey, int limit) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        ScanOptions options = ScanOptions.scanOptions().count(limit).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(queueKey, options)) {
+            while (cursor.hasNext() && entries.size() < limit) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                entries.put(entry.getKey().toString(), entry.getValue().toString());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,266 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.api.foundations.dto.response.ConfigRegionInnerResDTO;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.DateUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersDispatchMapper;
+import com.jzo2o.orders.base.mapper.OrdersSeizeMapper;
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.base.properties.DiversionProperties;
+import com.jzo2o.orders.base.service.IDispatchBucketService;
+import com.jzo2o.orders.base.service.IFoundationCacheService;
+import com.jzo2o.orders.base.service.IOrdersDispatchService;
+import com.jzo2o.orders.base.service.IOrdersSeizeCommonService;
+import com.jzo2o.orders.base.service.IOrdersSeizeTimeoutService;
+import com.jzo2o.orders.base.utils.HashedTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 抢单超时转派单
+ * <p>
+ * 分流后的新抢单在分流节点注册，抢单成功落库后取消；每个节点只从抢单池恢复持有的派单列表（城市编码尾号）对应的抢单：
+ * 获取派单列表后恢复一次，失败的下一秒重试，之后每 promoteSweepSeconds 重新扫描一次，补偿分流节点宕机丢失的注册。
+ * 同一tick到期的订单合并为一批，锁定 is_time_out = 0 的抢单后批量写入派单池，提交后按城市编码尾号批量加入派单列表。
+ * 转派单以抢单行锁为准，多个节点注册同一订单时只有一个节点转入派单池
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersSeizeTimeoutServiceImpl implements IOrdersSeizeTimeoutService {
+
+    @Resource
+    private OrdersSeizeMapper ordersSeizeMapper;
+
+    @Resource
+    private OrdersDispatchMapper ordersDispatchMapper;
+
+    @Resource
+    private IFoundationCacheService foundationCacheService;
+
+    @Resource
+    private IOrdersSeizeCommonService ordersSeizeCommonService;
+
+    @Resource
+    private IOrdersSeizeTimeoutService owner;
+
+    @Resource
+    private IOrdersDispatchService ordersDispatchService;
+
+    @Resource
+    private IDispatchBucketService dispatchBucketService;
+
+    @Resource
+    private DiversionProperties diversionProperties;
+
+    private HashedTimingWheel timingWheel;
+
+    /**
+     * 已恢复的派单列表及恢复时间
+     */
+    private final Map<Integer, Long> recovered = new HashMap<>();
+
+    private Thread sweeper;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        timingWheel = new HashedTimingWheel("orders-seize-timeout", diversionProperties.getPromoteTickMillis(),
+                diversionProperties.getPromoteWheelSize(), this::onExpired);
+        timingWheel.start();
+        // 恢复需要查询区域配置，异步执行不阻塞启动
+        running = true;
+        sweeper = new Thread(this::sweep, "orders-seize-timeout-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        sweeper.interrupt();
+        timingWheel.stop();
+    }
+
+    @Override
+    public void schedule(List<OrdersSeize> ordersSeizes) {
+        if (CollUtils.isEmpty(ordersSeizes)) {
+            return;
+        }
+        for (OrdersSeize ordersSeize : ordersSeizes) {
+            if (Integer.valueOf(1).equals(ordersSeize.getIsTimeOut())) {
+                continue;
+            }
+            ConfigRegionInnerResDTO configRegion = foundationCacheService.getConfigRegion(ordersSeize.getCityCode());
+            if (ObjectUtils.isNull(configRegion)) {
+                log.error("区域配置不存在，抢单{}未注册超时，cityCode:{}", ordersSeize.getId(), ordersSeize.getCityCode());
+                continue;
+            }
+            // 服务预约时间 - 当前时间 < 分流间隔 时转派单
+            long deadline = DateUtils.toEpochMilli(ordersSeize.getServeStartTime().minusMinutes(configRegion.getDiversionInterval()));
+            timingWheel.add(ordersSeize.getId(), deadline);
+        }
+    }
+
+    @Override
+    public void cancel(Long id) {
+        timingWheel.remove(id);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<OrdersDispatch> promote(List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return new ArrayList<>();
+        }
+        // 1.锁定未超时的抢单，已被抢单（已删除）或已转派单的跳过
+        List<OrdersSeize> ordersSeizes = ordersSeizeMapper.selectNotTimeOutListForUpdate(ids);
+        if (CollUtils.isEmpty(ordersSeizes)) {
+            return new ArrayList<>();
+        }
+
+        // 2.移出抢单池，已被抢（有同步记录、尚未同步落库）的跳过；未写入抢单池的同样转派单
+        Set<Long> claimedIds = new HashSet<>();
+        ordersSeizes.stream().collect(Collectors.groupingBy(OrdersSeize::getCityCode))
+                .forEach((cityCode, list) -> claimedIds.addAll(ordersSeizeCommonService.claim(cityCode,
+                        list.stream().map(OrdersSeize::getId).collect(Collectors.toList()))));
+        List<OrdersSeize> claimedSeizes = ordersSeizes.stream()
+                .filter(ordersSeize -> claimedIds.contains(ordersSeize.getId()))
+                .collect(Collectors.toList());
+        if (CollUtils.isEmpty(claimedSeizes)) {
+            return new ArrayList<>();
+        }
+        // 事务回滚（包括提交时失败）时放回抢单池，否则订单既不在抢单池也不在派单池
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    ordersSeizeCommonService.addSeizePool(claimedSeizes);
+                }
+            }
+        });
+        List<Long> promotedIds = claimedSeizes.stream().map(OrdersSeize::getId).collect(Collectors.toList());
+
+        // 3.标记超时并写入派单池
+        List<OrdersDispatch> ordersDispatches = toDispatches(claimedSeizes);
+        ordersSeizeMapper.updateTimeOut(promotedIds);
+        ordersDispatchMapper.batchAdd(ordersDispatches);
+        return ordersDispatches;
+    }
+
+    private List<OrdersDispatch> toDispatches(List<OrdersSeize> ordersSeizes) {
+        return ordersSeizes.stream()
+                .map(ordersSeize -> OrdersDispatch.builder()
+                        .id(ordersSeize.getId())
+                        .cityCode(ordersSeize.getCityCode())
+                        .serveTypeId(ordersSeize.getServeTypeId())
+                        .serveTypeName(ordersSeize.getServeTypeName())
+                        .serveItemId(ordersSeize.getServeItemId())
+                        .serveItemName(ordersSeize.getServeItemName())
+                        .serveItemImg(ordersSeize.getServeItemImg())
+                        .ordersAmount(ordersSeize.getOrdersAmount())
+                        .serveStartTime(ordersSeize.getServeStartTime())
+                        .serveAddress(ordersSeize.getServeAddress())
+                        .lon(ordersSeize.getLon())
+                        .lat(ordersSeize.getLat())
+                        .purNum(ordersSeize.getPurNum())
+                        .isTransferManual(0).build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 时间轮到期处理，失败的订单下一个tick重试
+     *
+     * @param ids 到期订单id
+     */
+    private void onExpired(List<Long> ids) {
+        List<OrdersDispatch> ordersDispatches;
+        try {
+            ordersDispatches = owner.promote(ids);
+        } catch (Exception e) {
+            log.error("抢单转派单失败，稍后重试，数量:{}", ids.size(), e);
+            long retryAt = System.currentTimeMillis() + diversionProperties.getPromoteTickMillis();
+            ids.forEach(id -> timingWheel.add(id, retryAt));
+            return;
+        }
+        if (CollUtils.isEmpty(ordersDispatches)) {
+            return;
+        }
+        log.debug("抢单转派单，数量:{}", ordersDispatches.size());
+        ordersDispatchService.addDispatchList(ordersDispatches);
+    }
+
+    /**
+     * 每秒检查持有的派单列表：未恢复（新获取或上次失败）或距上次恢复超过扫描间隔的重新恢复，不再持有的移除记录
+     */
+    private void sweep() {
+        long sweepMillis = TimeUnit.SECONDS.toMillis(diversionProperties.getPromoteSweepSeconds());
+        while (running) {
+            Set<Integer> ownedBuckets = new HashSet<>(dispatchBucketService.ownedBuckets());
+            recovered.keySet().retainAll(ownedBuckets);
+            for (Integer bucket : ownedBuckets) {
+                Long recoveredAt = recovered.get(bucket);
+                if (recoveredAt != null && System.currentTimeMillis() - recoveredAt < sweepMillis) {
+                    continue;
+                }
+                try {
+                    long startAt = System.currentTimeMillis();
+                    int total = recover(bucket);
+                    recovered.put(bucket, startAt);
+                    log.info("抢单超时时间轮恢复完成，bucket:{}，数量:{}", bucket, total);
+                } catch (Exception e) {
+                    log.error("抢单超时时间轮恢复失败，稍后重试，bucket:{}", bucket, e);
+                }
+            }
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按id顺序分批读取派单列表对应的抢单池中未超时的订单注册到时间轮，注册可重复执行
+     *
+     * @param bucket 派单列表序号（城市编码尾号）
+     * @return 注册数量
+     */
+    private int recover(int bucket) {
+        int batchSize = diversionProperties.getPromoteRecoverBatchSize();
+        long lastId = 0L;
+        int total = 0;
+        while (true) {
+            List<OrdersSeize> ordersSeizes = ordersSeizeMapper.selectNotTimeOutListByBucket(bucket, lastId, batchSize);
+            if (CollUtils.isEmpty(ordersSeizes)) {
+                break;
+            }
+            schedule(ordersSeizes);
+            total += ordersSeizes.size();
+            lastId = ordersSeizes.get(ordersSeizes.size() - 1).getId();
+            if (ordersSeizes.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,235 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.ServeProviderSyncMapper;
+import com.jzo2o.orders.base.model.domain.ServeProviderSync;
+import com.jzo2o.orders.base.service.IServeProviderCalendarService;
+import com.jzo2o.orders.base.utils.LuaScriptUtils;
+import com.jzo2o.orders.base.utils.RedisUtils;
+import com.jzo2o.orders.base.utils.ServeCalendar;
+import com.jzo2o.orders.base.utils.ServeTimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_CALENDAR;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_STATE;
+
+/**
+ * 服务人员/机构服务时间日历
+ * <p>
+ * 接单、取消接单为一次脚本调用（读写一个u40槽位），空闲判断读取日历后在本地按位判断；
+ * 派单打分批量读取一个城市的日历，一次mget，缺失的一次查询数据库后pipeline写入。
+ * 数据库中还没有日历的服务人员/机构（日历上线前的数据），恢复时由旧的服务时间列表（serve_times字段和服务状态表中的{id}_times）生成，
+ * 之后日历同步到数据库，旧数据不再读取
+ * </p>
+ */
+@Slf4j
+@Service
+public class ServeProviderCalendarServiceImpl implements IServeProviderCalendarService {
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private ServeProviderSyncMapper serveProviderSyncMapper;
+
+    /**
+     * 旧的服务时间，yyyyMMddHH
+     */
+    private static final Pattern SERVE_TIME_PATTERN = Pattern.compile("\\d{10}");
+
+    private final DefaultRedisScript<Long> updateScript = new DefaultRedisScript<>();
+
+    {
+        updateScript.setScriptSource(LuaScriptUtils.source("lua/serve_calendar_lib.lua", "lua/serve_calendar_update.lua"));
+        updateScript.setResultType(Long.class);
+    }
+
+    @Override
+    public boolean book(Long serveProviderId, String cityCode, LocalDateTime serveStartTime) {
+        boolean booked = update(serveProviderId, cityCode, serveStartTime, true);
+        if (booked) {
+            sync(serveProviderId, cityCode);
+        }
+        return booked;
+    }
+
+    @Override
+    public void release(Long serveProviderId, String cityCode, LocalDateTime serveStartTime) {
+        update(serveProviderId, cityCode, serveStartTime, false);
+        sync(serveProviderId, cityCode);
+    }
+
+    @Override
+    public ServeCalendar get(Long serveProviderId, String cityCode) {
+        byte[] key = key(serveProviderId, cityCode);
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+        if (ObjectUtils.isNotNull(value)) {
+            return new ServeCalendar(value);
+        }
+        // redis中不存在，从数据库恢复
+        return new ServeCalendar(load(key, serveProviderId, cityCode));
+    }
+
+    @Override
+    public Map<Long, ServeCalendar> getBatch(Collection<Long> serveProviderIds, String cityCode) {
+        Map<Long, ServeCalendar> result = new HashMap<>(serveProviderIds.size());
+        if (CollUtils.isEmpty(serveProviderIds)) {
+            return result;
+        }
+        List<Long> ids = new ArrayList<>(serveProviderIds);
+        byte[][] keys = ids.stream().map(id -> key(id, cityCode)).toArray(byte[][]::new);
+        List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+        List<Long> missingIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] value = values == null ? null : values.get(i);
+            if (ObjectUtils.isNotNull(value)) {
+                result.put(ids.get(i), new ServeCalendar(value));
+            } else {
+                missingIds.add(ids.get(i));
+            }
+        }
+        if (CollUtils.isEmpty(missingIds)) {
+            return result;
+        }
+
+        // redis中不存在，一次从数据库恢复，已存在的不覆盖
+        Map<Long, byte[]> restored = restoreFromDb(missingIds, cityCode);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            restored.forEach((id, value) -> connection.stringCommands().setNX(key(id, cityCode), value));
+            return null;
+        });
+        restored.forEach((id, value) -> result.put(id, new ServeCalendar(value)));
+        return result;
+    }
+
+    @Override
+    public void restore(Long serveProviderId, String cityCode) {
+        byte[] key = key(serveProviderId, cityCode);
+        if (!Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.keyCommands().exists(key)))) {
+            load(key, serveProviderId, cityCode);
+        }
+    }
+
+    /**
+     * 从数据库读取日历写入redis，已存在时不覆盖；数据库中不存在时写入由旧服务时间生成的日历（可能为空），接单脚本据此区分未加载和全部空闲
+     *
+     * @return 写入的日历
+     */
+    private byte[] load(byte[] key, Long serveProviderId, String cityCode) {
+        byte[] value = restoreFromDb(Collections.singletonList(serveProviderId), cityCode).get(serveProviderId);
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands().setNX(key, value));
+        return value;
+    }
+
+    /**
+     * 批量读取数据库中的日历，没有日历的由旧的服务时间列表生成
+     *
+     * @return 服务人员/机构id -> 日历，每个id都有值
+     */
+    private Map<Long, byte[]> restoreFromDb(List<Long> serveProviderIds, String cityCode) {
+        Map<Long, ServeProviderSync> serveProviderSyncs = serveProviderSyncMapper.selectBatchIds(serveProviderIds).stream()
+                .collect(Collectors.toMap(ServeProviderSync::getId, serveProviderSync -> serveProviderSync));
+        List<Long> legacyIds = serveProviderIds.stream()
+                .filter(id -> ObjectUtils.isNull(serveProviderSyncs.get(id)) || ObjectUtils.isNull(serveProviderSyncs.get(id).getServeCalendar()))
+                .collect(Collectors.toList());
+        Map<Long, Object> legacyTimes = new HashMap<>(legacyIds.size());
+        if (CollUtils.isNotEmpty(legacyIds)) {
+            List<Object> values = redisTemplate.opsForHash().multiGet(String.format(SERVE_PROVIDER_STATE, RedisUtils.getCityIndex(cityCode)),
+                    legacyIds.stream().map(id -> (Object) (id + "_times")).collect(Collectors.toList()));
+            for (int i = 0; i < legacyIds.size(); i++) {
+                legacyTimes.put(legacyIds.get(i), values.get(i));
+            }
+        }
+
+        Map<Long, byte[]> result = new HashMap<>(serveProviderIds.size());
+        for (Long id : serveProviderIds) {
+            ServeProviderSync serveProviderSync = serveProviderSyncs.get(id);
+            if (ObjectUtils.isNotNull(serveProviderSync) && ObjectUtils.isNotNull(serveProviderSync.getServeCalendar())) {
+                result.put(id, new ServeCalendar(serveProviderSync.getServeCalendar()).toBytes());
+                continue;
+            }
+            List<Integer> serveTimes = new ArrayList<>();
+            if (ObjectUtils.isNotNull(serveProviderSync) && CollUtils.isNotEmpty(serveProviderSync.getServeTimes())) {
+                serveTimes.addAll(serveProviderSync.getServeTimes());
+            }
+            Object times = legacyTimes.get(id);
+            if (ObjectUtils.isNotNull(times)) {
+                Matcher matcher = SERVE_TIME_PATTERN.matcher(times.toString());
+                while (matcher.find()) {
+                    serveTimes.add(Integer.parseInt(matcher.group()));
+                }
+            }
+            result.put(id, toCalendar(serveTimes).toBytes());
+        }
+        return result;
+    }
+
+    /**
+     * 旧的服务时间列表转为日历，只保留窗口内（今天起WINDOW_DAYS天）的，窗口外的会与窗口内的日期共用槽位
+     */
+    private ServeCalendar toCalendar(List<Integer> serveTimes) {
+        ServeCalendar calendar = new ServeCalendar(null);
+        long firstHour = ServeTimeUtils.getServeEpochHour(LocalDate.now().atStartOfDay());
+        long lastHour = firstHour + ServeCalendar.WINDOW_DAYS * 24L;
+        for (Integer serveTime : serveTimes) {
+            long epochHour = ServeTimeUtils.getServeEpochHour(serveTime);
+            if (epochHour >= firstHour && epochHour < lastHour) {
+                calendar.book(epochHour);
+            }
+        }
+        return calendar;
+    }
+
+    private boolean update(Long serveProviderId, String cityCode, LocalDateTime serveStartTime, boolean book) {
+        String key = String.format(SERVE_PROVIDER_CALENDAR, serveProviderId, RedisUtils.getCityIndex(cityCode));
+        String epochHour = String.valueOf(ServeTimeUtils.getServeEpochHour(serveStartTime));
+        Long result = redisTemplate.execute(updateScript, Collections.singletonList(key), epochHour, book ? "1" : "0");
+        if (Long.valueOf(-1).equals(result)) {
+            // 日历不存在，恢复后重试
+            restore(serveProviderId, cityCode);
+            result = redisTemplate.execute(updateScript, Collections.singletonList(key), epochHour, book ? "1" : "0");
+        }
+        return ObjectUtils.isNotNull(result) && result == 1;
+    }
+
+    /**
+     * 失败时只记录日志，下次变更时再次同步
+     */
+    @Override
+    public void sync(Long serveProviderId, String cityCode) {
+        try {
+            byte[] key = key(serveProviderId, cityCode);
+            byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+            if (ObjectUtils.isNull(value)) {
+                // 日历未加载，数据库中的日历仍为最新，不能用空日历覆盖
+                return;
+            }
+            serveProviderSyncMapper.upsertServeCalendar(serveProviderId, new ServeCalendar(value).toBytes());
+        } catch (Exception e) {
+            log.error("服务时间日历同步数据库失败，serveProviderId:{}", serveProviderId, e);
+        }
+    }
+
+    private byte[] key(Long serveProviderId, String cityCode) {
+        return String.format(SERVE_PROVIDER_CALENDAR, serveProviderId, RedisUtils.getCityIndex(cityCode)).getBytes(StandardCharsets.UTF_8);
+    }
+}
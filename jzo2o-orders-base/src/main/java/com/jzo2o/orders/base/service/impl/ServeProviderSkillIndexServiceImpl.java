@@ -0,0 +1,108 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.service.IServeProviderSkillIndexService;
+import com.jzo2o.orders.base.utils.SkillBitmapIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务人员/机构技能索引
+ * <p>
+ * 接单开关关闭、冻结或未完成首次设置的服务人员/机构不在城市位图中，不参与匹配；
+ * 可接单的服务人员/机构同时按城市保存最新信息，作为派单候选
+ * </p>
+ */
+@Slf4j
+@Service
+public class ServeProviderSkillIndexServiceImpl implements IServeProviderSkillIndexService {
+
+    private final SkillBitmapIndex index = new SkillBitmapIndex();
+
+    /**
+     * 城市编码 -> 服务人员/机构id -> 服务人员/机构
+     */
+    private final Map<String, Map<Long, ServeProviderInfo>> cityProviders = new ConcurrentHashMap<>();
+
+    /**
+     * 服务人员/机构id -> 城市编码
+     */
+    private final Map<Long, String> providerCities = new ConcurrentHashMap<>();
+
+    @Override
+    public void refresh(List<ServeProviderInfo> serveProviderInfos) {
+        if (CollUtils.isEmpty(serveProviderInfos)) {
+            return;
+        }
+        for (ServeProviderInfo serveProviderInfo : serveProviderInfos) {
+            long[] serveItemIds = CollUtils.isEmpty(serveProviderInfo.getServeItemIds()) ? null
+                    : serveProviderInfo.getServeItemIds().stream().mapToLong(Long::longValue).toArray();
+            boolean available = available(serveProviderInfo);
+            index.put(serveProviderInfo.getId(), available ? serveProviderInfo.getCityCode() : null, serveItemIds);
+            removeProvider(serveProviderInfo.getId());
+            if (available) {
+                cityProviders.computeIfAbsent(serveProviderInfo.getCityCode(), key -> new ConcurrentHashMap<>())
+                        .put(serveProviderInfo.getId(), serveProviderInfo);
+                providerCities.put(serveProviderInfo.getId(), serveProviderInfo.getCityCode());
+            }
+        }
+    }
+
+    @Override
+    public void remove(List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        ids.forEach(index::remove);
+        ids.forEach(this::removeProvider);
+    }
+
+    @Override
+    public long[] match(String cityCode, Long serveItemId) {
+        if (ObjectUtils.isNull(cityCode) || ObjectUtils.isNull(serveItemId)) {
+            return new long[0];
+        }
+        return index.match(cityCode, serveItemId);
+    }
+
+    @Override
+    public boolean hasSkill(Long serveProviderId, Long serveItemId) {
+        if (ObjectUtils.isNull(serveProviderId) || ObjectUtils.isNull(serveItemId)) {
+            return false;
+        }
+        return index.hasSkill(serveProviderId, serveItemId);
+    }
+
+    @Override
+    public List<ServeProviderInfo> listByCity(String cityCode) {
+        Map<Long, ServeProviderInfo> providers = ObjectUtils.isNull(cityCode) ? null : cityProviders.get(cityCode);
+        return providers == null ? new ArrayList<>() : new ArrayList<>(providers.values());
+    }
+
+    private void removeProvider(Long id) {
+        String cityCode = providerCities.remove(id);
+        if (cityCode != null) {
+            cityProviders.computeIfPresent(cityCode, (key, providers) -> {
+                providers.remove(id);
+                return providers.isEmpty() ? null : providers;
+            });
+        }
+    }
+
+    /**
+     * 是否可接单：接单开关开启、状态正常、已完成首次设置
+     */
+    private boolean available(ServeProviderInfo serveProviderInfo) {
+        return Integer.valueOf(1).equals(serveProviderInfo.getPickUp())
+                && Integer.valueOf(0).equals(serveProviderInfo.getStatus())
+                && Integer.valueOf(1).equals(serveProviderInfo.getSettingStatus())
+                && ObjectUtils.isNotNull(serveProviderInfo.getCityCode());
+    }
+}
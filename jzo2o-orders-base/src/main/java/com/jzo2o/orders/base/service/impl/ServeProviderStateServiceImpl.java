@@ -0,0 +1,189 @@
+package com.jzo2o.orders.base.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.orders.base.mapper.ServeProviderSyncMapper;
+import com.jzo2o.orders.base.model.domain.ServeProviderSync;
+import com.jzo2o.orders.base.properties.ServeProviderStateProperties;
+import com.jzo2o.orders.base.service.IServeProviderStateService;
+import com.jzo2o.orders.base.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_RELEASED;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_STATE;
+import static com.jzo2o.orders.base.constants.RedisConstants.Ttl.SERVE_PROVIDER_RELEASED_TTL;
+
+/**
+ * 服务人员/机构接单数量
+ * <p>
+ * 派单打分前一次读取城市内全部候选的接单数量，不再逐个查询；
+ * 写回线程每隔flushSeconds读取变更过的服务人员/机构的最新接单数量，批量写入serve_provider_sync.acceptance_num，
+ * 写回失败时保留待下次写回
+ * </p>
+ */
+@Slf4j
+@Service
+public class ServeProviderStateServiceImpl implements IServeProviderStateService {
+
+    private static final String NUM_SUFFIX = "_num";
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private ServeProviderSyncMapper serveProviderSyncMapper;
+
+    @Resource
+    private ServeProviderStateProperties serveProviderStateProperties;
+
+    /**
+     * 待写回的服务人员/机构id -> 城市编码
+     */
+    private final Map<Long, String> dirty = new ConcurrentHashMap<>();
+
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>();
+
+    {
+        releaseScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/serve_provider_num_release.lua")));
+        releaseScript.setResultType(Long.class);
+    }
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        running = true;
+        flusher = new Thread(this::work, "orders-provider-state-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        flusher.interrupt();
+        flush();
+    }
+
+    @Override
+    public Map<Long, Integer> getServeNums(Map<Long, String> serveProviderCities) {
+        Map<Long, Integer> result = new HashMap<>(serveProviderCities.size());
+        if (CollUtils.isEmpty(serveProviderCities)) {
+            return result;
+        }
+        Map<Integer, List<Long>> indexIds = serveProviderCities.entrySet().stream()
+                .collect(Collectors.groupingBy(entry -> RedisUtils.getCityIndex(entry.getValue()),
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        List<Integer> indexes = new ArrayList<>(indexIds.keySet());
+
+        // 每个尾号一条hmget，多个尾号一次pipeline
+        List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (Integer index : indexes) {
+                String[] fields = indexIds.get(index).stream().map(id -> id + NUM_SUFFIX).toArray(String[]::new);
+                stringConnection.hMGet(String.format(SERVE_PROVIDER_STATE, index), fields);
+            }
+            return null;
+        });
+        for (int i = 0; i < indexes.size(); i++) {
+            List<Long> ids = indexIds.get(indexes.get(i));
+            List<?> nums = (List<?>) values.get(i);
+            for (int j = 0; j < ids.size(); j++) {
+                Object num = nums == null ? null : nums.get(j);
+                result.put(ids.get(j), num == null ? 0 : Integer.parseInt(num.toString()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void incrementServeNums(String cityCode, Map<Long, Integer> deltas) {
+        if (CollUtils.isEmpty(deltas)) {
+            return;
+        }
+        String key = String.format(SERVE_PROVIDER_STATE, RedisUtils.getCityIndex(cityCode));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            deltas.forEach((id, delta) -> stringConnection.hIncrBy(key, id + NUM_SUFFIX, delta));
+            return null;
+        });
+        deltas.keySet().forEach(id -> dirty.put(id, cityCode));
+    }
+
+    @Override
+    public boolean releaseServeNum(Long ordersServeId, Long serveProviderId, String cityCode) {
+        int index = RedisUtils.getCityIndex(cityCode);
+        List<String> keys = Arrays.asList(String.format(SERVE_PROVIDER_STATE, index), String.format(SERVE_PROVIDER_RELEASED, index));
+        Long result = redisTemplate.execute(releaseScript, keys, ordersServeId.toString(), serveProviderId.toString(),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(TimeUnit.SECONDS.toMillis(SERVE_PROVIDER_RELEASED_TTL)));
+        boolean released = Long.valueOf(1).equals(result);
+        if (released) {
+            markDirty(serveProviderId, cityCode);
+        }
+        return released;
+    }
+
+    @Override
+    public void markDirty(Long serveProviderId, String cityCode) {
+        dirty.put(serveProviderId, cityCode);
+    }
+
+    private void work() {
+        long flushMillis = TimeUnit.SECONDS.toMillis(serveProviderStateProperties.getFlushSeconds());
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(flushMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            flush();
+        }
+    }
+
+    /**
+     * 分批写回接单数量
+     */
+    private void flush() {
+        while (!dirty.isEmpty()) {
+            Map<Long, String> batch = new HashMap<>();
+            Iterator<Map.Entry<Long, String>> iterator = dirty.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < serveProviderStateProperties.getFlushBatchSize()) {
+                Map.Entry<Long, String> entry = iterator.next();
+                batch.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+            try {
+                List<ServeProviderSync> records = getServeNums(batch).entrySet().stream()
+                        .map(entry -> new ServeProviderSync().setId(entry.getKey()).setAcceptanceNum(entry.getValue()))
+                        .collect(Collectors.toList());
+                serveProviderSyncMapper.batchUpdateAcceptanceNum(records);
+            } catch (Exception e) {
+                log.error("接单数量写回失败，稍后重试，数量:{}", batch.size(), e);
+                batch.forEach(dirty::putIfAbsent);
+                return;
+            }
+        }
+    }
+}
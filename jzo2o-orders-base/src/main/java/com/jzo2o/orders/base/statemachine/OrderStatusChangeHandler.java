@@ -0,0 +1,36 @@
+package com.jzo2o.orders.base.statemachine;
+
+import com.jzo2o.orders.base.enums.OrderStatusChangeEventEnum;
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+
+/**
+ * 订单状态变更处理器
+ * <p>
+ * bean名称规则为：状态机名称_状态变更事件代码，如order_payed；
+ * before在状态更新前执行，抛出异常则不更新；after在状态更新成功后、同一事务内执行
+ * </p>
+ *
+ * @author itcast
+ */
+public interface OrderStatusChangeHandler {
+
+    /**
+     * 状态更新前处理
+     *
+     * @param id          订单id
+     * @param event       状态变更事件
+     * @param bizSnapshot 订单快照
+     */
+    default void before(Long id, OrderStatusChangeEventEnum event, OrderSnapshotDTO bizSnapshot) {
+    }
+
+    /**
+     * 状态更新成功后处理
+     *
+     * @param id          订单id
+     * @param event       状态变更事件
+     * @param bizSnapshot 订单快照
+     */
+    default void after(Long id, OrderStatusChangeEventEnum event, OrderSnapshotDTO bizSnapshot) {
+    }
+}
@@ -0,0 +1,99 @@
+package com.jzo2o.orders.base.utils;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 按id批量查询工具
+ * <p>
+ * 去重后按分片分组、每组按chunkSize切分，多个分片并行查询，结果按请求id顺序返回
+ * </p>
+ */
+public class BatchQueryUtils {
+
+    /**
+     * 分片、分块并行查询
+     *
+     * @param ids        id列表
+     * @param chunkSize  单条sql最大id数量
+     * @param shardCount 分片数量，按id取模分组
+     * @param executor   并行查询线程池
+     * @param loader     单块查询方法
+     * @param idMapper   结果id获取方法
+     * @param <T>        结果类型
+     * @return 按请求id顺序排列的结果，不存在的id忽略
+     */
+    public static <T> List<T> query(List<Long> ids, int chunkSize, int shardCount, Executor executor,
+                                    Function<List<Long>, List<T>> loader, Function<T, Long> idMapper) {
+        if (CollUtils.isEmpty(ids)) {
+            return Collections.emptyList();
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = split(distinctIds, chunkSize, shardCount);
+        // 只有一块时在当前线程查询，避免线程切换
+        if (chunks.size() == 1) {
+            return sort(distinctIds, loader.apply(chunks.get(0)), idMapper);
+        }
+
+        List<CompletableFuture<List<T>>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> loader.apply(chunk), executor))
+                .collect(Collectors.toList());
+        List<T> result = new ArrayList<>(distinctIds.size());
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                result.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return sort(distinctIds, result, idMapper);
+    }
+
+    /**
+     * 按分片分组后切块，同一块内的id属于同一分片
+     */
+    private static List<List<Long>> split(List<Long> ids, int chunkSize, int shardCount) {
+        Map<Integer, List<Long>> shardIds = new TreeMap<>();
+        for (Long id : ids) {
+            int shard = shardCount > 1 ? (int) Math.floorMod(id, (long) shardCount) : 0;
+            shardIds.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+        }
+        List<List<Long>> chunks = new ArrayList<>();
+        for (List<Long> list : shardIds.values()) {
+            for (int from = 0; from < list.size(); from += chunkSize) {
+                chunks.add(list.subList(from, Math.min(from + chunkSize, list.size())));
+            }
+        }
+        return chunks;
+    }
+
+    private static <T> List<T> sort(List<Long> ids, List<T> list, Function<T, Long> idMapper) {
+        if (CollUtils.isEmpty(list)) {
+            return Collections.emptyList();
+        }
+        Map<Long, T> map = list.stream().collect(Collectors.toMap(idMapper, Function.identity(), (t1, t2) -> t1));
+        List<T> result = new ArrayList<>(list.size());
+        for (Long id : ids) {
+            T t = map.get(id);
+            if (ObjectUtils.isNotNull(t)) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,298 @@
+package com.jzo2o.orders.base.utils;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 派单候选服务人员/机构
+ * <p>
+ * 按列存储（id、经纬度、评分、接单数、类型各一个基本类型数组），一个城市的候选构建一次，
+ * 对一批派单逐个打分。打分前依次过滤：接单开关、技能、接单数量上限、距离，再计算
+ * 距离、评分、接单数的加权得分，用大小为k的小顶堆保留得分最高的k个
+ * </p>
+ */
+public class DispatchCandidates {
+
+    /**
+     * 每度纬度对应的距离，单位千米
+     */
+    private static final double KM_PER_DEGREE = 111.195;
+
+    /**
+     * 没有评分时的默认评分
+     */
+    private static final float DEFAULT_EVALUATION_SCORE = 50F;
+
+    private final long[] ids;
+
+    private final double[] lons;
+
+    private final double[] lats;
+
+    /**
+     * 评分，0~100
+     */
+    private final float[] scores;
+
+    /**
+     * 当前接单数
+     */
+    private final int[] acceptances;
+
+    /**
+     * 是否为机构
+     */
+    private final boolean[] institutions;
+
+    /**
+     * id -> 下标
+     */
+    private final Map<Long, Integer> indexes;
+
+    private DispatchCandidates(long[] ids, double[] lons, double[] lats, float[] scores, int[] acceptances,
+                               boolean[] institutions, Map<Long, Integer> indexes) {
+        this.ids = ids;
+        this.lons = lons;
+        this.lats = lats;
+        this.scores = scores;
+        this.acceptances = acceptances;
+        this.institutions = institutions;
+        this.indexes = indexes;
+    }
+
+    /**
+     * 构建候选，接单开关关闭、冻结或没有位置的服务人员/机构不参与派单
+     *
+     * @param serveProviderInfos 服务人员/机构
+     * @return 候选
+     */
+    public static DispatchCandidates of(List<ServeProviderInfo> serveProviderInfos) {
+        return of(serveProviderInfos, null);
+    }
+
+    /**
+     * 构建候选，接单数量优先使用实时数量
+     *
+     * @param serveProviderInfos 服务人员/机构
+     * @param acceptanceNums     服务人员/机构id -> 实时接单数量，为null或不存在时使用服务人员/机构信息中的接单数量
+     * @return 候选
+     */
+    public static DispatchCandidates of(List<ServeProviderInfo> serveProviderInfos, Map<Long, Integer> acceptanceNums) {
+        int capacity = serveProviderInfos.size();
+        long[] ids = new long[capacity];
+        double[] lons = new double[capacity];
+        double[] lats = new double[capacity];
+        float[] scores = new float[capacity];
+        int[] acceptances = new int[capacity];
+        boolean[] institutions = new boolean[capacity];
+        Map<Long, Integer> indexes = new HashMap<>(capacity * 4 / 3 + 1);
+
+        int size = 0;
+        for (ServeProviderInfo info : serveProviderInfos) {
+            if (!Integer.valueOf(1).equals(info.getPickUp()) || Integer.valueOf(1).equals(info.getStatus())
+                    || info.getLocation() == null || info.getLocation().getLongitude() == null || info.getLocation().getLatitude() == null
+                    || indexes.containsKey(info.getId())) {
+                continue;
+            }
+            ids[size] = info.getId();
+            lons[size] = info.getLocation().getLongitude();
+            lats[size] = info.getLocation().getLatitude();
+            scores[size] = info.getEvaluationScore() == null ? DEFAULT_EVALUATION_SCORE : info.getEvaluationScore().floatValue();
+            Integer acceptanceNum = acceptanceNums == null ? null : acceptanceNums.get(info.getId());
+            if (acceptanceNum == null) {
+                acceptanceNum = info.getAcceptanceNum();
+            }
+            acceptances[size] = acceptanceNum == null ? 0 : acceptanceNum;
+            institutions[size] = Integer.valueOf(UserType.INSTITUTION).equals(info.getServeProviderType());
+            indexes.put(info.getId(), size);
+            size++;
+        }
+        if (size < capacity) {
+            ids = Arrays.copyOf(ids, size);
+            lons = Arrays.copyOf(lons, size);
+            lats = Arrays.copyOf(lats, size);
+            scores = Arrays.copyOf(scores, size);
+            acceptances = Arrays.copyOf(acceptances, size);
+            institutions = Arrays.copyOf(institutions, size);
+        }
+        return new DispatchCandidates(ids, lons, lats, scores, acceptances, institutions, indexes);
+    }
+
+    /**
+     * @return 候选数量
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param id 服务人员/机构id
+     * @return 是否为候选
+     */
+    public boolean contains(long id) {
+        return indexes.containsKey(id);
+    }
+
+    /**
+     * 技能匹配的候选
+     *
+     * @param eligibleIds 拥有技能的服务人员/机构id
+     * @return 下标标记，null表示不过滤
+     */
+    public boolean[] mask(long[] eligibleIds) {
+        if (eligibleIds == null) {
+            return null;
+        }
+        boolean[] mask = new boolean[ids.length];
+        for (long id : eligibleIds) {
+            Integer index = indexes.get(id);
+            if (index != null) {
+                mask[index] = true;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 得分最高的k个候选
+     *
+     * @param lon     订单经度
+     * @param lat     订单纬度
+     * @param mask    技能匹配标记，null表示不过滤
+     * @param weights 权重及限制
+     * @param k       数量
+     * @return 服务人员/机构id，按得分由高到低排序
+     */
+    public long[] topK(double lon, double lat, boolean[] mask, Weights weights, int k) {
+        if (k <= 0 || ids.length == 0) {
+            return new long[0];
+        }
+        double maxDistance = weights.maxDistanceKm;
+        double maxDistanceSquare = maxDistance * maxDistance;
+        // 城市范围内按等距矩形投影计算距离，经度按订单纬度缩放
+        double lonScale = Math.cos(Math.toRadians(lat)) * KM_PER_DEGREE;
+
+        int[] heapIndexes = new int[k];
+        double[] heapScores = new double[k];
+        int heapSize = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (mask != null && !mask[i]) {
+                continue;
+            }
+            int limit = institutions[i] ? weights.maxAcceptanceOfInstitution : weights.maxAcceptanceOfServe;
+            if (acceptances[i] >= limit) {
+                continue;
+            }
+            double dx = (lons[i] - lon) * lonScale;
+            double dy = (lats[i] - lat) * KM_PER_DEGREE;
+            double distanceSquare = dx * dx + dy * dy;
+            if (distanceSquare > maxDistanceSquare) {
+                continue;
+            }
+            double score = weights.distance * (1 - Math.sqrt(distanceSquare) / maxDistance)
+                    + weights.evaluation * scores[i] / 100
+                    + weights.acceptance * (1 - (double) acceptances[i] / limit);
+
+            if (heapSize < k) {
+                heapIndexes[heapSize] = i;
+                heapScores[heapSize] = score;
+                siftUp(heapIndexes, heapScores, heapSize++);
+            } else if (score > heapScores[0]) {
+                heapIndexes[0] = i;
+                heapScores[0] = score;
+                siftDown(heapIndexes, heapScores, heapSize);
+            }
+        }
+
+        // 依次弹出堆顶（最小），倒序写入
+        long[] result = new long[heapSize];
+        for (int n = heapSize - 1; n >= 0; n--) {
+            result[n] = ids[heapIndexes[0]];
+            heapIndexes[0] = heapIndexes[n];
+            heapScores[0] = heapScores[n];
+            siftDown(heapIndexes, heapScores, n);
+        }
+        return result;
+    }
+
+    private static void siftUp(int[] indexes, double[] scores, int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (scores[parent] <= scores[position]) {
+                break;
+            }
+            swap(indexes, scores, parent, position);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(int[] indexes, double[] scores, int size) {
+        int position = 0;
+        while (true) {
+            int left = (position << 1) + 1;
+            if (left >= size) {
+                break;
+            }
+            int child = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[position] <= scores[child]) {
+                break;
+            }
+            swap(indexes, scores, position, child);
+            position = child;
+        }
+    }
+
+    private static void swap(int[] indexes, double[] scores, int i, int j) {
+        int index = indexes[i];
+        indexes[i] = indexes[j];
+        indexes[j] = index;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    /**
+     * 打分权重及过滤条件
+     */
+    public static final class Weights {
+        /**
+         * 距离权重
+         */
+        private final double distance;
+        /**
+         * 评分权重
+         */
+        private final double evaluation;
+        /**
+         * 接单数权重
+         */
+        private final double acceptance;
+        /**
+         * 最大派单距离，单位千米
+         */
+        private final double maxDistanceKm;
+        /**
+         * 服务人员最大接单数
+         */
+        private final int maxAcceptanceOfServe;
+        /**
+         * 机构最大接单数
+         */
+        private final int maxAcceptanceOfInstitution;
+
+        public Weights(double distance, double evaluation, double acceptance, double maxDistanceKm,
+                       int maxAcceptanceOfServe, int maxAcceptanceOfInstitution) {
+            this.distance = distance;
+            this.evaluation = evaluation;
+            this.acceptance = acceptance;
+            this.maxDistanceKm = maxDistanceKm;
+            this.maxAcceptanceOfServe = maxAcceptanceOfServe;
+            this.maxAcceptanceOfInstitution = maxAcceptanceOfInstitution;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.jzo2o.orders.base.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * 经纬度网格索引
+ * <p>
+ * 按固定经纬度间隔划分网格，每个网格内的id、经纬度、标签使用基本类型数组存储；
+ * 网格写时复制，写入时生成新网格替换旧网格，读无锁。
+ * 查询时遍历半径所在外接矩形覆盖的网格，按球面距离保留最近的k条
+ * </p>
+ *
+ * @param <T> 附带数据类型
+ */
+public class GeoGridIndex<T> {
+
+    /**
+     * 地球平均半径，单位千米
+     */
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * 每度纬度对应的距离，单位千米
+     */
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    /**
+     * 默认最大查询半径，单位千米
+     */
+    private static final double DEFAULT_MAX_RADIUS_KM = 50;
+
+    private final double cellDegrees;
+
+    /**
+     * 最大查询半径，超过时按最大半径查询，避免遍历过多网格
+     */
+    private final double maxRadiusKm;
+
+    private final Map<Long, Cell<T>> cells = new ConcurrentHashMap<>();
+
+    /**
+     * id所在网格
+     */
+    private final Map<Long, Long> idCells = new ConcurrentHashMap<>();
+
+    /**
+     * @param cellDegrees 网格经纬度间隔
+     */
+    public GeoGridIndex(double cellDegrees) {
+        this(cellDegrees, DEFAULT_MAX_RADIUS_KM);
+    }
+
+    /**
+     * @param cellDegrees 网格经纬度间隔
+     * @param maxRadiusKm 最大查询半径，单位千米
+     */
+    public GeoGridIndex(double cellDegrees, double maxRadiusKm) {
+        this.cellDegrees = cellDegrees;
+        this.maxRadiusKm = maxRadiusKm;
+    }
+
+    /**
+     * 新增或更新
+     *
+     * @param id    id
+     * @param lon   经度
+     * @param lat   纬度
+     * @param tag   标签，用于查询过滤
+     * @param value 附带数据
+     */
+    public synchronized void put(long id, double lon, double lat, long tag, T value) {
+        long cellKey = cellKey(cellIndex(lon), cellIndex(lat));
+        Long oldCellKey = idCells.put(id, cellKey);
+        if (oldCellKey != null && oldCellKey != cellKey) {
+            cells.computeIfPresent(oldCellKey, (key, cell) -> cell.without(id));
+        }
+        cells.compute(cellKey, (key, cell) -> {
+            Cell<T> base = cell == null ? null : cell.without(id);
+            return (base == null ? Cell.<T>empty() : base).with(id, lon, lat, tag, value);
+        });
+    }
+
+    /**
+     * 删除
+     *
+     * @param id id
+     */
+    public synchronized void remove(long id) {
+        Long cellKey = idCells.remove(id);
+        if (cellKey != null) {
+            cells.computeIfPresent(cellKey, (key, cell) -> cell.without(id));
+        }
+    }
+
+    /**
+     * @return 数据数量
+     */
+    public int size() {
+        return idCells.size();
+    }
+
+    /**
+     * 查询半径内距离最近的k条
+     *
+     * @param lon       经度
+     * @param lat       纬度
+     * @param radiusKm  半径，单位千米，超过最大查询半径时按最大半径查询
+     * @param tagFilter 标签过滤
+     * @param k         最大数量
+     * @return 附带数据，按距离由近到远排序
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> nearest(double lon, double lat, double radiusKm, LongPredicate tagFilter, int k) {
+        if (k <= 0 || !(radiusKm > 0)) {
+            return Collections.emptyList();
+        }
+        radiusKm = Math.min(radiusKm, maxRadiusKm);
+        double latDegrees = radiusKm / KM_PER_DEGREE;
+        double lonDegrees = radiusKm / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        long minLon = cellIndex(lon - lonDegrees);
+        long maxLon = cellIndex(lon + lonDegrees);
+        long minLat = cellIndex(lat - latDegrees);
+        long maxLat = cellIndex(lat + latDegrees);
+
+        // 大顶堆，堆顶为当前第k近
+        PriorityQueue<Candidate<T>> heap = new PriorityQueue<>(k + 1, (c1, c2) -> Double.compare(c2.distance, c1.distance));
+        for (long x = minLon; x <= maxLon; x++) {
+            for (long y = minLat; y <= maxLat; y++) {
+                Cell<T> cell = cells.get(cellKey(x, y));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.ids.length; i++) {
+                    if (!tagFilter.test(cell.tags[i])) {
+                        continue;
+                    }
+                    double distance = distanceKm(lon, lat, cell.lons[i], cell.lats[i]);
+                    if (distance > radiusKm || (heap.size() == k && distance >= heap.peek().distance)) {
+                        continue;
+                    }
+                    heap.offer(new Candidate<>(distance, (T) cell.values[i]));
+                    if (heap.size() > k) {
+                        heap.poll();
+                    }
+                }
+            }
+        }
+
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().value);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * 球面距离，单位千米
+     */
+    public static double distanceKm(double lon1, double lat1, double lon2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellKey(long lonIndex, long latIndex) {
+        return (lonIndex << 32) | (latIndex & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 网格，创建后不再修改
+     */
+    private static final class Cell<T> {
+        private static final Cell<?> EMPTY = new Cell<>(new long[0], new double[0], new double[0], new long[0], new Object[0]);
+
+        private final long[] ids;
+        private final double[] lons;
+        private final double[] lats;
+        private final long[] tags;
+        private final Object[] values;
+
+        private Cell(long[] ids, double[] lons, double[] lats, long[] tags, Object[] values) {
+            this.ids = ids;
+            this.lons = lons;
+            this.lats = lats;
+            this.tags = tags;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Cell<T> empty() {
+            return (Cell<T>) EMPTY;
+        }
+
+        private Cell<T> with(long id, double lon, double lat, long tag, T value) {
+            int n = ids.length;
+            long[] newIds = Arrays.copyOf(ids, n + 1);
+            double[] newLons = Arrays.copyOf(lons, n + 1);
+            double[] newLats = Arrays.copyOf(lats, n + 1);
+            long[] newTags = Arrays.copyOf(tags, n + 1);
+            Object[] newValues = Arrays.copyOf(values, n + 1);
+            newIds[n] = id;
+            newLons[n] = lon;
+            newLats[n] = lat;
+            newTags[n] = tag;
+            newValues[n] = value;
+            return new Cell<>(newIds, newLons, newLats, newTags, newValues);
+        }
+
+        /**
+         * @return 删除id后的网格，网格为空时返回null以移除网格
+         */
+        private Cell<T> without(long id) {
+            int index = -1;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return this;
+            }
+            int n = ids.length - 1;
+            if (n == 0) {
+                return null;
+            }
+            return new Cell<>(remove(ids, index), remove(lons, index), remove(lats, index), remove(tags, index), remove(values, index));
+        }
+
+        private static long[] remove(long[] array, int index) {
+            long[] result = new long[array.length - 1];
+            System.arraycopy(array, 0, result, 0, index);
+            System.arraycopy(array, index + 1, result, index, result.length - index);
+            return result;
+        }
+
+        private static double[] remove(double[] array, int index) {
+            double[] result = new double[array.length - 1];
+            System.arraycopy(array, 0, result, 0, index);
+            System.arraycopy(array, index + 1, result, index, result.length - index);
+            return result;
+        }
+
+        private static Object[] remove(Object[] array, int index) {
+            Object[] result = new Object[array.length - 1];
+            System.arraycopy(array, 0, result, 0, index);
+            System.arraycopy(array, index + 1, result, index, result.length - index);
+            return result;
+        }
+    }
+
+    private static final class Candidate<T> {
+        private final double distance;
+        private final T value;
+
+        private Candidate(double distance, T value) {
+            this.distance = distance;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.jzo2o.orders.base.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 按id注册到期时间，到期时间超过一圈的记录剩余圈数，每个tick处理一个槽位，
+ * 同一tick到期的id合并为一批交给到期处理器；同一id重复注册时以最后一次为准。
+ * 注册、取消可在任意线程执行，槽位只由时间轮线程访问
+ * </p>
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private final String name;
+
+    private final long tickMillis;
+
+    private final int mask;
+
+    private final List<Timeout>[] buckets;
+
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private final Map<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+
+    private final Consumer<List<Long>> expiredHandler;
+
+    private long startMillis;
+
+    private long tick;
+
+    private Thread worker;
+
+    private volatile boolean running;
+
+    /**
+     * @param name           时间轮名称，用作线程名
+     * @param tickMillis     每个tick的时长，单位毫秒
+     * @param wheelSize      槽位数量，向上取整为2的幂
+     * @param expiredHandler 到期处理器，在时间轮线程中执行，每个tick最多执行一次
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Consumer<List<Long>> expiredHandler) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) * 2 - 1);
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.expiredHandler = expiredHandler;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startMillis = System.currentTimeMillis();
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * 注册到期时间，已注册的id覆盖原到期时间
+     *
+     * @param id             业务id
+     * @param deadlineMillis 到期时间戳，已过期的在下一个tick到期
+     */
+    public void add(long id, long deadlineMillis) {
+        Timeout timeout = new Timeout(id, deadlineMillis);
+        Timeout old = timeouts.put(id, timeout);
+        if (old != null) {
+            old.cancelled = true;
+        }
+        pending.add(timeout);
+    }
+
+    /**
+     * 取消
+     *
+     * @param id 业务id
+     */
+    public void remove(long id) {
+        Timeout timeout = timeouts.remove(id);
+        if (timeout != null) {
+            timeout.cancelled = true;
+        }
+    }
+
+    /**
+     * @return 未到期数量
+     */
+    public int size() {
+        return timeouts.size();
+    }
+
+    private void run() {
+        while (running) {
+            long wait = startMillis + (tick + 1) * tickMillis - System.currentTimeMillis();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            transferPending();
+            List<Long> expired = expire(buckets[(int) (tick & mask)]);
+            tick++;
+            if (!expired.isEmpty()) {
+                try {
+                    expiredHandler.accept(expired);
+                } catch (Exception e) {
+                    log.error("时间轮{}到期处理异常，数量:{}", name, expired.size(), e);
+                }
+            }
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long ticks = Math.max((timeout.deadline - startMillis + tickMillis - 1) / tickMillis, tick);
+            timeout.rounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private List<Long> expire(List<Timeout> bucket) {
+        List<Long> expired = new ArrayList<>();
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.rounds <= 0) {
+                iterator.remove();
+                if (timeouts.remove(timeout.id, timeout)) {
+                    expired.add(timeout.id);
+                }
+            } else {
+                timeout.rounds--;
+            }
+        }
+        return expired;
+    }
+
+    private static final class Timeout {
+        private final long id;
+        private final long deadline;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(long id, long deadline) {
+            this.id = id;
+            this.deadline = deadline;
+        }
+    }
+}
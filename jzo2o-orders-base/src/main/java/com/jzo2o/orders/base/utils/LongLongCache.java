@@ -0,0 +1,207 @@
+package com.jzo2o.orders.base.utils;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * long到long的定长本地缓存
+ * <p>
+ * 使用两个long数组存储key和value，不装箱；按key的hash定位到一组WAYS个槽位，
+ * 只在组内查找和写入，组满时按轮转覆盖旧数据，因此内存固定为capacity * 16字节。
+ * key为0表示空槽位，不能缓存key为0的数据。读使用乐观读，写加写锁。
+ * 每组有一个版本号，put、remove时递增；回源填充先取版本号，写入时版本号未变且key不存在才生效，
+ * 避免回源期间的更新、删除被旧值覆盖
+ * </p>
+ */
+public class LongLongCache {
+
+    /**
+     * 每组槽位数量，即最大探测次数
+     */
+    private static final int WAYS = 8;
+
+    /**
+     * 查询未命中返回值
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private final long[] keys;
+
+    private final long[] values;
+
+    private final byte[] victims;
+
+    private final long[] versions;
+
+    private final int groupMask;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * @param capacity 最大缓存数量，向上取整为2的幂
+     */
+    public LongLongCache(int capacity) {
+        int groups = Integer.highestOneBit(Math.max(capacity / WAYS, 1) * 2 - 1);
+        this.keys = new long[groups * WAYS];
+        this.values = new long[groups * WAYS];
+        this.victims = new byte[groups];
+        this.versions = new long[groups];
+        this.groupMask = groups - 1;
+    }
+
+    /**
+     * 查询
+     *
+     * @param key key，不能为0
+     * @return value，不存在返回MISSING
+     */
+    public long get(long key) {
+        if (key == 0) {
+            return MISSING;
+        }
+        int base = group(key) * WAYS;
+        long stamp = lock.tryOptimisticRead();
+        long value = find(key, base);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(key, base);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 写入，所在组已满时覆盖组内一条旧数据
+     *
+     * @param key   key，不能为0
+     * @param value value，不能为MISSING
+     */
+    public void put(long key, long value) {
+        if (key == 0) {
+            return;
+        }
+        int group = group(key);
+        long stamp = lock.writeLock();
+        try {
+            versions[group]++;
+            int index = indexOf(key, group * WAYS);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            insert(group, key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 查询key所在组的版本号，回源前调用
+     *
+     * @param key key
+     * @return 版本号
+     */
+    public long version(long key) {
+        int group = group(key);
+        long stamp = lock.tryOptimisticRead();
+        long version = versions[group];
+        if (lock.validate(stamp)) {
+            return version;
+        }
+        stamp = lock.readLock();
+        try {
+            return versions[group];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 回源填充，版本号未变且key不存在时写入
+     *
+     * @param key     key，不能为0
+     * @param value   value，不能为MISSING
+     * @param version 回源前查询的版本号
+     * @return 是否写入
+     */
+    public boolean fill(long key, long value, long version) {
+        if (key == 0) {
+            return false;
+        }
+        int group = group(key);
+        long stamp = lock.writeLock();
+        try {
+            if (versions[group] != version || indexOf(key, group * WAYS) >= 0) {
+                return false;
+            }
+            insert(group, key, value);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除
+     *
+     * @param key key
+     */
+    public void remove(long key) {
+        if (key == 0) {
+            return;
+        }
+        int group = group(key);
+        long stamp = lock.writeLock();
+        try {
+            versions[group]++;
+            int index = indexOf(key, group * WAYS);
+            if (index >= 0) {
+                keys[index] = 0;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 写入空槽位，组满时按轮转覆盖，需持有写锁
+     */
+    private void insert(int group, long key, long value) {
+        int base = group * WAYS;
+        int empty = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            if (keys[i] == 0) {
+                empty = i;
+                break;
+            }
+        }
+        if (empty < 0) {
+            empty = base + victims[group];
+            victims[group] = (byte) ((victims[group] + 1) % WAYS);
+        }
+        keys[empty] = key;
+        values[empty] = value;
+    }
+
+    private int indexOf(long key, int base) {
+        for (int i = base; i < base + WAYS; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long find(long key, int base) {
+        int index = indexOf(key, base);
+        return index < 0 ? MISSING : values[index];
+    }
+
+    private int group(long key) {
+        // 混合高低位，订单id尾号集中时也能均匀分布
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & groupMask;
+    }
+}
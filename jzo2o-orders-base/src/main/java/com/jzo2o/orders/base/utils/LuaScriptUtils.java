@@ -0,0 +1,36 @@
+package com.jzo2o.orders.base.utils;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scripting.ScriptSource;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.scripting.support.StaticScriptSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * lua脚本加载
+ * <p>
+ * redis脚本不支持引用其他脚本，多个脚本共用的函数（如lua/serve_calendar_lib.lua）在加载时按顺序拼接为一个脚本
+ * </p>
+ */
+public class LuaScriptUtils {
+
+    /**
+     * 按顺序拼接classpath下的脚本
+     *
+     * @param paths 脚本路径，共用函数在前
+     * @return 脚本
+     */
+    public static ScriptSource source(String... paths) {
+        StringBuilder script = new StringBuilder();
+        for (String path : paths) {
+            try {
+                script.append(new ResourceScriptSource(new ClassPathResource(path)).getScriptAsString()).append('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取lua脚本失败：" + path, e);
+            }
+        }
+        return new StaticScriptSource(script.toString());
+    }
+}
@@ -0,0 +1,227 @@
+package com.jzo2o.orders.base.utils;
+
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 订单快照二进制编解码
+ * <p>
+ * 格式：1字节版本号，之后每个非空字段依次为 字段key(varint) + 值；字段key = 字段编号 &lt;&lt; 3 | 值类型，
+ * 值类型0为zigzag varint（整数、时间戳毫秒、金额分），2为varint长度 + UTF-8字符串；未知字段按值类型跳过。
+ * 字段编号一经使用不能修改或复用，新增字段使用新编号
+ * </p>
+ */
+public class OrderSnapshotCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final int WIRE_VARINT = 0;
+
+    private static final int WIRE_BYTES = 2;
+
+    /**
+     * 时间按东八区转换为毫秒时间戳
+     */
+    private static final ZoneOffset OFFSET = ZoneOffset.ofHours(8);
+
+    private enum Type {
+        LONG, INT, STRING, MONEY, TIME
+    }
+
+    private static final class Field {
+        private final int tag;
+        private final Type type;
+        private final Function<OrderSnapshotDTO, Object> getter;
+        private final BiConsumer<OrderSnapshotDTO, Object> setter;
+
+        private Field(int tag, Type type, Function<OrderSnapshotDTO, Object> getter, BiConsumer<OrderSnapshotDTO, Object> setter) {
+            this.tag = tag;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private static Field field(int tag, Type type, Function<OrderSnapshotDTO, Object> getter, BiConsumer<OrderSnapshotDTO, Object> setter) {
+        return new Field(tag, type, getter, setter);
+    }
+
+    private static final Field[] FIELDS = {
+            field(1, Type.LONG, OrderSnapshotDTO::getId, (s, v) -> s.setId((Long) v)),
+            field(2, Type.LONG, OrderSnapshotDTO::getUserId, (s, v) -> s.setUserId((Long) v)),
+            field(3, Type.LONG, OrderSnapshotDTO::getServeTypeId, (s, v) -> s.setServeTypeId((Long) v)),
+            field(4, Type.STRING, OrderSnapshotDTO::getServeTypeName, (s, v) -> s.setServeTypeName((String) v)),
+            field(5, Type.LONG, OrderSnapshotDTO::getServeItemId, (s, v) -> s.setServeItemId((Long) v)),
+            field(6, Type.STRING, OrderSnapshotDTO::getServeItemName, (s, v) -> s.setServeItemName((String) v)),
+            field(7, Type.STRING, OrderSnapshotDTO::getServeItemImg, (s, v) -> s.setServeItemImg((String) v)),
+            field(8, Type.INT, OrderSnapshotDTO::getUnit, (s, v) -> s.setUnit((Integer) v)),
+            field(9, Type.LONG, OrderSnapshotDTO::getServeId, (s, v) -> s.setServeId((Long) v)),
+            field(10, Type.INT, OrderSnapshotDTO::getOrdersStatus, (s, v) -> s.setOrdersStatus((Integer) v)),
+            field(11, Type.INT, OrderSnapshotDTO::getPayStatus, (s, v) -> s.setPayStatus((Integer) v)),
+            field(12, Type.INT, OrderSnapshotDTO::getRefundStatus, (s, v) -> s.setRefundStatus((Integer) v)),
+            field(13, Type.MONEY, OrderSnapshotDTO::getPrice, (s, v) -> s.setPrice((BigDecimal) v)),
+            field(14, Type.INT, OrderSnapshotDTO::getPurNum, (s, v) -> s.setPurNum((Integer) v)),
+            field(15, Type.MONEY, OrderSnapshotDTO::getTotalAmount, (s, v) -> s.setTotalAmount((BigDecimal) v)),
+            field(16, Type.MONEY, OrderSnapshotDTO::getRealPayAmount, (s, v) -> s.setRealPayAmount((BigDecimal) v)),
+            field(17, Type.MONEY, OrderSnapshotDTO::getDiscountAmount, (s, v) -> s.setDiscountAmount((BigDecimal) v)),
+            field(18, Type.STRING, OrderSnapshotDTO::getCityCode, (s, v) -> s.setCityCode((String) v)),
+            field(19, Type.STRING, OrderSnapshotDTO::getServeAddress, (s, v) -> s.setServeAddress((String) v)),
+            field(20, Type.STRING, OrderSnapshotDTO::getContactsPhone, (s, v) -> s.setContactsPhone((String) v)),
+            field(21, Type.STRING, OrderSnapshotDTO::getContactsName, (s, v) -> s.setContactsName((String) v)),
+            field(22, Type.TIME, OrderSnapshotDTO::getServeStartTime, (s, v) -> s.setServeStartTime((LocalDateTime) v)),
+            field(23, Type.STRING, OrderSnapshotDTO::getLon, (s, v) -> s.setLon((String) v)),
+            field(24, Type.STRING, OrderSnapshotDTO::getLat, (s, v) -> s.setLat((String) v)),
+            field(25, Type.TIME, OrderSnapshotDTO::getPayTime, (s, v) -> s.setPayTime((LocalDateTime) v)),
+            field(26, Type.TIME, OrderSnapshotDTO::getEvaluationTime, (s, v) -> s.setEvaluationTime((LocalDateTime) v)),
+            field(27, Type.TIME, OrderSnapshotDTO::getCreateTime, (s, v) -> s.setCreateTime((LocalDateTime) v)),
+            field(28, Type.TIME, OrderSnapshotDTO::getUpdateTime, (s, v) -> s.setUpdateTime((LocalDateTime) v)),
+            field(29, Type.LONG, OrderSnapshotDTO::getTradingOrderNo, (s, v) -> s.setTradingOrderNo((Long) v)),
+            field(30, Type.LONG, OrderSnapshotDTO::getRefundNo, (s, v) -> s.setRefundNo((Long) v)),
+            field(31, Type.STRING, OrderSnapshotDTO::getTradingChannel, (s, v) -> s.setTradingChannel((String) v)),
+            field(32, Type.STRING, OrderSnapshotDTO::getThirdOrderId, (s, v) -> s.setThirdOrderId((String) v)),
+            field(33, Type.STRING, OrderSnapshotDTO::getThirdRefundOrderId, (s, v) -> s.setThirdRefundOrderId((String) v)),
+            field(34, Type.LONG, OrderSnapshotDTO::getCancellerId, (s, v) -> s.setCancellerId((Long) v)),
+            field(35, Type.STRING, OrderSnapshotDTO::getCancelerName, (s, v) -> s.setCancelerName((String) v)),
+            field(36, Type.INT, OrderSnapshotDTO::getCancellerType, (s, v) -> s.setCancellerType((Integer) v)),
+            field(37, Type.TIME, OrderSnapshotDTO::getCancelTime, (s, v) -> s.setCancelTime((LocalDateTime) v)),
+            field(38, Type.STRING, OrderSnapshotDTO::getCancelReason, (s, v) -> s.setCancelReason((String) v)),
+            field(39, Type.TIME, OrderSnapshotDTO::getRealServeEndTime, (s, v) -> s.setRealServeEndTime((LocalDateTime) v)),
+            field(40, Type.INT, OrderSnapshotDTO::getEvaluationStatus, (s, v) -> s.setEvaluationStatus((Integer) v))
+    };
+
+    /**
+     * 按字段编号索引
+     */
+    private static final Field[] FIELDS_BY_TAG = new Field[FIELDS.length + 1];
+
+    static {
+        for (Field field : FIELDS) {
+            FIELDS_BY_TAG[field.tag] = field;
+        }
+    }
+
+    /**
+     * 编码快照中的非空字段
+     *
+     * @param snapshot 订单快照，可以是完整快照或只包含变更字段的快照
+     * @return 二进制数据
+     */
+    public static byte[] encode(OrderSnapshotDTO snapshot) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(VERSION);
+        for (Field field : FIELDS) {
+            Object value = field.getter.apply(snapshot);
+            if (value == null) {
+                continue;
+            }
+            switch (field.type) {
+                case STRING:
+                    byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    writeVarint(out, (long) field.tag << 3 | WIRE_BYTES);
+                    writeVarint(out, bytes.length);
+                    out.write(bytes, 0, bytes.length);
+                    break;
+                case LONG:
+                    writeField(out, field.tag, (Long) value);
+                    break;
+                case INT:
+                    writeField(out, field.tag, (Integer) value);
+                    break;
+                case MONEY:
+                    writeField(out, field.tag, ((BigDecimal) value).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+                    break;
+                case TIME:
+                    writeField(out, field.tag, ((LocalDateTime) value).toInstant(OFFSET).toEpochMilli());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码并将其中的字段写入目标快照，目标中已有的值被覆盖，依次解码基础快照和增量即可还原最新快照
+     *
+     * @param data   二进制数据
+     * @param target 目标快照
+     */
+    public static void decodeInto(byte[] data, OrderSnapshotDTO target) {
+        if (data == null || data.length == 0 || data[0] != VERSION) {
+            return;
+        }
+        int[] pos = {1};
+        while (pos[0] < data.length) {
+            long key = readVarint(data, pos);
+            int tag = (int) (key >>> 3);
+            int wire = (int) (key & 7);
+            Field field = tag < FIELDS_BY_TAG.length ? FIELDS_BY_TAG[tag] : null;
+            if (wire == WIRE_BYTES) {
+                int length = (int) readVarint(data, pos);
+                if (field != null) {
+                    field.setter.accept(target, new String(data, pos[0], length, StandardCharsets.UTF_8));
+                }
+                pos[0] += length;
+                continue;
+            }
+            long value = zigzagDecode(readVarint(data, pos));
+            if (field == null) {
+                continue;
+            }
+            switch (field.type) {
+                case LONG:
+                    field.setter.accept(target, value);
+                    break;
+                case INT:
+                    field.setter.accept(target, (int) value);
+                    break;
+                case MONEY:
+                    field.setter.accept(target, BigDecimal.valueOf(value, 2));
+                    break;
+                case TIME:
+                    field.setter.accept(target, LocalDateTime.ofInstant(Instant.ofEpochMilli(value), OFFSET));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void writeField(ByteArrayOutputStream out, int tag, long value) {
+        writeVarint(out, (long) tag << 3 | WIRE_VARINT);
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] pos) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("订单快照数据格式错误");
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,128 @@
+package com.jzo2o.orders.base.utils;
+
+/**
+ * 服务人员/机构服务时间日历
+ * <p>
+ * 滚动窗口，每天一个40位的槽位，按 日期序号 % WINDOW_DAYS 定位；高16位为日期序号（% 65536），
+ * 低24位为当天24个小时是否已接单。槽位中的日期与查询日期不同时视为当天无接单，
+ * 过期的槽位在下次写入时被覆盖，无需清理。
+ * 与redis bitfield u40（偏移为槽位序号 * 40）布局一致，槽位按字节对齐、高位在前，redis中的值可直接解析，lua脚本中按同样布局读写
+ * </p>
+ */
+public class ServeCalendar {
+
+    /**
+     * 窗口天数，只能记录今天起WINDOW_DAYS天内的服务时间，需与lua脚本一致
+     */
+    public static final int WINDOW_DAYS = 64;
+
+    /**
+     * 每天槽位位数
+     */
+    public static final int SLOT_BITS = 40;
+
+    /**
+     * 日历字节数
+     */
+    public static final int SIZE_IN_BYTES = WINDOW_DAYS * SLOT_BITS / 8;
+
+    private static final int SLOT_BYTES = SLOT_BITS / 8;
+
+    private static final int HOUR_BITS = 24;
+
+    private static final long HOUR_MASK = (1L << HOUR_BITS) - 1;
+
+    private static final int DAY_TAG_MOD = 1 << 16;
+
+    private final byte[] bytes;
+
+    /**
+     * @param bytes redis或数据库中的日历，为null或长度不足时不足部分视为无接单
+     */
+    public ServeCalendar(byte[] bytes) {
+        this.bytes = new byte[SIZE_IN_BYTES];
+        if (bytes != null) {
+            System.arraycopy(bytes, 0, this.bytes, 0, Math.min(bytes.length, SIZE_IN_BYTES));
+        }
+    }
+
+    /**
+     * @return 日历字节，用于存储
+     */
+    public byte[] toBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * 某小时是否已接单
+     *
+     * @param epochHour 小时序号，见ServeTimeUtils.getServeEpochHour
+     */
+    public boolean isBooked(long epochHour) {
+        return (hours(epochHour / 24) & (1L << (epochHour % 24))) != 0;
+    }
+
+    /**
+     * 标记已接单
+     *
+     * @param epochHour 小时序号
+     * @return 是否成功，已接单时返回false
+     */
+    public boolean book(long epochHour) {
+        long day = epochHour / 24;
+        long hours = hours(day);
+        long bit = 1L << (epochHour % 24);
+        if ((hours & bit) != 0) {
+            return false;
+        }
+        writeSlot(day, hours | bit);
+        return true;
+    }
+
+    /**
+     * 取消接单标记
+     *
+     * @param epochHour 小时序号
+     */
+    public void release(long epochHour) {
+        long day = epochHour / 24;
+        writeSlot(day, hours(day) & ~(1L << (epochHour % 24)));
+    }
+
+    /**
+     * 某天已接单的小时，第n位表示n点
+     *
+     * @param epochDay 日期序号
+     */
+    public long hours(long epochDay) {
+        long slot = readSlot(offset(epochDay));
+        if ((slot >>> HOUR_BITS) != epochDay % DAY_TAG_MOD) {
+            return 0;
+        }
+        return slot & HOUR_MASK;
+    }
+
+    private void writeSlot(long epochDay, long hours) {
+        long value = ((epochDay % DAY_TAG_MOD) << HOUR_BITS) | hours;
+        int index = offset(epochDay);
+        for (int i = SLOT_BYTES - 1; i >= 0; i--) {
+            bytes[index + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private long readSlot(int index) {
+        long value = 0;
+        for (int i = 0; i < SLOT_BYTES; i++) {
+            value = (value << 8) | (bytes[index + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return 槽位起始字节
+     */
+    private static int offset(long epochDay) {
+        return (int) (epochDay % WINDOW_DAYS) * SLOT_BYTES;
+    }
+}
@@ -1,8 +1,5 @@
 package com.jzo2o.orders.base.utils;
 
-import com.jzo2o.common.utils.DateUtils;
-import com.jzo2o.common.utils.NumberUtils;
-
 import java.time.LocalDateTime;
 
 public class ServeTimeUtils {
@@ -11,10 +8,34 @@ public class ServeTimeUtils {
      * 获取服务时间，用来处理抢单和派单的时间冲突问题
      *
      * @param serveStartTime
-     * @return
+     * @return yyyyMMddHH格式的整数
      */
     public static int getServeTimeInt(LocalDateTime serveStartTime) {
-        return NumberUtils.parseInt(DateUtils.format(serveStartTime, "yyyyMMddHH"));
+        return serveStartTime.getYear() * 1000000
+                + serveStartTime.getMonthValue() * 10000
+                + serveStartTime.getDayOfMonth() * 100
+                + serveStartTime.getHour();
+    }
+
+    /**
+     * 获取服务时间所在小时序号，即自1970-01-01起的小时数（按本地日期），用于服务时间日历
+     *
+     * @param serveStartTime 服务开始时间
+     * @return 小时序号
+     */
+    public static long getServeEpochHour(LocalDateTime serveStartTime) {
+        return serveStartTime.toLocalDate().toEpochDay() * 24 + serveStartTime.getHour();
+    }
+
+    /**
+     * yyyyMMddHH格式的服务时间转为小时序号，用于将旧的服务时间列表写入服务时间日历
+     *
+     * @param serveTimeInt yyyyMMddHH格式的整数，见getServeTimeInt
+     * @return 小时序号
+     */
+    public static long getServeEpochHour(int serveTimeInt) {
+        return getServeEpochHour(LocalDateTime.of(serveTimeInt / 1000000, serveTimeInt / 10000 % 100,
+                serveTimeInt / 100 % 100, serveTimeInt % 100, 0));
     }
 
     public static void main(String[] args) {
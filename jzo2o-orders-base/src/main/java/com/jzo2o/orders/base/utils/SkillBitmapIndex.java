@@ -0,0 +1,213 @@
+package com.jzo2o.orders.base.utils;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 服务人员/机构技能位图索引
+ * <p>
+ * 服务人员/机构id映射为连续的序号，每个服务项一个位图，每个城市一个位图（只含可接单的服务人员/机构），
+ * 匹配时两个位图取交集。更新时只修改变化的技能和城市；序号在删除后不回收，
+ * 位图为RoaringBitmap压缩存储。读写使用读写锁
+ * </p>
+ */
+public class SkillBitmapIndex {
+
+    private static final long[] EMPTY_SKILLS = new long[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 服务人员/机构id -> 序号
+     */
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+
+    /**
+     * 序号 -> 服务人员/机构id
+     */
+    private long[] providerIds = new long[1024];
+
+    /**
+     * 序号 -> 当前技能（已排序），用于增量更新
+     */
+    private long[][] providerSkills = new long[1024][];
+
+    /**
+     * 序号 -> 当前所在城市，不可接单时为null
+     */
+    private String[] providerCities = new String[1024];
+
+    private final Map<Long, RoaringBitmap> skillBitmaps = new HashMap<>();
+
+    private final Map<String, RoaringBitmap> cityBitmaps = new HashMap<>();
+
+    /**
+     * 新增或更新服务人员/机构
+     *
+     * @param providerId   服务人员/机构id
+     * @param cityCode     城市编码，为null表示不可接单，不参与匹配
+     * @param serveItemIds 技能
+     */
+    public void put(long providerId, String cityCode, long[] serveItemIds) {
+        long[] skills = serveItemIds == null ? EMPTY_SKILLS : Arrays.stream(serveItemIds).sorted().distinct().toArray();
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinalOf(providerId);
+            long[] oldSkills = providerSkills[ordinal] == null ? EMPTY_SKILLS : providerSkills[ordinal];
+            // 技能：删除不再拥有的，新增新拥有的
+            for (long skill : oldSkills) {
+                if (Arrays.binarySearch(skills, skill) < 0) {
+                    removeFrom(skillBitmaps, skill, ordinal);
+                }
+            }
+            for (long skill : skills) {
+                if (Arrays.binarySearch(oldSkills, skill) < 0) {
+                    skillBitmaps.computeIfAbsent(skill, key -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+            providerSkills[ordinal] = skills;
+
+            // 城市
+            String oldCityCode = providerCities[ordinal];
+            if (!Objects.equals(oldCityCode, cityCode)) {
+                if (oldCityCode != null) {
+                    removeFrom(cityBitmaps, oldCityCode, ordinal);
+                }
+                if (cityCode != null) {
+                    cityBitmaps.computeIfAbsent(cityCode, key -> new RoaringBitmap()).add(ordinal);
+                }
+                providerCities[ordinal] = cityCode;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除服务人员/机构
+     *
+     * @param providerId 服务人员/机构id
+     */
+    public void remove(long providerId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(providerId);
+            if (ordinal == null) {
+                return;
+            }
+            long[] oldSkills = providerSkills[ordinal];
+            if (oldSkills != null) {
+                for (long skill : oldSkills) {
+                    removeFrom(skillBitmaps, skill, ordinal);
+                }
+            }
+            if (providerCities[ordinal] != null) {
+                removeFrom(cityBitmaps, providerCities[ordinal], ordinal);
+            }
+            providerSkills[ordinal] = null;
+            providerCities[ordinal] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询城市中拥有技能的服务人员/机构
+     *
+     * @param cityCode    城市编码
+     * @param serveItemId 服务项id
+     * @return 服务人员/机构id
+     */
+    public long[] match(String cityCode, long serveItemId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap city = cityBitmaps.get(cityCode);
+            RoaringBitmap skill = skillBitmaps.get(serveItemId);
+            if (city == null || skill == null) {
+                return EMPTY_SKILLS;
+            }
+            RoaringBitmap matched = RoaringBitmap.and(city, skill);
+            long[] result = new long[matched.getCardinality()];
+            int i = 0;
+            for (int ordinal : matched) {
+                result[i++] = providerIds[ordinal];
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 判断服务人员/机构是否拥有技能
+     *
+     * @param providerId  服务人员/机构id
+     * @param serveItemId 服务项id
+     * @return 是否拥有
+     */
+    public boolean hasSkill(long providerId, long serveItemId) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(providerId);
+            if (ordinal == null) {
+                return false;
+            }
+            RoaringBitmap skill = skillBitmaps.get(serveItemId);
+            return skill != null && skill.contains(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 位图占用字节数
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            for (RoaringBitmap bitmap : skillBitmaps.values()) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : cityBitmaps.values()) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int ordinalOf(long providerId) {
+        Integer ordinal = ordinals.get(providerId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int next = ordinals.size();
+        if (next == providerIds.length) {
+            int capacity = providerIds.length << 1;
+            providerIds = Arrays.copyOf(providerIds, capacity);
+            providerSkills = Arrays.copyOf(providerSkills, capacity);
+            providerCities = Arrays.copyOf(providerCities, capacity);
+        }
+        providerIds[next] = providerId;
+        ordinals.put(providerId, next);
+        return next;
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int ordinal) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            return;
+        }
+        bitmap.remove(ordinal);
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+}
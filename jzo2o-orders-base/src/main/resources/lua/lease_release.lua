@@ -0,0 +1,8 @@
+-- 释放租约：仍由当前节点持有时才删除
+-- KEYS[1] 租约
+-- ARGV[1] 节点标识
+-- 返回：1 释放成功，0 租约已过期或被其他节点持有
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,8 @@
+-- 续期租约：仍由当前节点持有时才续期
+-- KEYS[1] 租约
+-- ARGV[1] 节点标识，ARGV[2] 有效期（秒）
+-- 返回：1 续期成功，0 租约已过期或被其他节点持有
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('EXPIRE', KEYS[1], ARGV[2])
+end
+return 0
@@ -0,0 +1,34 @@
+-- 派单：校验接单数量、服务时间冲突，通过后占用接单数量和服务时间，写入待接单记录和接单截止时间
+-- KEYS[1] 服务状态表 hash，KEYS[2] 服务时间日历（读写见serve_calendar_lib.lua），KEYS[3] 待接单 hash，KEYS[4] 接单截止时间 zset
+-- ARGV[1] 派单id，ARGV[2] 服务人员/机构id，ARGV[3] 最大接单数量，ARGV[4] 服务时间小时序号，为空时不校验服务时间冲突，
+-- ARGV[5] 待接单记录，ARGV[6] 接单截止时间戳
+-- 返回：1 成功，-1 已派单，-2 接单数量已达上限，-3 服务时间冲突，-4 日历不存在（需从数据库恢复后重试）
+if redis.call('HEXISTS', KEYS[3], ARGV[1]) == 1 then
+    return -1
+end
+
+local numField = ARGV[2] .. '_num'
+local num = tonumber(redis.call('HGET', KEYS[1], numField)) or 0
+if num >= tonumber(ARGV[3]) then
+    return -2
+end
+
+local epochHour = tonumber(ARGV[4])
+local offset, tag, hours, bit
+if epochHour then
+    if redis.call('EXISTS', KEYS[2]) == 0 then
+        return -4
+    end
+    offset, tag, hours, bit = calendar_slot(KEYS[2], epochHour)
+    if calendar_booked(hours, bit) then
+        return -3
+    end
+end
+
+redis.call('HINCRBY', KEYS[1], numField, 1)
+if epochHour then
+    calendar_set(KEYS[2], offset, tag, hours + bit)
+end
+redis.call('HSET', KEYS[3], ARGV[1], ARGV[5])
+redis.call('ZADD', KEYS[4], ARGV[6], ARGV[1])
+return 1
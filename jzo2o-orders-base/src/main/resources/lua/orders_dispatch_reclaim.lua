@@ -0,0 +1,29 @@
+-- 批量收回接单超时的派单：待接单记录与读取时一致才删除，归还接单数量和服务时间
+-- KEYS[1] 待接单 hash，KEYS[2] 服务状态表 hash，KEYS[3] 接单截止时间 zset，KEYS[3 + i] 第i条派单服务人员的服务时间日历（读写见serve_calendar_lib.lua）
+-- ARGV 每条派单4个参数：派单id，读取到的待接单记录，服务人员/机构id，服务时间小时序号（为空时不归还服务时间）
+-- 返回：收回的派单id
+local reclaimed = {}
+for i = 1, #ARGV / 4 do
+    local id = ARGV[i * 4 - 3]
+    if redis.call('HGET', KEYS[1], id) == ARGV[i * 4 - 2] then
+        redis.call('HDEL', KEYS[1], id)
+        redis.call('ZREM', KEYS[3], id)
+
+        local numField = ARGV[i * 4 - 1] .. '_num'
+        if (tonumber(redis.call('HGET', KEYS[2], numField)) or 0) > 0 then
+            redis.call('HINCRBY', KEYS[2], numField, -1)
+        end
+
+        local epochHour = tonumber(ARGV[i * 4])
+        if epochHour then
+            calendar_release(KEYS[3 + i], epochHour)
+        end
+        reclaimed[#reclaimed + 1] = id
+    else
+        -- 已接单或已拒单，清理残留的截止时间
+        if redis.call('HEXISTS', KEYS[1], id) == 0 then
+            redis.call('ZREM', KEYS[3], id)
+        end
+    end
+end
+return reclaimed
@@ -0,0 +1,12 @@
+-- 从派单池恢复派单列表：不在派单列表中且没有待接单记录的派单加入派单列表，已在列表中的保留原派单时间
+-- KEYS[1] 派单列表 zset，KEYS[2] 待接单 hash
+-- ARGV[1] 派单时间戳，ARGV[2..n] 派单id
+-- 返回：加入派单列表的数量
+local added = 0
+for i = 2, #ARGV do
+    if not redis.call('ZSCORE', KEYS[1], ARGV[i]) and redis.call('HEXISTS', KEYS[2], ARGV[i]) == 0 then
+        redis.call('ZADD', KEYS[1], ARGV[1], ARGV[i])
+        added = added + 1
+    end
+end
+return added
@@ -0,0 +1,24 @@
+-- 删除待接单记录：记录与读取时一致才删除，接单、拒单、超时并发时只有一方成功；拒单、超时时归还接单数量和服务时间
+-- KEYS[1] 待接单 hash，KEYS[2] 服务状态表 hash，KEYS[3] 服务时间日历（读写见serve_calendar_lib.lua），KEYS[4] 接单截止时间 zset
+-- ARGV[1] 派单id，ARGV[2] 读取到的待接单记录，ARGV[3] 服务人员/机构id，ARGV[4] 服务时间小时序号，为空时不归还服务时间，
+-- ARGV[5] 是否归还（1/0）
+-- 返回：1 成功，0 记录已变化
+if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+    return 0
+end
+redis.call('HDEL', KEYS[1], ARGV[1])
+redis.call('ZREM', KEYS[4], ARGV[1])
+if ARGV[5] ~= '1' then
+    return 1
+end
+
+local numField = ARGV[3] .. '_num'
+if (tonumber(redis.call('HGET', KEYS[2], numField)) or 0) > 0 then
+    redis.call('HINCRBY', KEYS[2], numField, -1)
+end
+
+local epochHour = tonumber(ARGV[4])
+if epochHour then
+    calendar_release(KEYS[3], epochHour)
+end
+return 1
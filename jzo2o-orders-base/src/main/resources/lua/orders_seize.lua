@@ -0,0 +1,43 @@
+-- 抢单：校验库存、接单数量、服务时间冲突，通过后扣减库存并写入抢单结果同步队列
+-- KEYS[1] 库存 hash，KEYS[2] 抢单池 hash（value为服务时间小时序号），KEYS[3] 服务状态表 hash，
+-- KEYS[4] 抢单结果同步队列 hash，KEYS[5] 服务时间日历（读写见serve_calendar_lib.lua）
+-- ARGV[1] 抢单id，ARGV[2] 服务人员/机构id，ARGV[3] 最大接单数量，ARGV[4] 是否校验服务时间冲突（1/0），ARGV[5] 同步记录
+-- 返回：1 成功，-1 已被抢或已转派单，-2 接单数量已达上限，-3 服务时间冲突，-4 日历不存在（需从数据库恢复后重试）
+local stock = tonumber(redis.call('HGET', KEYS[1], ARGV[1]))
+if not stock or stock <= 0 then
+    return -1
+end
+
+local numField = ARGV[2] .. '_num'
+local num = tonumber(redis.call('HGET', KEYS[3], numField)) or 0
+if num >= tonumber(ARGV[3]) then
+    return -2
+end
+
+-- 服务时间日历槽位
+local epochHour = tonumber(redis.call('HGET', KEYS[2], ARGV[1]))
+local checkTime = ARGV[4] == '1' and epochHour
+local offset, tag, hours, bit
+if checkTime then
+    -- 日历不存在时按全部空闲处理会覆盖数据库中的日历，由调用方恢复后重试
+    if redis.call('EXISTS', KEYS[5]) == 0 then
+        return -4
+    end
+    offset, tag, hours, bit = calendar_slot(KEYS[5], epochHour)
+    if calendar_booked(hours, bit) then
+        return -3
+    end
+end
+
+if stock <= 1 then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    redis.call('HDEL', KEYS[2], ARGV[1])
+else
+    redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+end
+redis.call('HINCRBY', KEYS[3], numField, 1)
+if checkTime then
+    calendar_set(KEYS[5], offset, tag, hours + bit)
+end
+redis.call('HSETNX', KEYS[4], ARGV[1], ARGV[5])
+return 1
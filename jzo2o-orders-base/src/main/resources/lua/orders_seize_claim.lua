@@ -0,0 +1,15 @@
+-- 抢单池订单转派单：未被抢的订单移出抢单池，返回移出的抢单id
+-- KEYS[1] 库存 hash，KEYS[2] 抢单池 hash，KEYS[3] 抢单结果同步队列 hash
+-- ARGV 抢单id列表
+-- 库存不存在且没有同步记录的订单视为未被抢：分流落库后写入抢单池前宕机或redis故障切换时库存丢失，
+-- 这些订单无法被抢，只能转派单
+local claimed = {}
+for _, id in ipairs(ARGV) do
+    local stock = tonumber(redis.call('HGET', KEYS[1], id))
+    if (stock and stock > 0) or (not stock and redis.call('HEXISTS', KEYS[3], id) == 0) then
+        redis.call('HDEL', KEYS[1], id)
+        redis.call('HDEL', KEYS[2], id)
+        claimed[#claimed + 1] = id
+    end
+end
+return claimed
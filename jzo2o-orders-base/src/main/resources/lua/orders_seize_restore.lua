@@ -0,0 +1,13 @@
+-- 补写抢单池：已被抢（有同步记录）的订单跳过，库存、抢单池已存在的不覆盖
+-- KEYS[1] 库存 hash，KEYS[2] 抢单池 hash，KEYS[3] 抢单结果同步队列 hash
+-- ARGV 依次为 抢单id、服务时间小时序号
+-- 返回补写的订单数量
+local restored = 0
+for i = 1, #ARGV, 2 do
+    local id = ARGV[i]
+    if redis.call('HEXISTS', KEYS[3], id) == 0 then
+        restored = restored + redis.call('HSETNX', KEYS[1], id, '1')
+        redis.call('HSETNX', KEYS[2], id, ARGV[i + 1])
+    end
+end
+return restored
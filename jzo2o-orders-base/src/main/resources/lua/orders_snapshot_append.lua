@@ -0,0 +1,15 @@
+-- 订单快照追加：已有快照时追加增量；不存在时传入基础快照则初始化，未传入则不处理
+-- 并发的首次追加中只有一个初始化，其余的作为增量追加在其后
+-- KEYS[1] 订单快照 list
+-- ARGV[1] 增量，ARGV[2] 基础快照（已合并本次增量），为空时只追加增量
+-- ARGV[3] 有效期，单位秒
+-- 返回：快照条数，0 表示快照不存在且未传入基础快照
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    redis.call('RPUSH', KEYS[1], ARGV[1])
+elseif ARGV[2] ~= '' then
+    redis.call('RPUSH', KEYS[1], ARGV[2])
+else
+    return 0
+end
+redis.call('EXPIRE', KEYS[1], ARGV[3])
+return redis.call('LLEN', KEYS[1])
@@ -0,0 +1,12 @@
+-- 订单快照压缩：用合并后的快照替换已合并的基础快照和增量，合并期间追加的增量保留
+-- 第一条仍是读取时的基础快照才替换，并发压缩时只有一个生效
+-- KEYS[1] 订单快照 list
+-- ARGV[1] 合并后的快照
+-- ARGV[2] 已合并的条目数量
+-- ARGV[3] 读取时的基础快照
+if redis.call('LINDEX', KEYS[1], 0) ~= ARGV[3] or redis.call('LLEN', KEYS[1]) < tonumber(ARGV[2]) then
+    return 0
+end
+redis.call('LTRIM', KEYS[1], ARGV[2], -1)
+redis.call('LPUSH', KEYS[1], ARGV[1])
+return 1
@@ -0,0 +1,31 @@
+-- 服务时间日历u40槽位读写，布局见ServeCalendar：每天一个u40槽位，高16位为日期序号，低24位为小时
+-- 加载时拼接在使用日历的脚本之前（见LuaScriptUtils），窗口天数需与ServeCalendar.WINDOW_DAYS一致
+
+-- 读取小时所在槽位，返回：槽位偏移，日期序号标签，当天已接单的小时，该小时对应的位
+local function calendar_slot(key, epochHour)
+    local day = math.floor(epochHour / 24)
+    local offset = (day % 64) * 40
+    local tag = day % 65536
+    local slot = redis.call('BITFIELD', key, 'GET', 'u40', offset)[1]
+    local hours = 0
+    if math.floor(slot / 16777216) == tag then
+        hours = slot % 16777216
+    end
+    return offset, tag, hours, 2 ^ (epochHour % 24)
+end
+
+local function calendar_booked(hours, bit)
+    return math.floor(hours / bit) % 2 == 1
+end
+
+local function calendar_set(key, offset, tag, hours)
+    redis.call('BITFIELD', key, 'SET', 'u40', offset, string.format('%.0f', tag * 16777216 + hours))
+end
+
+-- 归还服务时间，未接单时不变
+local function calendar_release(key, epochHour)
+    local offset, tag, hours, bit = calendar_slot(key, epochHour)
+    if calendar_booked(hours, bit) then
+        calendar_set(key, offset, tag, hours - bit)
+    end
+end
@@ -0,0 +1,23 @@
+-- 服务时间日历接单/取消接单，槽位读写见serve_calendar_lib.lua
+-- KEYS[1] 日历
+-- ARGV[1] 小时序号，ARGV[2] 操作：1 接单，0 取消接单
+-- 返回：1 成功，0 该小时已接单，-1 日历不存在（需从数据库恢复后重试）
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+
+local offset, tag, hours, bit = calendar_slot(KEYS[1], tonumber(ARGV[1]))
+local booked = calendar_booked(hours, bit)
+
+if ARGV[2] == '1' then
+    if booked then
+        return 0
+    end
+    hours = hours + bit
+elseif booked then
+    hours = hours - bit
+else
+    return 1
+end
+calendar_set(KEYS[1], offset, tag, hours)
+return 1
@@ -0,0 +1,14 @@
+-- 服务完成或取消后归还接单数量，同一服务单只归还一次
+-- KEYS[1] 服务状态表 hash，KEYS[2] 已归还的服务单 zset
+-- ARGV[1] 服务单id，ARGV[2] 服务人员/机构id，ARGV[3] 当前时间戳（毫秒），ARGV[4] 已归还记录保留时间（毫秒）
+-- 返回：1 归还成功，0 已归还过
+if redis.call('ZADD', KEYS[2], 'NX', ARGV[3], ARGV[1]) == 0 then
+    return 0
+end
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', tonumber(ARGV[3]) - tonumber(ARGV[4]))
+
+local numField = ARGV[2] .. '_num'
+if (tonumber(redis.call('HGET', KEYS[1], numField)) or 0) > 0 then
+    redis.call('HINCRBY', KEYS[1], numField, -1)
+end
+return 1
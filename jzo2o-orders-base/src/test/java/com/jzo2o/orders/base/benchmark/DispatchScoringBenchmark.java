@@ -0,0 +1,160 @@
+package com.jzo2o.orders.base.benchmark;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.model.Location;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.utils.DispatchCandidates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 派单打分基准测试：按列存储的候选小顶堆取topK vs 逐个对象打分后排序
+ * <p>
+ * 候选分布在订单周围约30千米范围内，最大派单距离20千米，10%为机构，取得分最高的10个
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchScoringBenchmark {
+
+    private static final double LON = 116.40;
+
+    private static final double LAT = 39.90;
+
+    private static final int K = 10;
+
+    private static final double MAX_DISTANCE_KM = 20;
+
+    private static final int MAX_ACCEPTANCE_OF_SERVE = 10;
+
+    private static final int MAX_ACCEPTANCE_OF_INSTITUTION = 100;
+
+    private static final DispatchCandidates.Weights WEIGHTS = new DispatchCandidates.Weights(
+            0.5, 0.3, 0.2, MAX_DISTANCE_KM, MAX_ACCEPTANCE_OF_SERVE, MAX_ACCEPTANCE_OF_INSTITUTION);
+
+    @Param({"1000", "10000", "100000"})
+    private int candidateCount;
+
+    private List<ServeProviderInfo> serveProviderInfos;
+
+    private DispatchCandidates candidates;
+
+    private boolean[] mask;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        serveProviderInfos = new ArrayList<>(candidateCount);
+        long[] eligibleIds = new long[candidateCount];
+        int eligible = 0;
+        for (long id = 1; id <= candidateCount; id++) {
+            ServeProviderInfo info = new ServeProviderInfo();
+            info.setId(id);
+            info.setServeProviderType(random.nextInt(10) == 0 ? UserType.INSTITUTION : UserType.WORKER);
+            Location location = new Location();
+            location.setLongitude(LON + (random.nextDouble() - 0.5) * 0.7);
+            location.setLatitude(LAT + (random.nextDouble() - 0.5) * 0.55);
+            info.setLocation(location);
+            info.setPickUp(1);
+            info.setStatus(0);
+            info.setEvaluationScore(random.nextDouble() * 100);
+            info.setAcceptanceNum(random.nextInt(MAX_ACCEPTANCE_OF_SERVE + 2));
+            serveProviderInfos.add(info);
+            // 30%拥有技能
+            if (random.nextInt(10) < 3) {
+                eligibleIds[eligible++] = id;
+            }
+        }
+        candidates = DispatchCandidates.of(serveProviderInfos);
+        mask = candidates.mask(Arrays.copyOf(eligibleIds, eligible));
+    }
+
+    @Benchmark
+    public long[] topK() {
+        return candidates.topK(LON, LAT, null, WEIGHTS, K);
+    }
+
+    @Benchmark
+    public long[] topKWithMask() {
+        return candidates.topK(LON, LAT, mask, WEIGHTS, K);
+    }
+
+    /**
+     * 构建候选并打分，每批派单构建一次候选
+     */
+    @Benchmark
+    public long[] buildAndTopK() {
+        return DispatchCandidates.of(serveProviderInfos).topK(LON, LAT, null, WEIGHTS, K);
+    }
+
+    /**
+     * 对照：逐个对象打分，装箱后排序
+     */
+    @Benchmark
+    public List<Long> objectSort() {
+        double lonScale = Math.cos(Math.toRadians(LAT)) * 111.195;
+        return serveProviderInfos.stream()
+                .filter(info -> Integer.valueOf(1).equals(info.getPickUp()) && !Integer.valueOf(1).equals(info.getStatus()))
+                .filter(info -> info.getAcceptanceNum() < maxAcceptance(info))
+                .map(info -> {
+                    double dx = (info.getLocation().getLongitude() - LON) * lonScale;
+                    double dy = (info.getLocation().getLatitude() - LAT) * 111.195;
+                    double distance = Math.sqrt(dx * dx + dy * dy);
+                    int limit = maxAcceptance(info);
+                    double score = 0.5 * (1 - distance / MAX_DISTANCE_KM)
+                            + 0.3 * info.getEvaluationScore() / 100
+                            + 0.2 * (1 - (double) info.getAcceptanceNum() / limit);
+                    return new Scored(info.getId(), distance, score);
+                })
+                .filter(scored -> scored.distance <= MAX_DISTANCE_KM)
+                .sorted(Comparator.comparingDouble((Scored scored) -> scored.score).reversed())
+                .limit(K)
+                .map(scored -> scored.id)
+                .collect(Collectors.toList());
+    }
+
+    private static int maxAcceptance(ServeProviderInfo info) {
+        return Integer.valueOf(UserType.INSTITUTION).equals(info.getServeProviderType()) ? MAX_ACCEPTANCE_OF_INSTITUTION : MAX_ACCEPTANCE_OF_SERVE;
+    }
+
+    private static final class Scored {
+        private final Long id;
+        private final double distance;
+        private final double score;
+
+        private Scored(Long id, double distance, double score) {
+            this.id = id;
+            this.distance = distance;
+            this.score = score;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DispatchScoringBenchmark.class.getSimpleName()).build()).run();
+    }
+}
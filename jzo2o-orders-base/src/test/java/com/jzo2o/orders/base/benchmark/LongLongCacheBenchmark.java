@@ -0,0 +1,99 @@
+package com.jzo2o.orders.base.benchmark;
+
+import com.jzo2o.orders.base.utils.LongLongCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单id -> 服务人员/机构id缓存基准测试：LongLongCache vs ConcurrentHashMap&lt;Long, Long&gt;
+ * <p>
+ * 各写入100万条，启动时打印各自占用的堆内存；4个线程并发查询，约10%的key不存在。
+ * LongLongCache容量与写入数量相同，组满时覆盖旧数据，命中率低于ConcurrentHashMap
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+public class LongLongCacheBenchmark {
+
+    private static final int ENTRIES = 1 << 20;
+
+    /**
+     * 订单id起始值，与订单id格式一致
+     */
+    private static final long BASE_ORDER_ID = 2309170000000000000L;
+
+    private LongLongCache cache;
+
+    private Map<Long, Long> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedMemory();
+        cache = new LongLongCache(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(BASE_ORDER_ID + i, 1694250327664218113L + i);
+        }
+        long cacheBytes = usedMemory() - before;
+
+        before = usedMemory();
+        map = new ConcurrentHashMap<>(ENTRIES * 4 / 3 + 1);
+        for (int i = 0; i < ENTRIES; i++) {
+            map.put(BASE_ORDER_ID + i, 1694250327664218113L + i);
+        }
+        long mapBytes = usedMemory() - before;
+        System.out.printf("%n每100万条占用：LongLongCache %.1fMB，ConcurrentHashMap %.1fMB%n",
+                cacheBytes * 1e6 / ENTRIES / (1 << 20), mapBytes * 1e6 / ENTRIES / (1 << 20));
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 约10%的key不存在
+     */
+    private static long nextKey() {
+        return BASE_ORDER_ID + ThreadLocalRandom.current().nextInt(ENTRIES + ENTRIES / 10);
+    }
+
+    @Benchmark
+    public long cacheGet() {
+        return cache.get(nextKey());
+    }
+
+    @Benchmark
+    public Long mapGet() {
+        return map.get(nextKey());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LongLongCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.jzo2o.orders.base.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+import com.jzo2o.orders.base.utils.OrderSnapshotCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单快照基准测试：二进制基础快照 + 字段增量 vs 每次状态变更保存完整JSON
+ * <p>
+ * 一个订单的完整生命周期：下单、支付、派单、开始服务、完成服务、评价，共6个快照。
+ * 启动时打印每个订单占用的字节数，基准测试比较编码和还原最新快照的耗时
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderSnapshotCodecBenchmark {
+
+    private OrderSnapshotDTO base;
+
+    private OrderSnapshotDTO latest;
+
+    private List<OrderSnapshotDTO> deltas;
+
+    private List<byte[]> encoded;
+
+    private String latestJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime createTime = LocalDateTime.of(2023, 9, 17, 10, 19, 59);
+        base = OrderSnapshotDTO.builder()
+                .id(2309170000000000001L)
+                .userId(1694250327664218113L)
+                .serveTypeId(1678649931106705409L)
+                .serveTypeName("保洁服务")
+                .serveItemId(1685850705647968257L)
+                .serveItemName("日常保洁")
+                .serveItemImg("https://yjy-xzbjzfw-oss.oss-cn-hangzhou.aliyuncs.com/b1b5d2c4-3f8a-4b1a-9d9e-6c0c6f2b3c1a.png")
+                .unit(1)
+                .serveId(1693815624114970626L)
+                .ordersStatus(0)
+                .payStatus(2)
+                .refundStatus(0)
+                .price(new BigDecimal("45.00"))
+                .purNum(2)
+                .totalAmount(new BigDecimal("90.00"))
+                .realPayAmount(new BigDecimal("80.00"))
+                .discountAmount(new BigDecimal("10.00"))
+                .cityCode("010")
+                .serveAddress("北京市昌平区回龙观街道弘文恒瑞文化传播公司")
+                .contactsPhone("13333333333")
+                .contactsName("张三")
+                .serveStartTime(LocalDateTime.of(2023, 9, 18, 14, 0))
+                .lon("116.3454")
+                .lat("40.0719")
+                .createTime(createTime)
+                .updateTime(createTime)
+                .build();
+
+        deltas = new ArrayList<>();
+        // 支付
+        deltas.add(OrderSnapshotDTO.builder().ordersStatus(100).payStatus(4).payTime(createTime.plusMinutes(1))
+                .tradingOrderNo(1703251238295310338L).tradingChannel("WECHAT_PAY").thirdOrderId("4200001935202309174830612345")
+                .updateTime(createTime.plusMinutes(1)).build());
+        // 派单/抢单
+        deltas.add(OrderSnapshotDTO.builder().ordersStatus(200).updateTime(createTime.plusMinutes(5)).build());
+        // 开始服务
+        deltas.add(OrderSnapshotDTO.builder().ordersStatus(300).updateTime(LocalDateTime.of(2023, 9, 18, 14, 2)).build());
+        // 完成服务
+        deltas.add(OrderSnapshotDTO.builder().ordersStatus(500).realServeEndTime(LocalDateTime.of(2023, 9, 18, 16, 0))
+                .updateTime(LocalDateTime.of(2023, 9, 18, 16, 0)).build());
+        // 评价
+        deltas.add(OrderSnapshotDTO.builder().evaluationStatus(1).evaluationTime(LocalDateTime.of(2023, 9, 19, 9, 0))
+                .updateTime(LocalDateTime.of(2023, 9, 19, 9, 0)).build());
+
+        encoded = new ArrayList<>();
+        encoded.add(OrderSnapshotCodec.encode(base));
+        int binaryBytes = encoded.get(0).length;
+        int jsonBytes = JSONUtil.toJsonStr(base).getBytes(StandardCharsets.UTF_8).length;
+        latest = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(encoded.get(0), latest);
+        for (OrderSnapshotDTO delta : deltas) {
+            byte[] bytes = OrderSnapshotCodec.encode(delta);
+            encoded.add(bytes);
+            binaryBytes += bytes.length;
+            OrderSnapshotCodec.decodeInto(bytes, latest);
+            jsonBytes += JSONUtil.toJsonStr(latest).getBytes(StandardCharsets.UTF_8).length;
+        }
+        latestJson = JSONUtil.toJsonStr(latest);
+        System.out.printf("%n每个订单%d个快照，二进制基础快照+增量:%d字节，完整JSON:%d字节%n", encoded.size(), binaryBytes, jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeDelta() {
+        return OrderSnapshotCodec.encode(deltas.get(0));
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return JSONUtil.toJsonStr(latest);
+    }
+
+    @Benchmark
+    public OrderSnapshotDTO reconstructBinary() {
+        OrderSnapshotDTO snapshot = new OrderSnapshotDTO();
+        for (byte[] bytes : encoded) {
+            OrderSnapshotCodec.decodeInto(bytes, snapshot);
+        }
+        return snapshot;
+    }
+
+    @Benchmark
+    public OrderSnapshotDTO reconstructJson() {
+        return JSONUtil.toBean(latestJson, OrderSnapshotDTO.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderSnapshotCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.jzo2o.orders.base.benchmark;
+
+import com.jzo2o.orders.base.config.OrderStateMachine;
+import com.jzo2o.orders.base.enums.OrderStatusChangeEventEnum;
+import com.jzo2o.orders.base.enums.OrderStatusEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单状态变更校验基准测试：状态×事件转换表 vs 遍历事件枚举
+ * <p>
+ * 7个状态与10个事件的所有组合，其中10个合法。使用 -prof gc 可查看每次校验的内存分配
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderStateMachineBenchmark {
+
+    private static final OrderStatusChangeEventEnum[] EVENTS = OrderStatusChangeEventEnum.values();
+
+    /**
+     * 状态数量 × 事件数量，枚举变化时需同步修改
+     */
+    private static final int OPERATIONS = 7 * 10;
+
+    /**
+     * 状态值提前装箱，避免测试中分配
+     */
+    private Integer[] statuses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        OrderStatusEnum[] values = OrderStatusEnum.values();
+        if (values.length * EVENTS.length != OPERATIONS) {
+            throw new IllegalStateException("状态或事件数量已变化，需修改OPERATIONS");
+        }
+        statuses = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            statuses[i] = values[i].getStatus();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void transitionTable(Blackhole blackhole) {
+        for (Integer status : statuses) {
+            for (OrderStatusChangeEventEnum event : EVENTS) {
+                blackhole.consume(OrderStateMachine.transition(status, event));
+            }
+        }
+    }
+
+    /**
+     * 对照：遍历事件枚举匹配源状态
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void enumScan(Blackhole blackhole) {
+        for (Integer status : statuses) {
+            for (OrderStatusChangeEventEnum event : EVENTS) {
+                blackhole.consume(scan(status, event));
+            }
+        }
+    }
+
+    private static OrderStatusEnum scan(Integer status, OrderStatusChangeEventEnum event) {
+        for (OrderStatusChangeEventEnum candidate : EVENTS) {
+            if (candidate == event && candidate.getSourceStatus().getStatus().equals(status)) {
+                return candidate.getTargetStatus();
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderStateMachineBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
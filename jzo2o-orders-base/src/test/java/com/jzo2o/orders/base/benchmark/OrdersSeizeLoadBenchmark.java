@@ -0,0 +1,208 @@
+package com.jzo2o.orders.base.benchmark;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.orders.base.enums.SeizeResultEnum;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.impl.OrdersSeizeCommonServiceImpl;
+import com.jzo2o.orders.base.utils.RedisUtils;
+import com.jzo2o.orders.base.utils.ServeCalendar;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_RESOURCE_STOCK;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE_SYNC;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_CALENDAR;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_STATE;
+
+/**
+ * 抢单压测：大量服务人员并发抢同一城市抢单池中的订单
+ * <p>
+ * 直接调用OrdersSeizeCommonServiceImpl执行抢单脚本，不启动spring容器，也就没有抢单结果同步任务；
+ * 只能连接本地或测试用的redis，结束时删除本次写入的数据。
+ * 参数（-D）：redis.host、redis.port、providers（服务人员数量，默认10000）、orders（订单数量，默认20000）、
+ * attempts（每个服务人员抢单次数，默认20）、threads（并发线程数，默认1000）。
+ * 输出吞吐量、延迟分位数、各抢单结果数量，并校验没有超卖、接单数量没有超过上限
+ * </p>
+ */
+public class OrdersSeizeLoadBenchmark {
+
+    private static final String CITY_CODE = "999";
+
+    /**
+     * 压测数据id起始值，避免与真实数据冲突
+     */
+    private static final long BASE_ID = 9_100_000_000_000_000_000L;
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = System.getProperty("redis.host", "localhost");
+        int port = Integer.getInteger("redis.port", 6379);
+        int providers = Integer.getInteger("providers", 10000);
+        int orders = Integer.getInteger("orders", 20000);
+        int attempts = Integer.getInteger("attempts", 20);
+        int threads = Integer.getInteger("threads", 1000);
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        OrdersSeizeCommonServiceImpl ordersSeizeCommonService = new OrdersSeizeCommonServiceImpl();
+        ReflectionTestUtils.setField(ordersSeizeCommonService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(ordersSeizeCommonService, "dispatchProperties", dispatchProperties);
+
+        int index = RedisUtils.getCityIndex(CITY_CODE);
+        try {
+            prepare(redisTemplate, ordersSeizeCommonService, providers, orders);
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch ready = new CountDownLatch(providers);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(providers);
+            long[] latencies = new long[providers * attempts];
+            AtomicLongArray results = new AtomicLongArray(SeizeResultEnum.values().length);
+            Set<Long> seized = ConcurrentHashMap.newKeySet();
+            for (int p = 0; p < providers; p++) {
+                long providerId = BASE_ID + p;
+                int offset = p * attempts;
+                executor.execute(() -> {
+                    ready.countDown();
+                    try {
+                        start.await();
+                        for (int i = 0; i < attempts; i++) {
+                            long id = BASE_ID + ThreadLocalRandom.current().nextInt(orders);
+                            long begin = System.nanoTime();
+                            SeizeResultEnum result = ordersSeizeCommonService.seize(id, CITY_CODE, providerId, UserType.WORKER);
+                            latencies[offset + i] = System.nanoTime() - begin;
+                            results.incrementAndGet(result.ordinal());
+                            if (result == SeizeResultEnum.SUCCESS && !seized.add(id)) {
+                                System.err.printf("超卖：订单%d被多次抢到%n", id);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            ready.await();
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long nanos = System.nanoTime() - begin;
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+
+            Arrays.sort(latencies);
+            System.out.printf("服务人员:%d，订单:%d，线程:%d，抢单请求:%d，耗时:%dms，吞吐量:%.0f次/秒%n",
+                    providers, orders, threads, latencies.length, nanos / 1_000_000, latencies.length * 1e9 / nanos);
+            System.out.printf("延迟 p50:%.2fms p99:%.2fms p999:%.2fms max:%.2fms%n", percentile(latencies, 0.5),
+                    percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+            for (SeizeResultEnum result : SeizeResultEnum.values()) {
+                System.out.printf("%s(%s):%d%n", result.name(), result.getDesc(), results.get(result.ordinal()));
+            }
+            verify(redisTemplate, index, providers, orders, seized.size(), dispatchProperties.getServeTaskNumOfServe());
+        } finally {
+            cleanup(redisTemplate, index, providers, orders);
+            connectionFactory.destroy();
+        }
+    }
+
+    /**
+     * 订单加入抢单池，服务时间分布在明天起7天内；为每个服务人员创建空日历，避免抢单时从数据库恢复
+     */
+    private static void prepare(StringRedisTemplate redisTemplate, OrdersSeizeCommonServiceImpl ordersSeizeCommonService,
+                                int providers, int orders) {
+        cleanup(redisTemplate, RedisUtils.getCityIndex(CITY_CODE), providers, orders);
+        LocalDateTime tomorrow = LocalDate.now().plusDays(1).atStartOfDay();
+        List<OrdersSeize> ordersSeizes = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            ordersSeizes.add(OrdersSeize.builder()
+                    .id(BASE_ID + i)
+                    .cityCode(CITY_CODE)
+                    .serveStartTime(tomorrow.plusHours(i % (7 * 24)))
+                    .build());
+        }
+        ordersSeizeCommonService.addSeizePool(ordersSeizes);
+
+        int index = RedisUtils.getCityIndex(CITY_CODE);
+        byte[] emptyCalendar = new byte[ServeCalendar.SIZE_IN_BYTES];
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int p = 0; p < providers; p++) {
+                byte[] key = String.format(SERVE_PROVIDER_CALENDAR, BASE_ID + p, index).getBytes(StandardCharsets.UTF_8);
+                connection.stringCommands().set(key, emptyCalendar);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 校验：抢到的订单都已扣减库存、剩余库存与未抢订单一致、每个服务人员接单数量不超过上限
+     */
+    private static void verify(StringRedisTemplate redisTemplate, int index, int providers, int orders, int seized, int maxServeNum) {
+        long stocks = redisTemplate.opsForHash().multiGet(String.format(ORDERS_RESOURCE_STOCK, index), ids(orders))
+                .stream().filter(value -> value != null).count();
+        long syncs = redisTemplate.opsForHash().multiGet(String.format(ORDERS_SEIZE_SYNC, index), ids(orders))
+                .stream().filter(value -> value != null).count();
+        List<Object> nums = redisTemplate.opsForHash().multiGet(String.format(SERVE_PROVIDER_STATE, index), numFields(providers));
+        long overLimit = nums.stream().filter(value -> value != null && Integer.parseInt(value.toString()) > maxServeNum).count();
+        long accepted = nums.stream().filter(value -> value != null).mapToLong(value -> Long.parseLong(value.toString())).sum();
+        System.out.printf("校验：抢到订单:%d，剩余库存:%d（应为%d），同步记录:%d，接单数合计:%d，超过上限的服务人员:%d%n",
+                seized, stocks, orders - seized, syncs, accepted, overLimit);
+        if (stocks != orders - seized || syncs != seized || accepted != seized || overLimit > 0) {
+            throw new IllegalStateException("抢单数据不一致");
+        }
+    }
+
+    private static void cleanup(StringRedisTemplate redisTemplate, int index, int providers, int orders) {
+        Object[] orderIds = ids(orders).toArray();
+        redisTemplate.delete(String.format(ORDERS_SEIZE, CITY_CODE, index));
+        redisTemplate.opsForHash().delete(String.format(ORDERS_RESOURCE_STOCK, index), orderIds);
+        redisTemplate.opsForHash().delete(String.format(ORDERS_SEIZE_SYNC, index), orderIds);
+        redisTemplate.opsForHash().delete(String.format(SERVE_PROVIDER_STATE, index), numFields(providers).toArray());
+        List<String> calendars = new ArrayList<>(providers);
+        for (int p = 0; p < providers; p++) {
+            calendars.add(String.format(SERVE_PROVIDER_CALENDAR, BASE_ID + p, index));
+        }
+        redisTemplate.delete(calendars);
+    }
+
+    private static List<Object> ids(int orders) {
+        List<Object> ids = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            ids.add(String.valueOf(BASE_ID + i));
+        }
+        return ids;
+    }
+
+    private static List<Object> numFields(int providers) {
+        List<Object> fields = new ArrayList<>(providers);
+        for (int p = 0; p < providers; p++) {
+            fields.add((BASE_ID + p) + "_num");
+        }
+        return fields;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+}
@@ -0,0 +1,269 @@
+package com.jzo2o.orders.base.benchmark;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.model.Location;
+import com.jzo2o.orders.base.model.domain.OrdersDispatch;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.impl.DispatchScoringServiceImpl;
+import com.jzo2o.orders.base.service.impl.ServeProviderCalendarServiceImpl;
+import com.jzo2o.orders.base.service.impl.ServeProviderSkillIndexServiceImpl;
+import com.jzo2o.orders.base.service.impl.ServeProviderStateServiceImpl;
+import com.jzo2o.orders.base.utils.DispatchCandidates;
+import com.jzo2o.orders.base.utils.RedisUtils;
+import com.jzo2o.orders.base.utils.ServeCalendar;
+import com.jzo2o.orders.base.utils.ServeTimeUtils;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_CALENDAR;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.SERVE_PROVIDER_STATE;
+
+/**
+ * 派单打分redis往返次数基准测试：完整的{@link DispatchScoringServiceImpl#rank}（接单数量一次pipeline、日历每个城市一次mget）
+ * vs 逐个读取（每个服务人员一次hget、每个派单的每个服务人员一次日历get）
+ * <p>
+ * 不启动spring容器，只能连接本地或测试用的redis，结束时删除本次写入的数据。
+ * 参数（-D）：redis.host、redis.port、candidates（候选人数量，默认300）、orders（每批派单数量，默认10）、
+ * decisions（打分批次，默认2000）、cities（候选人及派单分布的城市数量，1~10，默认1）。
+ * 输出每批打分的往返次数、redis命令数和延迟分位数
+ * </p>
+ */
+public class ServeProviderStateRoundTripBenchmark {
+
+    /**
+     * 压测数据id起始值，避免与真实数据冲突
+     */
+    private static final long BASE_ID = 9_200_000_000_000_000_000L;
+
+    private static final long SERVE_ITEM_ID = 1L;
+
+    private static final double LON = 116.40;
+
+    private static final double LAT = 39.90;
+
+    private static final int WARMUP = 200;
+
+    public static void main(String[] args) {
+        String host = System.getProperty("redis.host", "localhost");
+        int port = Integer.getInteger("redis.port", 6379);
+        int candidates = Integer.getInteger("candidates", 300);
+        int orders = Integer.getInteger("orders", 10);
+        int decisions = Integer.getInteger("decisions", 2000);
+        int cities = Math.max(1, Math.min(10, Integer.getInteger("cities", 1)));
+
+        AtomicLong roundTrips = new AtomicLong();
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port)) {
+            @Override
+            public RedisConnection getConnection() {
+                // 每次execute/executePipelined获取一次连接，即一次往返
+                roundTrips.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        // 不调用init，不启动写回线程；日历全部预先写入，不会回源数据库
+        ServeProviderStateServiceImpl serveProviderStateService = new ServeProviderStateServiceImpl();
+        ReflectionTestUtils.setField(serveProviderStateService, "redisTemplate", redisTemplate);
+        ServeProviderCalendarServiceImpl serveProviderCalendarService = new ServeProviderCalendarServiceImpl();
+        ReflectionTestUtils.setField(serveProviderCalendarService, "redisTemplate", redisTemplate);
+        ServeProviderSkillIndexServiceImpl serveProviderSkillIndexService = new ServeProviderSkillIndexServiceImpl();
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        DispatchScoringServiceImpl dispatchScoringService = new DispatchScoringServiceImpl();
+        ReflectionTestUtils.setField(dispatchScoringService, "serveProviderStateService", serveProviderStateService);
+        ReflectionTestUtils.setField(dispatchScoringService, "serveProviderCalendarService", serveProviderCalendarService);
+        ReflectionTestUtils.setField(dispatchScoringService, "serveProviderSkillIndexService", serveProviderSkillIndexService);
+        ReflectionTestUtils.setField(dispatchScoringService, "dispatchProperties", dispatchProperties);
+
+        // 城市编码990~999，尾号分别为0~9
+        LocalDateTime serveStartTime = LocalDateTime.now().plusDays(1).withMinute(0).withSecond(0).withNano(0);
+        List<ServeProviderInfo> serveProviderInfos = serveProviderInfos(candidates, cities);
+        serveProviderSkillIndexService.refresh(serveProviderInfos);
+        List<OrdersDispatch> ordersDispatches = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            OrdersDispatch ordersDispatch = new OrdersDispatch();
+            ordersDispatch.setId(BASE_ID + i);
+            ordersDispatch.setCityCode(String.valueOf(990 + i % cities));
+            ordersDispatch.setServeItemId(SERVE_ITEM_ID);
+            ordersDispatch.setServeStartTime(serveStartTime);
+            ordersDispatch.setLon(LON);
+            ordersDispatch.setLat(LAT);
+            ordersDispatches.add(ordersDispatch);
+        }
+        try {
+            prepare(redisTemplate, serveProviderInfos, serveStartTime);
+
+            Map<Long, long[]> expected = dispatchScoringService.rank(ordersDispatches, serveProviderInfos);
+            Map<Long, long[]> actual = oneByOne(redisTemplate, serveProviderCalendarService, serveProviderSkillIndexService,
+                    dispatchProperties, ordersDispatches, serveProviderInfos);
+            if (expected.size() != actual.size()
+                    || expected.entrySet().stream().anyMatch(entry -> !Arrays.equals(entry.getValue(), actual.get(entry.getKey())))) {
+                throw new IllegalStateException("批量读取与逐个读取结果不一致");
+            }
+            System.out.printf("候选人:%d，每批派单:%d，城市:%d，打分批次:%d%n", candidates, orders, cities, decisions);
+            run("逐个读取", redisTemplate, roundTrips, decisions, serveProviderInfos,
+                    infos -> oneByOne(redisTemplate, serveProviderCalendarService, serveProviderSkillIndexService,
+                            dispatchProperties, ordersDispatches, infos));
+            run("批量读取", redisTemplate, roundTrips, decisions, serveProviderInfos,
+                    infos -> dispatchScoringService.rank(ordersDispatches, infos));
+        } finally {
+            cleanup(redisTemplate, serveProviderInfos);
+            connectionFactory.destroy();
+        }
+    }
+
+    private static List<ServeProviderInfo> serveProviderInfos(int candidates, int cities) {
+        List<ServeProviderInfo> serveProviderInfos = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            ServeProviderInfo serveProviderInfo = new ServeProviderInfo();
+            serveProviderInfo.setId(BASE_ID + i);
+            serveProviderInfo.setServeProviderType(i % 10 == 0 ? UserType.INSTITUTION : UserType.WORKER);
+            serveProviderInfo.setServeItemIds(Collections.singletonList(SERVE_ITEM_ID));
+            serveProviderInfo.setCityCode(String.valueOf(990 + i % cities));
+            serveProviderInfo.setPickUp(1);
+            serveProviderInfo.setStatus(0);
+            serveProviderInfo.setEvaluationScore(50 + i % 50d);
+            Location location = new Location();
+            location.setLongitude(LON + (i % 17 - 8) * 0.01);
+            location.setLatitude(LAT + (i % 13 - 6) * 0.01);
+            serveProviderInfo.setLocation(location);
+            serveProviderInfos.add(serveProviderInfo);
+        }
+        return serveProviderInfos;
+    }
+
+    /**
+     * 对照：批量读取之前的做法，每个服务人员一次hget，每个派单的每个服务人员一次日历get，打分与rank相同
+     */
+    private static Map<Long, long[]> oneByOne(StringRedisTemplate redisTemplate, ServeProviderCalendarServiceImpl serveProviderCalendarService,
+                                              ServeProviderSkillIndexServiceImpl serveProviderSkillIndexService, DispatchProperties dispatchProperties,
+                                              List<OrdersDispatch> ordersDispatches, List<ServeProviderInfo> serveProviderInfos) {
+        Map<Long, Integer> serveNums = new HashMap<>(serveProviderInfos.size());
+        Set<Long> institutionIds = new HashSet<>();
+        for (ServeProviderInfo serveProviderInfo : serveProviderInfos) {
+            Object num = redisTemplate.opsForHash().get(String.format(SERVE_PROVIDER_STATE, RedisUtils.getCityIndex(serveProviderInfo.getCityCode())),
+                    serveProviderInfo.getId() + "_num");
+            serveNums.put(serveProviderInfo.getId(), num == null ? 0 : Integer.parseInt(num.toString()));
+            if (Integer.valueOf(UserType.INSTITUTION).equals(serveProviderInfo.getServeProviderType())) {
+                institutionIds.add(serveProviderInfo.getId());
+            }
+        }
+        DispatchCandidates candidates = DispatchCandidates.of(serveProviderInfos, serveNums);
+        DispatchCandidates.Weights weights = new DispatchCandidates.Weights(
+                dispatchProperties.getDistanceWeight(),
+                dispatchProperties.getEvaluationWeight(),
+                dispatchProperties.getAcceptanceWeight(),
+                dispatchProperties.getDispatchDistance(),
+                dispatchProperties.getServeTaskNumOfServe(),
+                dispatchProperties.getServeTaskNumOrInstitution());
+        Map<Long, long[]> result = new HashMap<>(ordersDispatches.size());
+        for (OrdersDispatch ordersDispatch : ordersDispatches) {
+            long epochHour = ServeTimeUtils.getServeEpochHour(ordersDispatch.getServeStartTime());
+            long[] matched = serveProviderSkillIndexService.match(ordersDispatch.getCityCode(), ordersDispatch.getServeItemId());
+            long[] eligibleIds = Arrays.stream(matched)
+                    .filter(candidates::contains)
+                    .filter(id -> institutionIds.contains(id)
+                            || !serveProviderCalendarService.get(id, ordersDispatch.getCityCode()).isBooked(epochHour))
+                    .toArray();
+            result.put(ordersDispatch.getId(), candidates.topK(ordersDispatch.getLon(), ordersDispatch.getLat(),
+                    candidates.mask(eligibleIds), weights, dispatchProperties.getDispatchTopK()));
+        }
+        return result;
+    }
+
+    private static void run(String name, StringRedisTemplate redisTemplate, AtomicLong roundTrips, int decisions,
+                            List<ServeProviderInfo> serveProviderInfos, Function<List<ServeProviderInfo>, Map<Long, long[]>> rank) {
+        for (int i = 0; i < WARMUP; i++) {
+            rank.apply(serveProviderInfos);
+        }
+        long[] latencies = new long[decisions];
+        long commands = commandsProcessed(redisTemplate);
+        long trips = roundTrips.get();
+        long begin = System.nanoTime();
+        for (int i = 0; i < decisions; i++) {
+            long start = System.nanoTime();
+            rank.apply(serveProviderInfos);
+            latencies[i] = System.nanoTime() - start;
+        }
+        long nanos = System.nanoTime() - begin;
+        trips = roundTrips.get() - trips;
+        // 减去本次info命令
+        commands = commandsProcessed(redisTemplate) - commands - 1;
+        Arrays.sort(latencies);
+        System.out.printf("%s：每批往返%.1f次，redis命令%.1f条，平均%.3fms，p50:%.3fms p99:%.3fms，%.0f批/秒%n",
+                name, (double) trips / decisions, (double) commands / decisions, nanos / 1e6 / decisions,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), decisions * 1e9 / nanos);
+    }
+
+    private static long commandsProcessed(StringRedisTemplate redisTemplate) {
+        Properties info = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("stats"));
+        return Long.parseLong(info.getProperty("total_commands_processed"));
+    }
+
+    /**
+     * 部分服务人员写入接单数量，其余不存在，与线上字段缺失的情况一致；每4个服务人员有1个在派单服务时间已有服务
+     */
+    private static void prepare(StringRedisTemplate redisTemplate, List<ServeProviderInfo> serveProviderInfos, LocalDateTime serveStartTime) {
+        cleanup(redisTemplate, serveProviderInfos);
+        long epochHour = ServeTimeUtils.getServeEpochHour(serveStartTime);
+        Map<String, Map<String, String>> keyFields = new HashMap<>();
+        Map<byte[], byte[]> calendars = new HashMap<>();
+        for (ServeProviderInfo serveProviderInfo : serveProviderInfos) {
+            long id = serveProviderInfo.getId();
+            if (id % 3 != 0) {
+                keyFields.computeIfAbsent(String.format(SERVE_PROVIDER_STATE, RedisUtils.getCityIndex(serveProviderInfo.getCityCode())), key -> new HashMap<>())
+                        .put(id + "_num", String.valueOf(id % 5));
+            }
+            ServeCalendar calendar = new ServeCalendar(null);
+            if (id % 4 == 0) {
+                calendar.book(epochHour);
+            }
+            calendars.put(calendarKey(serveProviderInfo), calendar.toBytes());
+        }
+        keyFields.forEach((key, fields) -> redisTemplate.opsForHash().putAll(key, fields));
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            calendars.forEach((key, value) -> connection.stringCommands().set(key, value));
+            return null;
+        });
+    }
+
+    private static void cleanup(StringRedisTemplate redisTemplate, List<ServeProviderInfo> serveProviderInfos) {
+        Map<String, List<Object>> keyFields = new HashMap<>();
+        List<byte[]> calendarKeys = new ArrayList<>(serveProviderInfos.size());
+        serveProviderInfos.forEach(serveProviderInfo -> {
+            keyFields.computeIfAbsent(String.format(SERVE_PROVIDER_STATE, RedisUtils.getCityIndex(serveProviderInfo.getCityCode())), key -> new ArrayList<>())
+                    .add(serveProviderInfo.getId() + "_num");
+            calendarKeys.add(calendarKey(serveProviderInfo));
+        });
+        keyFields.forEach((key, fields) -> redisTemplate.opsForHash().delete(key, fields.toArray()));
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(calendarKeys.toArray(new byte[0][])));
+    }
+
+    private static byte[] calendarKey(ServeProviderInfo serveProviderInfo) {
+        return String.format(SERVE_PROVIDER_CALENDAR, serveProviderInfo.getId(), RedisUtils.getCityIndex(serveProviderInfo.getCityCode()))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+}
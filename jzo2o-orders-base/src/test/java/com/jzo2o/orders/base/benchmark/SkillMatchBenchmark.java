@@ -0,0 +1,121 @@
+package com.jzo2o.orders.base.benchmark;
+
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.utils.SkillBitmapIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 技能匹配基准测试：位图索引取交集 vs 逐个服务人员扫描技能列表
+ * <p>
+ * 20个城市、300个服务项，每个服务人员1~8个技能，每次查询一个城市中拥有某技能的服务人员
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SkillMatchBenchmark {
+
+    private static final int CITY_COUNT = 20;
+
+    private static final int SERVE_ITEM_COUNT = 300;
+
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"10000", "100000", "300000"})
+    private int providerCount;
+
+    private List<ServeProviderInfo> serveProviderInfos;
+
+    private SkillBitmapIndex index;
+
+    private String[] queryCities;
+
+    private long[] queryServeItemIds;
+
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        serveProviderInfos = new ArrayList<>(providerCount);
+        index = new SkillBitmapIndex();
+        for (long id = 1; id <= providerCount; id++) {
+            String cityCode = city(random.nextInt(CITY_COUNT));
+            int skillCount = 1 + random.nextInt(8);
+            List<Long> serveItemIds = new ArrayList<>(skillCount);
+            long[] skills = new long[skillCount];
+            for (int i = 0; i < skillCount; i++) {
+                skills[i] = random.nextInt(SERVE_ITEM_COUNT);
+                serveItemIds.add(skills[i]);
+            }
+            ServeProviderInfo info = new ServeProviderInfo();
+            info.setId(id);
+            info.setCityCode(cityCode);
+            info.setServeItemIds(serveItemIds);
+            serveProviderInfos.add(info);
+            index.put(id, cityCode, skills);
+        }
+        queryCities = new String[QUERY_COUNT];
+        queryServeItemIds = new long[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryCities[i] = city(random.nextInt(CITY_COUNT));
+            queryServeItemIds[i] = random.nextInt(SERVE_ITEM_COUNT);
+        }
+        System.out.printf("%n服务人员数量:%d，位图占用:%d字节%n", providerCount, index.sizeInBytes());
+    }
+
+    private static String city(int n) {
+        return String.format("%03d", n + 10);
+    }
+
+    @Benchmark
+    public long[] bitmap() {
+        int i = query++ & (QUERY_COUNT - 1);
+        return index.match(queryCities[i], queryServeItemIds[i]);
+    }
+
+    @Benchmark
+    public long[] listScan() {
+        int i = query++ & (QUERY_COUNT - 1);
+        String cityCode = queryCities[i];
+        Long serveItemId = queryServeItemIds[i];
+        long[] result = new long[16];
+        int size = 0;
+        for (ServeProviderInfo info : serveProviderInfos) {
+            if (cityCode.equals(info.getCityCode()) && info.getServeItemIds().contains(serveItemId)) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size << 1);
+                }
+                result[size++] = info.getId();
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SkillMatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,153 @@
+package com.jzo2o.orders.base.utils;
+
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.model.Location;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchCandidatesTest {
+
+    private static final double LON = 116.40;
+
+    private static final double LAT = 39.90;
+
+    /**
+     * 只按距离打分
+     */
+    private static final DispatchCandidates.Weights BY_DISTANCE = new DispatchCandidates.Weights(1, 0, 0, 20, 10, 20);
+
+    /**
+     * 只按评分打分
+     */
+    private static final DispatchCandidates.Weights BY_EVALUATION = new DispatchCandidates.Weights(0, 1, 0, 20, 10, 20);
+
+    /**
+     * 在订单正北方向distanceKm千米处的服务人员
+     */
+    private static ServeProviderInfo provider(long id, double distanceKm, Double evaluationScore, Integer acceptanceNum) {
+        ServeProviderInfo info = new ServeProviderInfo();
+        info.setId(id);
+        info.setServeProviderType(UserType.WORKER);
+        Location location = new Location();
+        location.setLongitude(LON);
+        location.setLatitude(LAT + distanceKm / 111.195);
+        info.setLocation(location);
+        info.setPickUp(1);
+        info.setStatus(0);
+        info.setEvaluationScore(evaluationScore);
+        info.setAcceptanceNum(acceptanceNum);
+        return info;
+    }
+
+    private static ServeProviderInfo institution(long id, double distanceKm, Integer acceptanceNum) {
+        ServeProviderInfo info = provider(id, distanceKm, 80D, acceptanceNum);
+        info.setServeProviderType(UserType.INSTITUTION);
+        return info;
+    }
+
+    @Test
+    void unavailableProvidersAreSkipped() {
+        ServeProviderInfo pickUpOff = provider(2L, 1, 80D, 0);
+        pickUpOff.setPickUp(0);
+        ServeProviderInfo frozen = provider(3L, 1, 80D, 0);
+        frozen.setStatus(1);
+        ServeProviderInfo noLocation = provider(4L, 1, 80D, 0);
+        noLocation.setLocation(null);
+
+        DispatchCandidates candidates = DispatchCandidates.of(Arrays.asList(
+                provider(1L, 1, 80D, 0), pickUpOff, frozen, noLocation, provider(1L, 2, 80D, 0)));
+
+        assertEquals(1, candidates.size());
+        assertTrue(candidates.contains(1L));
+        assertFalse(candidates.contains(2L));
+        assertArrayEquals(new long[]{1L}, candidates.topK(LON, LAT, null, BY_DISTANCE, 10));
+    }
+
+    @Test
+    void topKOrderedByDistance() {
+        DispatchCandidates candidates = DispatchCandidates.of(Arrays.asList(
+                provider(5L, 15, 80D, 0),
+                provider(1L, 1, 80D, 0),
+                provider(4L, 30, 80D, 0),
+                provider(3L, 5, 80D, 0),
+                provider(2L, 3, 80D, 0)));
+
+        // 30千米超过最大派单距离
+        assertArrayEquals(new long[]{1L, 2L, 3L, 5L}, candidates.topK(LON, LAT, null, BY_DISTANCE, 10));
+    }
+
+    @Test
+    void topKOrderedByEvaluation() {
+        DispatchCandidates candidates = DispatchCandidates.of(Arrays.asList(
+                provider(1L, 1, 80D, 0),
+                provider(2L, 1, 95D, 0),
+                provider(3L, 1, null, 0),
+                provider(4L, 1, 60D, 0)));
+
+        // 没有评分按50分
+        assertArrayEquals(new long[]{2L, 1L, 4L, 3L}, candidates.topK(LON, LAT, null, BY_EVALUATION, 10));
+    }
+
+    @Test
+    void kLimitsResult() {
+        DispatchCandidates candidates = DispatchCandidates.of(Arrays.asList(
+                provider(3L, 3, 80D, 0),
+                provider(1L, 1, 80D, 0),
+                provider(5L, 5, 80D, 0),
+                provider(2L, 2, 80D, 0),
+                provider(4L, 4, 80D, 0)));
+
+        assertArrayEquals(new long[]{1L, 2L}, candidates.topK(LON, LAT, null, BY_DISTANCE, 2));
+        assertArrayEquals(new long[]{1L}, candidates.topK(LON, LAT, null, BY_DISTANCE, 1));
+        assertEquals(0, candidates.topK(LON, LAT, null, BY_DISTANCE, 0).length);
+        assertEquals(0, DispatchCandidates.of(Collections.emptyList()).topK(LON, LAT, null, BY_DISTANCE, 2).length);
+    }
+
+    @Test
+    void maskFilters() {
+        DispatchCandidates candidates = DispatchCandidates.of(Arrays.asList(
+                provider(1L, 1, 80D, 0),
+                provider(2L, 2, 80D, 0),
+                provider(3L, 3, 80D, 0)));
+
+        assertNull(candidates.mask(null));
+        boolean[] mask = candidates.mask(new long[]{3L, 1L, 99L});
+        assertArrayEquals(new long[]{1L, 3L}, candidates.topK(LON, LAT, mask, BY_DISTANCE, 10));
+        assertEquals(0, candidates.topK(LON, LAT, candidates.mask(new long[0]), BY_DISTANCE, 10).length);
+    }
+
+    @Test
+    void acceptanceLimitExcludes() {
+        List<ServeProviderInfo> infos = Arrays.asList(
+                provider(1L, 1, 80D, 10),
+                provider(2L, 2, 80D, 9),
+                institution(3L, 3, 10),
+                institution(4L, 4, 20));
+
+        // 服务人员上限10，机构上限20
+        DispatchCandidates candidates = DispatchCandidates.of(infos);
+        assertArrayEquals(new long[]{2L, 3L}, candidates.topK(LON, LAT, null, BY_DISTANCE, 10));
+
+        // 实时接单数量优先
+        DispatchCandidates realtime = DispatchCandidates.of(infos, Collections.singletonMap(2L, 10));
+        assertArrayEquals(new long[]{3L}, realtime.topK(LON, LAT, null, BY_DISTANCE, 10));
+    }
+
+    @Test
+    void fewerAcceptancesScoreHigher() {
+        DispatchCandidates.Weights byAcceptance = new DispatchCandidates.Weights(0, 0, 1, 20, 10, 20);
+        DispatchCandidates candidates = DispatchCandidates.of(Arrays.asList(
+                provider(1L, 1, 80D, 5),
+                provider(2L, 1, 80D, 1),
+                institution(3L, 1, 4)));
+
+        // 得分按各自上限计算：2为0.9，3为0.8，1为0.5
+        assertArrayEquals(new long[]{2L, 3L, 1L}, candidates.topK(LON, LAT, null, byAcceptance, 10));
+    }
+}
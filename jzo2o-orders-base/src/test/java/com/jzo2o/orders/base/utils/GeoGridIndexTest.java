@@ -0,0 +1,83 @@
+package com.jzo2o.orders.base.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoGridIndexTest {
+
+    private static final double LON = 116.40;
+
+    private static final double LAT = 39.90;
+
+    /**
+     * 在查询点正北方向放置数据，纬度每0.01度约1.11千米
+     */
+    private GeoGridIndex<String> index(double cellDegrees, double maxRadiusKm) {
+        GeoGridIndex<String> index = new GeoGridIndex<>(cellDegrees, maxRadiusKm);
+        index.put(1L, LON, LAT + 0.01, 1L, "1km");
+        index.put(2L, LON, LAT + 0.05, 2L, "5km");
+        index.put(3L, LON, LAT + 0.02, 1L, "2km");
+        index.put(4L, LON, LAT + 0.09, 1L, "10km");
+        return index;
+    }
+
+    @Test
+    void nearestOrderedByDistance() {
+        GeoGridIndex<String> index = index(0.05, 50);
+
+        assertEquals(Arrays.asList("1km", "2km", "5km", "10km"), index.nearest(LON, LAT, 20, tag -> true, 10));
+        assertEquals(Arrays.asList("1km", "2km"), index.nearest(LON, LAT, 20, tag -> true, 2));
+        assertEquals(Arrays.asList("1km", "2km", "5km"), index.nearest(LON, LAT, 8, tag -> true, 10));
+    }
+
+    @Test
+    void tagFilter() {
+        GeoGridIndex<String> index = index(0.05, 50);
+
+        assertEquals(Collections.singletonList("5km"), index.nearest(LON, LAT, 20, tag -> tag == 2L, 10));
+        assertTrue(index.nearest(LON, LAT, 20, tag -> false, 10).isEmpty());
+    }
+
+    @Test
+    void putMovesAndRemoveDeletes() {
+        GeoGridIndex<String> index = index(0.05, 50);
+        assertEquals(4, index.size());
+
+        // 跨网格移动到最远
+        index.put(1L, LON, LAT + 0.15, 1L, "17km");
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList("2km", "5km", "10km", "17km"), index.nearest(LON, LAT, 20, tag -> true, 10));
+
+        index.remove(3L);
+        index.remove(99L);
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList("5km", "10km", "17km"), index.nearest(LON, LAT, 20, tag -> true, 10));
+    }
+
+    @Test
+    void radiusIsClampedToMax() {
+        GeoGridIndex<String> index = index(0.05, 5);
+
+        assertEquals(Arrays.asList("1km", "2km"), index.nearest(LON, LAT, 100, tag -> true, 10));
+    }
+
+    @Test
+    void nonPositiveRadiusOrKReturnsEmpty() {
+        GeoGridIndex<String> index = index(0.05, 50);
+
+        assertTrue(index.nearest(LON, LAT, 0, tag -> true, 10).isEmpty());
+        assertTrue(index.nearest(LON, LAT, -1, tag -> true, 10).isEmpty());
+        assertTrue(index.nearest(LON, LAT, Double.NaN, tag -> true, 10).isEmpty());
+        assertTrue(index.nearest(LON, LAT, 20, tag -> true, 0).isEmpty());
+    }
+
+    @Test
+    void distanceKm() {
+        assertEquals(1.112, GeoGridIndex.distanceKm(LON, LAT, LON, LAT + 0.01), 0.001);
+        assertEquals(0, GeoGridIndex.distanceKm(LON, LAT, LON, LAT), 1e-9);
+    }
+}
@@ -0,0 +1,140 @@
+package com.jzo2o.orders.base.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final BlockingQueue<List<Long>> batches = new LinkedBlockingQueue<>();
+
+    private HashedTimingWheel start(int wheelSize) {
+        HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", TICK_MILLIS, wheelSize, batches::add);
+        wheel.start();
+        return wheel;
+    }
+
+    /**
+     * 收集到期id，直到超时
+     */
+    private List<Long> drain(long millis) throws InterruptedException {
+        List<Long> expired = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + millis;
+        long wait;
+        while ((wait = deadline - System.currentTimeMillis()) > 0) {
+            List<Long> batch = batches.poll(wait, TimeUnit.MILLISECONDS);
+            if (batch != null) {
+                expired.addAll(batch);
+            }
+        }
+        return expired;
+    }
+
+    @Test
+    void sameTickExpiresInOneBatch() throws InterruptedException {
+        HashedTimingWheel wheel = start(64);
+        try {
+            long deadline = System.currentTimeMillis() + 50;
+            wheel.add(1L, deadline);
+            wheel.add(2L, deadline);
+            wheel.add(3L, deadline);
+            assertEquals(3, wheel.size());
+
+            List<Long> batch = batches.poll(1, TimeUnit.SECONDS);
+            assertEquals(Arrays.asList(1L, 2L, 3L), batch);
+            assertEquals(0, wheel.size());
+            assertTrue(drain(100).isEmpty());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void notExpiredBeforeDeadline() throws InterruptedException {
+        HashedTimingWheel wheel = start(64);
+        try {
+            long start = System.currentTimeMillis();
+            wheel.add(1L, start + 200);
+
+            assertTrue(drain(100).isEmpty());
+            List<Long> batch = batches.poll(1, TimeUnit.SECONDS);
+            assertEquals(Arrays.asList(1L), batch);
+            assertTrue(System.currentTimeMillis() - start >= 200 - TICK_MILLIS);
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void deadlineBeyondOneRound() throws InterruptedException {
+        // 8个槽位一圈80毫秒，到期时间跨多圈
+        HashedTimingWheel wheel = start(8);
+        try {
+            long start = System.currentTimeMillis();
+            wheel.add(1L, start + 300);
+
+            assertTrue(drain(200).isEmpty());
+            assertEquals(1, wheel.size());
+            assertEquals(Arrays.asList(1L), batches.poll(1, TimeUnit.SECONDS));
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void expiredDeadlineFiresOnNextTick() throws InterruptedException {
+        HashedTimingWheel wheel = start(64);
+        try {
+            wheel.add(1L, System.currentTimeMillis() - 10_000);
+            assertEquals(Arrays.asList(1L), batches.poll(1, TimeUnit.SECONDS));
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void lastAddWins() throws InterruptedException {
+        HashedTimingWheel wheel = start(64);
+        try {
+            long now = System.currentTimeMillis();
+            // 提前
+            wheel.add(1L, now + 10_000);
+            wheel.add(1L, now + 30);
+            // 推迟
+            wheel.add(2L, now + 30);
+            wheel.add(2L, now + 10_000);
+            assertEquals(2, wheel.size());
+
+            assertEquals(Arrays.asList(1L), drain(300));
+            assertEquals(1, wheel.size());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void removedIsNotExpired() throws InterruptedException {
+        HashedTimingWheel wheel = start(64);
+        try {
+            wheel.add(1L, System.currentTimeMillis() + 30);
+            wheel.add(2L, System.currentTimeMillis() + 30);
+            wheel.remove(1L);
+            wheel.remove(3L);
+            assertEquals(1, wheel.size());
+
+            assertEquals(Arrays.asList(2L), drain(300));
+            assertEquals(0, wheel.size());
+        } finally {
+            wheel.stop();
+        }
+    }
+}
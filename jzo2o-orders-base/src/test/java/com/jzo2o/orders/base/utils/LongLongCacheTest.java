@@ -0,0 +1,86 @@
+package com.jzo2o.orders.base.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongCacheTest {
+
+    @Test
+    void putGetRemove() {
+        LongLongCache cache = new LongLongCache(1024);
+        assertEquals(LongLongCache.MISSING, cache.get(1L));
+
+        cache.put(1L, 100L);
+        cache.put(2L, 200L);
+        assertEquals(100L, cache.get(1L));
+        assertEquals(200L, cache.get(2L));
+
+        cache.put(1L, 101L);
+        assertEquals(101L, cache.get(1L));
+
+        cache.remove(1L);
+        assertEquals(LongLongCache.MISSING, cache.get(1L));
+        assertEquals(200L, cache.get(2L));
+    }
+
+    @Test
+    void zeroKeyIsIgnored() {
+        LongLongCache cache = new LongLongCache(1024);
+        cache.put(0L, 5L);
+        assertEquals(LongLongCache.MISSING, cache.get(0L));
+        assertFalse(cache.fill(0L, 5L, cache.version(0L)));
+    }
+
+    @Test
+    void fullGroupOverwritesOldest() {
+        // 容量8只有一组
+        LongLongCache cache = new LongLongCache(8);
+        for (long key = 1; key <= 9; key++) {
+            cache.put(key, key * 10);
+        }
+        assertEquals(LongLongCache.MISSING, cache.get(1L));
+        for (long key = 2; key <= 9; key++) {
+            assertEquals(key * 10, cache.get(key));
+        }
+    }
+
+    @Test
+    void fillWhenVersionUnchanged() {
+        LongLongCache cache = new LongLongCache(1024);
+        long version = cache.version(1L);
+
+        assertTrue(cache.fill(1L, 100L, version));
+        assertEquals(100L, cache.get(1L));
+    }
+
+    @Test
+    void fillFailsAfterPut() {
+        LongLongCache cache = new LongLongCache(1024);
+        long version = cache.version(1L);
+        cache.put(1L, 101L);
+
+        assertFalse(cache.fill(1L, 100L, version));
+        assertEquals(101L, cache.get(1L));
+    }
+
+    @Test
+    void fillFailsAfterRemove() {
+        LongLongCache cache = new LongLongCache(1024);
+        long version = cache.version(1L);
+        cache.remove(1L);
+
+        assertFalse(cache.fill(1L, 100L, version));
+        assertEquals(LongLongCache.MISSING, cache.get(1L));
+    }
+
+    @Test
+    void fillFailsWhenPresent() {
+        LongLongCache cache = new LongLongCache(1024);
+        cache.put(1L, 101L);
+        long version = cache.version(1L);
+
+        assertFalse(cache.fill(1L, 100L, version));
+        assertEquals(101L, cache.get(1L));
+    }
+}
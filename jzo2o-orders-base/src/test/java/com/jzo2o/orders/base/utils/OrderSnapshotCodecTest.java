@@ -0,0 +1,117 @@
+package com.jzo2o.orders.base.utils;
+
+import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderSnapshotCodecTest {
+
+    private OrderSnapshotDTO fullSnapshot() {
+        return OrderSnapshotDTO.builder()
+                .id(2309180000000000001L)
+                .userId(1694250327664218113L)
+                .serveItemId(1685850705647968257L)
+                .serveItemName("日常维修")
+                .unit(1)
+                .ordersStatus(100)
+                .payStatus(4)
+                .refundStatus(0)
+                .price(new BigDecimal("12.34"))
+                .purNum(2)
+                .totalAmount(new BigDecimal("24.68"))
+                .realPayAmount(new BigDecimal("20.00"))
+                .discountAmount(new BigDecimal("-4.68"))
+                .cityCode("010")
+                .serveAddress("北京市昌平区")
+                .serveStartTime(LocalDateTime.of(2023, 9, 18, 14, 0))
+                .lon("116.3")
+                .lat("40.1")
+                .payTime(LocalDateTime.of(2023, 9, 17, 10, 20, 30))
+                .createTime(LocalDateTime.of(2023, 9, 17, 10, 19, 59))
+                .tradingChannel("WECHAT_PAY")
+                .cancelReason("")
+                .build();
+    }
+
+    @Test
+    void encodeThenDecode() {
+        OrderSnapshotDTO snapshot = fullSnapshot();
+
+        OrderSnapshotDTO decoded = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(OrderSnapshotCodec.encode(snapshot), decoded);
+
+        assertEquals(snapshot, decoded);
+    }
+
+    @Test
+    void encodeSkipsNullFields() {
+        byte[] empty = OrderSnapshotCodec.encode(new OrderSnapshotDTO());
+        assertEquals(1, empty.length);
+
+        OrderSnapshotDTO decoded = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(empty, decoded);
+        assertEquals(new OrderSnapshotDTO(), decoded);
+    }
+
+    @Test
+    void moneyIsRoundedToCents() {
+        OrderSnapshotDTO snapshot = OrderSnapshotDTO.builder().price(new BigDecimal("12.345")).build();
+
+        OrderSnapshotDTO decoded = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(OrderSnapshotCodec.encode(snapshot), decoded);
+
+        assertEquals(new BigDecimal("12.35"), decoded.getPrice());
+    }
+
+    @Test
+    void deltaOverwritesBase() {
+        OrderSnapshotDTO base = fullSnapshot();
+        OrderSnapshotDTO delta = OrderSnapshotDTO.builder()
+                .ordersStatus(600)
+                .cancelReason("用户取消")
+                .cancelTime(LocalDateTime.of(2023, 9, 17, 11, 0))
+                .build();
+
+        OrderSnapshotDTO decoded = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(OrderSnapshotCodec.encode(base), decoded);
+        OrderSnapshotCodec.decodeInto(OrderSnapshotCodec.encode(delta), decoded);
+
+        assertEquals(600, decoded.getOrdersStatus());
+        assertEquals("用户取消", decoded.getCancelReason());
+        assertEquals(LocalDateTime.of(2023, 9, 17, 11, 0), decoded.getCancelTime());
+        assertEquals(base.getServeAddress(), decoded.getServeAddress());
+        assertEquals(base.getRealPayAmount(), decoded.getRealPayAmount());
+    }
+
+    @Test
+    void unknownFieldsAreSkipped() {
+        OrderSnapshotDTO snapshot = fullSnapshot();
+        byte[] data = OrderSnapshotCodec.encode(snapshot);
+        // 字段99：varint值1；字段100：字符串"x"
+        byte[] unknown = {(byte) 0x98, 0x06, 0x02, (byte) 0xA2, 0x06, 0x01, 'x'};
+        byte[] extended = Arrays.copyOf(data, data.length + unknown.length);
+        System.arraycopy(unknown, 0, extended, data.length, unknown.length);
+
+        OrderSnapshotDTO decoded = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(extended, decoded);
+
+        assertEquals(snapshot, decoded);
+    }
+
+    @Test
+    void unknownVersionIsIgnored() {
+        byte[] data = OrderSnapshotCodec.encode(fullSnapshot());
+        data[0] = 2;
+
+        OrderSnapshotDTO decoded = new OrderSnapshotDTO();
+        OrderSnapshotCodec.decodeInto(data, decoded);
+        OrderSnapshotCodec.decodeInto(null, decoded);
+
+        assertEquals(new OrderSnapshotDTO(), decoded);
+    }
+}
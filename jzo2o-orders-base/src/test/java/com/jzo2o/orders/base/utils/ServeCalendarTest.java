@@ -0,0 +1,115 @@
+package com.jzo2o.orders.base.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServeCalendarTest {
+
+    private static final long EPOCH_HOUR = ServeTimeUtils.getServeEpochHour(LocalDateTime.of(2023, 9, 18, 14, 0));
+
+    private static final long DAY = EPOCH_HOUR / 24;
+
+    /**
+     * 按lua脚本的方式读取槽位：BITFIELD GET u40 (day % 64) * 40，高位在前
+     */
+    private static long luaGet(byte[] bytes, long day) {
+        int offset = (int) (day % 64) * 40 / 8;
+        long value = 0;
+        for (int i = 0; i < 5; i++) {
+            value = value * 256 + (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 按lua脚本的方式写入槽位：BITFIELD SET u40 (day % 64) * 40 (day % 65536) * 16777216 + hours
+     */
+    private static void luaSet(byte[] bytes, long day, long hours) {
+        int offset = (int) (day % 64) * 40 / 8;
+        long value = (day % 65536) * 16777216 + hours;
+        for (int i = 4; i >= 0; i--) {
+            bytes[offset + i] = (byte) (value % 256);
+            value /= 256;
+        }
+    }
+
+    @Test
+    void bookAndRelease() {
+        ServeCalendar calendar = new ServeCalendar(null);
+        assertFalse(calendar.isBooked(EPOCH_HOUR));
+
+        assertTrue(calendar.book(EPOCH_HOUR));
+        assertTrue(calendar.isBooked(EPOCH_HOUR));
+        assertFalse(calendar.book(EPOCH_HOUR));
+        assertFalse(calendar.isBooked(EPOCH_HOUR + 1));
+        assertEquals(1L << 14, calendar.hours(DAY));
+
+        assertTrue(calendar.book(EPOCH_HOUR + 1));
+        assertEquals(3L << 14, calendar.hours(DAY));
+
+        calendar.release(EPOCH_HOUR);
+        assertFalse(calendar.isBooked(EPOCH_HOUR));
+        assertTrue(calendar.isBooked(EPOCH_HOUR + 1));
+    }
+
+    @Test
+    void staleDayInSameSlotIsFree() {
+        ServeCalendar calendar = new ServeCalendar(null);
+        calendar.book(EPOCH_HOUR);
+
+        // 64天后使用同一槽位
+        long later = EPOCH_HOUR + ServeCalendar.WINDOW_DAYS * 24;
+        assertFalse(calendar.isBooked(later));
+        assertEquals(0, calendar.hours(DAY + ServeCalendar.WINDOW_DAYS));
+
+        assertTrue(calendar.book(later + 1));
+        assertFalse(calendar.isBooked(EPOCH_HOUR));
+        assertEquals(0, calendar.hours(DAY));
+        assertEquals(1L << 15, calendar.hours(DAY + ServeCalendar.WINDOW_DAYS));
+    }
+
+    @Test
+    void layoutMatchesLua() {
+        ServeCalendar calendar = new ServeCalendar(null);
+        calendar.book(EPOCH_HOUR);
+        calendar.book(EPOCH_HOUR + 3);
+
+        byte[] bytes = calendar.toBytes();
+        assertEquals(ServeCalendar.SIZE_IN_BYTES, bytes.length);
+        assertEquals((DAY % 65536) * 16777216 + (1L << 14) + (1L << 17), luaGet(bytes, DAY));
+
+        // lua写入后java读取
+        byte[] written = new byte[ServeCalendar.SIZE_IN_BYTES];
+        luaSet(written, DAY + 1, (1L << 23) + 1);
+        ServeCalendar restored = new ServeCalendar(written);
+        assertEquals((1L << 23) + 1, restored.hours(DAY + 1));
+        assertTrue(restored.isBooked((DAY + 1) * 24));
+        assertTrue(restored.isBooked((DAY + 1) * 24 + 23));
+        assertFalse(restored.isBooked((DAY + 1) * 24 + 1));
+    }
+
+    @Test
+    void shortOrNullBytesAreFree() {
+        assertEquals(0, new ServeCalendar(null).hours(DAY));
+        assertEquals(0, new ServeCalendar(new byte[3]).hours(DAY));
+
+        ServeCalendar calendar = new ServeCalendar(new byte[3]);
+        assertTrue(calendar.book(EPOCH_HOUR));
+        assertEquals(ServeCalendar.SIZE_IN_BYTES, calendar.toBytes().length);
+    }
+
+    @Test
+    void toBytesIsCopy() {
+        ServeCalendar calendar = new ServeCalendar(null);
+        calendar.book(EPOCH_HOUR);
+
+        byte[] bytes = calendar.toBytes();
+        Arrays.fill(bytes, (byte) 0);
+        assertTrue(calendar.isBooked(EPOCH_HOUR));
+        assertTrue(new ServeCalendar(calendar.toBytes()).isBooked(EPOCH_HOUR));
+    }
+}
@@ -0,0 +1,94 @@
+package com.jzo2o.orders.base.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkillBitmapIndexTest {
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void matchByCityAndSkill() {
+        SkillBitmapIndex index = new SkillBitmapIndex();
+        index.put(1L, "010", new long[]{100L, 200L});
+        index.put(2L, "010", new long[]{200L});
+        index.put(3L, "021", new long[]{100L, 200L});
+
+        assertArrayEquals(new long[]{1L}, index.match("010", 100L));
+        assertArrayEquals(new long[]{1L, 2L}, sorted(index.match("010", 200L)));
+        assertArrayEquals(new long[]{3L}, index.match("021", 100L));
+        assertEquals(0, index.match("010", 300L).length);
+        assertEquals(0, index.match("0755", 100L).length);
+
+        assertTrue(index.hasSkill(2L, 200L));
+        assertFalse(index.hasSkill(2L, 100L));
+        assertFalse(index.hasSkill(9L, 100L));
+    }
+
+    @Test
+    void putUpdatesSkillsAndCity() {
+        SkillBitmapIndex index = new SkillBitmapIndex();
+        index.put(1L, "010", new long[]{100L, 200L});
+
+        index.put(1L, "021", new long[]{200L, 300L, 300L});
+
+        assertEquals(0, index.match("010", 200L).length);
+        assertEquals(0, index.match("021", 100L).length);
+        assertArrayEquals(new long[]{1L}, index.match("021", 200L));
+        assertArrayEquals(new long[]{1L}, index.match("021", 300L));
+        assertFalse(index.hasSkill(1L, 100L));
+    }
+
+    @Test
+    void nullCityIsNotMatched() {
+        SkillBitmapIndex index = new SkillBitmapIndex();
+        index.put(1L, "010", new long[]{100L});
+
+        index.put(1L, null, new long[]{100L});
+        assertEquals(0, index.match("010", 100L).length);
+        assertTrue(index.hasSkill(1L, 100L));
+
+        index.put(1L, "010", null);
+        assertEquals(0, index.match("010", 100L).length);
+        assertFalse(index.hasSkill(1L, 100L));
+    }
+
+    @Test
+    void remove() {
+        SkillBitmapIndex index = new SkillBitmapIndex();
+        index.put(1L, "010", new long[]{100L});
+        index.put(2L, "010", new long[]{100L});
+
+        index.remove(1L);
+        index.remove(9L);
+        assertArrayEquals(new long[]{2L}, index.match("010", 100L));
+        assertFalse(index.hasSkill(1L, 100L));
+
+        // 删除后重新加入
+        index.put(1L, "010", new long[]{100L});
+        assertArrayEquals(new long[]{1L, 2L}, sorted(index.match("010", 100L)));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        SkillBitmapIndex index = new SkillBitmapIndex();
+        for (long id = 1; id <= 5000; id++) {
+            index.put(id, id % 2 == 0 ? "010" : "021", new long[]{id % 10});
+        }
+
+        long[] matched = index.match("010", 4L);
+        assertEquals(500, matched.length);
+        for (long id : matched) {
+            assertEquals(4L, id % 10);
+        }
+        assertTrue(index.hasSkill(5000L, 0L));
+        assertTrue(index.sizeInBytes() > 0);
+    }
+}
@@ -20,4 +20,19 @@ import javax.annotation.Resource;
 @Api(tags = "机构端-服务单相关接口")
 @RequestMapping("/agency")
 public class AgencyOrdersServeController {
+
+    @Resource
+    private IOrdersServeManagerService ordersServeManagerService;
+
+    @PutMapping("/orders-dispatch/receive")
+    @ApiOperation("接单")
+    public void receive(@RequestBody @Validated OrdersDispatchReceiveReqDTO ordersDispatchReceiveReqDTO) {
+        ordersServeManagerService.receiveDispatch(ordersDispatchReceiveReqDTO, UserContext.currentUserId());
+    }
+
+    @PutMapping("/orders-dispatch/reject")
+    @ApiOperation("拒单")
+    public void reject(@RequestBody @Validated OrdersDispatchRejectReqDTO ordersDispatchRejectReqDTO) {
+        ordersServeManagerService.rejectDispatch(ordersDispatchRejectReqDTO, UserContext.currentUserId());
+    }
 }
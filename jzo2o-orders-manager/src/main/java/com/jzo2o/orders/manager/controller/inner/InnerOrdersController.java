@@ -1,9 +1,9 @@
 package com.jzo2o.orders.manager.controller.inner;
 
-import cn.hutool.core.bean.BeanUtil;
 import com.jzo2o.api.orders.OrdersApi;
 import com.jzo2o.api.orders.dto.response.OrderResDTO;
 import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.manager.model.converter.OrdersConverter;
 import com.jzo2o.orders.manager.service.IOrdersManagerService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
@@ -34,7 +34,7 @@ public class InnerOrdersController implements OrdersApi {
     })
     public OrderResDTO queryById(@PathVariable("id") Long id) {
         Orders orders = ordersManagerService.queryById(id);
-        return BeanUtil.toBean(orders, OrderResDTO.class);
+        return OrdersConverter.INSTANCE.toOrderResDTO(orders);
     }
 
     @Override
@@ -45,7 +45,7 @@ public class InnerOrdersController implements OrdersApi {
     })
     public List<OrderResDTO> queryByIds(@RequestParam("ids") List<Long> ids) {
         List<Orders> ordersList = ordersManagerService.batchQuery(ids);
-        return BeanUtil.copyToList(ordersList, OrderResDTO.class);
+        return OrdersConverter.INSTANCE.toOrderResDTOList(ordersList);
     }
 
     @Override
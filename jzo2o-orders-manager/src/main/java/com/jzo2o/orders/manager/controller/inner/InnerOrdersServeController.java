@@ -4,8 +4,8 @@ import com.jzo2o.api.orders.OrdersServeApi;
 //import com.jzo2o.api.orders.dto.response.InstitutionStaffServeCountResDTO;
 import com.jzo2o.api.orders.dto.response.InstitutionStaffServeCountResDTO;
 import com.jzo2o.api.orders.dto.response.ServeProviderIdResDTO;
-import com.jzo2o.orders.base.model.domain.OrdersServe;
 import com.jzo2o.orders.manager.service.IOrdersServeManagerService;
+import com.jzo2o.orders.manager.service.IServeProviderIdCacheService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
@@ -24,6 +24,9 @@ public class InnerOrdersServeController implements OrdersServeApi {
     @Resource
     private IOrdersServeManagerService ordersServeManagerService;
 
+    @Resource
+    private IServeProviderIdCacheService serveProviderIdCacheService;
+
     @Override
     @GetMapping("/queryServeProviderIdByOrderId/{id}")
     @ApiOperation("根据订单id查询服务人员/机构id")
@@ -31,8 +34,7 @@ public class InnerOrdersServeController implements OrdersServeApi {
             @ApiImplicitParam(name = "id", value = "订单id", required = true, dataTypeClass = Long.class),
     })
     public ServeProviderIdResDTO queryServeProviderIdByOrderId(@PathVariable("id") Long id) {
-        OrdersServe ordersServe = ordersServeManagerService.queryById(id);
-        return new ServeProviderIdResDTO(ordersServe.getServeProviderId());
+        return new ServeProviderIdResDTO(serveProviderIdCacheService.get(id));
     }
 
     @Override
@@ -1,11 +1,14 @@
 package com.jzo2o.orders.manager.controller.worker;
 
+import com.jzo2o.common.constants.UserType;
 import com.jzo2o.mvc.utils.UserContext;
 import com.jzo2o.orders.manager.model.dto.request.*;
+import com.jzo2o.orders.manager.model.dto.response.OrdersSeizeChangesResDTO;
 import com.jzo2o.orders.manager.model.dto.response.OrdersServeDetailResDTO;
 import com.jzo2o.orders.manager.model.dto.response.OrdersServeListResDTO;
 import com.jzo2o.orders.manager.model.dto.response.OrdersServeResDTO;
 import com.jzo2o.orders.manager.model.dto.response.OrdersServeStatusNumResDTO;
+import com.jzo2o.orders.manager.service.IOrdersSeizeFeedService;
 import com.jzo2o.orders.manager.service.IOrdersServeManagerService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
@@ -13,6 +16,7 @@ import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.annotation.Resource;
 import java.util.List;
@@ -22,4 +26,40 @@ import java.util.List;
 @RequestMapping("/worker")
 public class WorkerOrdersServeController {
 
+    @Resource
+    private IOrdersSeizeFeedService ordersSeizeFeedService;
+
+    @Resource
+    private IOrdersServeManagerService ordersServeManagerService;
+
+    @GetMapping("/orders-seize/changes")
+    @ApiOperation("抢单列表增量变更，无变更时长轮询等待")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "cityCode", value = "城市编码", required = true, dataTypeClass = String.class),
+            @ApiImplicitParam(name = "version", value = "上次返回的版本，为空时返回全量列表", dataTypeClass = String.class),
+            @ApiImplicitParam(name = "lon", value = "经度", required = true, dataTypeClass = Double.class),
+            @ApiImplicitParam(name = "lat", value = "纬度", required = true, dataTypeClass = Double.class),
+            @ApiImplicitParam(name = "distance", value = "接单距离，单位千米", required = true, dataTypeClass = Double.class),
+            @ApiImplicitParam(name = "serveItemIds", value = "技能（服务项id列表）", dataTypeClass = Long.class)
+    })
+    public DeferredResult<OrdersSeizeChangesResDTO> queryChanges(@RequestParam("cityCode") String cityCode,
+                                                                 @RequestParam(value = "version", required = false) String version,
+                                                                 @RequestParam("lon") Double lon,
+                                                                 @RequestParam("lat") Double lat,
+                                                                 @RequestParam("distance") Double distance,
+                                                                 @RequestParam(value = "serveItemIds", required = false) List<Long> serveItemIds) {
+        return ordersSeizeFeedService.poll(cityCode, version, lon, lat, distance, serveItemIds, UserType.WORKER);
+    }
+
+    @PutMapping("/orders-dispatch/receive")
+    @ApiOperation("接单")
+    public void receive(@RequestBody @Validated OrdersDispatchReceiveReqDTO ordersDispatchReceiveReqDTO) {
+        ordersServeManagerService.receiveDispatch(ordersDispatchReceiveReqDTO, UserContext.currentUserId());
+    }
+
+    @PutMapping("/orders-dispatch/reject")
+    @ApiOperation("拒单")
+    public void reject(@RequestBody @Validated OrdersDispatchRejectReqDTO ordersDispatchRejectReqDTO) {
+        ordersServeManagerService.rejectDispatch(ordersDispatchRejectReqDTO, UserContext.currentUserId());
+    }
 }
@@ -0,0 +1,51 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.manager.service.IOrdersPageCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Argument;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 订单表binlog监听，增量维护用户端滚动分页索引
+ * <p>
+ * 索引在redis中，只需一个消费者，使用single-active-consumer保证变更顺序
+ * </p>
+ */
+@Slf4j
+@Component
+public class OrdersPageCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<Orders> {
+
+    @Resource
+    private IOrdersPageCacheService ordersPageCacheService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(name = "canal-mq-jzo2o-orders-page", arguments = {@Argument(name = "x-single-active-consumer", value = "true", type = "java.lang.Boolean")}),
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<Orders> data) {
+        ordersPageCacheService.refresh(data);
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        // 订单不做物理删除，隐藏订单通过display字段变更，在batchSave中处理
+    }
+}
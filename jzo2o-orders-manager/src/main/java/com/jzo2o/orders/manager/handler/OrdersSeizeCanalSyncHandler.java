@@ -0,0 +1,51 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.manager.service.IOrdersSeizeListService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 抢单池binlog监听，增量维护抢单列表本地索引
+ * <p>
+ * 使用匿名队列（排他、自动删除），每个节点都会收到全部变更，用于更新各自的本地索引；
+ * 等待抢单列表变更的请求由变更流写入后的通知唤醒（见OrdersSeizeFeedServiceImpl），保证唤醒时变更已可读
+ * </p>
+ */
+@Slf4j
+@Component
+public class OrdersSeizeCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<OrdersSeize> {
+
+    @Resource
+    private IOrdersSeizeListService ordersSeizeListService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders-seize"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<OrdersSeize> data) {
+        ordersSeizeListService.refresh(data);
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        ordersSeizeListService.remove(ids);
+    }
+}
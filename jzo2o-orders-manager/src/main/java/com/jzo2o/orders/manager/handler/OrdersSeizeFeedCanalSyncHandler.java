@@ -0,0 +1,51 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.manager.service.IOrdersSeizeFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Argument;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 抢单池binlog监听，写入抢单列表变更流
+ * <p>
+ * 变更流在redis中，只需一个消费者，使用single-active-consumer保证变更顺序
+ * </p>
+ */
+@Slf4j
+@Component
+public class OrdersSeizeFeedCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<OrdersSeize> {
+
+    @Resource
+    private IOrdersSeizeFeedService ordersSeizeFeedService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(name = "canal-mq-jzo2o-orders-seize-feed", arguments = {@Argument(name = "x-single-active-consumer", value = "true", type = "java.lang.Boolean")}),
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders-seize"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<OrdersSeize> data) {
+        ordersSeizeFeedService.appendSaved(data);
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        ordersSeizeFeedService.appendDeleted(ids);
+    }
+}
@@ -0,0 +1,67 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.manager.service.IStaffServeCountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Argument;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务单表binlog监听，增量维护机构服务人员服务单数量
+ * <p>
+ * 数量在redis中，只需一个消费者，使用single-active-consumer保证变更顺序
+ * </p>
+ */
+@Slf4j
+@Component
+public class OrdersServeCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<OrdersServe> {
+
+    @Resource
+    private IStaffServeCountService staffServeCountService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(name = "canal-mq-jzo2o-orders-serve-staff", arguments = {@Argument(name = "x-single-active-consumer", value = "true", type = "java.lang.Boolean")}),
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders-serve"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<OrdersServe> data) {
+        if (CollUtils.isEmpty(data)) {
+            return;
+        }
+        Map<Long, Long> serveStaffs = new LinkedHashMap<>();
+        // 与按机构服务人员统计服务单数量的条件一致，服务人员/机构id不大于0的不计数
+        data.forEach(ordersServe -> serveStaffs.put(ordersServe.getId(),
+                ObjectUtils.isNotNull(ordersServe.getServeProviderId()) && ordersServe.getServeProviderId() > 0 ? ordersServe.getInstitutionStaffId() : null));
+        staffServeCountService.update(serveStaffs);
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        Map<Long, Long> serveStaffs = new LinkedHashMap<>();
+        ids.forEach(id -> serveStaffs.put(id, null));
+        staffServeCountService.update(serveStaffs);
+    }
+}
@@ -0,0 +1,34 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.orders.manager.service.IStaffServeCountService;
+import com.xxl.job.core.context.XxlJobHelper;
+import com.xxl.job.core.handler.annotation.XxlJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 服务单相关定时任务
+ *
+ * @author itcast
+ */
+@Slf4j
+@Component
+public class OrdersServeJobHandler {
+
+    @Resource
+    private IStaffServeCountService staffServeCountService;
+
+    /**
+     * 机构服务人员服务单数量对账，首次执行完成全量构建
+     */
+    @XxlJob("reconcileStaffServeCount")
+    public void reconcileStaffServeCount() {
+        long drift = staffServeCountService.reconcile();
+        if (drift > 0) {
+            log.warn("机构服务人员服务单数量对账完成，校正服务单数量：{}", drift);
+        }
+        XxlJobHelper.log("机构服务人员服务单数量对账完成，校正服务单数量：{}", drift);
+    }
+}
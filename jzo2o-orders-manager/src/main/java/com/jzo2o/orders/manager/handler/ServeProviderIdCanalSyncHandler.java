@@ -0,0 +1,59 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.orders.base.enums.ServeStatusEnum;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.manager.service.IServeProviderIdCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 服务单表binlog监听，更新服务单服务人员/机构id本地缓存
+ * <p>
+ * 使用匿名队列（排他、自动删除），每个节点都会收到全部变更，用于更新各自的本地缓存
+ * </p>
+ */
+@Slf4j
+@Component
+public class ServeProviderIdCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<OrdersServe> {
+
+    @Resource
+    private IServeProviderIdCacheService serveProviderIdCacheService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders-serve"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<OrdersServe> data) {
+        for (OrdersServe ordersServe : data) {
+            if (ServeStatusEnum.CANCLE.equals(ordersServe.getServeStatus())) {
+                // 服务人员或机构取消，失效后下次查询重新加载
+                serveProviderIdCacheService.evict(ordersServe.getId());
+            } else {
+                // 抢单、派单成功或重新分配
+                serveProviderIdCacheService.put(ordersServe.getId(), ordersServe.getServeProviderId());
+            }
+        }
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        ids.forEach(serveProviderIdCacheService::evict);
+    }
+}
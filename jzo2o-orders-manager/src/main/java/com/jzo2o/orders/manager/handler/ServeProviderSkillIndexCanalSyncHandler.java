@@ -0,0 +1,50 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.orders.manager.model.dto.ServeProviderSyncDTO;
+import com.jzo2o.orders.manager.service.IServeProviderSkillIndexSyncService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 服务人员/机构同步表binlog监听，增量更新派单使用的技能索引
+ * <p>
+ * 使用匿名队列（排他、自动删除），每个节点都会收到全部变更，用于更新各自的本地索引
+ * </p>
+ */
+@Slf4j
+@Component
+public class ServeProviderSkillIndexCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<ServeProviderSyncDTO> {
+
+    @Resource
+    private IServeProviderSkillIndexSyncService serveProviderSkillIndexSyncService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-customer-provider"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<ServeProviderSyncDTO> data) {
+        serveProviderSkillIndexSyncService.refresh(data);
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        serveProviderSkillIndexSyncService.remove(ids);
+    }
+}
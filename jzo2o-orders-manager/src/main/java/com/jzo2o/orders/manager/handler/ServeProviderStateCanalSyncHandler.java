@@ -0,0 +1,72 @@
+package com.jzo2o.orders.manager.handler;
+
+import com.jzo2o.canal.listeners.AbstractCanalRabbitMqMsgListener;
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.enums.ServeStatusEnum;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.base.service.IServeProviderCalendarService;
+import com.jzo2o.orders.base.service.IServeProviderStateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Argument;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 服务单表binlog监听，服务完成或取消后归还服务人员/机构的接单数量和服务时间
+ * <p>
+ * 接单数量、日历在redis中，只需一个消费者，使用single-active-consumer；归还脚本按服务单id去重，重复投递不会重复归还
+ * </p>
+ */
+@Slf4j
+@Component
+public class ServeProviderStateCanalSyncHandler extends AbstractCanalRabbitMqMsgListener<OrdersServe> {
+
+    @Resource
+    private IServeProviderStateService serveProviderStateService;
+
+    @Resource
+    private IServeProviderCalendarService serveProviderCalendarService;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(name = "canal-mq-jzo2o-orders-serve-provider", arguments = {@Argument(name = "x-single-active-consumer", value = "true", type = "java.lang.Boolean")}),
+            exchange = @Exchange(name = "exchange.canal-jzo2o", type = ExchangeTypes.TOPIC),
+            key = "canal-mq-jzo2o-orders-serve"),
+            concurrency = "1"
+    )
+    public void onMessage(Message message) throws Exception {
+        parseMsg(message);
+    }
+
+    @Override
+    public void batchSave(List<OrdersServe> data) {
+        for (OrdersServe ordersServe : data) {
+            if (!ServeStatusEnum.SERVE_FINISHED.equals(ordersServe.getServeStatus()) && !ServeStatusEnum.CANCLE.equals(ordersServe.getServeStatus())) {
+                continue;
+            }
+            if (ObjectUtils.isNull(ordersServe.getServeProviderId()) || ObjectUtils.isNull(ordersServe.getCityCode())) {
+                continue;
+            }
+            if (!serveProviderStateService.releaseServeNum(ordersServe.getId(), ordersServe.getServeProviderId(), ordersServe.getCityCode())) {
+                continue;
+            }
+            // 机构可由多名服务人员服务，未占用服务时间
+            if (!Integer.valueOf(UserType.INSTITUTION).equals(ordersServe.getServeProviderType()) && ObjectUtils.isNotNull(ordersServe.getServeStartTime())) {
+                serveProviderCalendarService.release(ordersServe.getServeProviderId(), ordersServe.getCityCode(), ordersServe.getServeStartTime());
+            }
+        }
+    }
+
+    @Override
+    public void batchDelete(List<Long> ids) {
+        // 归还以服务单状态变更为准，删除不处理
+    }
+}
@@ -0,0 +1,27 @@
+package com.jzo2o.orders.manager.model.converter;
+
+import com.jzo2o.api.orders.dto.response.OrderResDTO;
+import com.jzo2o.api.orders.dto.response.OrderSimpleResDTO;
+import com.jzo2o.orders.base.model.domain.Orders;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+import java.util.List;
+
+/**
+ * 订单与响应对象转换，编译期生成实现，替代BeanUtil反射拷贝
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface OrdersConverter {
+
+    OrdersConverter INSTANCE = Mappers.getMapper(OrdersConverter.class);
+
+    OrderResDTO toOrderResDTO(Orders orders);
+
+    List<OrderResDTO> toOrderResDTOList(List<Orders> ordersList);
+
+    OrderSimpleResDTO toOrderSimpleResDTO(Orders orders);
+
+    List<OrderSimpleResDTO> toOrderSimpleResDTOList(List<Orders> ordersList);
+}
@@ -0,0 +1,66 @@
+package com.jzo2o.orders.manager.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 服务人员/机构同步表（客户服务serve_provider_sync）binlog记录，字段与表列对应
+ */
+@Data
+public class ServeProviderSyncDTO {
+    /**
+     * 服务人员/机构id
+     */
+    private Long id;
+
+    /**
+     * 类型，2：服务人员，3：机构
+     */
+    private Integer serveProviderType;
+
+    /**
+     * 技能列表
+     */
+    private List<Long> serveItemIds;
+
+    /**
+     * 经度
+     */
+    private Double lon;
+
+    /**
+     * 纬度
+     */
+    private Double lat;
+
+    /**
+     * 城市编码
+     */
+    private String cityCode;
+
+    /**
+     * 接单开关1，：接单开启，0：接单关闭
+     */
+    private Integer pickUp;
+
+    /**
+     * 评分,默认50分
+     */
+    private Double evaluationScore;
+
+    /**
+     * 首次设置状态，0：未完成，1：已完成设置
+     */
+    private Integer settingStatus;
+
+    /**
+     * 接单数
+     */
+    private Integer acceptanceNum;
+
+    /**
+     * 状态，0：正常，1：冻结
+     */
+    private Integer status;
+}
@@ -0,0 +1,31 @@
+package com.jzo2o.orders.manager.model.dto.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@ApiModel("抢单列表变更")
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrdersSeizeChangesResDTO implements Serializable {
+
+    @ApiModelProperty("当前版本，下次查询时传入")
+    private String version;
+
+    @ApiModelProperty("是否全量列表，为true时客户端用ordersSeizes替换本地列表")
+    private Boolean full;
+
+    @ApiModelProperty("新增或变更的抢单，全量时为完整列表")
+    private List<OrdersSeizeListResDTO.OrdersSeize> ordersSeizes;
+
+    @ApiModelProperty("删除的抢单id")
+    private List<Long> removedIds;
+}
@@ -0,0 +1,34 @@
+package com.jzo2o.orders.manager.porperties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单查询合并配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jzo2o.collapser")
+public class OrdersCollapserProperties {
+
+    /**
+     * 合并窗口，单位毫秒，默认2
+     */
+    private Long windowMillis = 2L;
+
+    /**
+     * 单批最大订单数量，默认100
+     */
+    private Integer maxBatchSize = 100;
+
+    /**
+     * 等待队列容量，队列满时直接查询，默认10000
+     */
+    private Integer queueCapacity = 10000;
+
+    /**
+     * 调用方等待批量结果的超时时间，超时后直接查询，单位毫秒，默认1000
+     */
+    private Long timeoutMillis = 1000L;
+}
@@ -0,0 +1,34 @@
+package com.jzo2o.orders.manager.porperties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 抢单列表增量变更配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jzo2o.seize-feed")
+public class SeizeFeedProperties {
+
+    /**
+     * 每个城市变更流保留的最大记录数（近似），默认10000
+     */
+    private Long maxLength = 10000L;
+
+    /**
+     * 单次返回的最大变更数，超过后返回全量列表，默认500
+     */
+    private Integer maxDelta = 500;
+
+    /**
+     * 无变更时长轮询等待时间，单位毫秒，默认25000
+     */
+    private Long pollTimeoutMillis = 25000L;
+
+    /**
+     * 最大接单距离，客户端传入的距离超过时按该值查询，单位千米，默认50
+     */
+    private Double maxDistance = 50D;
+}
@@ -0,0 +1,22 @@
+package com.jzo2o.orders.manager.service;
+
+import com.jzo2o.orders.base.model.domain.Orders;
+
+/**
+ * 订单查询合并
+ * <p>
+ * 将短时间窗口内的并发单个订单查询合并为一次批量查询
+ * </p>
+ *
+ * @author itcast
+ */
+public interface IOrdersCollapseService {
+
+    /**
+     * 查询订单，与同一窗口内的其他查询合并执行
+     *
+     * @param id 订单id
+     * @return 订单，不存在返回null
+     */
+    Orders load(Long id);
+}
@@ -0,0 +1,34 @@
+package com.jzo2o.orders.manager.service;
+
+import com.jzo2o.api.orders.dto.response.OrderSimpleResDTO;
+import com.jzo2o.orders.base.model.domain.Orders;
+
+import java.util.List;
+
+/**
+ * 用户端订单滚动分页缓存
+ * <p>
+ * 每个用户一个zSet索引，score为sortBy，member为订单简要信息json
+ * </p>
+ *
+ * @author itcast
+ */
+public interface IOrdersPageCacheService {
+
+    /**
+     * 从缓存中滚动分页查询，索引不存在时懒加载
+     *
+     * @param userId       用户id
+     * @param ordersStatus 订单状态，为空时不过滤
+     * @param sortBy       上一页最后一条的排序字段，为空时查询第一页
+     * @return 订单列表，缓存无法给出结果时返回null，由调用方查询数据库
+     */
+    List<OrderSimpleResDTO> queryList(Long userId, Integer ordersStatus, Long sortBy);
+
+    /**
+     * 订单新增或变更后增量更新用户索引
+     *
+     * @param ordersList 变更后的订单
+     */
+    void refresh(List<Orders> ordersList);
+}
@@ -0,0 +1,54 @@
+package com.jzo2o.orders.manager.service;
+
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.manager.model.dto.response.OrdersSeizeChangesResDTO;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 抢单列表增量变更
+ * <p>
+ * 每个城市一个redis stream记录抢单池的新增和删除，记录id为版本号；
+ * 服务端携带上次的版本号查询，只返回之后的变更，无变更时长轮询等待，版本过旧时返回全量列表
+ * </p>
+ */
+public interface IOrdersSeizeFeedService {
+
+    /**
+     * 记录抢单新增或变更，已超时（已转派单）的记录为删除
+     *
+     * @param ordersSeizes 抢单
+     */
+    void appendSaved(List<OrdersSeize> ordersSeizes);
+
+    /**
+     * 记录抢单删除（抢单成功、订单取消）
+     *
+     * @param ids 抢单id
+     */
+    void appendDeleted(List<Long> ids);
+
+    /**
+     * 唤醒等待中的长轮询请求
+     *
+     * @param cityCodes 发生变更的城市，为null时唤醒全部
+     */
+    void wakeUp(Collection<String> cityCodes);
+
+    /**
+     * 查询抢单列表变更，无变更时等待
+     *
+     * @param cityCode          城市编码
+     * @param version           上次查询返回的版本，为空时返回全量列表
+     * @param lon               服务人员/机构经度
+     * @param lat               服务人员/机构纬度
+     * @param distance          接单距离，单位千米
+     * @param serveItemIds      服务人员/机构技能，为空时不过滤
+     * @param serveProviderType 服务者类型，2：服务人员，3：机构
+     * @return 变更
+     */
+    DeferredResult<OrdersSeizeChangesResDTO> poll(String cityCode, String version, Double lon, Double lat, Double distance,
+                                                  List<Long> serveItemIds, Integer serveProviderType);
+}
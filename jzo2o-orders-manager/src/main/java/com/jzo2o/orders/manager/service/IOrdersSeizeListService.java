@@ -0,0 +1,58 @@
+package com.jzo2o.orders.manager.service;
+
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.manager.model.dto.response.OrdersSeizeListResDTO;
+
+import java.util.List;
+
+/**
+ * 抢单列表
+ * <p>
+ * 每个城市一个本地经纬度网格索引，启动时从抢单池加载，之后由抢单池binlog增量维护
+ * </p>
+ */
+public interface IOrdersSeizeListService {
+
+    /**
+     * 查询服务人员/机构附近可抢的订单
+     *
+     * @param cityCode          城市编码
+     * @param lon               服务人员/机构经度
+     * @param lat               服务人员/机构纬度
+     * @param distance          接单距离，单位千米
+     * @param serveItemIds      服务人员/机构技能，为空时不过滤
+     * @param serveProviderType 服务者类型，2：服务人员，3：机构，决定返回数量
+     * @return 抢单列表，按距离由近到远排序
+     */
+    OrdersSeizeListResDTO queryForList(String cityCode, Double lon, Double lat, Double distance, List<Long> serveItemIds, Integer serveProviderType);
+
+    /**
+     * 转换为抢单列表项
+     *
+     * @param ordersSeize 抢单
+     * @return 抢单列表项
+     */
+    OrdersSeizeListResDTO.OrdersSeize toListItem(OrdersSeize ordersSeize);
+
+    /**
+     * 抢单新增或变更，已超时的抢单从索引中删除
+     *
+     * @param ordersSeizes 抢单
+     */
+    void refresh(List<OrdersSeize> ordersSeizes);
+
+    /**
+     * 抢单删除（抢单成功、订单取消）
+     *
+     * @param ids 抢单id
+     */
+    void remove(List<Long> ids);
+
+    /**
+     * 查询索引中抢单所在城市
+     *
+     * @param id 抢单id
+     * @return 城市编码，不在索引中时返回null
+     */
+    String getCityCode(Long id);
+}
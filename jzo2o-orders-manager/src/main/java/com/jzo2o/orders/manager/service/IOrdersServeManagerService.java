@@ -45,4 +45,20 @@ public interface IOrdersServeManagerService extends IService<OrdersServe> {
      * @return 服务数量
      */
     InstitutionStaffServeCountResDTO countByInstitutionStaffId(Long institutionStaffId);
+
+    /**
+     * 接单
+     *
+     * @param ordersDispatchReceiveReqDTO 接单信息
+     * @param serveProviderId             服务人员/机构id
+     */
+    void receiveDispatch(OrdersDispatchReceiveReqDTO ordersDispatchReceiveReqDTO, Long serveProviderId);
+
+    /**
+     * 拒单
+     *
+     * @param ordersDispatchRejectReqDTO 拒单信息
+     * @param serveProviderId            服务人员/机构id
+     */
+    void rejectDispatch(OrdersDispatchRejectReqDTO ordersDispatchRejectReqDTO, Long serveProviderId);
 }
@@ -0,0 +1,32 @@
+package com.jzo2o.orders.manager.service;
+
+/**
+ * 服务单id到服务人员/机构id的本地缓存
+ *
+ * @author itcast
+ */
+public interface IServeProviderIdCacheService {
+
+    /**
+     * 查询服务单的服务人员或机构id，未命中时查询数据库并回填
+     *
+     * @param id 服务单id（与订单id相同）
+     * @return 服务人员或机构id，服务单不存在返回null
+     */
+    Long get(Long id);
+
+    /**
+     * 服务单分配服务人员或机构后更新缓存
+     *
+     * @param id              服务单id
+     * @param serveProviderId 服务人员或机构id
+     */
+    void put(Long id, Long serveProviderId);
+
+    /**
+     * 服务人员或机构取消服务单后失效缓存
+     *
+     * @param id 服务单id
+     */
+    void evict(Long id);
+}
@@ -0,0 +1,28 @@
+package com.jzo2o.orders.manager.service;
+
+import com.jzo2o.orders.manager.model.dto.ServeProviderSyncDTO;
+
+import java.util.List;
+
+/**
+ * 服务人员/机构技能索引数据同步
+ * <p>
+ * 启动时从服务人员/机构索引（es）加载，运行中由服务人员/机构同步表binlog增量更新
+ * </p>
+ */
+public interface IServeProviderSkillIndexSyncService {
+
+    /**
+     * 服务人员/机构新增或变更
+     *
+     * @param serveProviderSyncs 同步表记录
+     */
+    void refresh(List<ServeProviderSyncDTO> serveProviderSyncs);
+
+    /**
+     * 服务人员/机构删除
+     *
+     * @param ids 服务人员/机构id
+     */
+    void remove(List<Long> ids);
+}
@@ -0,0 +1,36 @@
+package com.jzo2o.orders.manager.service;
+
+import java.util.Map;
+
+/**
+ * 机构服务人员服务单数量
+ * <p>
+ * redis中维护服务人员服务单数量，由orders_serve binlog增量更新，对账任务全量校正
+ * </p>
+ *
+ * @author itcast
+ */
+public interface IStaffServeCountService {
+
+    /**
+     * 查询机构服务人员服务单数量
+     *
+     * @param institutionStaffId 机构服务人员id
+     * @return 服务单数量，数量尚未完成全量构建时返回null，由调用方查询数据库
+     */
+    Integer count(Long institutionStaffId);
+
+    /**
+     * 服务单新增、变更或删除后更新数量
+     *
+     * @param serveStaffs 服务单id与所属机构服务人员id，服务人员id为null表示不属于任何服务人员或已删除
+     */
+    void update(Map<Long, Long> serveStaffs);
+
+    /**
+     * 按数据库全量校正服务人员服务单数量，完成后标记为可用
+     *
+     * @return 校正的服务单数量，即偏差数量
+     */
+    long reconcile();
+}
@@ -0,0 +1,190 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.properties.ExecutorProperties;
+import com.jzo2o.orders.manager.porperties.OrdersCollapserProperties;
+import com.jzo2o.orders.manager.service.IOrdersCollapseService;
+import com.jzo2o.orders.manager.service.IOrdersManagerService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 订单查询合并
+ * <p>
+ * 调用方将请求放入队列后等待结果，收集线程以第一个请求为起点等待windowMillis或凑满maxBatchSize后，
+ * 将整批请求交给线程池执行一次batchQuery（全部字段，结果用于详情缓存）；队列满或等待超时时退化为单个查询
+ * </p>
+ *
+ * @author itcast
+ */
+@Slf4j
+@Service
+public class OrdersCollapseServiceImpl implements IOrdersCollapseService {
+
+    private static final String EXECUTOR_NAME = "collapser";
+
+    @Resource
+    private IOrdersManagerService ordersManagerService;
+
+    @Resource
+    private OrdersCollapserProperties ordersCollapserProperties;
+
+    @Resource
+    private ExecutorProperties executorProperties;
+
+    private BlockingQueue<LoadRequest> queue;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private Thread collector;
+
+    private volatile boolean running;
+
+    /**
+     * 每批订单数量分布
+     */
+    private DistributionSummary batchSizeSummary;
+
+    /**
+     * 请求从入队到拿到结果的耗时，即合并带来的额外延迟
+     */
+    private Timer waitTimer;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(ordersCollapserProperties.getQueueCapacity());
+        executor = executorProperties.newExecutor(EXECUTOR_NAME);
+        batchSizeSummary = DistributionSummary.builder("orders.collapser.batch.size")
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
+        waitTimer = Timer.builder("orders.collapser.wait")
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
+
+        running = true;
+        collector = new Thread(this::collect, "orders-collapser");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        collector.interrupt();
+        executor.shutdown();
+    }
+
+    @Override
+    public Orders load(Long id) {
+        if (ObjectUtils.isNull(id)) {
+            return null;
+        }
+        LoadRequest request = new LoadRequest(id);
+        if (!queue.offer(request)) {
+            log.debug("订单查询合并队列已满，直接查询，id:{}", id);
+            return loadDirectly(id);
+        }
+        try {
+            return request.future.get(ordersCollapserProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loadDirectly(id);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("订单合并查询失败，直接查询，id:{}", id, e);
+            return loadDirectly(id);
+        }
+    }
+
+    private Orders loadDirectly(Long id) {
+        return CollUtils.getFirst(ordersManagerService.batchQuery(Collections.singletonList(id)));
+    }
+
+    /**
+     * 收集请求，按窗口或数量切分批次
+     */
+    private void collect() {
+        int maxBatchSize = ordersCollapserProperties.getMaxBatchSize();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(ordersCollapserProperties.getWindowMillis());
+        while (running) {
+            try {
+                LoadRequest first = queue.take();
+                List<LoadRequest> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        // 窗口已过，只取走已到达的请求
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    LoadRequest request = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (ObjectUtils.isNull(request)) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+                executor.execute(() -> execute(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("订单查询合并收集异常", e);
+            }
+        }
+    }
+
+    /**
+     * 执行一批查询并分发结果
+     *
+     * @param batch 同一批请求
+     */
+    private void execute(List<LoadRequest> batch) {
+        List<Long> ids = batch.stream().map(request -> request.id).distinct().collect(Collectors.toList());
+        batchSizeSummary.record(ids.size());
+        try {
+            // 结果写入详情缓存，batchQuery返回全部字段
+            Map<Long, Orders> ordersMap = ordersManagerService.batchQuery(ids).stream()
+                    .collect(Collectors.toMap(Orders::getId, Function.identity(), (o1, o2) -> o1));
+            for (LoadRequest request : batch) {
+                request.future.complete(ordersMap.get(request.id));
+                waitTimer.record(System.nanoTime() - request.enqueueNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (Exception e) {
+            log.error("订单批量查询失败，ids:{}", ids, e);
+            batch.forEach(request -> request.future.completeExceptionally(e));
+        }
+    }
+
+    private static class LoadRequest {
+        private final Long id;
+        private final long enqueueNanos = System.nanoTime();
+        private final CompletableFuture<Orders> future = new CompletableFuture<>();
+
+        private LoadRequest(Long id) {
+            this.id = id;
+        }
+    }
+}
@@ -1,27 +1,27 @@
 package com.jzo2o.orders.manager.service.impl;
 
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.json.JSONUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.OrderItem;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.jzo2o.api.orders.dto.response.OrderResDTO;
 import com.jzo2o.api.orders.dto.response.OrderSimpleResDTO;
-import com.jzo2o.common.enums.EnableStatusEnum;
 import com.jzo2o.common.utils.ObjectUtils;
 import com.jzo2o.orders.base.mapper.OrdersMapper;
 import com.jzo2o.orders.base.model.domain.Orders;
 import com.jzo2o.orders.base.model.dto.OrderSnapshotDTO;
+import com.jzo2o.orders.base.properties.BatchQueryProperties;
+import com.jzo2o.orders.base.service.IOrdersCacheService;
+import com.jzo2o.orders.base.utils.BatchQueryUtils;
+import com.jzo2o.orders.manager.model.converter.OrdersConverter;
+import com.jzo2o.orders.manager.service.IOrdersCollapseService;
 import com.jzo2o.orders.manager.service.IOrdersManagerService;
+import com.jzo2o.orders.manager.service.IOrdersPageCacheService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.Resource;
 import java.util.List;
-
-import static com.jzo2o.orders.base.constants.FieldConstants.SORT_BY;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -35,15 +35,40 @@ import static com.jzo2o.orders.base.constants.FieldConstants.SORT_BY;
 @Service
 public class OrdersManagerServiceImpl extends ServiceImpl<OrdersMapper, Orders> implements IOrdersManagerService {
 
+    /**
+     * 用户端滚动分页每页数量
+     */
+    private static final int PAGE_SIZE = 10;
+
+    @Resource
+    private IOrdersCacheService ordersCacheService;
+
+    @Resource
+    private BatchQueryProperties batchQueryProperties;
+
+    @Resource(name = "batchQueryExecutor")
+    private Executor batchQueryExecutor;
+
+    @Resource
+    private IOrdersPageCacheService ordersPageCacheService;
+
+    @Resource
+    private IOrdersCollapseService ordersCollapseService;
+
     @Override
     public List<Orders> batchQuery(List<Long> ids) {
-        LambdaQueryWrapper<Orders> queryWrapper = Wrappers.<Orders>lambdaQuery().in(Orders::getId, ids).ge(Orders::getUserId, 0);
-        return baseMapper.selectList(queryWrapper);
+        // 供其他服务调用，返回全部字段
+        return BatchQueryUtils.query(ids, batchQueryProperties.getChunkSize(), batchQueryProperties.getShardCount(),
+                batchQueryExecutor, chunk -> lambdaQuery()
+                        .in(Orders::getId, chunk)
+                        .ge(Orders::getUserId, 0)
+                        .list(), Orders::getId);
     }
 
     @Override
     public Orders queryById(Long id) {
-        return baseMapper.selectById(id);
+        // 缓存未命中时与并发的其他查询合并为一次批量查询
+        return ordersCacheService.get(id, ordersCollapseService::load);
     }
 
     /**
@@ -56,20 +81,15 @@ public class OrdersManagerServiceImpl extends ServiceImpl<OrdersMapper, Orders>
      */
     @Override
     public List<OrderSimpleResDTO> consumerQueryList(Long currentUserId, Integer ordersStatus, Long sortBy) {
-        //1.构件查询条件
-        LambdaQueryWrapper<Orders> queryWrapper = Wrappers.<Orders>lambdaQuery()
-                .eq(ObjectUtils.isNotNull(ordersStatus), Orders::getOrdersStatus, ordersStatus)
-                .lt(ObjectUtils.isNotNull(sortBy), Orders::getSortBy, sortBy)
-                .eq(Orders::getUserId, currentUserId)
-                .eq(Orders::getDisplay, EnableStatusEnum.ENABLE.getStatus());
-        Page<Orders> queryPage = new Page<>();
-        queryPage.addOrder(OrderItem.desc(SORT_BY));
-        queryPage.setSearchCount(false);
-
-        //2.查询订单列表
-        Page<Orders> ordersPage = baseMapper.selectPage(queryPage, queryWrapper);
-        List<Orders> records = ordersPage.getRecords();
-        List<OrderSimpleResDTO> orderSimpleResDTOS = BeanUtil.copyToList(records, OrderSimpleResDTO.class);
+        //1.优先从redis索引查询
+        List<OrderSimpleResDTO> cacheList = ordersPageCacheService.queryList(currentUserId, ordersStatus, sortBy);
+        if (ObjectUtils.isNotNull(cacheList)) {
+            return cacheList;
+        }
+
+        //2.查询订单列表，只查询列表所需字段
+        List<Orders> records = baseMapper.selectSimpleListByUserId(currentUserId, ordersStatus, sortBy, PAGE_SIZE);
+        List<OrderSimpleResDTO> orderSimpleResDTOS = OrdersConverter.INSTANCE.toOrderSimpleResDTOList(records);
         return orderSimpleResDTOS;
 
     }
@@ -82,7 +102,7 @@ public class OrdersManagerServiceImpl extends ServiceImpl<OrdersMapper, Orders>
     @Override
     public OrderResDTO getDetail(Long id) {
         Orders orders = queryById(id);
-        OrderResDTO orderResDTO = BeanUtil.toBean(orders, OrderResDTO.class);
+        OrderResDTO orderResDTO = OrdersConverter.INSTANCE.toOrderResDTO(orders);
         return orderResDTO;
     }
 
@@ -0,0 +1,158 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.jzo2o.api.orders.dto.response.OrderSimpleResDTO;
+import com.jzo2o.common.enums.EnableStatusEnum;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersMapper;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.manager.model.converter.OrdersConverter;
+import com.jzo2o.orders.manager.service.IOrdersPageCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_FILL;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_PAGE_VERSION;
+import static com.jzo2o.orders.base.constants.RedisConstants.Ttl.ORDERS_PAGE_TTL;
+
+/**
+ * 用户端订单滚动分页缓存
+ *
+ * @author itcast
+ */
+@Slf4j
+@Service
+public class OrdersPageCacheServiceImpl implements IOrdersPageCacheService {
+
+    /**
+     * 每页数量
+     */
+    private static final int PAGE_SIZE = 10;
+
+    /**
+     * 单个用户最多缓存的订单数量，超过后该用户直接查询数据库
+     */
+    private static final int MAX_INDEX_SIZE = 500;
+
+    /**
+     * 索引占位成员，保证无订单的用户也存在索引
+     */
+    private static final String EOF_MEMBER = "EOF";
+
+    /**
+     * 订单过多不建索引的标记成员
+     */
+    private static final String OVERFLOW_MEMBER = "OVERFLOW";
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrdersMapper ordersMapper;
+
+    private final DefaultRedisScript<List> queryScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> updateScript = new DefaultRedisScript<>();
+
+    private final DefaultRedisScript<Long> fillScript = new DefaultRedisScript<>();
+
+    {
+        queryScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_page_query.lua")));
+        queryScript.setResultType(List.class);
+        updateScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_page_update.lua")));
+        updateScript.setResultType(Long.class);
+        fillScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/orders_page_fill.lua")));
+        fillScript.setResultType(Long.class);
+    }
+
+    @Override
+    public List<OrderSimpleResDTO> queryList(Long userId, Integer ordersStatus, Long sortBy) {
+        List<String> keys = Collections.singletonList(String.format(ORDERS, userId));
+        String max = ObjectUtils.isNull(sortBy) ? "+inf" : "(" + sortBy;
+        String status = ObjectUtils.isNull(ordersStatus) ? "" : ordersStatus.toString();
+
+        List<String> result = redisTemplate.execute(queryScript, keys, max, status, String.valueOf(PAGE_SIZE));
+        if (CollUtils.isEmpty(result)) {
+            // 索引不存在，懒加载后重新查询
+            fill(userId);
+            result = redisTemplate.execute(queryScript, keys, max, status, String.valueOf(PAGE_SIZE));
+        }
+        if (CollUtils.isEmpty(result) || !"1".equals(result.get(0))) {
+            return null;
+        }
+        return result.subList(1, result.size()).stream()
+                .map(member -> JSONUtil.toBean(member, OrderSimpleResDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void refresh(List<Orders> ordersList) {
+        if (CollUtils.isEmpty(ordersList)) {
+            return;
+        }
+        for (Orders orders : ordersList) {
+            if (ObjectUtils.isNull(orders.getUserId()) || ObjectUtils.isNull(orders.getSortBy())) {
+                continue;
+            }
+            String member = EnableStatusEnum.ENABLE.getStatus().equals(orders.getDisplay()) ? toMember(orders) : "";
+            List<String> keys = Arrays.asList(String.format(ORDERS, orders.getUserId()), String.format(ORDERS_PAGE_VERSION, orders.getUserId()));
+            redisTemplate.execute(updateScript, keys, orders.getSortBy().toString(), member, String.valueOf(ORDERS_PAGE_TTL));
+        }
+    }
+
+    /**
+     * 从数据库加载用户全部展示中的订单建立索引
+     * <p>
+     * 先在临时索引中构建再重命名，读取数据库后有变更（索引缺失期间增量更新只递增版本号）时放弃本次构建，
+     * 避免构建期间跳过的变更使索引一直停留在旧数据
+     * </p>
+     *
+     * @param userId 用户id
+     */
+    private void fill(Long userId) {
+        String versionKey = String.format(ORDERS_PAGE_VERSION, userId);
+        String version = redisTemplate.opsForValue().get(versionKey);
+        List<Orders> ordersList = ordersMapper.selectSimpleListByUserId(userId, null, null, MAX_INDEX_SIZE + 1);
+
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        if (ordersList.size() > MAX_INDEX_SIZE) {
+            log.debug("用户{}订单数量超过{}，不建立滚动分页索引", userId, MAX_INDEX_SIZE);
+            tuples.add(new DefaultTypedTuple<>(OVERFLOW_MEMBER, -2D));
+        } else {
+            tuples.add(new DefaultTypedTuple<>(EOF_MEMBER, -1D));
+            for (Orders orders : ordersList) {
+                tuples.add(new DefaultTypedTuple<>(toMember(orders), orders.getSortBy().doubleValue()));
+            }
+        }
+        String fillKey = String.format(ORDERS_FILL, userId, UUID.randomUUID());
+        redisTemplate.opsForZSet().add(fillKey, tuples);
+        redisTemplate.expire(fillKey, ORDERS_PAGE_TTL, TimeUnit.SECONDS);
+        Long filled = redisTemplate.execute(fillScript, Arrays.asList(fillKey, String.format(ORDERS, userId), versionKey),
+                ObjectUtils.isNull(version) ? "" : version, String.valueOf(ORDERS_PAGE_TTL));
+        if (!Long.valueOf(1).equals(filled)) {
+            log.debug("用户{}订单索引构建期间有变更，放弃本次构建", userId);
+        }
+    }
+
+    private String toMember(Orders orders) {
+        return JSONUtil.toJsonStr(OrdersConverter.INSTANCE.toOrderSimpleResDTO(orders));
+    }
+}
@@ -0,0 +1,363 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.base.properties.ExecutorProperties;
+import com.jzo2o.orders.base.utils.GeoGridIndex;
+import com.jzo2o.orders.manager.model.dto.response.OrdersSeizeChangesResDTO;
+import com.jzo2o.orders.manager.model.dto.response.OrdersSeizeListResDTO;
+import com.jzo2o.orders.manager.porperties.SeizeFeedProperties;
+import com.jzo2o.orders.manager.service.IOrdersSeizeFeedService;
+import com.jzo2o.orders.manager.service.IOrdersSeizeListService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE_FEED;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE_FEED_CHANNEL;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.ORDERS_SEIZE_FEED_CITY;
+
+/**
+ * 抢单列表增量变更
+ * <p>
+ * 变更流由单个消费者写入（见OrdersSeizeFeedCanalSyncHandler），新增记录携带列表项json、经纬度和服务项id，
+ * 查询时按服务人员/机构的接单距离和技能过滤；写入变更流后发布城市编码通知，各节点等待中的请求收到通知时
+ * 按（城市，版本）分组，每组读取一次变更后在本地按各请求过滤，仍无变更则继续等待直到超时。
+ * 删除事件只有id，城市从写入新增时记录的抢单城市hash读取，不存在时（记录之前的抢单）从本地抢单列表索引读取
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersSeizeFeedServiceImpl implements IOrdersSeizeFeedService {
+
+    private static final String EXECUTOR_NAME = "seizeFeed";
+
+    /**
+     * 空变更流的版本
+     */
+    private static final String EMPTY_VERSION = "0-0";
+
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_LON = "lon";
+    private static final String FIELD_LAT = "lat";
+    private static final String FIELD_SERVE_ITEM_ID = "serveItemId";
+    private static final String FIELD_ITEM = "item";
+
+    private static final String TYPE_SAVE = "1";
+    private static final String TYPE_DELETE = "2";
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private IOrdersSeizeListService ordersSeizeListService;
+
+    @Resource
+    private SeizeFeedProperties seizeFeedProperties;
+
+    @Resource
+    private ExecutorProperties executorProperties;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 等待中的长轮询请求
+     */
+    private final Set<PollRequest> waiting = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        executor = executorProperties.newExecutor(EXECUTOR_NAME);
+        // 订阅变更流写入通知，唤醒本节点等待的请求
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+        listenerContainer.addMessageListener((message, pattern) ->
+                        wakeUp(Collections.singleton(new String(message.getBody(), StandardCharsets.UTF_8))),
+                new ChannelTopic(ORDERS_SEIZE_FEED_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        listenerContainer.destroy();
+        executor.shutdown();
+    }
+
+    @Override
+    public void appendSaved(List<OrdersSeize> ordersSeizes) {
+        if (CollUtils.isEmpty(ordersSeizes)) {
+            return;
+        }
+        Set<String> cityCodes = new HashSet<>();
+        Map<String, String> idCities = new HashMap<>(ordersSeizes.size());
+        for (OrdersSeize ordersSeize : ordersSeizes) {
+            Map<String, String> entry = new HashMap<>();
+            entry.put(FIELD_ID, ordersSeize.getId().toString());
+            // 无经纬度的抢单不在抢单列表中（见OrdersSeizeListServiceImpl.refresh），按删除处理
+            if (Integer.valueOf(1).equals(ordersSeize.getIsTimeOut())
+                    || ObjectUtils.isNull(ordersSeize.getLon()) || ObjectUtils.isNull(ordersSeize.getLat())) {
+                entry.put(FIELD_TYPE, TYPE_DELETE);
+            } else {
+                entry.put(FIELD_TYPE, TYPE_SAVE);
+                entry.put(FIELD_LON, ordersSeize.getLon().toString());
+                entry.put(FIELD_LAT, ordersSeize.getLat().toString());
+                if (ObjectUtils.isNotNull(ordersSeize.getServeItemId())) {
+                    entry.put(FIELD_SERVE_ITEM_ID, ordersSeize.getServeItemId().toString());
+                }
+                entry.put(FIELD_ITEM, JSONUtil.toJsonStr(ordersSeizeListService.toListItem(ordersSeize)));
+            }
+            append(ordersSeize.getCityCode(), entry);
+            cityCodes.add(ordersSeize.getCityCode());
+            idCities.put(ordersSeize.getId().toString(), ordersSeize.getCityCode());
+        }
+        redisTemplate.opsForHash().putAll(ORDERS_SEIZE_FEED_CITY, idCities);
+        publish(cityCodes);
+    }
+
+    @Override
+    public void appendDeleted(List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        // 删除事件只有id，从抢单城市hash读取城市，不存在时从本地索引读取
+        List<Object> fields = ids.stream().map(id -> (Object) id.toString()).collect(Collectors.toList());
+        List<Object> values = redisTemplate.opsForHash().multiGet(ORDERS_SEIZE_FEED_CITY, fields);
+        Set<String> cityCodes = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            String cityCode = ObjectUtils.isNotNull(values.get(i)) ? values.get(i).toString() : ordersSeizeListService.getCityCode(id);
+            if (StrUtil.isBlank(cityCode)) {
+                log.warn("抢单所在城市未知，未写入删除变更，id:{}", id);
+                continue;
+            }
+            Map<String, String> entry = new HashMap<>();
+            entry.put(FIELD_TYPE, TYPE_DELETE);
+            entry.put(FIELD_ID, id.toString());
+            append(cityCode, entry);
+            cityCodes.add(cityCode);
+        }
+        redisTemplate.opsForHash().delete(ORDERS_SEIZE_FEED_CITY, fields.toArray());
+        publish(cityCodes);
+    }
+
+    @Override
+    public void wakeUp(Collection<String> cityCodes) {
+        // 按（城市，版本）分组，每组读取一次变更
+        Map<String, Map<String, List<PollRequest>>> groups = new HashMap<>();
+        for (PollRequest request : waiting) {
+            if (cityCodes != null && !cityCodes.contains(request.cityCode)) {
+                continue;
+            }
+            groups.computeIfAbsent(request.cityCode, cityCode -> new HashMap<>())
+                    .computeIfAbsent(StrUtil.nullToEmpty(request.version), version -> new ArrayList<>())
+                    .add(request);
+        }
+        groups.forEach((cityCode, versionGroups) -> versionGroups.forEach((version, requests) -> executor.execute(() -> {
+            List<MapRecord<String, Object, Object>> records = StrUtil.isBlank(version) ? null : readDelta(cityCode, version);
+            for (PollRequest request : requests) {
+                OrdersSeizeChangesResDTO changes = toChanges(request, records);
+                if (ObjectUtils.isNotNull(changes) && waiting.remove(request)) {
+                    request.result.setResult(changes);
+                }
+            }
+        })));
+    }
+
+    @Override
+    public DeferredResult<OrdersSeizeChangesResDTO> poll(String cityCode, String version, Double lon, Double lat, Double distance,
+                                                         List<Long> serveItemIds, Integer serveProviderType) {
+        // 限制查询距离，避免遍历过多网格
+        Double maxDistance = seizeFeedProperties.getMaxDistance();
+        PollRequest request = new PollRequest(cityCode, version, lon, lat,
+                ObjectUtils.isNull(distance) ? null : Math.min(distance, maxDistance),
+                CollUtils.isEmpty(serveItemIds) ? null : new HashSet<>(serveItemIds), serveProviderType,
+                new DeferredResult<>(seizeFeedProperties.getPollTimeoutMillis()));
+        OrdersSeizeChangesResDTO changes = queryChanges(request);
+        if (ObjectUtils.isNotNull(changes)) {
+            request.result.setResult(changes);
+            return request.result;
+        }
+        request.result.onTimeout(() -> {
+            if (waiting.remove(request)) {
+                // 超时前最后查询一次
+                OrdersSeizeChangesResDTO last = queryChanges(request);
+                request.result.setResult(ObjectUtils.isNotNull(last) ? last : OrdersSeizeChangesResDTO.builder()
+                        .version(request.version)
+                        .full(false)
+                        .ordersSeizes(new ArrayList<>())
+                        .removedIds(new ArrayList<>())
+                        .build());
+            }
+        });
+        request.result.onCompletion(() -> waiting.remove(request));
+        waiting.add(request);
+        return request.result;
+    }
+
+    private void append(String cityCode, Map<String, String> entry) {
+        String key = String.format(ORDERS_SEIZE_FEED, cityCode);
+        redisTemplate.opsForStream().add(StreamRecords.newRecord().in(key).ofMap(entry));
+        redisTemplate.opsForStream().trim(key, seizeFeedProperties.getMaxLength(), true);
+    }
+
+    /**
+     * 通知各节点变更流已写入
+     */
+    private void publish(Set<String> cityCodes) {
+        cityCodes.forEach(cityCode -> redisTemplate.convertAndSend(ORDERS_SEIZE_FEED_CHANNEL, cityCode));
+    }
+
+    /**
+     * 查询版本之后的变更
+     *
+     * @return 变更，无变更时返回null
+     */
+    private OrdersSeizeChangesResDTO queryChanges(PollRequest request) {
+        return toChanges(request, StrUtil.isBlank(request.version) ? null : readDelta(request.cityCode, request.version));
+    }
+
+    /**
+     * 读取版本之后的变更记录，同一城市、同一版本的请求共用
+     *
+     * @return 以版本记录开头的变更记录，只有版本记录时无变更；需要返回全量列表（版本已被裁剪、变更过多）时返回null
+     */
+    private List<MapRecord<String, Object, Object>> readDelta(String cityCode, String version) {
+        String key = String.format(ORDERS_SEIZE_FEED, cityCode);
+        // 从上次版本（含）开始读取，第一条必须为上次版本，否则中间的变更已被裁剪
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().range(key,
+                Range.of(Range.Bound.inclusive(version), Range.Bound.unbounded()),
+                Limit.limit().count(seizeFeedProperties.getMaxDelta() + 1));
+        if (CollUtils.isEmpty(records)) {
+            // 版本之后无记录，客户端版本为空变更流的版本时说明确实无变更
+            return EMPTY_VERSION.equals(version) ? new ArrayList<>() : null;
+        }
+        if (!version.equals(records.get(0).getId().getValue()) || records.size() > seizeFeedProperties.getMaxDelta()) {
+            return null;
+        }
+        return records;
+    }
+
+    /**
+     * 按请求的接单距离和技能过滤变更记录
+     *
+     * @param records 变更记录，见readDelta，为null时返回全量列表
+     * @return 变更，无变更时返回null
+     */
+    private OrdersSeizeChangesResDTO toChanges(PollRequest request, List<MapRecord<String, Object, Object>> records) {
+        if (records == null) {
+            return full(request, String.format(ORDERS_SEIZE_FEED, request.cityCode));
+        }
+        if (records.size() <= 1) {
+            return null;
+        }
+
+        // 同一抢单多次变更以最后一次为准
+        Map<Long, OrdersSeizeListResDTO.OrdersSeize> saved = new LinkedHashMap<>();
+        Set<Long> removed = new HashSet<>();
+        for (MapRecord<String, Object, Object> record : records.subList(1, records.size())) {
+            Map<Object, Object> entry = record.getValue();
+            Long id = Long.valueOf(entry.get(FIELD_ID).toString());
+            if (TYPE_SAVE.equals(entry.get(FIELD_TYPE)) && matches(request, entry)) {
+                saved.put(id, JSONUtil.toBean(entry.get(FIELD_ITEM).toString(), OrdersSeizeListResDTO.OrdersSeize.class));
+                removed.remove(id);
+            } else {
+                // 删除，或变更后不再匹配
+                saved.remove(id);
+                removed.add(id);
+            }
+        }
+        return OrdersSeizeChangesResDTO.builder()
+                .version(records.get(records.size() - 1).getId().getValue())
+                .full(false)
+                .ordersSeizes(new ArrayList<>(saved.values()))
+                .removedIds(new ArrayList<>(removed))
+                .build();
+    }
+
+    /**
+     * 全量列表，先取版本再查列表，之间的变更在下次查询时返回
+     */
+    private OrdersSeizeChangesResDTO full(PollRequest request, String key) {
+        List<MapRecord<String, Object, Object>> last = redisTemplate.opsForStream().reverseRange(key, Range.unbounded(), Limit.limit().count(1));
+        String version = CollUtils.isEmpty(last) ? EMPTY_VERSION : last.get(0).getId().getValue();
+        OrdersSeizeListResDTO list = ordersSeizeListService.queryForList(request.cityCode, request.lon, request.lat, request.distance,
+                request.serveItemIds == null ? null : new ArrayList<>(request.serveItemIds), request.serveProviderType);
+        return OrdersSeizeChangesResDTO.builder()
+                .version(version)
+                .full(true)
+                .ordersSeizes(list.getOrdersSeizes())
+                .removedIds(new ArrayList<>())
+                .build();
+    }
+
+    private boolean matches(PollRequest request, Map<Object, Object> entry) {
+        Object serveItemId = entry.get(FIELD_SERVE_ITEM_ID);
+        if (request.serveItemIds != null && (serveItemId == null || !request.serveItemIds.contains(Long.valueOf(serveItemId.toString())))) {
+            return false;
+        }
+        if (ObjectUtils.isNull(request.lon) || ObjectUtils.isNull(request.lat) || ObjectUtils.isNull(request.distance)) {
+            return false;
+        }
+        Object lon = entry.get(FIELD_LON);
+        Object lat = entry.get(FIELD_LAT);
+        if (lon == null || lat == null) {
+            return false;
+        }
+        return GeoGridIndex.distanceKm(request.lon, request.lat, Double.parseDouble(lon.toString()), Double.parseDouble(lat.toString()))
+                <= request.distance;
+    }
+
+    private static final class PollRequest {
+        private final String cityCode;
+        private final String version;
+        private final Double lon;
+        private final Double lat;
+        private final Double distance;
+        private final Set<Long> serveItemIds;
+        private final Integer serveProviderType;
+        private final DeferredResult<OrdersSeizeChangesResDTO> result;
+
+        private PollRequest(String cityCode, String version, Double lon, Double lat, Double distance, Set<Long> serveItemIds,
+                            Integer serveProviderType, DeferredResult<OrdersSeizeChangesResDTO> result) {
+            this.cityCode = cityCode;
+            this.version = version;
+            this.lon = lon;
+            this.lat = lat;
+            this.distance = distance;
+            this.serveItemIds = serveItemIds;
+            this.serveProviderType = serveProviderType;
+            this.result = result;
+        }
+    }
+}
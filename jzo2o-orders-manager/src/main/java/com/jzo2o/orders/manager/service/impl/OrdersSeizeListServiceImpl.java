@@ -0,0 +1,220 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import com.jzo2o.api.foundations.dto.response.ConfigRegionInnerResDTO;
+import com.jzo2o.common.constants.UserType;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersSeizeMapper;
+import com.jzo2o.orders.base.model.domain.OrdersSeize;
+import com.jzo2o.orders.base.properties.DispatchProperties;
+import com.jzo2o.orders.base.service.IFoundationCacheService;
+import com.jzo2o.orders.base.utils.GeoGridIndex;
+import com.jzo2o.orders.manager.model.dto.response.OrdersSeizeListResDTO;
+import com.jzo2o.orders.manager.service.IOrdersSeizeListService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 抢单列表
+ * <p>
+ * 索引网格按经纬度0.05度（约5公里）划分，标签为服务项id；索引中保存列表返回对象，查询时不再转换。
+ * 加载期间收到binlog变更的抢单以binlog为准，加载时跳过，避免已删除的抢单被重新加入
+ * </p>
+ */
+@Slf4j
+@Service
+public class OrdersSeizeListServiceImpl implements IOrdersSeizeListService {
+
+    /**
+     * 网格经纬度间隔
+     */
+    private static final double CELL_DEGREES = 0.05;
+
+    /**
+     * 启动加载每批数量
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * 加载失败重试间隔，单位秒
+     */
+    private static final long LOAD_RETRY_SECONDS = 10;
+
+    @Resource
+    private OrdersSeizeMapper ordersSeizeMapper;
+
+    @Resource
+    private IFoundationCacheService foundationCacheService;
+
+    @Resource
+    private DispatchProperties dispatchProperties;
+
+    /**
+     * 城市编码 -> 索引
+     */
+    private final Map<String, GeoGridIndex<OrdersSeizeListResDTO.OrdersSeize>> cityIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * 抢单id -> 城市编码，用于删除
+     */
+    private final Map<Long, String> idCities = new ConcurrentHashMap<>();
+
+    /**
+     * 加载期间binlog变更的抢单id，加载完成后置为null
+     */
+    private volatile Set<Long> changedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        // 加载需要查询区域配置，异步执行不阻塞启动
+        Thread loader = new Thread(this::load, "orders-seize-list-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public OrdersSeizeListResDTO queryForList(String cityCode, Double lon, Double lat, Double distance, List<Long> serveItemIds, Integer serveProviderType) {
+        int limit = Integer.valueOf(UserType.INSTITUTION).equals(serveProviderType)
+                ? dispatchProperties.getSeizeListDispalyNumOfInstitution() : dispatchProperties.getSeizeListDispalyNumOfServe();
+        GeoGridIndex<OrdersSeizeListResDTO.OrdersSeize> index = cityIndexes.get(cityCode);
+        if (ObjectUtils.isNull(index) || ObjectUtils.isNull(lon) || ObjectUtils.isNull(lat) || ObjectUtils.isNull(distance)) {
+            return new OrdersSeizeListResDTO(new ArrayList<>());
+        }
+        Set<Long> serveItemIdSet = CollUtils.isEmpty(serveItemIds) ? null : new HashSet<>(serveItemIds);
+        List<OrdersSeizeListResDTO.OrdersSeize> ordersSeizes = index.nearest(lon, lat, distance,
+                serveItemId -> serveItemIdSet == null || serveItemIdSet.contains(serveItemId), limit);
+        return new OrdersSeizeListResDTO(ordersSeizes);
+    }
+
+    @Override
+    public void refresh(List<OrdersSeize> ordersSeizes) {
+        if (CollUtils.isEmpty(ordersSeizes)) {
+            return;
+        }
+        markChanged(ordersSeizes.stream().map(OrdersSeize::getId).collect(Collectors.toList()));
+        put(ordersSeizes);
+    }
+
+    private void put(List<OrdersSeize> ordersSeizes) {
+        for (OrdersSeize ordersSeize : ordersSeizes) {
+            if (Integer.valueOf(1).equals(ordersSeize.getIsTimeOut())) {
+                // 已转派单，不可再抢
+                remove(ordersSeize.getId());
+                continue;
+            }
+            if (ObjectUtils.isNull(ordersSeize.getLon()) || ObjectUtils.isNull(ordersSeize.getLat())) {
+                continue;
+            }
+            // 先创建城市索引再记录id所在城市，并发删除时通过id查到的城市索引一定存在
+            GeoGridIndex<OrdersSeizeListResDTO.OrdersSeize> index = cityIndexes.computeIfAbsent(ordersSeize.getCityCode(),
+                    cityCode -> new GeoGridIndex<>(CELL_DEGREES));
+            String oldCityCode = idCities.put(ordersSeize.getId(), ordersSeize.getCityCode());
+            if (ObjectUtils.isNotNull(oldCityCode) && !oldCityCode.equals(ordersSeize.getCityCode())) {
+                removeFromIndex(oldCityCode, ordersSeize.getId());
+            }
+            index.put(ordersSeize.getId(), ordersSeize.getLon(), ordersSeize.getLat(),
+                    ObjectUtils.isNull(ordersSeize.getServeItemId()) ? 0L : ordersSeize.getServeItemId(), toListItem(ordersSeize));
+        }
+    }
+
+    @Override
+    public void remove(List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        markChanged(ids);
+        ids.forEach(this::remove);
+    }
+
+    @Override
+    public String getCityCode(Long id) {
+        return idCities.get(id);
+    }
+
+    private void markChanged(List<Long> ids) {
+        Set<Long> changed = changedWhileLoading;
+        if (changed != null) {
+            changed.addAll(ids);
+        }
+    }
+
+    private void remove(Long id) {
+        String cityCode = idCities.remove(id);
+        if (ObjectUtils.isNotNull(cityCode)) {
+            removeFromIndex(cityCode, id);
+        }
+    }
+
+    private void removeFromIndex(String cityCode, Long id) {
+        GeoGridIndex<OrdersSeizeListResDTO.OrdersSeize> index = cityIndexes.get(cityCode);
+        if (ObjectUtils.isNotNull(index)) {
+            index.remove(id);
+        }
+    }
+
+    @Override
+    public OrdersSeizeListResDTO.OrdersSeize toListItem(OrdersSeize ordersSeize) {
+        OrdersSeizeListResDTO.OrdersSeize item = new OrdersSeizeListResDTO.OrdersSeize();
+        item.setId(ordersSeize.getId());
+        item.setServeItemName(ordersSeize.getServeItemName());
+        item.setServeTypeId(ordersSeize.getServeTypeId());
+        item.setServeTypeName(ordersSeize.getServeTypeName());
+        item.setServeAddress(ordersSeize.getServeAddress());
+        item.setServeItemImg(ordersSeize.getServeItemImg());
+        item.setServeFee(ordersSeize.getOrdersAmount());
+        item.setServeStartTime(ordersSeize.getServeStartTime());
+        item.setPurNum(ordersSeize.getPurNum());
+        // 开始派单时间：服务预约时间前分流间隔
+        ConfigRegionInnerResDTO configRegion = foundationCacheService.getConfigRegion(ordersSeize.getCityCode());
+        if (ObjectUtils.isNotNull(configRegion) && ObjectUtils.isNotNull(ordersSeize.getServeStartTime())) {
+            item.setStartDispatchTime(ordersSeize.getServeStartTime().minusMinutes(configRegion.getDiversionInterval()));
+        }
+        return item;
+    }
+
+    /**
+     * 按id顺序分批加载抢单池中未超时的抢单，失败时等待后从断点继续
+     */
+    private void load() {
+        long lastId = 0L;
+        int total = 0;
+        while (true) {
+            try {
+                List<OrdersSeize> ordersSeizes = ordersSeizeMapper.selectListAfterId(lastId, LOAD_BATCH_SIZE);
+                if (CollUtils.isEmpty(ordersSeizes)) {
+                    break;
+                }
+                Set<Long> changed = changedWhileLoading;
+                put(ordersSeizes.stream()
+                        .filter(ordersSeize -> !changed.contains(ordersSeize.getId()))
+                        .collect(Collectors.toList()));
+                total += ordersSeizes.size();
+                lastId = ordersSeizes.get(ordersSeizes.size() - 1).getId();
+                if (ordersSeizes.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("抢单列表索引加载失败，{}秒后重试，lastId:{}", LOAD_RETRY_SECONDS, lastId, e);
+                try {
+                    TimeUnit.SECONDS.sleep(LOAD_RETRY_SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        changedWhileLoading = null;
+        log.info("抢单列表索引加载完成，数量:{}", total);
+    }
+}
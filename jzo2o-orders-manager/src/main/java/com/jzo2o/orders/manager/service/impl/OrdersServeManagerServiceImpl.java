@@ -5,13 +5,22 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.jzo2o.api.orders.dto.response.InstitutionStaffServeCountResDTO;
 import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
 import com.jzo2o.orders.base.mapper.OrdersServeMapper;
 import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.base.properties.BatchQueryProperties;
+import com.jzo2o.orders.base.service.IOrdersDispatchService;
+import com.jzo2o.orders.base.utils.BatchQueryUtils;
+import com.jzo2o.orders.manager.model.dto.request.OrdersDispatchReceiveReqDTO;
+import com.jzo2o.orders.manager.model.dto.request.OrdersDispatchRejectReqDTO;
 import com.jzo2o.orders.manager.service.IOrdersServeManagerService;
+import com.jzo2o.orders.manager.service.IStaffServeCountService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -25,13 +34,26 @@ import java.util.List;
 @Slf4j
 public class OrdersServeManagerServiceImpl extends ServiceImpl<OrdersServeMapper, OrdersServe> implements IOrdersServeManagerService {
 
+    @Resource
+    private BatchQueryProperties batchQueryProperties;
+
+    @Resource(name = "batchQueryExecutor")
+    private Executor batchQueryExecutor;
+
+    @Resource
+    private IStaffServeCountService staffServeCountService;
+
+    @Resource
+    private IOrdersDispatchService ordersDispatchService;
 
     @Override
     public List<OrdersServe> batchQuery(List<Long> ids) {
-        return lambdaQuery()
-                .in(OrdersServe::getId, ids)
-                .ge(OrdersServe::getServeProviderId, 0)
-                .list();
+        // 供其他服务调用，返回全部字段
+        return BatchQueryUtils.query(ids, batchQueryProperties.getChunkSize(), batchQueryProperties.getShardCount(),
+                batchQueryExecutor, chunk -> lambdaQuery()
+                        .in(OrdersServe::getId, chunk)
+                        .ge(OrdersServe::getServeProviderId, 0)
+                        .list(), OrdersServe::getId);
     }
 
     @Override
@@ -53,6 +75,13 @@ public class OrdersServeManagerServiceImpl extends ServiceImpl<OrdersServeMapper
      */
     @Override
     public InstitutionStaffServeCountResDTO countByInstitutionStaffId(Long institutionStaffId) {
+        //1.优先从redis查询
+        Integer cacheCount = staffServeCountService.count(institutionStaffId);
+        if (ObjectUtils.isNotNull(cacheCount)) {
+            return new InstitutionStaffServeCountResDTO(cacheCount);
+        }
+
+        //2.尚未完成全量构建，查询数据库
         LambdaQueryWrapper<OrdersServe> queryWrapper = Wrappers.<OrdersServe>lambdaQuery()
                 .eq(OrdersServe::getInstitutionStaffId, institutionStaffId)
                 .gt(OrdersServe::getId, 0)
@@ -60,4 +89,16 @@ public class OrdersServeManagerServiceImpl extends ServiceImpl<OrdersServeMapper
         Integer count = baseMapper.selectCount(queryWrapper);
         return new InstitutionStaffServeCountResDTO(count);
     }
+
+    @Override
+    public void receiveDispatch(OrdersDispatchReceiveReqDTO ordersDispatchReceiveReqDTO, Long serveProviderId) {
+        ordersDispatchService.receive(ordersDispatchReceiveReqDTO.getId(), serveProviderId);
+    }
+
+    @Override
+    public void rejectDispatch(OrdersDispatchRejectReqDTO ordersDispatchRejectReqDTO, Long serveProviderId) {
+        log.info("拒单，id:{}，serveProviderId:{}，原因:{}", ordersDispatchRejectReqDTO.getId(), serveProviderId,
+                ordersDispatchRejectReqDTO.getRejectReason());
+        ordersDispatchService.reject(ordersDispatchRejectReqDTO.getId(), serveProviderId);
+    }
 }
@@ -0,0 +1,80 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersServeMapper;
+import com.jzo2o.orders.base.properties.OrdersCacheProperties;
+import com.jzo2o.orders.base.utils.LongLongCache;
+import com.jzo2o.orders.manager.service.IServeProviderIdCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+/**
+ * 服务单id到服务人员/机构id的本地缓存
+ * <p>
+ * 服务单分配后服务人员基本不变，使用定长的原始类型缓存，变更通过服务单binlog广播到每个节点（见ServeProviderIdCanalSyncHandler）
+ * </p>
+ *
+ * @author itcast
+ */
+@Slf4j
+@Service
+public class ServeProviderIdCacheServiceImpl implements IServeProviderIdCacheService {
+
+    private static final String CACHE_NAME = "serveProviderId";
+
+    @Resource
+    private OrdersServeMapper ordersServeMapper;
+
+    @Resource
+    private OrdersCacheProperties ordersCacheProperties;
+
+    private LongLongCache cache;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        cache = new LongLongCache(ordersCacheProperties.getServeProviderCapacity());
+        hitCounter = Metrics.counter("cache.gets", "cache", CACHE_NAME, "tier", "local", "result", "hit");
+        missCounter = Metrics.counter("cache.gets", "cache", CACHE_NAME, "tier", "local", "result", "miss");
+    }
+
+    @Override
+    public Long get(Long id) {
+        long serveProviderId = cache.get(id);
+        if (serveProviderId != LongLongCache.MISSING) {
+            hitCounter.increment();
+            return serveProviderId;
+        }
+        missCounter.increment();
+        // 回源期间binlog更新、删除了该服务单时不回填，避免旧值一直留在缓存
+        long version = cache.version(id);
+        Long dbServeProviderId = ordersServeMapper.selectServeProviderIdById(id);
+        if (ObjectUtils.isNotNull(dbServeProviderId)) {
+            cache.fill(id, dbServeProviderId, version);
+        }
+        return dbServeProviderId;
+    }
+
+    @Override
+    public void put(Long id, Long serveProviderId) {
+        if (ObjectUtils.isNull(id) || ObjectUtils.isNull(serveProviderId)) {
+            return;
+        }
+        cache.put(id, serveProviderId);
+    }
+
+    @Override
+    public void evict(Long id) {
+        if (ObjectUtils.isNull(id)) {
+            return;
+        }
+        cache.remove(id);
+    }
+}
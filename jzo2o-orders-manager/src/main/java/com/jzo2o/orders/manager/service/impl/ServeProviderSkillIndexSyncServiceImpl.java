@@ -0,0 +1,161 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import com.jzo2o.common.model.Location;
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.es.core.ElasticSearchTemplate;
+import com.jzo2o.orders.base.model.domain.ServeProviderInfo;
+import com.jzo2o.orders.base.service.IServeProviderSkillIndexService;
+import com.jzo2o.orders.manager.model.dto.ServeProviderSyncDTO;
+import com.jzo2o.orders.manager.service.IServeProviderSkillIndexSyncService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.manager.constants.EsIndex.SERVE_PROVIDER_INFO;
+
+/**
+ * 服务人员/机构技能索引数据同步
+ * <p>
+ * 加载期间收到binlog变更的服务人员/机构以binlog为准，加载时跳过，避免被较旧的索引文档覆盖
+ * </p>
+ */
+@Slf4j
+@Service
+public class ServeProviderSkillIndexSyncServiceImpl implements IServeProviderSkillIndexSyncService {
+
+    /**
+     * 启动加载每批数量
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * 加载失败重试间隔，单位秒
+     */
+    private static final long LOAD_RETRY_SECONDS = 10;
+
+    @Resource
+    private ElasticSearchTemplate elasticSearchTemplate;
+
+    @Resource
+    private IServeProviderSkillIndexService serveProviderSkillIndexService;
+
+    /**
+     * 加载期间binlog变更的服务人员/机构id，加载完成后置为null
+     */
+    private volatile Set<Long> changedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        // 加载需要分批查询es，异步执行不阻塞启动
+        Thread loader = new Thread(this::load, "serve-provider-skill-index-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public void refresh(List<ServeProviderSyncDTO> serveProviderSyncs) {
+        if (CollUtils.isEmpty(serveProviderSyncs)) {
+            return;
+        }
+        markChanged(serveProviderSyncs.stream().map(ServeProviderSyncDTO::getId).collect(Collectors.toList()));
+        serveProviderSkillIndexService.refresh(serveProviderSyncs.stream().map(this::toServeProviderInfo).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void remove(List<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        markChanged(ids);
+        serveProviderSkillIndexService.remove(ids);
+    }
+
+    private void markChanged(List<Long> ids) {
+        Set<Long> changed = changedWhileLoading;
+        if (changed != null) {
+            changed.addAll(ids);
+        }
+    }
+
+    /**
+     * 按id顺序分批加载服务人员/机构索引，失败时等待后从断点继续
+     */
+    private void load() {
+        long lastId = 0L;
+        int total = 0;
+        while (true) {
+            try {
+                List<ServeProviderInfo> serveProviderInfos = loadAfterId(lastId);
+                if (CollUtils.isEmpty(serveProviderInfos)) {
+                    break;
+                }
+                Set<Long> changed = changedWhileLoading;
+                serveProviderSkillIndexService.refresh(serveProviderInfos.stream()
+                        .filter(serveProviderInfo -> !changed.contains(serveProviderInfo.getId()))
+                        .collect(Collectors.toList()));
+                total += serveProviderInfos.size();
+                lastId = serveProviderInfos.get(serveProviderInfos.size() - 1).getId();
+                if (serveProviderInfos.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("服务人员/机构技能索引加载失败，{}秒后重试，lastId:{}", LOAD_RETRY_SECONDS, lastId, e);
+                try {
+                    TimeUnit.SECONDS.sleep(LOAD_RETRY_SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        changedWhileLoading = null;
+        log.info("服务人员/机构技能索引加载完成，数量:{}", total);
+    }
+
+    private List<ServeProviderInfo> loadAfterId(long lastId) {
+        SearchRequest searchRequest = SearchRequest.of(builder -> builder
+                .index(SERVE_PROVIDER_INFO)
+                .query(query -> query.range(range -> range.field("id").gt(JsonData.of(lastId))))
+                .sort(sort -> sort.field(field -> field.field("id").order(SortOrder.Asc)))
+                .size(LOAD_BATCH_SIZE));
+        SearchResponse<ServeProviderInfo> searchResponse = elasticSearchTemplate.opsForDoc().search(searchRequest, ServeProviderInfo.class);
+        return searchResponse.hits().hits().stream()
+                .map(Hit::source)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private ServeProviderInfo toServeProviderInfo(ServeProviderSyncDTO serveProviderSync) {
+        ServeProviderInfo serveProviderInfo = new ServeProviderInfo();
+        serveProviderInfo.setId(serveProviderSync.getId());
+        serveProviderInfo.setServeProviderType(serveProviderSync.getServeProviderType());
+        serveProviderInfo.setServeItemIds(serveProviderSync.getServeItemIds());
+        serveProviderInfo.setCityCode(serveProviderSync.getCityCode());
+        serveProviderInfo.setPickUp(serveProviderSync.getPickUp());
+        serveProviderInfo.setEvaluationScore(serveProviderSync.getEvaluationScore());
+        serveProviderInfo.setSettingStatus(serveProviderSync.getSettingStatus());
+        serveProviderInfo.setAcceptanceNum(serveProviderSync.getAcceptanceNum());
+        serveProviderInfo.setStatus(serveProviderSync.getStatus());
+        if (ObjectUtils.isNotNull(serveProviderSync.getLon()) && ObjectUtils.isNotNull(serveProviderSync.getLat())) {
+            Location location = new Location();
+            location.setLongitude(serveProviderSync.getLon());
+            location.setLatitude(serveProviderSync.getLat());
+            serveProviderInfo.setLocation(location);
+        }
+        return serveProviderInfo;
+    }
+}
@@ -0,0 +1,173 @@
+package com.jzo2o.orders.manager.service.impl;
+
+import com.jzo2o.common.utils.CollUtils;
+import com.jzo2o.common.utils.NumberUtils;
+import com.jzo2o.common.utils.ObjectUtils;
+import com.jzo2o.orders.base.mapper.OrdersServeMapper;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.manager.service.IStaffServeCountService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.STAFF_SERVE_COUNT;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.STAFF_SERVE_OWNER;
+import static com.jzo2o.orders.base.constants.RedisConstants.RedisKey.STAFF_SERVE_READY;
+
+/**
+ * 机构服务人员服务单数量
+ * <p>
+ * 除数量外还记录每个服务单所属的服务人员，服务单变更时据此从原服务人员减一、新服务人员加一；
+ * 更新脚本是幂等的，对账时按数据库重新执行一遍即可校正。
+ * 数量和所属服务人员按服务单id分为16片，每片的两个hash使用同一hash tag，分布在不同slot，避免大key和热点；
+ * 查询时一次pipeline读取各分片后求和
+ * </p>
+ *
+ * @author itcast
+ */
+@Slf4j
+@Service
+public class StaffServeCountServiceImpl implements IStaffServeCountService {
+
+    /**
+     * 对账每批数量
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 分片数量
+     */
+    private static final int SHARD_COUNT = 16;
+
+    @Resource
+    private StringRedisTemplate redisTemplate;
+
+    @Resource
+    private OrdersServeMapper ordersServeMapper;
+
+    private final DefaultRedisScript<Long> updateScript = new DefaultRedisScript<>();
+
+    private Counter driftCounter;
+
+    {
+        updateScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/staff_serve_count_update.lua")));
+        updateScript.setResultType(Long.class);
+    }
+
+    @PostConstruct
+    public void init() {
+        driftCounter = Metrics.counter("orders.staff.serve.count.drift");
+    }
+
+    @Override
+    public Integer count(Long institutionStaffId) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(STAFF_SERVE_READY))) {
+            return null;
+        }
+        byte[] field = institutionStaffId.toString().getBytes(StandardCharsets.UTF_8);
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int shard = 0; shard < SHARD_COUNT; shard++) {
+                connection.hashCommands().hGet(String.format(STAFF_SERVE_COUNT, shard).getBytes(StandardCharsets.UTF_8), field);
+            }
+            return null;
+        });
+        int total = 0;
+        for (Object count : counts) {
+            if (ObjectUtils.isNotNull(count)) {
+                total += NumberUtils.parseInt(count.toString());
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void update(Map<Long, Long> serveStaffs) {
+        serveStaffs.forEach(this::apply);
+    }
+
+    @Override
+    public long reconcile() {
+        long drift = 0;
+        // 1.按id顺序遍历数据库，校正每个服务单的所属服务人员
+        long lastId = 0;
+        List<OrdersServe> list;
+        do {
+            list = ordersServeMapper.selectStaffListAfterId(lastId, BATCH_SIZE);
+            for (OrdersServe ordersServe : list) {
+                drift += apply(ordersServe.getId(), ordersServe.getInstitutionStaffId());
+            }
+            if (CollUtils.isNotEmpty(list)) {
+                lastId = list.get(list.size() - 1).getId();
+            }
+        } while (list.size() == BATCH_SIZE);
+
+        // 2.遍历redis中的服务单，校正数据库中已删除或已不属于服务人员的服务单
+        ScanOptions scanOptions = ScanOptions.scanOptions().count(BATCH_SIZE).build();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(String.format(STAFF_SERVE_OWNER, shard), scanOptions)) {
+                Map<Long, Long> batch = new HashMap<>(BATCH_SIZE);
+                while (cursor.hasNext()) {
+                    Map.Entry<Object, Object> entry = cursor.next();
+                    batch.put(Long.valueOf(entry.getKey().toString()), Long.valueOf(entry.getValue().toString()));
+                    if (batch.size() >= BATCH_SIZE) {
+                        drift += reconcileOwners(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    drift += reconcileOwners(batch);
+                }
+            }
+        }
+
+        redisTemplate.opsForValue().set(STAFF_SERVE_READY, "1");
+        driftCounter.increment(drift);
+        return drift;
+    }
+
+    /**
+     * 按数据库校正redis中记录的服务单所属服务人员
+     *
+     * @param owners redis中记录的服务单id与服务人员id
+     * @return 偏差数量
+     */
+    private long reconcileOwners(Map<Long, Long> owners) {
+        Map<Long, Long> dbOwners = ordersServeMapper.selectStaffListByIds(new ArrayList<>(owners.keySet())).stream()
+                .filter(ordersServe -> ObjectUtils.isNotNull(ordersServe.getInstitutionStaffId()))
+                .collect(Collectors.toMap(OrdersServe::getId, OrdersServe::getInstitutionStaffId));
+        long drift = 0;
+        for (Map.Entry<Long, Long> entry : owners.entrySet()) {
+            Long dbStaffId = dbOwners.get(entry.getKey());
+            if (!entry.getValue().equals(dbStaffId)) {
+                drift += apply(entry.getKey(), dbStaffId);
+            }
+        }
+        return drift;
+    }
+
+    private long apply(Long serveId, Long institutionStaffId) {
+        String staffId = ObjectUtils.isNull(institutionStaffId) ? "" : institutionStaffId.toString();
+        long shard = serveId % SHARD_COUNT;
+        List<String> keys = Arrays.asList(String.format(STAFF_SERVE_COUNT, shard), String.format(STAFF_SERVE_OWNER, shard));
+        Long changed = redisTemplate.execute(updateScript, keys, serveId.toString(), staffId);
+        return ObjectUtils.isNull(changed) ? 0 : changed;
+    }
+}
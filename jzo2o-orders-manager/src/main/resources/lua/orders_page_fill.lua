@@ -0,0 +1,18 @@
+-- 用户订单索引构建完成：读取数据库前后变更版本一致时将临时索引重命名为正式索引，否则丢弃
+-- KEYS[1] 临时索引 zSet，KEYS[2] 用户订单索引 zSet，KEYS[3] 索引缺失期间的变更版本
+-- ARGV[1] 读取数据库前的变更版本，不存在为空串
+-- ARGV[2] 索引有效期，单位秒
+-- 返回：1 生效，0 构建期间有变更已丢弃
+local version = redis.call('GET', KEYS[3]) or ''
+if version ~= ARGV[1] then
+    redis.call('DEL', KEYS[1])
+    return 0
+end
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    -- 其他请求已构建
+    redis.call('DEL', KEYS[1])
+    return 1
+end
+redis.call('RENAME', KEYS[1], KEYS[2])
+redis.call('EXPIRE', KEYS[2], ARGV[2])
+return 1
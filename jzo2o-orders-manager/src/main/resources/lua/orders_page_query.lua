@@ -0,0 +1,33 @@
+-- 用户端订单滚动分页查询
+-- KEYS[1] 用户订单索引 zSet，score为sortBy，member为订单简要信息json
+-- ARGV[1] 最大score（不含），首页为+inf
+-- ARGV[2] 订单状态，不过滤传空串
+-- ARGV[3] 每页数量
+-- 返回：空列表表示索引不存在；{'-1'}表示订单过多未建索引；{'1', member...}为查询结果
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {}
+end
+if redis.call('ZSCORE', KEYS[1], 'OVERFLOW') then
+    return {'-1'}
+end
+local size = tonumber(ARGV[3])
+local status = ARGV[2]
+local result = {'1'}
+local offset = 0
+while #result <= size do
+    -- 占位成员score为负数，'(0'将其排除
+    local members = redis.call('ZREVRANGEBYSCORE', KEYS[1], ARGV[1], '(0', 'LIMIT', offset, size)
+    if #members == 0 then
+        break
+    end
+    for _, member in ipairs(members) do
+        if status == '' or tostring(cjson.decode(member)['ordersStatus']) == status then
+            table.insert(result, member)
+            if #result > size then
+                break
+            end
+        end
+    end
+    offset = offset + #members
+end
+return result
@@ -0,0 +1,16 @@
+-- 用户订单索引增量更新，索引不存在时只递增版本号（等待下次查询时懒加载，构建期间有变更的放弃本次构建）
+-- 增量更新不延长有效期，索引最迟在构建后一个有效期内重建
+-- KEYS[1] 用户订单索引 zSet，KEYS[2] 索引缺失期间的变更版本
+-- ARGV[1] 订单sortBy，同一用户下唯一，用于定位旧成员
+-- ARGV[2] 新的订单简要信息json，传空串表示从索引中移除
+-- ARGV[3] 变更版本有效期，单位秒
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    redis.call('INCR', KEYS[2])
+    redis.call('EXPIRE', KEYS[2], ARGV[3])
+    return 0
+end
+redis.call('ZREMRANGEBYSCORE', KEYS[1], ARGV[1], ARGV[1])
+if ARGV[2] ~= '' then
+    redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+end
+return 1
@@ -0,0 +1,21 @@
+-- 更新服务单所属机构服务人员并维护服务人员服务单数量
+-- KEYS[1] 服务人员服务单数量hash，KEYS[2] 服务单所属服务人员hash
+-- ARGV[1] 服务单id，ARGV[2] 机构服务人员id，为空表示服务单不属于任何服务人员或已删除
+-- 返回1表示数量有变更，0表示无变更；重复执行结果一致
+local old = redis.call('HGET', KEYS[2], ARGV[1])
+if not old then
+    old = ''
+end
+if old == ARGV[2] then
+    return 0
+end
+if old ~= '' then
+    redis.call('HINCRBY', KEYS[1], old, -1)
+end
+if ARGV[2] ~= '' then
+    redis.call('HINCRBY', KEYS[1], ARGV[2], 1)
+    redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])
+else
+    redis.call('HDEL', KEYS[2], ARGV[1])
+end
+return 1
@@ -0,0 +1,96 @@
+package com.jzo2o.orders.manager.benchmark;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.jzo2o.orders.base.mapper.OrdersMapper;
+import com.jzo2o.orders.base.mapper.OrdersServeMapper;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.base.model.domain.OrdersServe;
+import com.jzo2o.orders.manager.service.IOrdersManagerService;
+import com.jzo2o.orders.manager.service.IOrdersServeManagerService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 按id批量查询基准测试：分片分块并行查询 vs 单条IN查询
+ * <p>
+ * 需要数据库环境，手动运行；类名不以Test结尾，不随mvn test执行。
+ * id列表分别为10、1000、50000个，优先使用表中已有的id，不足部分用不存在的id补齐
+ * </p>
+ */
+@Slf4j
+@SpringBootTest
+public class OrdersBatchQueryBenchmark {
+
+    private static final int[] SIZES = {10, 1000, 50000};
+
+    private static final int WARMUP = 5;
+
+    private static final int ITERATIONS = 20;
+
+    @Resource
+    private IOrdersManagerService ordersManagerService;
+
+    @Resource
+    private IOrdersServeManagerService ordersServeManagerService;
+
+    @Resource
+    private OrdersMapper ordersMapper;
+
+    @Resource
+    private OrdersServeMapper ordersServeMapper;
+
+    @Test
+    void ordersBatchQuery() {
+        for (int size : SIZES) {
+            List<Long> ids = pad(ordersMapper.selectList(Wrappers.<Orders>lambdaQuery().select(Orders::getId).last("limit " + size))
+                    .stream().map(Orders::getId).collect(Collectors.toList()), size);
+            run("订单-单条IN", size, () -> ordersMapper.selectList(Wrappers.<Orders>lambdaQuery()
+                    .in(Orders::getId, ids)
+                    .ge(Orders::getUserId, 0)));
+            run("订单-分片分块", size, () -> ordersManagerService.batchQuery(ids));
+        }
+    }
+
+    @Test
+    void ordersServeBatchQuery() {
+        for (int size : SIZES) {
+            List<Long> ids = pad(ordersServeMapper.selectList(Wrappers.<OrdersServe>lambdaQuery().select(OrdersServe::getId).last("limit " + size))
+                    .stream().map(OrdersServe::getId).collect(Collectors.toList()), size);
+            run("服务单-单条IN", size, () -> ordersServeMapper.selectList(Wrappers.<OrdersServe>lambdaQuery()
+                    .in(OrdersServe::getId, ids)
+                    .ge(OrdersServe::getServeProviderId, 0)));
+            run("服务单-分片分块", size, () -> ordersServeManagerService.batchQuery(ids));
+        }
+    }
+
+    /**
+     * 用不存在的id补齐到指定数量
+     */
+    private static List<Long> pad(List<Long> ids, int size) {
+        List<Long> result = new ArrayList<>(ids);
+        for (long id = 1; result.size() < size; id++) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private void run(String name, int size, Supplier<List<?>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        long rows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            rows += query.get().size();
+        }
+        long nanos = System.nanoTime() - start;
+        log.info("{}：{}个id，每次查询{}毫秒，返回{}行", name, size, nanos / ITERATIONS / 1_000_000, rows / ITERATIONS);
+    }
+}
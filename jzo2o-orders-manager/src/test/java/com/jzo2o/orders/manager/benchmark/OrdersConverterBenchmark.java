@@ -0,0 +1,113 @@
+package com.jzo2o.orders.manager.benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.jzo2o.api.orders.dto.response.OrderResDTO;
+import com.jzo2o.api.orders.dto.response.OrderSimpleResDTO;
+import com.jzo2o.orders.base.model.domain.Orders;
+import com.jzo2o.orders.manager.model.converter.OrdersConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单转换基准测试：编译期生成的OrdersConverter vs BeanUtil反射拷贝
+ * <p>
+ * 分别转换1、100、1000条订单，main方法启用gc分析，输出每次转换分配的字节数（gc.alloc.rate.norm）
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrdersConverterBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private List<Orders> ordersList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ordersList = new ArrayList<>(size);
+        LocalDateTime now = LocalDateTime.of(2023, 9, 17, 10, 19, 59);
+        for (int i = 0; i < size; i++) {
+            ordersList.add(new Orders()
+                    .setId(2309170000000000001L + i)
+                    .setUserId(1694250327664218113L)
+                    .setServeTypeId(1678649931106705409L)
+                    .setServeTypeName("保洁服务")
+                    .setServeItemId(1685850705647968257L)
+                    .setServeItemName("日常保洁")
+                    .setServeItemImg("https://yjy-xzbjzfw-oss.oss-cn-hangzhou.aliyuncs.com/b1b5d2c4-3f8a-4b1a-9d9e-6c0c6f2b3c1a.png")
+                    .setUnit(1)
+                    .setServeId(1693815624114970626L)
+                    .setOrdersStatus(100)
+                    .setPayStatus(4)
+                    .setRefundStatus(0)
+                    .setPrice(new BigDecimal("45.00"))
+                    .setPurNum(2)
+                    .setTotalAmount(new BigDecimal("90.00"))
+                    .setRealPayAmount(new BigDecimal("80.00"))
+                    .setDiscountAmount(new BigDecimal("10.00"))
+                    .setCityCode("010")
+                    .setServeAddress("北京市昌平区回龙观街道弘文恒瑞文化传播公司")
+                    .setContactsPhone("13333333333")
+                    .setContactsName("张三")
+                    .setServeStartTime(now.plusDays(1))
+                    .setLon(116.3454)
+                    .setLat(40.0719)
+                    .setPayTime(now.plusMinutes(1))
+                    .setDisplay(1)
+                    .setSortBy(1695339358949949440L)
+                    .setCreateTime(now)
+                    .setUpdateTime(now)
+                    .setTradingOrderNo(1703251238295310338L)
+                    .setTransactionId("4200001935202309174830612345")
+                    .setTradingChannel("WECHAT_PAY"));
+        }
+    }
+
+    @Benchmark
+    public List<OrderResDTO> converterOrderRes() {
+        return OrdersConverter.INSTANCE.toOrderResDTOList(ordersList);
+    }
+
+    @Benchmark
+    public List<OrderResDTO> beanUtilOrderRes() {
+        return BeanUtil.copyToList(ordersList, OrderResDTO.class);
+    }
+
+    @Benchmark
+    public List<OrderSimpleResDTO> converterOrderSimple() {
+        return OrdersConverter.INSTANCE.toOrderSimpleResDTOList(ordersList);
+    }
+
+    @Benchmark
+    public List<OrderSimpleResDTO> beanUtilOrderSimple() {
+        return BeanUtil.copyToList(ordersList, OrderSimpleResDTO.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrdersConverterBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.jzo2o.orders.manager.benchmark;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.jzo2o.orders.base.mapper.OrdersMapper;
+import com.jzo2o.orders.base.model.domain.Orders;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 订单列表查询基准测试：只查询所需字段 vs 查询整行
+ * <p>
+ * 需要数据库环境，手动运行；类名不以Test结尾，不随mvn test执行。
+ * 用户id通过 -Dbenchmark.userId 指定，默认取订单表中任意一个用户。
+ * 输出每秒查询行数和每行分配的堆内存字节数
+ * </p>
+ */
+@Slf4j
+@SpringBootTest
+public class OrdersProjectionQueryBenchmark {
+
+    private static final int WARMUP = 200;
+
+    private static final int ITERATIONS = 2000;
+
+    @Resource
+    private OrdersMapper ordersMapper;
+
+    @Test
+    void consumerQueryList() {
+        Long userId = Long.getLong("benchmark.userId");
+        if (userId == null) {
+            userId = ordersMapper.selectOne(Wrappers.<Orders>lambdaQuery().select(Orders::getUserId).gt(Orders::getUserId, 0).last("limit 1")).getUserId();
+        }
+        Long finalUserId = userId;
+        run("用户端列表-整行", () -> ordersMapper.selectList(Wrappers.<Orders>lambdaQuery()
+                .eq(Orders::getUserId, finalUserId)
+                .eq(Orders::getDisplay, 1)
+                .orderByDesc(Orders::getSortBy)
+                .last("limit 10")));
+        run("用户端列表-投影", () -> ordersMapper.selectSimpleListByUserId(finalUserId, null, null, 10));
+    }
+
+    private void run(String name, Supplier<List<Orders>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long rows = 0;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            rows += query.get().size();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+        log.info("{}：{}次查询，{}行，{}行/秒，每次查询{}微秒，每行分配{}字节", name, ITERATIONS, rows,
+                rows * 1_000_000_000L / Math.max(nanos, 1), nanos / ITERATIONS / 1000, rows == 0 ? 0 : allocated / rows);
+    }
+}